@@ -1,5 +1,5 @@
 import React, { useState, useEffect } from 'react';
-import { fetchProducts, createOrder, updateProduct } from '../utils/api';
+import { fetchProducts, createOrder } from '../utils/api';
 
 const PlaceOrder = () => {
   const [userId, setUserId] = useState(null);
@@ -169,21 +169,6 @@ const PlaceOrder = () => {
     }).format(amount);
   };
 
-  const updateProductStock = async (productId, quantityOrdered) => {
-    try {
-      const product = products.find(p => p.id === productId);
-      if (product) {
-        const updatedProduct = {
-          ...product,
-          stockQuantity: product.stockQuantity - quantityOrdered
-        };
-        await updateProduct(productId, updatedProduct);
-      }
-    } catch (error) {
-      console.error(`Error updating stock for product ${productId}:`, error);
-    }
-  };
-
   const handleSubmit = async () => {
     if (!userId) {
       showMessage("❌ User not logged in. Please login first.", 'error');
@@ -215,13 +200,7 @@ const PlaceOrder = () => {
 
       await createOrder(orderData);
       
-      const stockUpdatePromises = order.orderItems.map(item => 
-        updateProductStock(item.productId, item.quantity)
-      );
-      
-      await Promise.all(stockUpdatePromises);
-      
-      showMessage("✅ Order placed successfully and stock updated!", 'success');
+      showMessage("✅ Order placed successfully!", 'success');
       
       setTimeout(() => {
         setOrder({
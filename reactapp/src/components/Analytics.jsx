@@ -7,7 +7,7 @@ import {
   DollarSign, Package, ShoppingCart, Users, RefreshCw, AlertCircle,
   Calendar, TrendingUp, Activity, GitBranch
 } from 'lucide-react';
-import { fetchProducts, fetchOrders } from '../utils/api';
+import { fetchProducts, fetchOrders, getOrder, openLiveUpdates } from '../utils/api';
 
 const CHART_COLORS = ['#2563eb', '#16a34a', '#dc2626', '#ca8a04', '#9333ea', '#0891b2', '#ec4899', '#f59e0b'];
 
@@ -99,13 +99,35 @@ export default function EnhancedAnalyticsDashboard() {
     loadData();
   }, []);
 
-  // Real-time polling for 'today' filter
+  // Live updates pushed by the server instead of polling
   useEffect(() => {
-    if (dateFilter === 'today') {
-      const interval = setInterval(loadData, 30000); // Refresh every 30 seconds
-      return () => clearInterval(interval);
-    }
-  }, [dateFilter]);
+    const source = openLiveUpdates();
+
+    source.addEventListener('order-created', async (e) => {
+      const { orderId } = JSON.parse(e.data);
+      try {
+        const res = await getOrder(orderId);
+        setOrders(prev => (prev.some(o => o.id === orderId) ? prev : [...prev, res.data]));
+      } catch (err) {
+        console.error('Failed to load new order:', err);
+      }
+    });
+
+    source.addEventListener('order-status-changed', (e) => {
+      const { orderId, toStatus } = JSON.parse(e.data);
+      setOrders(prev => prev.map(o => (o.id === orderId ? { ...o, status: toStatus } : o)));
+    });
+
+    source.addEventListener('stock-changed', (e) => {
+      const { productId, stockQuantity } = JSON.parse(e.data);
+      setProducts(prev => prev.map(p => (p.id === productId ? { ...p, stockQuantity } : p)));
+    });
+
+    // We fell out of the server's replay buffer; reload once
+    source.addEventListener('resync', () => loadData());
+
+    return () => source.close();
+  }, []);
 
   useEffect(() => {
     const filtered = filterOrdersByDate(orders, dateFilter, customDateRange);
@@ -117,7 +139,7 @@ export default function EnhancedAnalyticsDashboard() {
     setError(null);
     try {
       const [productsResponse, ordersResponse] = await Promise.all([
-        fetchProducts(),
+        fetchProducts('name,category,price,stockQuantity'),
         fetchOrders()
       ]);
 
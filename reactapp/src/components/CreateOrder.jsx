@@ -1,5 +1,7 @@
 import React, { useState, useEffect } from 'react';
-import { fetchProducts, createOrder, updateProduct } from '../utils/api';
+import { suggestProducts, getProduct, createOrder } from '../utils/api';
+
+const SUGGESTION_LIMIT = 10;
 
 const CreateOrder = () => {
   const [order, setOrder] = useState({
@@ -9,14 +11,14 @@ const CreateOrder = () => {
     orderItems: []
   });
   
+  // Full details of the products picked for this order; the catalog itself is never loaded
   const [products, setProducts] = useState([]);
-  const [filteredProducts, setFilteredProducts] = useState([]);
-  const [loading, setLoading] = useState(true);
+  const [suggestions, setSuggestions] = useState([]);
+  const [searching, setSearching] = useState(false);
+  const [adding, setAdding] = useState(null);
   const [submitting, setSubmitting] = useState(false);
   const [alert, setAlert] = useState({ show: false, message: '', type: '' });
   const [searchTerm, setSearchTerm] = useState('');
-  const [categoryFilter, setCategoryFilter] = useState('');
-  const [sortBy, setSortBy] = useState('name-asc');
   const [userId, setUserId] = useState(null);
 
   useEffect(() => {
@@ -27,65 +29,40 @@ const CreateOrder = () => {
     } else {
       showMessage('❌ User not logged in. Please log in to create an order.', 'error');
     }
-    
-    loadProducts();
   }, []);
 
+  // Typeahead over /api/products/suggest, a moment after the last keystroke
   useEffect(() => {
-    applyFiltersAndSorting();
-  }, [products, searchTerm, categoryFilter, sortBy]);
-
-  const loadProducts = async () => {
-    try {
-      setLoading(true);
-      const response = await fetchProducts();
-      setProducts(response.data);
-      setFilteredProducts(response.data);
-    } catch (error) {
-      console.error('Error fetching products:', error);
-      showMessage('❌ Failed to load products', 'error');
-      setProducts([]);
-      setFilteredProducts([]);
-    } finally {
-      setLoading(false);
+    const prefix = searchTerm.trim();
+    if (!prefix) {
+      setSuggestions([]);
+      setSearching(false);
+      return undefined;
     }
-  };
-
-  const applyFiltersAndSorting = () => {
-    let result = [...products];
-
-    // Apply search filter
-    if (searchTerm) {
-      result = result.filter(p => 
-        p.name.toLowerCase().includes(searchTerm.toLowerCase()) ||
-        p.description.toLowerCase().includes(searchTerm.toLowerCase())
-      );
-    }
-
-    // Apply category filter
-    if (categoryFilter) {
-      result = result.filter(p => 
-        p.category.toLowerCase().startsWith(categoryFilter.toLowerCase())
-      );
-    }
-
-    // Apply sorting
-    if (sortBy === 'name-asc') {
-      result.sort((a, b) => a.name.localeCompare(b.name));
-    } else if (sortBy === 'name-desc') {
-      result.sort((a, b) => b.name.localeCompare(a.name));
-    } else if (sortBy === 'price-asc') {
-      result.sort((a, b) => a.price - b.price);
-    } else if (sortBy === 'price-desc') {
-      result.sort((a, b) => b.price - a.price);
-    } else if (sortBy === 'stock-asc') {
-      result.sort((a, b) => a.stockQuantity - b.stockQuantity);
-    } else if (sortBy === 'stock-desc') {
-      result.sort((a, b) => b.stockQuantity - a.stockQuantity);
-    }
-
-    setFilteredProducts(result);
-  };
+    let current = true;
+    const timer = setTimeout(async () => {
+      try {
+        setSearching(true);
+        const response = await suggestProducts(prefix, SUGGESTION_LIMIT);
+        if (current) {
+          setSuggestions((response.data || []).filter(hit => hit.type === 'PRODUCT'));
+        }
+      } catch (error) {
+        console.error('Error fetching product suggestions:', error);
+        if (current) {
+          setSuggestions([]);
+        }
+      } finally {
+        if (current) {
+          setSearching(false);
+        }
+      }
+    }, 250);
+    return () => {
+      current = false;
+      clearTimeout(timer);
+    };
+  }, [searchTerm]);
 
   const showMessage = (text, type, shouldNavigate = false) => {
     setAlert({ show: true, message: text, type });
@@ -94,22 +71,33 @@ const CreateOrder = () => {
     }, 3000);
   };
 
-  const addItem = (product) => {
-    if (!order.orderItems.find(item => item.productId === product.id)) {
+  // Loads the picked product (price and live stock) and adds one unit of it
+  const addItem = async (productId) => {
+    if (order.orderItems.find(item => item.productId === productId)) {
+      showMessage('⚠️ Product already in order', 'warning');
+      return;
+    }
+    try {
+      setAdding(productId);
+      const { data: product } = await getProduct(productId);
       if (product.stockQuantity === 0) {
         showMessage('❌ Product is out of stock', 'error');
         return;
       }
-      setOrder({
-        ...order,
-        orderItems: [...order.orderItems, { 
-          productId: product.id, 
+      setProducts(prev => [...prev.filter(p => p.id !== product.id), product]);
+      setOrder(prev => ({
+        ...prev,
+        orderItems: [...prev.orderItems, {
+          productId: product.id,
           quantity: 1
         }]
-      });
+      }));
       showMessage(`✅ ${product.name} added to order`, 'success');
-    } else {
-      showMessage('⚠️ Product already in order', 'warning');
+    } catch (error) {
+      console.error('Error fetching product:', error);
+      showMessage('❌ Failed to load the product', 'error');
+    } finally {
+      setAdding(null);
     }
   };
 
@@ -155,12 +143,6 @@ const CreateOrder = () => {
     return order.orderItems.reduce((total, item) => total + item.quantity, 0);
   };
 
-  const clearFilters = () => {
-    setSearchTerm('');
-    setCategoryFilter('');
-    setSortBy('name-asc');
-  };
-
   const formatCurrency = (amount) => {
     return new Intl.NumberFormat('en-IN', {
       style: 'currency',
@@ -170,21 +152,6 @@ const CreateOrder = () => {
     }).format(amount);
   };
 
-  const updateProductStock = async (productId, quantityOrdered) => {
-    try {
-      const product = products.find(p => p.id === productId);
-      if (product) {
-        const updatedProduct = {
-          ...product,
-          stockQuantity: product.stockQuantity - quantityOrdered
-        };
-        await updateProduct(productId, updatedProduct);
-      }
-    } catch (error) {
-      console.error(`Error updating stock for product ${productId}:`, error);
-    }
-  };
-
   const handleSubmit = async () => {
     // Check if user is logged in
     if (!userId) {
@@ -221,14 +188,7 @@ const CreateOrder = () => {
       // Create the order
       await createOrder(orderData);
       
-      // Update stock for each ordered product
-      const stockUpdatePromises = order.orderItems.map(item => 
-        updateProductStock(item.productId, item.quantity)
-      );
-      
-      await Promise.all(stockUpdatePromises);
-      
-      showMessage("✅ Order created successfully and stock updated!", 'success');
+      showMessage("✅ Order created successfully!", 'success');
       
       // Reset form after successful submission
       setTimeout(() => {
@@ -238,8 +198,7 @@ const CreateOrder = () => {
           shippingAddress: '',
           orderItems: []
         });
-        // Refresh products to show updated stock
-        loadProducts();
+        setProducts([]);
       }, 2000);
     } catch (error) {
       console.error('Error creating order:', error);
@@ -250,17 +209,6 @@ const CreateOrder = () => {
     }
   };
 
-  if (loading) {
-    return (
-      <div className="min-h-screen bg-gray-50 flex items-center justify-center">
-        <div className="text-center">
-          <div className="w-12 h-12 border-2 border-gray-200 border-t-blue-600 rounded-full mx-auto mb-4 animate-spin"></div>
-          <p className="text-gray-600 text-lg font-medium">Loading products...</p>
-        </div>
-      </div>
-    );
-  }
-
   // Show login message if no userId found
   if (!userId) {
     return (
@@ -380,110 +328,54 @@ const CreateOrder = () => {
             <h2 className="text-xl font-semibold text-gray-900">Select Products</h2>
           </div>
           
-          {/* Filters */}
+          {/* Typeahead */}
           <div className="bg-gray-50 rounded-lg p-4 mb-6">
-            <div className="grid grid-cols-1 sm:grid-cols-2 lg:grid-cols-4 gap-4">
-              <input
-                type="text"
-                placeholder="Search products..."
-                value={searchTerm}
-                onChange={e => setSearchTerm(e.target.value)}
-                className="px-3 py-2 border border-gray-300 rounded-lg text-sm bg-white transition-all duration-200 focus:outline-none focus:border-blue-600 focus:ring-3 focus:ring-blue-100 placeholder-gray-400"
-              />
-              <input
-                type="text"
-                placeholder="Filter by category..."
-                value={categoryFilter}
-                onChange={e => setCategoryFilter(e.target.value)}
-                className="px-3 py-2 border border-gray-300 rounded-lg text-sm bg-white transition-all duration-200 focus:outline-none focus:border-blue-600 focus:ring-3 focus:ring-blue-100 placeholder-gray-400"
-              />
-              <select 
-                value={sortBy} 
-                onChange={e => setSortBy(e.target.value)}
-                className="px-3 py-2 border border-gray-300 rounded-lg text-sm bg-white transition-all duration-200 focus:outline-none focus:border-blue-600 focus:ring-3 focus:ring-blue-100 cursor-pointer"
-              >
-                <option value="name-asc">Name (A-Z)</option>
-                <option value="name-desc">Name (Z-A)</option>
-                <option value="price-asc">Price (Low-High)</option>
-                <option value="price-desc">Price (High-Low)</option>
-                <option value="stock-asc">Stock (Low-High)</option>
-                <option value="stock-desc">Stock (High-Low)</option>
-              </select>
-              <button 
-                type="button" 
-                onClick={clearFilters} 
-                className="px-4 py-2 bg-red-500 text-white rounded-lg font-medium cursor-pointer transition-colors duration-200 hover:bg-red-600 focus:outline-none focus:ring-3 focus:ring-red-100"
-              >
-                Clear Filters
-              </button>
-            </div>
+            <input
+              type="text"
+              placeholder="Start typing a product name..."
+              value={searchTerm}
+              onChange={e => setSearchTerm(e.target.value)}
+              className="w-full px-3 py-2 border border-gray-300 rounded-lg text-sm bg-white transition-all duration-200 focus:outline-none focus:border-blue-600 focus:ring-3 focus:ring-blue-100 placeholder-gray-400"
+            />
           </div>
 
-          {/* Products Grid */}
-          <div className="grid grid-cols-1 lg:grid-cols-2 xl:grid-cols-3 gap-6">
-            {filteredProducts.length > 0 ? (
-              filteredProducts.map(product => (
-                <div key={product.id} className="border border-gray-200 rounded-lg p-6 bg-white transition-all duration-200 hover:shadow-lg hover:-translate-y-0.5">
-                  <div className="mb-4">
-                    <h3 className="text-lg font-semibold text-gray-900 mb-2">{product.name}</h3>
-                    <p className="text-gray-600 text-sm mb-3 line-clamp-2 leading-6 overflow-hidden" style={{
-                      display: '-webkit-box',
-                      WebkitLineClamp: 2,
-                      WebkitBoxOrient: 'vertical'
-                    }}>{product.description}</p>
-                    <div className="flex flex-wrap gap-2 mb-4">
-                      <span className="px-3 py-1 bg-green-50 text-green-800 rounded-full text-sm font-medium">
-                        {formatCurrency(product.price)}
-                      </span>
-                      <span className="px-3 py-1 bg-blue-50 text-blue-800 rounded-full text-sm font-medium">
-                        {product.category}
-                      </span>
-                      <span className={`px-3 py-1 rounded-full text-sm font-medium ${
-                        product.stockQuantity === 0 
-                          ? 'bg-red-50 text-red-800' 
-                          : 'bg-gray-50 text-gray-700'
-                      }`}>
-                        {product.stockQuantity === 0 ? 'Out of Stock' : `${product.stockQuantity} in stock`}
+          {/* Suggestions */}
+          <div className="flex flex-col gap-2">
+            {suggestions.length > 0 ? (
+              suggestions.map(hit => {
+                const added = order.orderItems.some(item => item.productId === hit.productId);
+                return (
+                  <div key={hit.productId} className="border border-gray-200 rounded-lg px-4 py-3 bg-white flex items-center justify-between gap-4 transition-all duration-200 hover:shadow-sm">
+                    <div className="flex items-center gap-3 min-w-0">
+                      <span className="font-medium text-gray-900 truncate">{hit.text}</span>
+                      <span className="px-3 py-1 bg-blue-50 text-blue-800 rounded-full text-xs font-medium">
+                        {hit.category}
                       </span>
                     </div>
+                    <button
+                      type="button"
+                      onClick={() => addItem(hit.productId)}
+                      disabled={added || adding === hit.productId}
+                      className={`px-4 py-2 rounded-lg font-medium text-sm cursor-pointer transition-all duration-200 inline-flex items-center justify-center focus:outline-none focus:ring-3 ${
+                        added || adding === hit.productId
+                          ? 'bg-gray-100 text-gray-600 cursor-not-allowed focus:ring-gray-100'
+                          : 'bg-blue-600 text-white hover:bg-blue-700 hover:shadow-md hover:-translate-y-px focus:ring-blue-100'
+                      }`}
+                    >
+                      {added ? 'Added ✓' : adding === hit.productId ? 'Adding...' : 'Add to Order'}
+                    </button>
                   </div>
-                  <div className="flex justify-end">
-                    {product.stockQuantity > 0 ? (
-                      <button 
-                        type="button" 
-                        onClick={() => addItem(product)}
-                        disabled={order.orderItems.some(item => item.productId === product.id)}
-                        className={`px-4 py-2 rounded-lg font-medium text-sm cursor-pointer transition-all duration-200 inline-flex items-center justify-center focus:outline-none focus:ring-3 ${
-                          order.orderItems.some(item => item.productId === product.id)
-                            ? 'bg-gray-100 text-gray-600 cursor-not-allowed focus:ring-gray-100'
-                            : 'bg-blue-600 text-white hover:bg-blue-700 hover:shadow-md hover:-translate-y-px focus:ring-blue-100'
-                        }`}
-                      >
-                        {order.orderItems.some(item => item.productId === product.id) ? 'Added ✓' : 'Add to Order'}
-                      </button>
-                    ) : (
-                      <button type="button" className="px-4 py-2 bg-gray-100 text-gray-400 rounded-lg font-medium text-sm cursor-not-allowed" disabled>
-                        Out of Stock
-                      </button>
-                    )}
-                  </div>
-                </div>
-              ))
+                );
+              })
             ) : (
-              <div className="col-span-full text-center py-12">
+              <div className="text-center py-12">
                 <div className="text-6xl mb-4">📦</div>
-                <h3 className="text-lg font-medium text-gray-900 mb-2">No products found</h3>
-                <p className="text-gray-600 mb-4">
-                  {products.length === 0 ? 'No products available in the database' : 'Try adjusting your search or filters'}
+                <h3 className="text-lg font-medium text-gray-900 mb-2">
+                  {searching ? 'Searching...' : searchTerm.trim() ? 'No products found' : 'Find a product'}
+                </h3>
+                <p className="text-gray-600">
+                  {searchTerm.trim() ? 'Try another name' : 'Type the start of a product name to see matches'}
                 </p>
-                {products.length === 0 && (
-                  <button 
-                    onClick={loadProducts}
-                    className="px-4 py-2 bg-blue-600 text-white rounded-lg font-medium hover:bg-blue-700 transition-colors duration-200 focus:outline-none focus:ring-3 focus:ring-blue-100"
-                  >
-                    Retry Loading
-                  </button>
-                )}
               </div>
             )}
           </div>
@@ -1,6 +1,6 @@
 import React, { useEffect, useState, useCallback, useMemo } from "react";
 import { useNavigate } from "react-router-dom";
-import { fetchOrders, updateOrderStatus, deleteOrder } from "../utils/api";
+import { searchOrders, updateOrderStatus, deleteOrder } from "../utils/api";
 import {
   Package,
   Truck,
@@ -39,8 +39,10 @@ const OrderList = ({ onViewOrder }) => {
   const [sortBy, setSortBy] = useState("orderDate");
   const [sortOrder, setSortOrder] = useState("desc");
   const [showAdvancedFilters, setShowAdvancedFilters] = useState(false);
+  const [nextCursor, setNextCursor] = useState(null);
 
   const ordersPerPage = 8;
+  const searchPageSize = 200;
   const navigate = useNavigate();
 
   // Helper functions
@@ -64,26 +66,73 @@ const OrderList = ({ onViewOrder }) => {
     []
   );
 
+  // Status, date and amount filters (and an email search) run on the server; the rest of the
+  // search box filters the orders loaded so far
+  const emailTerm = searchTerm.includes("@") ? searchTerm.trim() : "";
+
+  const searchParams = useMemo(() => {
+    const params = { size: searchPageSize };
+    if (statusFilter !== "ALL") params.status = statusFilter;
+    const toLocalIso = (date) =>
+      new Date(date.getTime() - date.getTimezoneOffset() * 60000).toISOString().slice(0, 19);
+    const now = new Date();
+    if (dateFilter === "TODAY") {
+      params.from = toLocalIso(new Date(now.getFullYear(), now.getMonth(), now.getDate()));
+    } else if (dateFilter === "WEEK") {
+      params.from = toLocalIso(new Date(now.getTime() - 7 * 24 * 60 * 60 * 1000));
+    } else if (dateFilter === "MONTH") {
+      params.from = toLocalIso(new Date(now.getTime() - 30 * 24 * 60 * 60 * 1000));
+    }
+    if (amountFilter === "LOW") {
+      params.maxAmount = 499.99;
+    } else if (amountFilter === "MEDIUM") {
+      params.minAmount = 500;
+      params.maxAmount = 1499.99;
+    } else if (amountFilter === "HIGH") {
+      params.minAmount = 1500;
+    }
+    if (emailTerm) params.email = emailTerm;
+    return params;
+  }, [statusFilter, dateFilter, amountFilter, emailTerm]);
+
   const loadOrders = useCallback(async () => {
     setLoading(true);
     setError("");
     try {
-      const res = await fetchOrders();
+      const res = await searchOrders(searchParams);
       const data = extractData(res);
-      const normalizedData = normalizeOrders(data);
-      setOrders(normalizedData);
+      setOrders(normalizeOrders(data?.items));
+      setNextCursor(data?.hasMore ? data.nextCursor : null);
     } catch (err) {
       console.error("Error fetching orders:", err);
       setError("Failed to load orders. Please check your connection and try again.");
       setOrders([]);
+      setNextCursor(null);
     } finally {
       setLoading(false);
     }
-  }, [extractData, normalizeOrders]);
+  }, [extractData, normalizeOrders, searchParams]);
+
+  const loadMoreOrders = useCallback(async () => {
+    if (!nextCursor) return;
+    setActionLoading(true);
+    try {
+      const res = await searchOrders({ ...searchParams, cursor: nextCursor });
+      const data = extractData(res);
+      setOrders((prev) => [...prev, ...normalizeOrders(data?.items)]);
+      setNextCursor(data?.hasMore ? data.nextCursor : null);
+    } catch (err) {
+      console.error("Error fetching more orders:", err);
+      setError("Failed to load more orders. Please try again.");
+    } finally {
+      setActionLoading(false);
+    }
+  }, [extractData, normalizeOrders, searchParams, nextCursor]);
 
   useEffect(() => {
-    loadOrders();
-  }, [loadOrders]);
+    const timer = setTimeout(loadOrders, emailTerm ? 300 : 0);
+    return () => clearTimeout(timer);
+  }, [loadOrders, emailTerm]);
 
   useEffect(() => {
     if (successMessage) {
@@ -772,6 +821,18 @@ const OrderList = ({ onViewOrder }) => {
             </p>
           </div>
         )}
+
+        {nextCursor && (
+          <div className="mt-4 text-center">
+            <button
+              onClick={loadMoreOrders}
+              disabled={actionLoading}
+              className="px-4 py-2 bg-white border border-gray-300 rounded-md hover:bg-gray-50 disabled:opacity-50 disabled:cursor-not-allowed transition-colors text-sm"
+            >
+              Load older orders
+            </button>
+          </div>
+        )}
       </div>
     </div>
   );
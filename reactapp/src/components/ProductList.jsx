@@ -1,6 +1,6 @@
 import React, { useEffect, useState, useMemo } from 'react';
 import { Search, Filter, X, Edit3, Trash2, Save, XCircle, Package, TrendingUp, AlertCircle, CheckCircle } from 'lucide-react';
-import { fetchProducts, deleteProduct, updateProduct } from '../utils/api';
+import { fetchProducts, deleteProduct, patchProducts, imageSrc } from '../utils/api';
 
 const ProductList = () => {
   const [products, setProducts] = useState([]);
@@ -175,20 +175,31 @@ const ProductList = () => {
     }
 
     try {
+      const product = products.find(p => p.id === editingId);
       const updatedData = {
         ...editData,
         price: parseFloat(editData.price),
         stockQuantity: parseInt(editData.stockQuantity)
       };
-      
-      await updateProduct(editingId, updatedData);
-      const product = products.find(p => p.id === editingId);
+
+      // Send only the fields that changed, guarded by the version we edited
+      const patch = { id: editingId, version: product?.version };
+      Object.keys(updatedData).forEach(key => {
+        if (updatedData[key] !== product?.[key]) patch[key] = updatedData[key];
+      });
+
+      await patchProducts([patch]);
       showMessage(`✅ ${product?.name} updated successfully`, 'success');
       setEditingId(null);
       await loadProducts();
     } catch (error) {
       console.error('Error updating product:', error);
-      showMessage('❌ Failed to update product', 'error');
+      if (error.response?.status === 409) {
+        showMessage('❌ Product was changed by someone else, reloaded latest values', 'error');
+        await loadProducts();
+      } else {
+        showMessage('❌ Failed to update product', 'error');
+      }
     }
   };
 
@@ -514,7 +525,7 @@ const ProductList = () => {
                         <div className="flex items-center">
                           {product.imageUrl ? (
                             <img 
-                              src={product.imageUrl} 
+                              src={imageSrc(product.imageUrl, 64)} 
                               alt={product.name} 
                               className="h-10 w-10 rounded-lg object-cover border border-gray-200"
                               onError={(e) => {
@@ -8,17 +8,37 @@ const UserList = () => {
   const [loading, setLoading] = useState(true);
   const [searchTerm, setSearchTerm] = useState("");
   const [sortBy, setSortBy] = useState("name");
+
+  // Sort options and the server sort key/direction they map to
+  const SORTS = {
+    name: { sort: "name", direction: "asc" },
+    email: { sort: "email", direction: "asc" },
+    created: { sort: "created_at", direction: "desc" },
+    orders: { sort: "order_count", direction: "desc" },
+    spend: { sort: "lifetime_spend", direction: "desc" },
+  };
   const [filterRole, setFilterRole] = useState("");
+  const [nextCursor, setNextCursor] = useState(null);
   const navigate = useNavigate();
 
+  // Search, role filter and sort run on the server; results come back one keyset page at a
+  // time, already in order, so nothing is re-sorted here across pages
   useEffect(() => {
-    fetchUsers();
-  }, []);
+    const timer = setTimeout(() => fetchUsers(), 250);
+    return () => clearTimeout(timer);
+  }, [searchTerm, filterRole, sortBy]);
 
-  const fetchUsers = async () => {
+  const fetchUsers = async (cursor) => {
     try {
-      const res = await getAllUsers();
-      setUsers(res.data);
+      const res = await getAllUsers({
+        q: searchTerm || undefined,
+        role: filterRole || undefined,
+        ...SORTS[sortBy],
+        cursor: cursor || undefined,
+        size: 50,
+      });
+      setUsers(prev => (cursor ? [...prev, ...res.data.items] : res.data.items));
+      setNextCursor(res.data.hasMore ? res.data.nextCursor : null);
     } catch (err) {
       console.error("Error fetching users:", err);
     } finally {
@@ -38,33 +58,7 @@ const UserList = () => {
     }
   };
 
-  const filteredAndSortedUsers = users
-    .filter(user => {
-      const matchesSearch = 
-        (user.name?.toLowerCase().includes(searchTerm.toLowerCase())) ||
-        (user.username?.toLowerCase().includes(searchTerm.toLowerCase())) ||
-        (user.email?.toLowerCase().includes(searchTerm.toLowerCase()));
-      
-      const matchesRole = !filterRole || user.role === filterRole;
-      
-      return matchesSearch && matchesRole;
-    })
-    .sort((a, b) => {
-      switch(sortBy) {
-        case "name":
-          return (a.name || a.username || "").localeCompare(b.name || b.username || "");
-        case "email":
-          return (a.email || "").localeCompare(b.email || "");
-        case "role":
-          return (a.role || "").localeCompare(b.role || "");
-        case "created":
-          return new Date(b.createdAt || 0) - new Date(a.createdAt || 0);
-        default:
-          return 0;
-      }
-    });
-
-  const uniqueRoles = [...new Set(users.map(user => user.role).filter(Boolean))];
+  const uniqueRoles = ["USER", "ADMIN"];
 
   if (loading) {
     return (
@@ -88,7 +82,7 @@ const UserList = () => {
               <div>
                 <h1 className="text-2xl font-semibold text-white">User Management</h1>
                 <p className="text-blue-100 mt-1">
-                  Manage and view all user accounts ({users.length} total)
+                  Manage and view all user accounts ({users.length}{nextCursor ? "+" : ""} loaded)
                 </p>
               </div>
               
@@ -96,7 +90,7 @@ const UserList = () => {
               <div className="relative">
                 <input
                   type="text"
-                  placeholder="Search users..."
+                  placeholder="Name, or email with @..."
                   value={searchTerm}
                   onChange={(e) => setSearchTerm(e.target.value)}
                   className="w-80 px-4 py-2 pl-10 rounded-lg text-gray-700 bg-white/90 backdrop-blur-sm border-0 focus:ring-2 focus:ring-white/30 focus:bg-white transition-all duration-200"
@@ -123,10 +117,11 @@ const UserList = () => {
                   onChange={(e) => setSortBy(e.target.value)}
                   className="px-3 py-2 rounded-md border border-gray-300 text-sm focus:ring-2 focus:ring-blue-500 focus:border-blue-500"
                 >
-                  <option value="name">Sort by Date Created</option>
+                  <option value="name">Sort by Name</option>
                   <option value="email">Sort by Email</option>
-                  <option value="role">Sort by Role</option>
                   <option value="created">Sort by Date Created</option>
+                  <option value="orders">Sort by Orders</option>
+                  <option value="spend">Sort by Lifetime Spend</option>
                 </select>
 
                 {/* Role Filter */}
@@ -143,14 +138,14 @@ const UserList = () => {
               </div>
 
               <div className="text-sm text-gray-600">
-                {filteredAndSortedUsers.length} of {users.length} users
+                {users.length}{nextCursor ? "+" : ""} users
               </div>
             </div>
           </div>
 
           {/* User List */}
           <div className="divide-y divide-gray-200">
-            {filteredAndSortedUsers.length === 0 ? (
+            {users.length === 0 ? (
               <div className="text-center py-12">
                 <div className="w-12 h-12 mx-auto mb-4 bg-gray-100 rounded-full flex items-center justify-center">
                   <svg className="w-6 h-6 text-gray-400" fill="none" stroke="currentColor" viewBox="0 0 24 24">
@@ -163,7 +158,7 @@ const UserList = () => {
                 </p>
               </div>
             ) : (
-              filteredAndSortedUsers.map((user) => (
+              users.map((user) => (
                 <div key={user.id} className="px-6 py-4 hover:bg-gray-50 transition-colors">
                   <div className="flex items-center justify-between">
                     <Link
@@ -235,6 +230,17 @@ const UserList = () => {
               ))
             )}
           </div>
+
+          {nextCursor && (
+            <div className="px-6 py-4 border-t border-gray-200 text-center">
+              <button
+                onClick={() => fetchUsers(nextCursor)}
+                className="px-4 py-2 text-sm font-medium text-blue-600 hover:bg-blue-50 rounded-md transition-colors"
+              >
+                Load more users
+              </button>
+            </div>
+          )}
         </div>
       </div>
     </div>
@@ -37,14 +37,50 @@ export const registerAdmin = async (name, email, password) => {
 
 
 // Product APIs
-export const fetchProducts = () => axios.get(`${BASE_URL}/api/products`);
+// fields: optional comma-separated list (e.g. 'name,price') to get only those columns back
+export const fetchProducts = (fields) =>
+  axios.get(`${BASE_URL}/api/products`, { params: fields ? { fields } : undefined });
 export const getProduct = (id) => axios.get(`${BASE_URL}/api/products/${id}`);
 export const createProduct = (data) => axios.post(`${BASE_URL}/api/products`, data);
 export const updateProduct = (id, data) => axios.put(`${BASE_URL}/api/products/${id}`, data);
+export const patchProducts = (patches) => axios.patch(`${BASE_URL}/api/products`, patches);
 export const deleteProduct = (id) => axios.delete(`${BASE_URL}/api/products/${id}`);
+// Product images: upload stores the file and sets imageUrl; imageSrc picks a thumbnail for local images
+export const uploadProductImage = (id, file) => {
+  const form = new FormData();
+  form.append('file', file);
+  return axios.post(`${BASE_URL}/api/products/${id}/image`, form);
+};
+export const imageSrc = (imageUrl, size) =>
+  imageUrl && imageUrl.startsWith('/api/images/')
+    ? `${BASE_URL}${imageUrl}${size ? `?size=${size}` : ''}`
+    : imageUrl;
+// CSV catalog import: start returns a job; poll getProductImport(job.id) until COMPLETED or FAILED
+export const importProducts = (file) => {
+  const form = new FormData();
+  form.append('file', file);
+  return axios.post(`${BASE_URL}/api/products/import`, form);
+};
+export const getProductImport = (jobId) => axios.get(`${BASE_URL}/api/products/import/${jobId}`);
+export const productImportErrorsUrl = (jobId) => `${BASE_URL}/api/products/import/${jobId}/errors`;
+// Typeahead for product pickers: [{ type: 'PRODUCT' | 'CATEGORY', text, productId, category, weight }]
+export const suggestProducts = (prefix, limit = 10) =>
+  axios.get(`${BASE_URL}/api/products/suggest`, { params: { prefix, limit } });
+export const fetchProductChanges = (since) =>
+  axios.get(`${BASE_URL}/api/products/changes`, { params: { since } });
+export const fetchTopSellers = (window = '24h', limit = 10) =>
+  axios.get(`${BASE_URL}/api/products/top`, { params: { window, limit } });
+export const fetchLowStock = (by = 'cover', limit = 20, max) =>
+  axios.get(`${BASE_URL}/api/products/low-stock`, { params: { by, limit, max } });
+export const setStockBuckets = (id, count) =>
+  axios.put(`${BASE_URL}/api/products/${id}/stock-buckets`, null, { params: { count } });
 
 // Order APIs
-export const fetchOrders = () => axios.get(`${BASE_URL}/api/orders`);
+export const fetchOrders = (fields) =>
+  axios.get(`${BASE_URL}/api/orders`, { params: fields ? { fields } : undefined });
+export const fetchOrdersPlaced = (params) => axios.get(`${BASE_URL}/api/orders/placed`, { params });
+// params: email, name, status, from, to, productId, minAmount, maxAmount, cursor, size
+export const searchOrders = (params) => axios.get(`${BASE_URL}/api/orders/search`, { params });
 export const getOrder = (id) => axios.get(`${BASE_URL}/api/orders/${id}`);
 export const createOrder = (data) => axios.post(`${BASE_URL}/api/orders`, data);
 export const updateOrderStatus = (id, status) =>
@@ -52,10 +88,26 @@ export const updateOrderStatus = (id, status) =>
 export const deleteOrder = (id) => axios.delete(`${BASE_URL}/api/orders/${id}`);
 export const getOrderById = (id) => axios.get(`${BASE_URL}/api/orders/${id}`);
 
+// Live updates (Server-Sent Events); the browser reconnects and resumes by itself
+export const openLiveUpdates = () => new EventSource(`${BASE_URL}/api/live/stream`);
+
+// Analytics, e.g. queryOrderLines({ groupBy: ['category', 'week'], statuses: ['DELIVERED'] })
+export const queryOrderLines = (query) => axios.post(`${BASE_URL}/api/analytics/order-lines/query`, query);
+
+// Pricing: quote a basket before checkout, and manage discount / coupon / tax rules
+export const quoteOrder = (orderItems, couponCode) =>
+  axios.post(`${BASE_URL}/api/orders/quote`, { orderItems, couponCode });
+export const getPricingRules = () => axios.get(`${BASE_URL}/api/pricing/rules`);
+export const createPricingRule = (rule) => axios.post(`${BASE_URL}/api/pricing/rules`, rule);
+export const updatePricingRule = (id, rule) => axios.put(`${BASE_URL}/api/pricing/rules/${id}`, rule);
+export const deletePricingRule = (id) => axios.delete(`${BASE_URL}/api/pricing/rules/${id}`);
+
 
 // user APIs
 export const createUser = (userData) => API.post("/api/users", userData);
-export const getAllUsers = () => API.get("/api/users");
+export const getAllUsers = (params) => API.get("/api/users", { params });
 export const getUserById = (id) => API.get(`/api/users/${id}`);
 export const updateUser = (id, userData) => API.put(`/api/users/${id}`, userData);
-export const deleteUser = (id) => API.delete(`/api/users/${id}`);
\ No newline at end of file
+export const deleteUser = (id) => API.delete(`/api/users/${id}`);
+export const getUserSummary = (id) => API.get(`/api/users/${id}/summary`);
+export const getUserSummaries = (params) => API.get("/api/users/summaries", { params });
\ No newline at end of file
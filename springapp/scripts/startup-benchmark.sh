@@ -0,0 +1,76 @@
+#!/usr/bin/env bash
+# Measures time-to-first-request (JVM launch until GET /api/products answers) for each startup mode:
+#   default        default profile (ddl-auto=update, DEBUG logging)
+#   prod           prod profile (schema validation, quiet logging)
+#   prod+aot       prod profile with the AOT-generated bean definitions
+#   prod+aot+cds   the same, plus the class data sharing archive
+#
+# Build first:  ./mvnw -Pfast-startup clean package -DskipTests
+# Then:         scripts/startup-benchmark.sh [runs-per-mode]
+# Needs the database configured in application.properties and a free port (PORT, default 8080).
+set -euo pipefail
+
+cd "$(dirname "$0")/.."
+RUNS=${1:-5}
+PORT=${PORT:-8080}
+TIMEOUT_S=${TIMEOUT_S:-180}
+URL="http://localhost:${PORT}/api/products"
+ARCHIVE=target/app/application.jsa
+JAR=$(ls target/app/*.jar 2>/dev/null | head -n 1 || true)
+LOG=target/startup-benchmark.log
+
+if [[ -z "$JAR" || ! -f "$ARCHIVE" ]]; then
+    echo "No fast-startup build found; run ./mvnw -Pfast-startup clean package -DskipTests first" >&2
+    exit 1
+fi
+if curl -s -o /dev/null "$URL"; then
+    echo "Something is already listening on port $PORT" >&2
+    exit 1
+fi
+
+NAMES=(default prod prod+aot prod+aot+cds)
+FLAGS=(
+    ""
+    "-Dspring.profiles.active=prod"
+    "-Dspring.profiles.active=prod -Dspring.aot.enabled=true"
+    "-Dspring.profiles.active=prod -Dspring.aot.enabled=true -XX:SharedArchiveFile=$ARCHIVE"
+)
+
+now_ms() {
+    date +%s%3N
+}
+
+# Prints the milliseconds until the first successful request
+run_once() {
+    local flags=$1 start pid
+    start=$(now_ms)
+    # shellcheck disable=SC2086
+    java $flags -Dserver.port="$PORT" -jar "$JAR" >"$LOG" 2>&1 &
+    pid=$!
+    until curl -fs -o /dev/null "$URL"; do
+        if ! kill -0 "$pid" 2>/dev/null; then
+            echo "Application exited during startup; see $LOG" >&2
+            return 1
+        fi
+        if (( $(now_ms) - start > TIMEOUT_S * 1000 )); then
+            echo "No response within ${TIMEOUT_S}s; see $LOG" >&2
+            kill "$pid"
+            return 1
+        fi
+        sleep 0.05
+    done
+    echo $(( $(now_ms) - start ))
+    kill "$pid"
+    wait "$pid" 2>/dev/null || true
+}
+
+printf '%-14s %10s %10s %10s\n' mode median_ms best_ms worst_ms
+for i in "${!NAMES[@]}"; do
+    times=()
+    for (( run = 0; run < RUNS; run++ )); do
+        elapsed=$(run_once "${FLAGS[$i]}") || exit 1
+        times+=("$elapsed")
+    done
+    mapfile -t sorted < <(printf '%s\n' "${times[@]}" | sort -n)
+    printf '%-14s %10s %10s %10s\n' "${NAMES[$i]}" "${sorted[$(( RUNS / 2 ))]}" "${sorted[0]}" "${sorted[$(( RUNS - 1 ))]}"
+done
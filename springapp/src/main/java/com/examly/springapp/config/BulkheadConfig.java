@@ -0,0 +1,34 @@
+package com.examly.springapp.config;
+
+import com.examly.springapp.utils.TrafficClass;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import javax.sql.DataSource;
+import java.util.EnumMap;
+import java.util.Map;
+
+// Wraps the application DataSource (with or without the read replica) in per-class connection partitions
+@Configuration
+public class BulkheadConfig {
+
+    @Bean
+    public static BeanPostProcessor partitionedDataSourcePostProcessor(Environment env) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (!"dataSource".equals(beanName) || !(bean instanceof DataSource dataSource)
+                        || bean instanceof PartitionedDataSource) {
+                    return bean;
+                }
+                Map<TrafficClass, Integer> limits = new EnumMap<>(TrafficClass.class);
+                limits.put(TrafficClass.ADMIN, env.getProperty("bulkhead.admin.max-connections", Integer.class, 3));
+                limits.put(TrafficClass.DEFAULT, env.getProperty("bulkhead.default.max-connections", Integer.class, 6));
+                return new PartitionedDataSource(dataSource,
+                        limits, env.getProperty("bulkhead.connection-wait-ms", Long.class, 1000L));
+            }
+        };
+    }
+}
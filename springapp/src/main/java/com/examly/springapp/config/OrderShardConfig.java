@@ -0,0 +1,57 @@
+package com.examly.springapp.config;
+
+import com.examly.springapp.utils.TrafficClass;
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Active when app.order-shards.urls is set: orders and order lines then live on these databases,
+ * partitioned by user id (see ShardedOrderStore), while products, users and everything else stay
+ * on the primary datasource. The order tables are created on each shard at startup if missing.
+ * <p>
+ * Each shard pool is split like the primary one (see BulkheadConfig): admin and default work may
+ * hold at most app.order-shards.admin.max-connections and app.order-shards.default.max-connections
+ * of it, so an admin search fanned out to every shard cannot take the connections checkout needs.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "app.order-shards", name = "urls")
+public class OrderShardConfig {
+
+    @Bean(destroyMethod = "close")
+    public OrderShards orderShards(@Value("${app.order-shards.urls}") String[] urls,
+                                   @Value("${app.order-shards.username:${spring.datasource.username:}}") String username,
+                                   @Value("${app.order-shards.password:${spring.datasource.password:}}") String password,
+                                   @Value("${app.order-shards.pool-size:8}") int poolSize,
+                                   @Value("${app.order-shards.query-threads:8}") int queryThreads,
+                                   @Value("${app.order-shards.admin.max-connections:2}") int adminConnections,
+                                   @Value("${app.order-shards.default.max-connections:4}") int defaultConnections,
+                                   @Value("${bulkhead.connection-wait-ms:1000}") long connectionWaitMs) {
+        ResourceDatabasePopulator schema = new ResourceDatabasePopulator(new ClassPathResource("order-shard-schema.sql"));
+        Map<TrafficClass, Integer> limits = new EnumMap<>(TrafficClass.class);
+        limits.put(TrafficClass.ADMIN, adminConnections);
+        limits.put(TrafficClass.DEFAULT, defaultConnections);
+        List<DataSource> dataSources = new ArrayList<>();
+        for (String url : urls) {
+            HikariDataSource dataSource = new HikariDataSource();
+            dataSource.setJdbcUrl(url.trim());
+            dataSource.setUsername(username);
+            dataSource.setPassword(password);
+            dataSource.setMaximumPoolSize(poolSize);
+            dataSource.setPoolName("order-shard-" + dataSources.size());
+            schema.execute(dataSource);
+            dataSources.add(new PartitionedDataSource(dataSource, limits, connectionWaitMs));
+        }
+        return new OrderShards(dataSources, queryThreads);
+    }
+}
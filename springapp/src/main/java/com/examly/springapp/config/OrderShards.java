@@ -0,0 +1,116 @@
+package com.examly.springapp.config;
+
+import com.examly.springapp.utils.TrafficClass;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * The order shards: N databases each holding the orders (and their lines) of the users that hash
+ * to it. A user's shard is fixed by the number of shards, so changing it needs a data move.
+ * <p>
+ * {@link #scatter} runs one query per shard in parallel on a dedicated pool and returns the
+ * results in shard order; the first failure fails the whole call. The queries keep the caller's
+ * {@link TrafficClass}, so they draw on the same connection partition of each shard as the caller.
+ */
+public class OrderShards implements AutoCloseable {
+
+    public record Shard(int index, DataSource dataSource, JdbcTemplate jdbc, TransactionTemplate transactions) {}
+
+    private final List<Shard> shards;
+    private final ExecutorService pool;
+
+    public OrderShards(List<DataSource> dataSources, int queryThreads) {
+        if (dataSources.isEmpty()) {
+            throw new IllegalArgumentException("At least one order shard is required");
+        }
+        List<Shard> list = new ArrayList<>();
+        for (DataSource dataSource : dataSources) {
+            list.add(new Shard(list.size(), dataSource, new JdbcTemplate(dataSource),
+                    new TransactionTemplate(new DataSourceTransactionManager(dataSource))));
+        }
+        this.shards = List.copyOf(list);
+        AtomicInteger threadNo = new AtomicInteger();
+        this.pool = Executors.newFixedThreadPool(Math.max(1, queryThreads), runnable -> {
+            Thread thread = new Thread(runnable, "order-shard-query-" + threadNo.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public int count() {
+        return shards.size();
+    }
+
+    public List<Shard> all() {
+        return shards;
+    }
+
+    public Shard forUser(long userId) {
+        return shards.get(indexOf(userId, shards.size()));
+    }
+
+    // Snowflake-style ids are not uniformly distributed in their low bits, so they are mixed first
+    public static int indexOf(long userId, int shardCount) {
+        long mixed = userId;
+        mixed ^= mixed >>> 33;
+        mixed *= 0xFF51AFD7ED558CCDL;
+        mixed ^= mixed >>> 33;
+        mixed *= 0xC4CEB9FE1A85EC53L;
+        mixed ^= mixed >>> 33;
+        return (int) Math.floorMod(mixed, (long) shardCount);
+    }
+
+    public <T> List<T> scatter(Function<Shard, T> query) {
+        if (shards.size() == 1) {
+            return List.of(query.apply(shards.get(0)));
+        }
+        List<Future<T>> futures = new ArrayList<>();
+        for (Shard shard : shards) {
+            futures.add(pool.submit(TrafficClass.propagate(() -> query.apply(shard))));
+        }
+        List<T> results = new ArrayList<>(futures.size());
+        try {
+            for (Future<T> future : futures) {
+                results.add(future.get());
+            }
+            return results;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while querying order shards", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw new IllegalStateException("Order shard query failed", e.getCause());
+        } finally {
+            futures.forEach(future -> future.cancel(true));
+        }
+    }
+
+    @Override
+    public void close() {
+        pool.shutdownNow();
+        for (Shard shard : shards) {
+            DataSource dataSource = shard.dataSource() instanceof PartitionedDataSource partitioned
+                    ? partitioned.getTargetDataSource() : shard.dataSource();
+            if (dataSource instanceof AutoCloseable closeable) {
+                try {
+                    closeable.close();
+                } catch (Exception e) {
+                    // shutting down anyway
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package com.examly.springapp.config;
+
+import com.examly.springapp.utils.TrafficClass;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Splits one connection pool into partitions per {@link TrafficClass}. ADMIN and DEFAULT work can
+ * hold at most their configured number of connections at once; CHECKOUT is not capped, so the rest
+ * of the pool is always left for order placement. Threads outside any request (startup, schedulers,
+ * the outbox dispatcher) count as DEFAULT, so background work cannot eat into checkout's share either.
+ * <p>
+ * The permit is per thread: further connections a thread opens while it already holds one of the
+ * partition (a REQUIRES_NEW transaction inside another) share its permit, so nested transactions
+ * never wait on a permit their own thread is holding. The permit is returned when the thread's last
+ * connection of the partition is closed (i.e. handed back to the pool).
+ */
+public class PartitionedDataSource extends DelegatingDataSource {
+
+    private record Permit(Semaphore partition, AtomicInteger heldByThread) {}
+
+    private final Map<TrafficClass, Semaphore> partitions = new EnumMap<>(TrafficClass.class);
+    private final Map<TrafficClass, Integer> limits = new EnumMap<>(TrafficClass.class);
+    private final long maxWaitMs;
+    // open connections of each partition on the current thread
+    private final ThreadLocal<Map<TrafficClass, AtomicInteger>> held =
+            ThreadLocal.withInitial(() -> new EnumMap<>(TrafficClass.class));
+
+    public PartitionedDataSource(DataSource target, Map<TrafficClass, Integer> limits, long maxWaitMs) {
+        super(target);
+        this.maxWaitMs = maxWaitMs;
+        limits.forEach((trafficClass, limit) -> {
+            this.limits.put(trafficClass, limit);
+            partitions.put(trafficClass, new Semaphore(limit, true));
+        });
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        Permit permit = acquire();
+        try {
+            return guard(super.getConnection(), permit);
+        } catch (SQLException | RuntimeException e) {
+            release(permit);
+            throw e;
+        }
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        Permit permit = acquire();
+        try {
+            return guard(super.getConnection(username, password), permit);
+        } catch (SQLException | RuntimeException e) {
+            release(permit);
+            throw e;
+        }
+    }
+
+    public Map<TrafficClass, Map<String, Integer>> stats() {
+        Map<TrafficClass, Map<String, Integer>> stats = new EnumMap<>(TrafficClass.class);
+        partitions.forEach((trafficClass, partition) -> {
+            Map<String, Integer> partitionStats = new LinkedHashMap<>();
+            partitionStats.put("inUse", limits.get(trafficClass) - partition.availablePermits());
+            partitionStats.put("maxConnections", limits.get(trafficClass));
+            stats.put(trafficClass, partitionStats);
+        });
+        return stats;
+    }
+
+    // null when the current class is not capped
+    private Permit acquire() throws SQLException {
+        TrafficClass trafficClass = Objects.requireNonNullElse(TrafficClass.current(), TrafficClass.DEFAULT);
+        Semaphore partition = partitions.get(trafficClass);
+        if (partition == null) {
+            return null;
+        }
+        AtomicInteger heldByThread = held.get().computeIfAbsent(trafficClass, key -> new AtomicInteger());
+        if (heldByThread.get() == 0) {
+            boolean acquired = false;
+            try {
+                acquired = partition.tryAcquire(maxWaitMs, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            if (!acquired) {
+                throw new SQLTransientConnectionException("No " + trafficClass.name().toLowerCase()
+                        + " connection available within " + maxWaitMs + "ms");
+            }
+        }
+        heldByThread.incrementAndGet();
+        return new Permit(partition, heldByThread);
+    }
+
+    private static void release(Permit permit) {
+        if (permit != null && permit.heldByThread().decrementAndGet() == 0) {
+            permit.partition().release();
+        }
+    }
+
+    // Returns the permit exactly once, when the connection is closed
+    private static Connection guard(Connection connection, Permit permit) {
+        if (permit == null) {
+            return connection;
+        }
+        AtomicBoolean released = new AtomicBoolean();
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[]{Connection.class},
+                (proxy, method, args) -> {
+                    if ("close".equals(method.getName()) && released.compareAndSet(false, true)) {
+                        try {
+                            return method.invoke(connection, args);
+                        } catch (InvocationTargetException e) {
+                            throw e.getTargetException();
+                        } finally {
+                            release(permit);
+                        }
+                    }
+                    if ("unwrap".equals(method.getName()) || "isWrapperFor".equals(method.getName())) {
+                        if (((Class<?>) args[0]).isInstance(proxy)) {
+                            return "unwrap".equals(method.getName()) ? proxy : true;
+                        }
+                    }
+                    try {
+                        return method.invoke(connection, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getTargetException();
+                    }
+                });
+    }
+}
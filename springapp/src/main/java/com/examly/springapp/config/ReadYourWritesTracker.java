@@ -0,0 +1,64 @@
+package com.examly.springapp.config;
+
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Remembers which clients committed a write recently, so their reads can be pinned to the
+ * primary until the replica has had time to catch up.
+ */
+public class ReadYourWritesTracker {
+
+    public static final String CLIENT_ID_HEADER = "X-Client-Id";
+
+    private final long stickyWindowMs;
+    private final Map<String, Long> lastWriteAt = new ConcurrentHashMap<>();
+
+    public ReadYourWritesTracker(long stickyWindowMs) {
+        this.stickyWindowMs = stickyWindowMs;
+    }
+
+    public void recordWrite() {
+        if (stickyWindowMs <= 0) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        lastWriteAt.put(currentClientKey(), now);
+
+        // cheap housekeeping so the map only holds clients inside their window
+        if (lastWriteAt.size() > 10_000) {
+            lastWriteAt.values().removeIf(at -> now - at > stickyWindowMs);
+        }
+    }
+
+    public boolean isSticky() {
+        if (stickyWindowMs <= 0) {
+            return false;
+        }
+        Long at = lastWriteAt.get(currentClientKey());
+        return at != null && System.currentTimeMillis() - at <= stickyWindowMs;
+    }
+
+    // Explicit client id, then the bearer token, then the remote address; background threads key on themselves
+    static String currentClientKey() {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (attributes instanceof ServletRequestAttributes servletAttributes) {
+            HttpServletRequest request = servletAttributes.getRequest();
+            String clientId = request.getHeader(CLIENT_ID_HEADER);
+            if (clientId != null && !clientId.isBlank()) {
+                return "client:" + clientId;
+            }
+            String auth = request.getHeader("Authorization");
+            if (auth != null && !auth.isBlank()) {
+                return "auth:" + auth.hashCode();
+            }
+            return "ip:" + request.getRemoteAddr();
+        }
+        return "thread:" + Thread.currentThread().getId();
+    }
+}
@@ -1,5 +1,10 @@
 package com.examly.springapp.config;
 
+import com.examly.springapp.utils.BulkheadFilter;
+import com.examly.springapp.utils.Bulkheads;
+import com.examly.springapp.utils.JwtUtil;
+import com.examly.springapp.utils.RateLimitFilter;
+import com.examly.springapp.utils.RateLimiter;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.config.annotation.method.configuration.EnableMethodSecurity;
@@ -7,11 +12,22 @@ import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
+import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
 
 @Configuration
 @EnableMethodSecurity
 public class SecurityConfig {
 
+    private final RateLimiter rateLimiter;
+    private final Bulkheads bulkheads;
+    private final JwtUtil jwtUtil;
+
+    public SecurityConfig(RateLimiter rateLimiter, Bulkheads bulkheads, JwtUtil jwtUtil) {
+        this.rateLimiter = rateLimiter;
+        this.bulkheads = bulkheads;
+        this.jwtUtil = jwtUtil;
+    }
+
     @Bean
     public PasswordEncoder passwordEncoder() {
         return new BCryptPasswordEncoder();
@@ -26,6 +42,11 @@ public class SecurityConfig {
             .authorizeHttpRequests()
             .anyRequest().permitAll(); // Make all endpoints public
 
+        // Per-client token buckets; runs before any controller work
+        http.addFilterBefore(new RateLimitFilter(rateLimiter, jwtUtil), UsernamePasswordAuthenticationFilter.class);
+        // Then per-class concurrency limits, so admin storms cannot starve checkout
+        http.addFilterAfter(new BulkheadFilter(bulkheads), RateLimitFilter.class);
+
         // Remove JWT filter since no authentication is needed
         return http.build();
     }
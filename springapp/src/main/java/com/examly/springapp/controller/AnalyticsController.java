@@ -0,0 +1,32 @@
+package com.examly.springapp.controller;
+
+import com.examly.springapp.dto.OrderLineQuery;
+import com.examly.springapp.dto.OrderLineReport;
+import com.examly.springapp.service.OrderLineAnalyticsService;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/analytics")
+@CrossOrigin(origins = "http://localhost:8081")
+public class AnalyticsController {
+
+    private final OrderLineAnalyticsService orderLineAnalyticsService;
+
+    public AnalyticsController(OrderLineAnalyticsService orderLineAnalyticsService) {
+        this.orderLineAnalyticsService = orderLineAnalyticsService;
+    }
+
+    // e.g. {"groupBy": ["category", "week"], "statuses": ["DELIVERED"], "from": "2024-01-01"}
+    @PostMapping("/order-lines/query")
+    public ResponseEntity<OrderLineReport> queryOrderLines(@RequestBody OrderLineQuery query) {
+        return ResponseEntity.ok(orderLineAnalyticsService.query(query));
+    }
+
+    @GetMapping("/order-lines/stats")
+    public ResponseEntity<Map<String, Object>> getOrderLineStats() {
+        return ResponseEntity.ok(orderLineAnalyticsService.getStats());
+    }
+}
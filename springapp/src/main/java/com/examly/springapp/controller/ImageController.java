@@ -0,0 +1,83 @@
+package com.examly.springapp.controller;
+
+import com.examly.springapp.service.ProductImageService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Optional;
+
+@RestController
+@RequestMapping("/api/images")
+@CrossOrigin(origins = "http://localhost:8081")
+public class ImageController {
+
+    // Tomcat's sendfile hand-off; below this size a plain copy is cheaper than the extra poller round trip
+    private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+    private static final long SENDFILE_MIN_BYTES = 48 * 1024;
+
+    private static final String CACHE_FOREVER = "public, max-age=31536000, immutable";
+    // the original standing in for a thumbnail that is not generated yet
+    private static final String CACHE_REVALIDATE = "no-cache";
+
+    private final ProductImageService productImageService;
+
+    public ImageController(ProductImageService productImageService) {
+        this.productImageService = productImageService;
+    }
+
+    // Original, or ?size= one of images.thumbnail-sizes (the original until that thumbnail has been generated)
+    @GetMapping("/{name}")
+    public void getImage(@PathVariable String name, @RequestParam(required = false) Integer size,
+                         HttpServletRequest request, HttpServletResponse response) throws IOException {
+        Optional<ProductImageService.StoredImage> found = productImageService.open(name, size);
+        if (found.isEmpty()) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+        ProductImageService.StoredImage image = found.get();
+        response.setHeader(HttpHeaders.ETAG, image.etag());
+        response.setHeader(HttpHeaders.CACHE_CONTROL, image.cacheable() ? CACHE_FOREVER : CACHE_REVALIDATE);
+        if (matches(request.getHeader(HttpHeaders.IF_NONE_MATCH), image.etag())) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+        response.setContentType(image.contentType().toString());
+        response.setContentLengthLong(image.length());
+        if ("HEAD".equals(request.getMethod())) {
+            return;
+        }
+
+        // Large files go out through the connector's sendfile(), which never copies them into user space;
+        // everything else is a plain buffered copy into the response stream
+        if (image.length() >= SENDFILE_MIN_BYTES && Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+            request.setAttribute(SENDFILE_FILENAME, image.path().toAbsolutePath().toString());
+            request.setAttribute(SENDFILE_START, 0L);
+            request.setAttribute(SENDFILE_END, image.length());
+            return;
+        }
+        Files.copy(image.path(), response.getOutputStream());
+    }
+
+    private static boolean matches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.startsWith("W/")) {
+                tag = tag.substring(2);
+            }
+            if (tag.equals("*") || tag.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,43 @@
+package com.examly.springapp.controller;
+
+import com.examly.springapp.service.LiveUpdateHub;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+@RestController
+@RequestMapping("/api/live")
+@CrossOrigin(origins = "http://localhost:8081")
+public class LiveUpdateController {
+
+    private final LiveUpdateHub liveUpdateHub;
+
+    public LiveUpdateController(LiveUpdateHub liveUpdateHub) {
+        this.liveUpdateHub = liveUpdateHub;
+    }
+
+    // Events: order-created, order-status-changed, stock-changed (and resync when the client fell too far behind).
+    // Browsers resend Last-Event-ID on reconnect; ?lastEventId= is accepted for clients that cannot set headers.
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> stream(
+            @RequestHeader(value = "Last-Event-ID", required = false) String lastEventIdHeader,
+            @RequestParam(value = "lastEventId", required = false) String lastEventIdParam) {
+        String raw = lastEventIdHeader != null ? lastEventIdHeader : lastEventIdParam;
+        Long lastEventId = null;
+        if (raw != null && !raw.isBlank()) {
+            try {
+                lastEventId = Long.valueOf(raw.trim());
+            } catch (NumberFormatException e) {
+                lastEventId = 0L; // unknown id: replay whatever is still buffered or resync
+            }
+        }
+
+        try {
+            return ResponseEntity.ok(liveUpdateHub.subscribe(lastEventId));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).header("Retry-After", "5").build();
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package com.examly.springapp.controller;
+
+import com.examly.springapp.config.PartitionedDataSource;
+import com.examly.springapp.service.BatchLoaders;
+import com.examly.springapp.service.OutboxDispatcher;
+import com.examly.springapp.utils.Bulkheads;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import javax.sql.DataSource;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Operational counters for the admin panel
+@RestController
+@RequestMapping("/api/metrics")
+@CrossOrigin(origins = "http://localhost:8081")
+public class MetricsController {
+
+    private final Bulkheads bulkheads;
+    private final DataSource dataSource;
+    private final OutboxDispatcher outboxDispatcher;
+    private final BatchLoaders batchLoaders;
+
+    public MetricsController(Bulkheads bulkheads, DataSource dataSource, OutboxDispatcher outboxDispatcher,
+                             BatchLoaders batchLoaders) {
+        this.bulkheads = bulkheads;
+        this.dataSource = dataSource;
+        this.outboxDispatcher = outboxDispatcher;
+        this.batchLoaders = batchLoaders;
+    }
+
+    @GetMapping("/bulkheads")
+    public ResponseEntity<Map<String, Object>> getBulkheads() {
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("requests", bulkheads.stats());
+        if (dataSource instanceof PartitionedDataSource partitioned) {
+            body.put("connections", partitioned.stats());
+        }
+        return ResponseEntity.ok(body);
+    }
+
+    // Per-consumer offsets and lag of the outbox pipeline
+    @GetMapping("/outbox")
+    public ResponseEntity<Map<String, Object>> getOutbox() {
+        return ResponseEntity.ok(outboxDispatcher.getMetrics());
+    }
+
+    // Batch sizes and coalescing ratios of the by-id loaders
+    @GetMapping("/batch-loaders")
+    public ResponseEntity<Map<String, Object>> getBatchLoaders() {
+        return ResponseEntity.ok(batchLoaders.stats());
+    }
+}
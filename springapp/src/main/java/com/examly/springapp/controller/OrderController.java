@@ -1,13 +1,21 @@
 package com.examly.springapp.controller;
 
+import com.examly.springapp.dto.CursorPage;
 import com.examly.springapp.dto.OrderCreateRequest;
+import com.examly.springapp.dto.OrderHistoryEntry;
+import com.examly.springapp.dto.OrderSearchQuery;
 import com.examly.springapp.dto.OrderStatusUpdateRequest;
+import com.examly.springapp.dto.PriceQuote;
+import com.examly.springapp.dto.PriceQuoteRequest;
 import com.examly.springapp.model.Order;
+import com.examly.springapp.service.OrderHistoryService;
 import com.examly.springapp.service.OrderService;
 import jakarta.validation.Valid;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 @RestController
@@ -20,12 +28,16 @@ public class OrderController {
 
 private final OrderService orderService;
 
+private final OrderHistoryService orderHistoryService;
 
 
-public OrderController(OrderService orderService) {
+
+public OrderController(OrderService orderService, OrderHistoryService orderHistoryService) {
 
     this.orderService = orderService;
 
+    this.orderHistoryService = orderHistoryService;
+
 }
 
 
@@ -40,16 +52,79 @@ public ResponseEntity<Order> createOrder(@Valid @RequestBody OrderCreateRequest
 
 
 
+// Prices a basket (discounts, coupon, tax) without placing the order or reserving stock
+@PostMapping("/quote")
+
+public ResponseEntity<PriceQuote> quoteOrder(@Valid @RequestBody PriceQuoteRequest request) {
+
+    return ResponseEntity.ok(orderService.quote(request));
+
+}
+
+
+
+// fields=id,status,totalAmount selects just those columns; the user and lines are then never loaded
 @GetMapping
 
-public ResponseEntity<List<Order>> getAllOrders() {
+public ResponseEntity<List<?>> getAllOrders(@RequestParam(required = false) String fields) {
 
+    if (fields != null) {
+        return ResponseEntity.ok(orderService.getAllOrderFields(fields));
+    }
     return ResponseEntity.ok(orderService.getAllOrders());
 
 }
 
 
 
+// Orders placed in [from, to), newest first; pass nextCursor back as ?cursor= for the next page
+@GetMapping("/placed")
+
+public ResponseEntity<CursorPage<Order>> getOrdersPlacedBetween(
+        @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+        @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+        @RequestParam(required = false) Long cursor,
+        @RequestParam(defaultValue = "50") int size) {
+
+    return ResponseEntity.ok(orderService.getOrdersPlacedBetween(from, to, cursor, size));
+
+}
+
+
+
+// Admin search, e.g. ?email=ann@&status=SHIPPED&productId=..&minAmount=100&from=..; every criterion
+// is optional, results are newest first and nextCursor continues the list (no total count)
+@GetMapping("/search")
+
+public ResponseEntity<CursorPage<Order>> searchOrders(
+        @RequestParam(required = false) String email,
+        @RequestParam(required = false) String name,
+        @RequestParam(required = false) String status,
+        @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+        @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+        @RequestParam(required = false) Long productId,
+        @RequestParam(required = false) Double minAmount,
+        @RequestParam(required = false) Double maxAmount,
+        @RequestParam(required = false) Long cursor,
+        @RequestParam(defaultValue = "50") int size) {
+
+    return ResponseEntity.ok(orderService.searchOrders(OrderSearchQuery.builder()
+            .customerEmail(email)
+            .customerName(name)
+            .status(status)
+            .from(from)
+            .to(to)
+            .productId(productId)
+            .minAmount(minAmount)
+            .maxAmount(maxAmount)
+            .cursor(cursor)
+            .size(size)
+            .build()));
+
+}
+
+
+
 @GetMapping("/{id}")
 
 public ResponseEntity<Order> getOrderById(@PathVariable Long id) {
@@ -60,6 +135,17 @@ public ResponseEntity<Order> getOrderById(@PathVariable Long id) {
 
 
 
+// Audit trail of status changes (served from the history log, not the database)
+@GetMapping("/{id}/history")
+
+public ResponseEntity<List<OrderHistoryEntry>> getOrderHistory(@PathVariable Long id) {
+
+    return ResponseEntity.ok(orderHistoryService.getHistory(id));
+
+}
+
+
+
 @PatchMapping("/{id}/status")
 
 public ResponseEntity<Order> updateOrderStatus(@PathVariable Long id, @RequestBody OrderStatusUpdateRequest req) {
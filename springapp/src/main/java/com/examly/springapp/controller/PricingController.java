@@ -0,0 +1,42 @@
+package com.examly.springapp.controller;
+
+import com.examly.springapp.model.PricingRule;
+import com.examly.springapp.service.PricingRuleService;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/pricing")
+@CrossOrigin(origins = "http://localhost:8081")
+public class PricingController {
+
+    private final PricingRuleService pricingRuleService;
+
+    public PricingController(PricingRuleService pricingRuleService) {
+        this.pricingRuleService = pricingRuleService;
+    }
+
+    @GetMapping("/rules")
+    public ResponseEntity<List<PricingRule>> getAllRules() {
+        return ResponseEntity.ok(pricingRuleService.getAllRules());
+    }
+
+    // e.g. {"type": "COUPON", "name": "Spring sale", "couponCode": "SPRING10", "basisPoints": 1000}
+    @PostMapping("/rules")
+    public ResponseEntity<PricingRule> createRule(@RequestBody PricingRule rule) {
+        return ResponseEntity.status(201).body(pricingRuleService.createRule(rule));
+    }
+
+    @PutMapping("/rules/{id}")
+    public ResponseEntity<PricingRule> updateRule(@PathVariable Long id, @RequestBody PricingRule rule) {
+        return ResponseEntity.ok(pricingRuleService.updateRule(id, rule));
+    }
+
+    @DeleteMapping("/rules/{id}")
+    public ResponseEntity<Void> deleteRule(@PathVariable Long id) {
+        pricingRuleService.deleteRule(id);
+        return ResponseEntity.noContent().build();
+    }
+}
@@ -1,11 +1,27 @@
 package com.examly.springapp.controller;
 
+import com.examly.springapp.dto.LowStockEntry;
+import com.examly.springapp.dto.ProductChangeFeed;
+import com.examly.springapp.dto.ProductImportStatus;
+import com.examly.springapp.dto.ProductPatchRequest;
+import com.examly.springapp.dto.ProductSuggestion;
+import com.examly.springapp.dto.TopSellers;
 import com.examly.springapp.model.Product;
+import com.examly.springapp.service.BestSellerService;
+import com.examly.springapp.service.LowStockService;
+import com.examly.springapp.service.ProductChangeService;
+import com.examly.springapp.service.ProductImageService;
+import com.examly.springapp.service.ProductImportService;
 import com.examly.springapp.service.ProductService;
+import com.examly.springapp.service.ProductSuggestService;
 import jakarta.validation.Valid;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
 
 import java.util.List;
 
@@ -15,9 +31,24 @@ import java.util.List;
 public class ProductController {
 
     private final ProductService productService;
+    private final ProductChangeService productChangeService;
+    private final BestSellerService bestSellerService;
+    private final ProductSuggestService productSuggestService;
+    private final ProductImageService productImageService;
+    private final ProductImportService productImportService;
+    private final LowStockService lowStockService;
 
-    public ProductController(ProductService productService) {
+    public ProductController(ProductService productService, ProductChangeService productChangeService,
+                             BestSellerService bestSellerService, ProductSuggestService productSuggestService,
+                             ProductImageService productImageService, ProductImportService productImportService,
+                             LowStockService lowStockService) {
         this.productService = productService;
+        this.productChangeService = productChangeService;
+        this.bestSellerService = bestSellerService;
+        this.productSuggestService = productSuggestService;
+        this.productImageService = productImageService;
+        this.productImportService = productImportService;
+        this.lowStockService = lowStockService;
     }
 
     @PostMapping
@@ -30,12 +61,17 @@ public class ProductController {
         }
     }
 
+    // fields=id,name,price selects just those columns; unknown fields are a 400
     @GetMapping
-    public ResponseEntity<List<Product>> getAllProducts(
+    public ResponseEntity<List<?>> getAllProducts(
             @RequestParam(required = false) String category,
             @RequestParam(required = false) Double minPrice,
-            @RequestParam(required = false) Double maxPrice
+            @RequestParam(required = false) Double maxPrice,
+            @RequestParam(required = false) String fields
     ) {
+        if (fields != null) {
+            return ResponseEntity.ok(productService.getProductFields(fields, category, minPrice, maxPrice));
+        }
         try {
             List<Product> products = productService.getAllProducts(category, minPrice, maxPrice);
             return ResponseEntity.ok(products);
@@ -46,6 +82,66 @@ public class ProductController {
         }
     }
 
+    // Delta sync: products changed since the given version (omit since to start with a resync)
+    @GetMapping("/changes")
+    public ResponseEntity<ProductChangeFeed> getProductChanges(@RequestParam(defaultValue = "-1") long since) {
+        try {
+            return ResponseEntity.ok(productChangeService.getChangesSince(since));
+        } catch (Exception e) {
+            System.err.println("Error fetching product changes since " + since + ":");
+            e.printStackTrace();
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+    }
+
+    // Best sellers by units over a sliding window (1h, 24h or 7d), with the estimate's error bound
+    @GetMapping("/top")
+    public ResponseEntity<TopSellers> getTopSellers(@RequestParam(defaultValue = "24h") String window,
+                                                    @RequestParam(defaultValue = "10") int limit) {
+        return ResponseEntity.ok(bestSellerService.getTopSellers(window, limit));
+    }
+
+    // Watchlist of products running out, by stock (units) or cover (days at the current sales rate);
+    // max defaults to the alert threshold
+    @GetMapping("/low-stock")
+    public ResponseEntity<List<LowStockEntry>> getLowStock(@RequestParam(defaultValue = "cover") String by,
+                                                           @RequestParam(required = false) Double max,
+                                                           @RequestParam(defaultValue = "20") int limit) {
+        return ResponseEntity.ok(lowStockService.getLowStock(by, max, limit));
+    }
+
+    // CSV catalog import (field "file"); runs in the background, poll the returned job for progress
+    @PostMapping(value = "/import", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public ResponseEntity<ProductImportStatus> importProducts(@RequestParam("file") MultipartFile file) {
+        return ResponseEntity.accepted().body(productImportService.start(file));
+    }
+
+    @GetMapping("/import")
+    public ResponseEntity<List<ProductImportStatus>> getImports() {
+        return ResponseEntity.ok(productImportService.getJobs());
+    }
+
+    @GetMapping("/import/{jobId}")
+    public ResponseEntity<ProductImportStatus> getImport(@PathVariable String jobId) {
+        return ResponseEntity.ok(productImportService.getStatus(jobId));
+    }
+
+    // Rejected rows so far: line,sku,error
+    @GetMapping("/import/{jobId}/errors")
+    public ResponseEntity<FileSystemResource> getImportErrors(@PathVariable String jobId) {
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType("text/csv"))
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"import-" + jobId + "-errors.csv\"")
+                .body(new FileSystemResource(productImportService.getErrorFile(jobId)));
+    }
+
+    // Typeahead over product names and categories, most popular first
+    @GetMapping("/suggest")
+    public ResponseEntity<List<ProductSuggestion>> suggest(@RequestParam String prefix,
+                                                           @RequestParam(defaultValue = "10") int limit) {
+        return ResponseEntity.ok(productSuggestService.suggest(prefix, limit));
+    }
+
     @GetMapping("/{id}")
     public ResponseEntity<Product> getProductById(@PathVariable Long id) {
         try {
@@ -68,6 +164,24 @@ public class ProductController {
         }
     }
 
+    // Multipart upload (field "file"); the product's imageUrl then points at /api/images/<sha256>.<ext>
+    @PostMapping(value = "/{id}/image", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public ResponseEntity<Product> uploadImage(@PathVariable Long id, @RequestParam("file") MultipartFile file) {
+        return ResponseEntity.ok(productImageService.upload(id, file));
+    }
+
+    // Spread a hot product's stock over N bucket rows (0 or 1 = back to a single row)
+    @PutMapping("/{id}/stock-buckets")
+    public ResponseEntity<Product> setStockBuckets(@PathVariable Long id, @RequestParam int count) {
+        return ResponseEntity.ok(productService.setStockBuckets(id, count));
+    }
+
+    // Bulk partial update; validation (400) and version conflict (409) errors go to GlobalExceptionHandler
+    @PatchMapping
+    public ResponseEntity<List<Product>> patchProducts(@RequestBody List<ProductPatchRequest> patches) {
+        return ResponseEntity.ok(productService.patchProducts(patches));
+    }
+
     @DeleteMapping("/{id}")
     public ResponseEntity<Void> deleteProduct(@PathVariable Long id) {
         try {
@@ -1,11 +1,23 @@
 package com.examly.springapp.controller;
 
+import com.examly.springapp.dto.CursorPage;
+import com.examly.springapp.dto.UserDirectoryEntry;
+import com.examly.springapp.dto.UserDirectoryQuery;
+import com.examly.springapp.model.Role;
 import com.examly.springapp.model.User;
+import com.examly.springapp.model.UserOrderSummary;
+import com.examly.springapp.service.UserOrderSummaryService;
 import com.examly.springapp.service.UserService;
+import jakarta.validation.ValidationException;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.web.PageableDefault;
+import org.springframework.data.web.PagedModel;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
-import java.util.List;
+import java.util.Arrays;
 
 @RestController
 @RequestMapping("/api/users")
@@ -15,16 +27,42 @@ public class UserController {
     @Autowired
     private UserService userService;
 
+    @Autowired
+    private UserOrderSummaryService userOrderSummaryService;
+
     // Create
     @PostMapping
     public User createUser(@RequestBody User user) {
         return userService.saveUser(user);
     }
 
-    // Read all
+    // Read all, e.g. ?q=jo&role=USER&active=true&sort=lifetime_spend&direction=desc&cursor=...
     @GetMapping
-    public List<User> getAllUsers() {
-        return userService.getAllUsers();
+    public CursorPage<UserDirectoryEntry> getAllUsers(
+            @RequestParam(required = false) String q,
+            @RequestParam(required = false) Role role,
+            @RequestParam(required = false) Boolean active,
+            @RequestParam(defaultValue = "id") String sort,
+            @RequestParam(defaultValue = "asc") String direction,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "50") int size) {
+        UserDirectoryQuery.SortKey sortKey;
+        try {
+            sortKey = UserDirectoryQuery.SortKey.valueOf(sort.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new ValidationException("Invalid sort: '" + sort + "'. Allowed values: "
+                    + Arrays.toString(UserDirectoryQuery.SortKey.values()));
+        }
+
+        return userService.getUserDirectory(UserDirectoryQuery.builder()
+                .prefix(q)
+                .role(role)
+                .active(active)
+                .sort(sortKey)
+                .descending("desc".equalsIgnoreCase(direction))
+                .cursor(cursor)
+                .size(size)
+                .build());
     }
 
     // Read by ID
@@ -34,6 +72,26 @@ public class UserController {
                 .orElseThrow(() -> new RuntimeException("User not found with id " + id));
     }
 
+    // Order stats for one user (single row lookup)
+    @GetMapping("/{id}/summary")
+    public UserOrderSummary getUserSummary(@PathVariable Long id) {
+        return userOrderSummaryService.getSummary(id);
+    }
+
+    // Order stats for all users, e.g. ?sort=lifetimeSpend,desc
+    @GetMapping("/summaries")
+    public PagedModel<UserOrderSummary> getUserSummaries(
+            @PageableDefault(size = 20, sort = "orderCount", direction = Sort.Direction.DESC) Pageable pageable) {
+        return new PagedModel<>(userOrderSummaryService.getSummaries(pageable));
+    }
+
+    // Resync summaries from the orders table
+    @PostMapping("/summaries/rebuild")
+    public ResponseEntity<String> rebuildUserSummaries() {
+        userOrderSummaryService.rebuildAll();
+        return ResponseEntity.ok("User order summaries rebuilt");
+    }
+
     // Update
     @PutMapping("/{id}")
     public User updateUser(@PathVariable Long id, @RequestBody User userDetails) {
@@ -0,0 +1,16 @@
+package com.examly.springapp.dto;
+
+import lombok.*;
+
+import java.util.List;
+
+// One keyset page: pass nextCursor back as ?cursor= to continue after the last item
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class CursorPage<T> {
+    private List<T> items;
+    private String nextCursor;
+    private boolean hasMore;
+}
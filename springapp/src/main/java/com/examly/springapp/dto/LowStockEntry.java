@@ -0,0 +1,17 @@
+package com.examly.springapp.dto;
+
+import lombok.*;
+
+// A product on the low-stock watchlist. dailySales is an exponentially weighted rate of units
+// sold per day; daysOfCover is stock / dailySales (null when nothing has sold recently).
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class LowStockEntry {
+    private Long productId;
+    private String name;
+    private int stockQuantity;
+    private double dailySales;
+    private Double daysOfCover;
+}
@@ -32,4 +32,7 @@ public class OrderCreateRequest {
 
     // Optional – normally calculated on server side
     private double totalAmount;
+
+    // Optional; an unknown code or a basket below the coupon's minimum rejects the order
+    private String couponCode;
 }
@@ -0,0 +1,20 @@
+package com.examly.springapp.dto;
+
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+// One status transition of an order from the history log; deleted = the order was removed
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class OrderHistoryEntry {
+    private long eventId;
+    private Long orderId;
+    private String fromStatus;
+    private String toStatus;
+    private boolean deleted;
+    private String actor;
+    private LocalDateTime changedAt;
+}
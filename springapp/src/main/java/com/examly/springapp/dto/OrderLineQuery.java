@@ -0,0 +1,30 @@
+package com.examly.springapp.dto;
+
+import lombok.*;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Set;
+
+// Body of POST /api/analytics/order-lines/query; every filter is optional
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class OrderLineQuery {
+
+    // Any of status, category, product, user, day, week, month
+    private List<String> groupBy;
+
+    private Set<String> statuses;
+    private Set<String> categories;
+    private Long productId;
+    private Long userId;
+
+    // Order date range, from inclusive, to exclusive
+    private LocalDate from;
+    private LocalDate to;
+
+    @Builder.Default
+    private int limit = 100;
+}
@@ -0,0 +1,34 @@
+package com.examly.springapp.dto;
+
+import lombok.*;
+
+import java.util.List;
+import java.util.Map;
+
+// Groups sorted by revenue, largest first. An order is counted once in each group it has lines in.
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class OrderLineReport {
+    private List<String> groupBy;
+    private List<Row> rows;
+    private long totalGroups;
+    private long scannedLines;
+    private long matchedLines;
+    private long elapsedMs;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @Builder
+    public static class Row {
+        private Map<String, Object> key;
+        private long lines;
+        private long orders;
+        private long units;
+        private double revenue;
+        private double avgBasketValue;
+        private double avgBasketUnits;
+    }
+}
@@ -0,0 +1,36 @@
+package com.examly.springapp.dto;
+
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+// Admin order search: every criterion is optional and they combine with AND
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class OrderSearchQuery {
+
+    // Match the start of the value
+    private String customerEmail;
+    private String customerName;
+
+    private String status;
+
+    // Placed in [from, to)
+    private LocalDateTime from;
+    private LocalDateTime to;
+
+    // Orders with at least one line of this product
+    private Long productId;
+
+    // totalAmount in [minAmount, maxAmount]
+    private Double minAmount;
+    private Double maxAmount;
+
+    // Id of the last order of the previous page (results are newest first)
+    private Long cursor;
+
+    @Builder.Default
+    private int size = 50;
+}
@@ -0,0 +1,35 @@
+package com.examly.springapp.dto;
+
+import lombok.*;
+
+import java.util.List;
+
+// What a basket would cost right now, with the same rules createOrder applies. couponStatus is
+// NONE, APPLIED, UNKNOWN or BELOW_MINIMUM; a quote never fails on the coupon.
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class PriceQuote {
+    private double subtotal;
+    private double discount;
+    private double couponDiscount;
+    private double tax;
+    private double total;
+    private String couponCode;
+    private String couponStatus;
+    private List<Line> lines;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @Builder
+    public static class Line {
+        private Long productId;
+        private int quantity;
+        private double unitPrice;
+        private double discount;
+        private double tax;
+        private double total;
+    }
+}
@@ -0,0 +1,20 @@
+package com.examly.springapp.dto;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import lombok.*;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class PriceQuoteRequest {
+
+    @NotEmpty(message = "Quote must have at least one item")
+    @Valid
+    private List<OrderItemCreateRequest> orderItems;
+
+    private String couponCode;
+}
@@ -0,0 +1,25 @@
+package com.examly.springapp.dto;
+
+import com.examly.springapp.model.Product;
+import lombok.*;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ProductChangeFeed {
+
+    // Pass back as ?since= on the next call
+    private long version;
+
+    // Client is too far behind (or new): reload the full catalog, then continue from version
+    private boolean resync;
+
+    // More changes are waiting beyond version; call again straight away
+    private boolean hasMore;
+
+    private List<Product> upserts;
+    private List<Long> deletes;
+}
@@ -0,0 +1,25 @@
+package com.examly.springapp.dto;
+
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+// Progress of a CSV catalog import; rows that failed are listed in the job's error file
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ProductImportStatus {
+    private String id;
+    private String state;          // QUEUED, RUNNING, COMPLETED or FAILED
+    private String fileName;
+    private long rowsRead;
+    private long inserted;
+    private long updated;
+    private long unchanged;
+    private long failed;
+    private String message;
+    private LocalDateTime createdAt;
+    private LocalDateTime startedAt;
+    private LocalDateTime finishedAt;
+}
@@ -0,0 +1,31 @@
+package com.examly.springapp.dto;
+
+import jakarta.validation.constraints.NotNull;
+import lombok.*;
+
+// Partial update of one product; null fields are left untouched
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ProductPatchRequest {
+
+    @NotNull
+    private Long id;
+
+    // Expected version; the whole batch is rejected if the product has moved on
+    private Long version;
+
+    private String name;
+    private String description;
+    private Double price;
+    private String category;
+    private String imageUrl;
+
+    // Sets the supplier SKU (CSV imports match on it)
+    private String sku;
+
+    // Either an absolute stock level or a relative delta, not both
+    private Integer stockQuantity;
+    private Integer stockDelta;
+}
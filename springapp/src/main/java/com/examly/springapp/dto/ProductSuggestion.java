@@ -0,0 +1,16 @@
+package com.examly.springapp.dto;
+
+import lombok.*;
+
+// One typeahead hit: a product (with its id) or a whole category; weight is recent units sold
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ProductSuggestion {
+    private String type;
+    private String text;
+    private Long productId;
+    private String category;
+    private long weight;
+}
@@ -0,0 +1,31 @@
+package com.examly.springapp.dto;
+
+import lombok.*;
+
+import java.util.List;
+
+// Best sellers over a sliding window. Each unitsSold is an estimate that may overcount by up to
+// errorBound units (with the given confidence) but never undercounts.
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class TopSellers {
+    private String window;
+    private long totalUnits;
+    private long errorBound;
+    private double confidence;
+    private List<Entry> items;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @Builder
+    public static class Entry {
+        private Long productId;
+        private String name;
+        private String category;
+        private long unitsSold;
+        private long minUnitsSold;
+    }
+}
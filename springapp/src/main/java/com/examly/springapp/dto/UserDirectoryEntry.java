@@ -0,0 +1,23 @@
+package com.examly.springapp.dto;
+
+import com.examly.springapp.model.Role;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+// Directory row: user fields plus order stats, without the orders collection
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class UserDirectoryEntry {
+    private Long id;
+    private String email;
+    private String name;
+    private Role role;
+    private Boolean active;
+    private LocalDateTime createdAt;
+    private LocalDateTime lastLogin;
+    private Long orderCount;
+    private Double lifetimeSpend;
+    private LocalDateTime lastOrderDate;
+}
@@ -0,0 +1,29 @@
+package com.examly.springapp.dto;
+
+import com.examly.springapp.model.Role;
+import lombok.*;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class UserDirectoryQuery {
+
+    public enum SortKey { ID, EMAIL, NAME, CREATED_AT, ORDER_COUNT, LIFETIME_SPEND }
+
+    // Matches the start of email or name
+    private String prefix;
+    private Role role;
+    private Boolean active;
+
+    @Builder.Default
+    private SortKey sort = SortKey.ID;
+
+    @Builder.Default
+    private boolean descending = false;
+
+    private String cursor;
+
+    @Builder.Default
+    private int size = 50;
+}
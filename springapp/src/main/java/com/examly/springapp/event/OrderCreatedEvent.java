@@ -0,0 +1,13 @@
+package com.examly.springapp.event;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public record OrderCreatedEvent(
+        Long orderId,
+        Long userId,
+        String status,
+        double totalAmount,
+        LocalDateTime orderDate,
+        List<OrderLineSnapshot> lines) {
+}
@@ -0,0 +1,6 @@
+package com.examly.springapp.event;
+
+import java.time.LocalDateTime;
+
+public record OrderDeletedEvent(Long orderId, Long userId, LocalDateTime deletedAt, String actor) {
+}
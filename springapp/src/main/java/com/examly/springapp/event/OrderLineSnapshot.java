@@ -0,0 +1,22 @@
+package com.examly.springapp.event;
+
+import com.examly.springapp.model.OrderItem;
+
+import java.util.List;
+
+// Line item as it was when the event was raised; safe to read after the transaction ends
+public record OrderLineSnapshot(Long productId, String category, int quantity, double unitPrice) {
+
+    public static List<OrderLineSnapshot> of(List<OrderItem> items) {
+        if (items == null) {
+            return List.of();
+        }
+        return items.stream()
+                .map(item -> new OrderLineSnapshot(
+                        item.getProduct().getId(),
+                        item.getProduct().getCategory(),
+                        item.getQuantity(),
+                        item.getPriceAtPurchase()))
+                .toList();
+    }
+}
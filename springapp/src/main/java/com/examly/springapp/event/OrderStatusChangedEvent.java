@@ -0,0 +1,15 @@
+package com.examly.springapp.event;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public record OrderStatusChangedEvent(
+        Long orderId,
+        Long userId,
+        String fromStatus,
+        String toStatus,
+        LocalDateTime orderDate,
+        LocalDateTime changedAt,
+        String actor,
+        List<OrderLineSnapshot> lines) {
+}
@@ -0,0 +1,37 @@
+package com.examly.springapp.event;
+
+/**
+ * In-process subscriber of the outbox, run on its own dispatcher thread.
+ * <p>
+ * Delivery is at-least-once: a message is redelivered (after a back-off) until handle returns
+ * normally, and a durable consumer may see messages again after a restart, so handlers must be
+ * idempotent or tolerate repeats. Non-durable consumers keep no offset and start at the newest
+ * event, or at {@link #localOffset} if that is lower, for state that is rebuilt some other way at
+ * startup.
+ */
+public interface OutboxConsumer {
+
+    // Stable name; also the key of the consumer's stored offset
+    String name();
+
+    default boolean durable() {
+        return true;
+    }
+
+    default boolean accepts(String eventType) {
+        return true;
+    }
+
+    void handle(OutboxMessage message) throws Exception;
+
+    // Last event already reflected in state the consumer keeps itself (a local file, or tables read
+    // at startup). The dispatcher resumes from the lower of this and the stored (or newest) offset,
+    // so events the local state is missing are replayed instead of being skipped.
+    default long localOffset() {
+        return Long.MAX_VALUE;
+    }
+
+    // Called after each batch, before the offset is stored: make handled messages durable here
+    default void flush() throws Exception {
+    }
+}
@@ -0,0 +1,7 @@
+package com.examly.springapp.event;
+
+import java.time.LocalDateTime;
+
+// An outbox row as handed to consumers; payload is the event serialised as JSON
+public record OutboxMessage(long id, String eventType, Long aggregateId, String payload, LocalDateTime createdAt) {
+}
@@ -0,0 +1,4 @@
+package com.examly.springapp.event;
+
+public record PricingRulesChangedEvent(Long ruleId) {
+}
@@ -0,0 +1,7 @@
+package com.examly.springapp.event;
+
+import java.util.List;
+
+// Products created, deleted, renamed or moved to another category
+public record ProductCatalogChangedEvent(List<Long> productIds) {
+}
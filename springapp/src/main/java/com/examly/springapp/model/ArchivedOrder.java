@@ -0,0 +1,53 @@
+package com.examly.springapp.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+// DELIVERED or CANCELLED order moved out of the orders table by OrderArchiveService;
+// keeps its original id, so ids stay unique across hot and cold storage
+@Entity
+@Table(name = "orders_archive", indexes = {
+        @Index(name = "idx_orders_archive_user", columnList = "userId, id"),
+        // customer prefixes of the order search (ArchivedOrderRepositoryImpl)
+        @Index(name = "idx_orders_archive_email", columnList = "customerEmail, id"),
+        @Index(name = "idx_orders_archive_name", columnList = "customerName, id")
+})
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ArchivedOrder {
+
+    @Id
+    private Long id;
+
+    // No foreign keys: archived rows must not pin users or products
+    @Column(nullable = false)
+    private Long userId;
+
+    @Column(nullable = false)
+    private String customerName;
+
+    @Column(nullable = false)
+    private String customerEmail;
+
+    @Column(nullable = false)
+    private String shippingAddress;
+
+    private LocalDateTime orderDate;
+
+    private String status;
+
+    private double totalAmount;
+
+    private double subtotalAmount;
+    private double discountAmount;
+    private double taxAmount;
+
+    @Column(length = 50)
+    private String couponCode;
+
+    private LocalDateTime archivedAt;
+}
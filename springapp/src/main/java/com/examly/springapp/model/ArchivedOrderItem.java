@@ -0,0 +1,29 @@
+package com.examly.springapp.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+@Entity
+@Table(name = "order_item_archive", indexes = {
+        @Index(name = "idx_order_item_archive_order", columnList = "orderId"),
+        // archived orders of a product, for the order search
+        @Index(name = "idx_order_item_archive_product_order", columnList = "productId, orderId")
+})
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ArchivedOrderItem {
+
+    @Id
+    private Long id;
+
+    @Column(nullable = false)
+    private Long orderId;
+
+    @Column(nullable = false)
+    private Long productId;
+
+    private int quantity;
+    private double priceAtPurchase;
+}
@@ -0,0 +1,19 @@
+package com.examly.springapp.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+// Bookkeeping for a change feed: every version up to purgedThrough has been deleted
+@Entity
+@Table(name = "change_feed_state")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ChangeFeedState {
+
+    @Id
+    private String feed;
+
+    private long purgedThrough;
+}
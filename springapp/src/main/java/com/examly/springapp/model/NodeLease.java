@@ -0,0 +1,25 @@
+package com.examly.springapp.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+// Which application instance currently owns an id-generator node number
+@Entity
+@Table(name = "node_lease")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class NodeLease {
+
+    @Id
+    private Integer nodeId;
+
+    @Column(nullable = false)
+    private String owner;
+
+    @Column(nullable = false)
+    private LocalDateTime expiresAt;
+}
@@ -1,5 +1,6 @@
 package com.examly.springapp.model;
 
+import com.examly.springapp.utils.SnowflakeId;
 import com.fasterxml.jackson.annotation.JsonBackReference;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import com.fasterxml.jackson.annotation.JsonManagedReference;
@@ -10,7 +11,16 @@ import java.time.LocalDateTime;
 import java.util.List;
 
 @Entity
-@Table(name = "orders") // 'order' is a reserved SQL keyword
+@Table(name = "orders", indexes = { // 'order' is a reserved SQL keyword
+        // order search (OrderRepositoryImpl): each criterion followed by id for the newest-first keyset
+        @Index(name = "idx_orders_email", columnList = "customerEmail, id"),
+        @Index(name = "idx_orders_name", columnList = "customerName, id"),
+        @Index(name = "idx_orders_status_id", columnList = "status, id"),
+        @Index(name = "idx_orders_total", columnList = "totalAmount, id"),
+        // after status_id: H2 takes the first of two equally selective indexes, and a status
+        // search wants the one already in id order
+        @Index(name = "idx_orders_status_date", columnList = "status, orderDate")
+})
 @Data
 @Builder
 @NoArgsConstructor
@@ -18,7 +28,7 @@ import java.util.List;
 public class Order {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @SnowflakeId
     private Long id;
     
     // ✅ Link order to User
@@ -46,4 +56,16 @@ public class Order {
     private List<OrderItem> orderItems;
 
     private double totalAmount;
+
+    // Breakdown of totalAmount from PricingEngine: subtotal - discount + tax = total
+    private double subtotalAmount;
+    private double discountAmount;
+    private double taxAmount;
+
+    @Column(length = 50)
+    private String couponCode;
+
+    // Set on orders read back from the archive tables; those are read-only
+    @Transient
+    private boolean archived;
 }
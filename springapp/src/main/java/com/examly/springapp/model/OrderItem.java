@@ -1,10 +1,15 @@
 package com.examly.springapp.model;
 
+import com.examly.springapp.utils.SnowflakeId;
 import com.fasterxml.jackson.annotation.JsonBackReference;
 import jakarta.persistence.*;
 import lombok.*;
 
 @Entity
+@Table(indexes = {
+        // product -> orders lookups (order search by product) read only this index
+        @Index(name = "idx_order_item_product_order", columnList = "product_id, order_id")
+})
 @Data
 @Builder
 @NoArgsConstructor
@@ -12,7 +17,7 @@ import lombok.*;
 public class OrderItem {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @SnowflakeId
     private Long id;
 
     @ManyToOne
@@ -0,0 +1,39 @@
+package com.examly.springapp.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+// Last outbox event a durable consumer has fully handled on one instance; every instance feeds its
+// own consumers (their state is in memory or on local disk), so each keeps its own position
+@Entity
+@Table(name = "outbox_offset")
+@IdClass(OutboxOffset.Key.class)
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class OutboxOffset {
+
+    @Id
+    @Column(length = 100)
+    private String consumer;
+
+    @Id
+    @Column(length = 100)
+    private String node;
+
+    private long lastEventId;
+
+    private LocalDateTime updatedAt;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+        private String consumer;
+        private String node;
+    }
+}
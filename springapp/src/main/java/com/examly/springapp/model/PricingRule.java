@@ -0,0 +1,57 @@
+package com.examly.springapp.model;
+
+import com.examly.springapp.utils.SnowflakeId;
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+// One discount, coupon or tax rule; active rules are compiled into PricingTables
+@Entity
+@Table(name = "pricing_rule")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PricingRule {
+
+    public enum Type { CATEGORY_DISCOUNT, QUANTITY_BREAK, COUPON, TAX_RATE }
+
+    @Id
+    @SnowflakeId
+    private Long id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 30)
+    private Type type;
+
+    @Column(nullable = false)
+    private String name;
+
+    // Scope of the rule; null means every category / product
+    private String category;
+    private Long productId;
+
+    // COUPON only; matched case-insensitively
+    @Column(unique = true, length = 50)
+    private String couponCode;
+
+    // QUANTITY_BREAK: applies when a line has at least this many units
+    private int minQuantity;
+
+    // COUPON: basket subtotal (after line discounts) needed to use it
+    private long minSubtotalCents;
+
+    // Percentage in basis points (1250 = 12.5%): the discount, or the tax rate for TAX_RATE
+    private int basisPoints;
+
+    // COUPON: fixed amount off, used instead of basisPoints
+    private long amountOffCents;
+
+    @Builder.Default
+    private boolean active = true;
+
+    // Optional validity window
+    private LocalDateTime startsAt;
+    private LocalDateTime endsAt;
+}
@@ -1,5 +1,6 @@
 package com.examly.springapp.model;
 
+import com.examly.springapp.utils.SnowflakeId;
 import jakarta.persistence.*;
 import lombok.*;
 
@@ -10,7 +11,7 @@ import lombok.*;
 @AllArgsConstructor
 public class Product {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @SnowflakeId
     private Long id;
 
     @Column(nullable = false)
@@ -29,4 +30,16 @@ public class Product {
     private int stockQuantity;
 
     private String imageUrl;
+
+    // Supplier catalog key; CSV imports match existing products on it
+    @Column(unique = true, length = 64)
+    private String sku;
+
+    // 0 = stock lives in stockQuantity; N > 1 = stock is spread over N StockBucket rows
+    // and stockQuantity is only a snapshot refreshed by the rebalancer
+    private int stockBuckets;
+
+    // Optimistic lock; send it back with a PATCH to detect concurrent edits
+    @Version
+    private long version;
 }
@@ -0,0 +1,28 @@
+package com.examly.springapp.model;
+
+import com.examly.springapp.utils.SnowflakeId;
+import jakarta.persistence.*;
+import lombok.*;
+
+// One slice of a hot product's stock, so concurrent orders lock different rows
+@Entity
+@Table(name = "stock_bucket", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_stock_bucket_product_no", columnNames = {"productId", "bucketNo"})
+})
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class StockBucket {
+
+    @Id
+    @SnowflakeId
+    private Long id;
+
+    @Column(nullable = false)
+    private Long productId;
+
+    private int bucketNo;
+
+    private int quantity;
+}
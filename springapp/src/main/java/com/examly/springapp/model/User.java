@@ -1,16 +1,21 @@
 package com.examly.springapp.model;
 
+import com.examly.springapp.utils.SnowflakeId;
 import com.fasterxml.jackson.annotation.JsonManagedReference;
 import jakarta.persistence.*;
 import java.time.LocalDateTime;
 import java.util.List;
 
 @Entity
-@Table(name = "users")
+@Table(name = "users", indexes = {
+        @Index(name = "idx_users_name", columnList = "name, id"),
+        @Index(name = "idx_users_role_active", columnList = "role, active, id"),
+        @Index(name = "idx_users_created_at", columnList = "createdAt, id")
+})
 public class User {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @SnowflakeId
     private Long id;
 
     @Column(nullable = false, unique = true)
@@ -19,6 +24,7 @@ public class User {
     @Column(nullable = false)
     private String password;
 
+    @Column(nullable = false)
     private String name;
 
     @Enumerated(EnumType.STRING)
@@ -27,6 +33,7 @@ public class User {
 
     private boolean active;
 
+    @Column(nullable = false)
     private LocalDateTime createdAt;
 
     private LocalDateTime lastLogin;
@@ -48,6 +55,18 @@ public class User {
         this.createdAt = LocalDateTime.now();
     }
 
+    // Directory sort keys are never null, so keyset queries compare the plain indexed columns
+    @PrePersist
+    @PreUpdate
+    void fillDirectoryKeys() {
+        if (name == null) {
+            name = "";
+        }
+        if (createdAt == null) {
+            createdAt = LocalDateTime.now();
+        }
+    }
+
     // --- Getters & Setters ---
     public Long getId() { return id; }
     public void setId(Long id) { this.id = id; }
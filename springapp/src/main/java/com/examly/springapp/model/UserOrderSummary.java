@@ -0,0 +1,33 @@
+package com.examly.springapp.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+// Denormalised per-user order stats, kept in step with orders by OrderService
+@Entity
+@Table(name = "user_order_summary", indexes = {
+        @Index(name = "idx_summary_order_count", columnList = "orderCount, userId"),
+        @Index(name = "idx_summary_lifetime_spend", columnList = "lifetimeSpend, userId"),
+        @Index(name = "idx_summary_last_order", columnList = "lastOrderDate, userId")
+})
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class UserOrderSummary {
+
+    @Id
+    private Long userId;
+
+    private long orderCount;
+
+    // Sum of totals of every order that is not CANCELLED
+    private double lifetimeSpend;
+
+    private LocalDateTime lastOrderDate;
+
+    // PENDING, PROCESSING or SHIPPED
+    private long openOrderCount;
+}
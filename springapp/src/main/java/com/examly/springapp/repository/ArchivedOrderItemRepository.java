@@ -0,0 +1,27 @@
+package com.examly.springapp.repository;
+
+import com.examly.springapp.model.ArchivedOrderItem;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface ArchivedOrderItemRepository extends JpaRepository<ArchivedOrderItem, Long> {
+
+    @Modifying
+    @Query("insert into ArchivedOrderItem (id, orderId, productId, quantity, priceAtPurchase) " +
+           "select i.id, i.order.id, i.product.id, i.quantity, i.priceAtPurchase " +
+           "from OrderItem i where i.order.id in :orderIds")
+    int copyFromOrderItems(@Param("orderIds") Collection<Long> orderIds);
+
+    List<ArchivedOrderItem> findByOrderIdInOrderById(Collection<Long> orderIds);
+
+    @Modifying
+    @Query("delete from ArchivedOrderItem i where i.orderId = :orderId")
+    int deleteByOrderId(@Param("orderId") Long orderId);
+}
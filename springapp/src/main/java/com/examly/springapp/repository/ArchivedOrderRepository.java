@@ -0,0 +1,61 @@
+package com.examly.springapp.repository;
+
+import com.examly.springapp.model.ArchivedOrder;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE;
+
+@Repository
+public interface ArchivedOrderRepository extends JpaRepository<ArchivedOrder, Long>, ArchivedOrderRepositoryCustom {
+
+    // Copied inside the database; the rows never pass through the application
+    @Modifying
+    @Query("insert into ArchivedOrder (id, userId, customerName, customerEmail, shippingAddress, " +
+           "orderDate, status, totalAmount, subtotalAmount, discountAmount, taxAmount, couponCode, archivedAt) " +
+           "select o.id, o.user.id, o.customerName, o.customerEmail, o.shippingAddress, " +
+           "o.orderDate, o.status, o.totalAmount, o.subtotalAmount, o.discountAmount, o.taxAmount, o.couponCode, " +
+           "local datetime " +
+           "from Order o where o.id in :ids")
+    int copyFromOrders(@Param("ids") Collection<Long> ids);
+
+    // Same layout as OrderRepository.findIdRange, so the two can be merged by id
+    @Query("select a from ArchivedOrder a where a.id >= :fromId and a.id < :toId order by a.id desc")
+    List<ArchivedOrder> findIdRange(@Param("fromId") long fromId, @Param("toId") long toId, Pageable pageable);
+
+    // Same row shape as OrderRepository.summariseByUserAfter; archived orders are never open
+    @Query("select a.userId, count(a), " +
+           "sum(case when a.status <> 'CANCELLED' then a.totalAmount else 0.0 end), " +
+           "max(a.orderDate), 0 " +
+           "from ArchivedOrder a where a.userId > :afterUserId " +
+           "group by a.userId order by a.userId")
+    List<Object[]> summariseByUserAfter(@Param("afterUserId") Long afterUserId, Pageable pageable);
+
+    @Query("select max(a.orderDate) from ArchivedOrder a where a.userId = :userId")
+    LocalDateTime findLastOrderDate(@Param("userId") Long userId);
+
+    @Query("select min(a.id) from ArchivedOrder a")
+    Long findMinId();
+
+    @Query("select max(a.id) from ArchivedOrder a")
+    Long findMaxId();
+
+    // Same row shape as OrderRepository.streamLinesInRange; the category is null if the product is gone
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "1000"))
+    @Query("select a.id, a.userId, a.orderDate, a.status, i.productId, p.category, i.quantity, i.priceAtPurchase " +
+           "from ArchivedOrder a join ArchivedOrderItem i on i.orderId = a.id " +
+           "left join Product p on p.id = i.productId " +
+           "where a.id >= :fromId and a.id < :toId order by a.id")
+    Stream<Object[]> streamLinesInRange(@Param("fromId") long fromId, @Param("toId") long toId);
+}
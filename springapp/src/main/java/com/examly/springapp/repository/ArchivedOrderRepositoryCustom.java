@@ -0,0 +1,10 @@
+package com.examly.springapp.repository;
+
+import com.examly.springapp.dto.OrderSearchQuery;
+import com.examly.springapp.model.ArchivedOrder;
+
+import java.util.List;
+
+public interface ArchivedOrderRepositoryCustom {
+    List<ArchivedOrder> findSearchRows(OrderSearchQuery query, int limit);
+}
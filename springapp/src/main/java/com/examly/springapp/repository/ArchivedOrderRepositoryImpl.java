@@ -0,0 +1,35 @@
+package com.examly.springapp.repository;
+
+import com.examly.springapp.dto.OrderSearchQuery;
+import com.examly.springapp.model.ArchivedOrder;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.TypedQuery;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The archive side of the order search: same criteria and order as OrderRepositoryImpl, so
+ * OrderService can merge the two newest-first runs by id. Only the first {@code limit} matches
+ * are read.
+ */
+public class ArchivedOrderRepositoryImpl implements ArchivedOrderRepositoryCustom {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<ArchivedOrder> findSearchRows(OrderSearchQuery query, int limit) {
+        StringBuilder jpql = new StringBuilder("select o from ArchivedOrder o where 1 = 1");
+        Map<String, Object> params = new HashMap<>();
+        OrderSearchCriteria.append(jpql, query,
+                "select i.orderId from ArchivedOrderItem i where i.productId = :productId", params);
+        jpql.append(" order by o.id desc");
+
+        TypedQuery<ArchivedOrder> typed = entityManager.createQuery(jpql.toString(), ArchivedOrder.class);
+        params.forEach(typed::setParameter);
+        return typed.setMaxResults(limit).getResultList();
+    }
+}
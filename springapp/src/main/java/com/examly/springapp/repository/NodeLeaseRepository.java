@@ -0,0 +1,26 @@
+package com.examly.springapp.repository;
+
+import com.examly.springapp.model.NodeLease;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+
+@Repository
+public interface NodeLeaseRepository extends JpaRepository<NodeLease, Integer> {
+
+    // Takes the node if its lease has run out (or is already ours)
+    @Modifying
+    @Query("update NodeLease l set l.owner = :owner, l.expiresAt = :expiresAt " +
+           "where l.nodeId = :nodeId and (l.expiresAt < :now or l.owner = :owner)")
+    int claim(@Param("nodeId") Integer nodeId, @Param("owner") String owner,
+              @Param("expiresAt") LocalDateTime expiresAt, @Param("now") LocalDateTime now);
+
+    @Modifying
+    @Query("update NodeLease l set l.expiresAt = :expiresAt where l.nodeId = :nodeId and l.owner = :owner")
+    int renew(@Param("nodeId") Integer nodeId, @Param("owner") String owner,
+              @Param("expiresAt") LocalDateTime expiresAt);
+}
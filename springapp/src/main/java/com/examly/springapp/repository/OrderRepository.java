@@ -1,9 +1,79 @@
 package com.examly.springapp.repository;
 
 import com.examly.springapp.model.Order;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE;
+
 @Repository
-public interface OrderRepository extends JpaRepository<Order, Long> {
+public interface OrderRepository extends JpaRepository<Order, Long>, OrderRepositoryCustom {
+
+    // Per-user aggregates used to rebuild user_order_summary:
+    // [userId, orderCount, lifetimeSpend, lastOrderDate, openOrderCount]
+    @Query("select o.user.id, count(o), " +
+           "sum(case when o.status <> 'CANCELLED' then o.totalAmount else 0.0 end), " +
+           "max(o.orderDate), " +
+           "sum(case when o.status in ('PENDING', 'PROCESSING', 'SHIPPED') then 1 else 0 end) " +
+           "from Order o where o.user.id > :afterUserId " +
+           "group by o.user.id order by o.user.id")
+    List<Object[]> summariseByUserAfter(@Param("afterUserId") Long afterUserId, Pageable pageable);
+
+    // By-id batch of the order loader, lines included so the detached result is complete
+    @Query("select distinct o from Order o left join fetch o.orderItems where o.id in :ids")
+    List<Order> findWithItemsByIdIn(@Param("ids") Collection<Long> ids);
+
+    // Orders of a batch of users with their lines, for the user loader
+    @Query("select distinct o from Order o left join fetch o.orderItems where o.user.id in :userIds")
+    List<Order> findWithItemsByUserIdIn(@Param("userIds") Collection<Long> userIds);
+
+    // Order ids are time-ordered, so a time window is a primary-key range; newest first
+    @Query("select o from Order o where o.id >= :fromId and o.id < :toId order by o.id desc")
+    List<Order> findIdRange(@Param("fromId") long fromId, @Param("toId") long toId, Pageable pageable);
+
+    // [productId, quantity, orderDate, orderId] of every non-cancelled line since the given time
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "1000"))
+    @Query("select i.product.id, i.quantity, o.orderDate, o.id from Order o join o.orderItems i " +
+           "where o.orderDate >= :since and o.status <> 'CANCELLED'")
+    Stream<Object[]> streamLinesSince(@Param("since") LocalDateTime since);
+
+    @Query("select max(o.orderDate) from Order o where o.user.id = :userId")
+    LocalDateTime findLastOrderDate(@Param("userId") Long userId);
+
+    // Completed orders due for the archive, locked so a concurrent status change waits for the move
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select o from Order o where o.status in ('DELIVERED', 'CANCELLED') and o.orderDate < :cutoff " +
+           "order by o.id")
+    List<Order> lockArchivable(@Param("cutoff") LocalDateTime cutoff, Pageable pageable);
+
+    @Modifying(clearAutomatically = true)
+    @Query("delete from Order o where o.id in :ids")
+    int deleteByIds(@Param("ids") Collection<Long> ids);
+
+    @Query("select min(o.id) from Order o")
+    Long findMinId();
+
+    @Query("select max(o.id) from Order o")
+    Long findMaxId();
+
+    // [orderId, userId, orderDate, status, productId, category, quantity, priceAtPurchase],
+    // lines of one order next to each other; the fetch size streams them (with useCursorFetch on MySQL)
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "1000"))
+    @Query("select o.id, o.user.id, o.orderDate, o.status, i.product.id, p.category, i.quantity, i.priceAtPurchase " +
+           "from Order o join o.orderItems i left join i.product p " +
+           "where o.id >= :fromId and o.id < :toId order by o.id")
+    Stream<Object[]> streamLinesInRange(@Param("fromId") long fromId, @Param("toId") long toId);
 }
@@ -0,0 +1,13 @@
+package com.examly.springapp.repository;
+
+import com.examly.springapp.dto.CursorPage;
+import com.examly.springapp.dto.OrderSearchQuery;
+import com.examly.springapp.model.Order;
+
+import java.util.List;
+
+public interface OrderRepositoryCustom {
+    CursorPage<Order> findSearchPage(OrderSearchQuery query);
+
+    List<Object[]> findColumns(List<String> fields);
+}
@@ -0,0 +1,76 @@
+package com.examly.springapp.repository;
+
+import com.examly.springapp.dto.CursorPage;
+import com.examly.springapp.dto.OrderSearchQuery;
+import com.examly.springapp.model.Order;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.TypedQuery;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Keyset-paged order search, newest first. Only the supplied criteria end up in the query, so
+ * each can use its index: email and name prefixes, status and amount on orders, the date range
+ * as a primary-key range (ids are time-ordered) and the product through order_item's
+ * (product_id, order_id) index. Pages are slices (one extra row says whether there are more),
+ * never a COUNT(*).
+ * <p>
+ * Status, amount and product criteria walk their index in id order. An email or name prefix is a
+ * range over (customerEmail, id) / (customerName, id), which is not in id order, so the database
+ * sorts every order matching the prefix before taking a page: cheap for a selective prefix, a
+ * large sort for one or two letters. Combine short prefixes with a date range, which bounds the
+ * sort to that window.
+ * <p>
+ * A page comes back complete (customer, lines and their products) in two queries, so rendering
+ * it does not load each order's lines and products one by one.
+ */
+public class OrderRepositoryImpl implements OrderRepositoryCustom {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public CursorPage<Order> findSearchPage(OrderSearchQuery query) {
+        int size = query.getSize();
+        StringBuilder jpql = new StringBuilder("select o from Order o join fetch o.user where 1 = 1");
+        Map<String, Object> params = new HashMap<>();
+
+        OrderSearchCriteria.append(jpql, query,
+                "select i.order.id from OrderItem i where i.product.id = :productId", params);
+        jpql.append(" order by o.id desc");
+
+        TypedQuery<Order> typed = entityManager.createQuery(jpql.toString(), Order.class);
+        params.forEach(typed::setParameter);
+        List<Order> rows = new ArrayList<>(typed.setMaxResults(size + 1).getResultList());
+
+        boolean hasMore = rows.size() > size;
+        if (hasMore) {
+            rows = rows.subList(0, size);
+        }
+        if (!rows.isEmpty()) {
+            // initializes the lines of the orders already in the persistence context
+            entityManager.createQuery("select distinct o from Order o left join fetch o.orderItems i " +
+                            "left join fetch i.product where o.id in :ids", Order.class)
+                    .setParameter("ids", rows.stream().map(Order::getId).toList())
+                    .getResultList();
+        }
+        String next = hasMore ? String.valueOf(rows.get(rows.size() - 1).getId()) : null;
+        return new CursorPage<>(new ArrayList<>(rows), next, hasMore);
+    }
+
+    // Only the given order fields (Order attribute names, plus userId) of every hot order, newest
+    // first; the user and the lines are never joined. Names must come from an allow-list.
+    @Override
+    public List<Object[]> findColumns(List<String> fields) {
+        String select = fields.stream()
+                .map(field -> "o." + ("userId".equals(field) ? "user.id" : field))
+                .collect(Collectors.joining(", "));
+        return entityManager.createQuery("select " + select + " from Order o order by o.id desc", Object[].class)
+                .getResultList();
+    }
+}
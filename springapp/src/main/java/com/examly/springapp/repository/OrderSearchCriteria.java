@@ -0,0 +1,72 @@
+package com.examly.springapp.repository;
+
+import com.examly.springapp.dto.OrderSearchQuery;
+import com.examly.springapp.utils.SnowflakeIdGenerator;
+
+import java.util.Map;
+
+// The WHERE clause of the order search, shared by the hot (Order) and archived (ArchivedOrder)
+// queries: both have the same attribute names, only the product lookup differs
+final class OrderSearchCriteria {
+
+    private OrderSearchCriteria() {
+    }
+
+    // Appends " and ..." for every supplied criterion on the alias o; productOrderIds selects the
+    // ids of orders with a line of :productId
+    static void append(StringBuilder jpql, OrderSearchQuery query, String productOrderIds, Map<String, Object> params) {
+        if (query.getCustomerEmail() != null && !query.getCustomerEmail().isBlank()) {
+            jpql.append(" and o.customerEmail like :email escape '!'");
+            params.put("email", escapeLike(query.getCustomerEmail().trim()) + "%");
+        }
+        if (query.getCustomerName() != null && !query.getCustomerName().isBlank()) {
+            jpql.append(" and o.customerName like :name escape '!'");
+            params.put("name", escapeLike(query.getCustomerName().trim()) + "%");
+        }
+        if (query.getStatus() != null) {
+            jpql.append(" and o.status = :status");
+            params.put("status", query.getStatus());
+        }
+        if (query.getProductId() != null) {
+            jpql.append(" and o.id in (").append(productOrderIds).append(")");
+            params.put("productId", query.getProductId());
+        }
+        if (query.getMinAmount() != null) {
+            jpql.append(" and o.totalAmount >= :minAmount");
+            params.put("minAmount", query.getMinAmount());
+        }
+        if (query.getMaxAmount() != null) {
+            jpql.append(" and o.totalAmount <= :maxAmount");
+            params.put("maxAmount", query.getMaxAmount());
+        }
+
+        long belowId = query.getCursor() != null ? query.getCursor() : Long.MAX_VALUE;
+        if (query.getFrom() != null || query.getTo() != null) {
+            // Generated ids are ranged by their timestamp; legacy ids (all below FIRST_ID) on the order date
+            long fromId = Math.max(SnowflakeIdGenerator.FIRST_ID,
+                    query.getFrom() != null ? SnowflakeIdGenerator.lowestIdAt(query.getFrom()) : 0L);
+            long toId = Math.min(belowId,
+                    query.getTo() != null ? SnowflakeIdGenerator.lowestIdAt(query.getTo()) : Long.MAX_VALUE);
+            jpql.append(" and ((o.id >= :fromId and o.id < :toId) or (o.id < :legacyToId");
+            params.put("fromId", fromId);
+            params.put("toId", toId);
+            params.put("legacyToId", Math.min(belowId, SnowflakeIdGenerator.FIRST_ID));
+            if (query.getFrom() != null) {
+                jpql.append(" and o.orderDate >= :from");
+                params.put("from", query.getFrom());
+            }
+            if (query.getTo() != null) {
+                jpql.append(" and o.orderDate < :to");
+                params.put("to", query.getTo());
+            }
+            jpql.append("))");
+        } else if (belowId < Long.MAX_VALUE) {
+            jpql.append(" and o.id < :toId");
+            params.put("toId", belowId);
+        }
+    }
+
+    private static String escapeLike(String value) {
+        return value.replace("!", "!!").replace("%", "!%").replace("_", "!_");
+    }
+}
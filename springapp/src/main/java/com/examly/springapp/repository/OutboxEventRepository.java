@@ -0,0 +1,39 @@
+package com.examly.springapp.repository;
+
+import com.examly.springapp.model.OutboxEvent;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface OutboxEventRepository extends JpaRepository<OutboxEvent, Long> {
+
+    @Query("select e from OutboxEvent e where e.id > :afterId order by e.id")
+    List<OutboxEvent> findAfter(@Param("afterId") long afterId, Pageable pageable);
+
+    @Query("select coalesce(max(e.id), 0) from OutboxEvent e")
+    long findLatestId();
+
+    // Highest id written before the given time: a consumer seeded from the tables after reading it
+    // resumes from it, so events that race the seeding are replayed rather than skipped
+    @Query("select coalesce(max(e.id), 0) from OutboxEvent e where e.createdAt < :before")
+    long findLatestIdBefore(@Param("before") LocalDateTime before);
+
+    @Query("select coalesce(min(e.id), 0) from OutboxEvent e")
+    long findEarliestId();
+
+    long countByIdGreaterThan(long id);
+
+    @Query("select min(e.createdAt) from OutboxEvent e where e.id > :afterId")
+    LocalDateTime findOldestCreatedAtAfter(@Param("afterId") long afterId);
+
+    @Modifying
+    @Query("delete from OutboxEvent e where e.id <= :throughId and e.createdAt < :cutoff")
+    int deleteDelivered(@Param("throughId") long throughId, @Param("cutoff") LocalDateTime cutoff);
+}
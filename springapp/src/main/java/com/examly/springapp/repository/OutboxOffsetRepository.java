@@ -0,0 +1,25 @@
+package com.examly.springapp.repository;
+
+import com.examly.springapp.model.OutboxOffset;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+
+@Repository
+public interface OutboxOffsetRepository extends JpaRepository<OutboxOffset, OutboxOffset.Key> {
+
+    // Offsets only move forward, even if an older batch is saved late
+    @Modifying
+    @Query("update OutboxOffset o set o.lastEventId = :lastEventId, o.updatedAt = :now " +
+           "where o.consumer = :consumer and o.node = :node and o.lastEventId < :lastEventId")
+    int advance(@Param("consumer") String consumer, @Param("node") String node,
+                @Param("lastEventId") long lastEventId, @Param("now") LocalDateTime now);
+
+    // Lowest position of any instance that has moved since the given time (null if none has)
+    @Query("select min(o.lastEventId) from OutboxOffset o where o.updatedAt >= :activeSince")
+    Long findLowestActiveOffset(@Param("activeSince") LocalDateTime activeSince);
+}
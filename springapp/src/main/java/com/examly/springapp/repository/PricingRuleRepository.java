@@ -0,0 +1,16 @@
+package com.examly.springapp.repository;
+
+import com.examly.springapp.model.PricingRule;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface PricingRuleRepository extends JpaRepository<PricingRule, Long> {
+
+    List<PricingRule> findByActiveTrue();
+
+    Optional<PricingRule> findByCouponCodeIgnoreCase(String couponCode);
+}
@@ -0,0 +1,26 @@
+package com.examly.springapp.repository;
+
+import com.examly.springapp.model.ProductChange;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface ProductChangeRepository extends JpaRepository<ProductChange, Long> {
+
+    @Query("select c from ProductChange c where c.version > :since order by c.version")
+    List<ProductChange> findAfter(@Param("since") long since, Pageable pageable);
+
+    @Query("select coalesce(max(c.version), 0) from ProductChange c where c.changedAt < :cutoff")
+    long findLatestVersionBefore(@Param("cutoff") LocalDateTime cutoff);
+
+    @Modifying
+    @Query("delete from ProductChange c where c.version <= :version")
+    int deleteThrough(@Param("version") long version);
+}
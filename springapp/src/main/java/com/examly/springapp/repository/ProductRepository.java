@@ -1,14 +1,65 @@
 package com.examly.springapp.repository;
 
 import com.examly.springapp.model.Product;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
-public interface ProductRepository extends JpaRepository<Product, Long> {
+public interface ProductRepository extends JpaRepository<Product, Long>, ProductRepositoryCustom {
     List<Product> findByCategoryContainingIgnoreCase(String category);
     List<Product> findByPriceBetween(double min, double max);
     List<Product> findByCategoryContainingIgnoreCaseAndPriceBetween(String category, double min, double max);
+    List<Product> findBySkuIn(Collection<String> skus);
+    List<Product> findBySkuIsNullAndNameIn(Collection<String> names);
+
+    // Conditional in-place decrement: returns 0 when there is not enough stock
+    @Modifying
+    @Query("update Product p set p.stockQuantity = p.stockQuantity - :quantity, p.version = p.version + 1 " +
+           "where p.id = :id and p.stockQuantity >= :quantity and p.stockBuckets <= 1")
+    int decrementStock(@Param("id") Long id, @Param("quantity") int quantity);
+
+    @Modifying
+    @Query("update Product p set p.stockQuantity = p.stockQuantity + :quantity, p.version = p.version + 1 " +
+           "where p.id = :id and p.stockBuckets <= 1")
+    int incrementStock(@Param("id") Long id, @Param("quantity") int quantity);
+
+    // Current storage mode under a row lock; null when the product is gone
+    @Query(value = "select stock_buckets from product where id = :id for update", nativeQuery = true)
+    Integer lockStockBuckets(@Param("id") Long id);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select p from Product p where p.id = :id")
+    Optional<Product> findByIdForUpdate(@Param("id") Long id);
+
+    @Query("select p.id from Product p where p.stockBuckets > 1")
+    List<Long> findShardedIds();
+
+    // Stock snapshot of a sharded product; does not bump the version since it is derived data
+    @Modifying
+    @Query("update Product p set p.stockQuantity = :quantity where p.id = :id")
+    int updateStockSnapshot(@Param("id") Long id, @Param("quantity") int quantity);
+
+    // [id, name, category] for the typeahead index; no full entities
+    @Query("select p.id, p.name, p.category from Product p")
+    List<Object[]> findSuggestRows();
+
+    // [id, stockQuantity] read straight from the table, bypassing any stale managed entities
+    @Query("select p.id, p.stockQuantity from Product p where p.id in :ids")
+    List<Object[]> findStockLevels(@Param("ids") Collection<Long> ids);
+
+    // [id, name, stockQuantity, stockBuckets] for the low-stock watchlist
+    @Query("select p.id, p.name, p.stockQuantity, p.stockBuckets from Product p")
+    List<Object[]> findWatchRows();
+
+    @Query("select p.id, p.name, p.stockQuantity, p.stockBuckets from Product p where p.id in :ids")
+    List<Object[]> findWatchRows(@Param("ids") Collection<Long> ids);
 }
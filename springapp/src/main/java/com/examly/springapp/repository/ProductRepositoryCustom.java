@@ -0,0 +1,7 @@
+package com.examly.springapp.repository;
+
+import java.util.List;
+
+public interface ProductRepositoryCustom {
+    List<Object[]> findColumns(List<String> attributes, String category, Double minPrice, Double maxPrice);
+}
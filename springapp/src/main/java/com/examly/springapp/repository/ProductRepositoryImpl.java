@@ -0,0 +1,48 @@
+package com.examly.springapp.repository;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.TypedQuery;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Product listing that selects only the given attributes, with the same filters as the
+ * derived finders behind ProductService.getAllProducts: category (contains, any case) and the
+ * price range, which only applies when both bounds are given. Attribute names must come from
+ * an allow-list; they are written into the query as they are.
+ */
+public class ProductRepositoryImpl implements ProductRepositoryCustom {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<Object[]> findColumns(List<String> attributes, String category, Double minPrice, Double maxPrice) {
+        StringBuilder jpql = new StringBuilder("select ")
+                .append(attributes.stream().map(attribute -> "p." + attribute).collect(Collectors.joining(", ")))
+                .append(" from Product p where 1 = 1");
+        Map<String, Object> params = new HashMap<>();
+        if (category != null) {
+            jpql.append(" and upper(p.category) like upper(:category) escape '!'");
+            params.put("category", "%" + escapeLike(category) + "%");
+        }
+        if (minPrice != null && maxPrice != null) {
+            jpql.append(" and p.price between :minPrice and :maxPrice");
+            params.put("minPrice", minPrice);
+            params.put("maxPrice", maxPrice);
+        }
+        jpql.append(" order by p.id");
+
+        TypedQuery<Object[]> typed = entityManager.createQuery(jpql.toString(), Object[].class);
+        params.forEach(typed::setParameter);
+        return typed.getResultList();
+    }
+
+    private static String escapeLike(String value) {
+        return value.replace("!", "!!").replace("%", "!%").replace("_", "!_");
+    }
+}
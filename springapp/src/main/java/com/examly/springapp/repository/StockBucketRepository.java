@@ -0,0 +1,41 @@
+package com.examly.springapp.repository;
+
+import com.examly.springapp.model.StockBucket;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface StockBucketRepository extends JpaRepository<StockBucket, Long> {
+
+    // Takes from one bucket only if it can cover the whole quantity
+    @Modifying
+    @Query("update StockBucket b set b.quantity = b.quantity - :quantity " +
+           "where b.productId = :productId and b.bucketNo = :bucketNo and b.quantity >= :quantity")
+    int take(@Param("productId") Long productId, @Param("bucketNo") int bucketNo, @Param("quantity") int quantity);
+
+    @Modifying
+    @Query("update StockBucket b set b.quantity = b.quantity + :quantity " +
+           "where b.productId = :productId and b.bucketNo = :bucketNo")
+    int give(@Param("productId") Long productId, @Param("bucketNo") int bucketNo, @Param("quantity") int quantity);
+
+    // Locks every bucket of the product in bucketNo order (same order everywhere, so no deadlocks)
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select b from StockBucket b where b.productId = :productId order by b.bucketNo")
+    List<StockBucket> lockAll(@Param("productId") Long productId);
+
+    // [productId, total]
+    @Query("select b.productId, sum(b.quantity) from StockBucket b where b.productId in :productIds group by b.productId")
+    List<Object[]> sumByProduct(@Param("productIds") Collection<Long> productIds);
+
+    @Modifying
+    @Query("delete from StockBucket b where b.productId = :productId")
+    int deleteByProductId(@Param("productId") Long productId);
+}
@@ -0,0 +1,52 @@
+package com.examly.springapp.repository;
+
+import com.examly.springapp.model.UserOrderSummary;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface UserOrderSummaryRepository extends JpaRepository<UserOrderSummary, Long> {
+
+    // Applied as a single UPDATE so concurrent orders of the same user never lose increments
+    @Modifying
+    @Query("update UserOrderSummary s set " +
+           "s.orderCount = s.orderCount + 1, " +
+           "s.lifetimeSpend = s.lifetimeSpend + :spend, " +
+           "s.openOrderCount = s.openOrderCount + :open, " +
+           "s.lastOrderDate = case when s.lastOrderDate is null or s.lastOrderDate < :orderDate " +
+           "then :orderDate else s.lastOrderDate end " +
+           "where s.userId = :userId")
+    int recordOrder(@Param("userId") Long userId,
+                    @Param("spend") double spend,
+                    @Param("open") long open,
+                    @Param("orderDate") LocalDateTime orderDate);
+
+    @Modifying
+    @Query("update UserOrderSummary s set " +
+           "s.orderCount = s.orderCount + :orderDelta, " +
+           "s.lifetimeSpend = s.lifetimeSpend + :spendDelta, " +
+           "s.openOrderCount = s.openOrderCount + :openDelta " +
+           "where s.userId = :userId")
+    int applyDelta(@Param("userId") Long userId,
+                   @Param("orderDelta") long orderDelta,
+                   @Param("spendDelta") double spendDelta,
+                   @Param("openDelta") long openDelta);
+
+    @Modifying
+    @Query("update UserOrderSummary s set s.lastOrderDate = :lastOrderDate where s.userId = :userId")
+    int setLastOrderDate(@Param("userId") Long userId, @Param("lastOrderDate") LocalDateTime lastOrderDate);
+
+    // The next rows after a user id, locked so no increment can land on them until the caller commits
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select s from UserOrderSummary s where s.userId > :afterUserId order by s.userId")
+    List<UserOrderSummary> lockAfter(@Param("afterUserId") Long afterUserId, Pageable chunk);
+}
@@ -2,10 +2,25 @@ package com.examly.springapp.repository;
 
 import com.examly.springapp.model.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
-public interface UserRepository extends JpaRepository<User, Long> {
+public interface UserRepository extends JpaRepository<User, Long>, UserRepositoryCustom {
     Optional<User> findByEmail(String email);
     boolean existsByEmail(String email);
+
+    // Rows written before name and createdAt became non-null (see User.fillDirectoryKeys)
+    @Modifying
+    @Query("update User u set u.name = coalesce(u.name, ''), u.createdAt = coalesce(u.createdAt, local datetime) " +
+           "where u.name is null or u.createdAt is null")
+    int fillDirectoryKeys();
+
+    // By-id batch of the user loader; the orders' lines come from OrderRepository.findWithItemsByUserIdIn
+    @Query("select distinct u from User u left join fetch u.orders where u.id in :ids")
+    List<User> findWithOrdersByIdIn(@Param("ids") Collection<Long> ids);
 }
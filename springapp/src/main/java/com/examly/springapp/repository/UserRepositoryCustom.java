@@ -0,0 +1,9 @@
+package com.examly.springapp.repository;
+
+import com.examly.springapp.dto.CursorPage;
+import com.examly.springapp.dto.UserDirectoryEntry;
+import com.examly.springapp.dto.UserDirectoryQuery;
+
+public interface UserRepositoryCustom {
+    CursorPage<UserDirectoryEntry> findDirectoryPage(UserDirectoryQuery query);
+}
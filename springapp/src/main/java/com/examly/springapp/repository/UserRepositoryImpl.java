@@ -0,0 +1,168 @@
+package com.examly.springapp.repository;
+
+import com.examly.springapp.dto.CursorPage;
+import com.examly.springapp.dto.UserDirectoryEntry;
+import com.examly.springapp.dto.UserDirectoryQuery;
+import com.examly.springapp.dto.UserDirectoryQuery.SortKey;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.TypedQuery;
+import jakarta.validation.ValidationException;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Keyset-paged user directory. Only the predicates that were actually supplied end up in
+ * the query, so each combination can use its index (email/name prefix, role+active, id).
+ * The prefix matches the start of the email or of the name. An OR across both columns cannot
+ * use either index, so each column is searched on its own (a range scan on its index, cut at
+ * the page size, ids only) and the page is read back by id in the database's keyset order,
+ * which keeps the merge in the database's collation. Name and
+ * createdAt are non-null, so those sorts compare the indexed columns directly; the order
+ * stats come from the outer join and keep their coalesce.
+ */
+public class UserRepositoryImpl implements UserRepositoryCustom {
+
+    private static final int MAX_PAGE_SIZE = 200;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public CursorPage<UserDirectoryEntry> findDirectoryPage(UserDirectoryQuery query) {
+        int size = Math.max(1, Math.min(query.getSize(), MAX_PAGE_SIZE));
+        SortKey sort = query.getSort() == null ? SortKey.ID : query.getSort();
+        String select = "select new com.examly.springapp.dto.UserDirectoryEntry(" +
+                "u.id, u.email, u.name, u.role, u.active, u.createdAt, u.lastLogin, " +
+                "coalesce(s.orderCount, 0L), coalesce(s.lifetimeSpend, 0.0), s.lastOrderDate)";
+        Map<String, Object> params = new HashMap<>();
+        String jpql;
+        if (query.getPrefix() != null && !query.getPrefix().isBlank()) {
+            params.put("prefix", escapeLike(query.getPrefix().trim()) + "%");
+            Set<Long> ids = new HashSet<>();
+            for (String match : List.of("u.email like :prefix escape '!'", "u.name like :prefix escape '!'")) {
+                Map<String, Object> branchParams = new HashMap<>(params);
+                TypedQuery<Long> branch = entityManager.createQuery(
+                        "select u.id" + filtered(match, query, sort, branchParams), Long.class);
+                branchParams.forEach(branch::setParameter);
+                ids.addAll(branch.setMaxResults(size + 1).getResultList());
+            }
+            if (ids.isEmpty()) {
+                return new CursorPage<>(List.of(), null, false);
+            }
+            params.clear();
+            params.put("ids", ids);
+            jpql = select + filtered("u.id in :ids", query, sort, params);
+        } else {
+            jpql = select + filtered(null, query, sort, params);
+        }
+
+        TypedQuery<UserDirectoryEntry> typed = entityManager.createQuery(jpql, UserDirectoryEntry.class);
+        params.forEach(typed::setParameter);
+        List<UserDirectoryEntry> rows = new ArrayList<>(typed.setMaxResults(size + 1).getResultList());
+
+        boolean hasMore = rows.size() > size;
+        if (hasMore) {
+            rows = rows.subList(0, size);
+        }
+        String next = hasMore ? encodeCursor(rows.get(rows.size() - 1), sort) : null;
+        return new CursorPage<>(rows, next, hasMore);
+    }
+
+    // from, where and order by of one scan: the prefix match (if any), the filters and the keyset
+    private static String filtered(String prefixMatch, UserDirectoryQuery query, SortKey sort, Map<String, Object> params) {
+        String dir = query.isDescending() ? "desc" : "asc";
+        String cmp = query.isDescending() ? "<" : ">";
+        String key = sortExpression(sort);
+        StringBuilder jpql = new StringBuilder(" from User u left join UserOrderSummary s on s.userId = u.id where 1 = 1");
+        if (prefixMatch != null) {
+            jpql.append(" and ").append(prefixMatch);
+        }
+        if (query.getRole() != null) {
+            jpql.append(" and u.role = :role");
+            params.put("role", query.getRole());
+        }
+        if (query.getActive() != null) {
+            jpql.append(" and u.active = :active");
+            params.put("active", query.getActive());
+        }
+
+        if (query.getCursor() != null && !query.getCursor().isBlank()) {
+            Cursor cursor = decodeCursor(query.getCursor(), sort);
+            if (sort == SortKey.ID) {
+                jpql.append(" and u.id ").append(cmp).append(" :afterId");
+            } else {
+                jpql.append(" and (").append(key).append(' ').append(cmp).append(" :afterKey or (")
+                    .append(key).append(" = :afterKey and u.id ").append(cmp).append(" :afterId))");
+                params.put("afterKey", cursor.key());
+            }
+            params.put("afterId", cursor.id());
+        }
+
+        if (sort == SortKey.ID) {
+            jpql.append(" order by u.id ").append(dir);
+        } else {
+            jpql.append(" order by ").append(key).append(' ').append(dir).append(", u.id ").append(dir);
+        }
+        return jpql.toString();
+    }
+
+    private static String sortExpression(SortKey sort) {
+        return switch (sort) {
+            case ID -> "u.id";
+            case EMAIL -> "u.email";
+            case NAME -> "u.name";
+            case CREATED_AT -> "u.createdAt";
+            case ORDER_COUNT -> "coalesce(s.orderCount, 0L)";
+            case LIFETIME_SPEND -> "coalesce(s.lifetimeSpend, 0.0)";
+        };
+    }
+
+    // ---- Cursor: base64url("<sort value>\n<id>") ----
+
+    private record Cursor(Object key, Long id) {}
+
+    private static String encodeCursor(UserDirectoryEntry last, SortKey sort) {
+        String key = switch (sort) {
+            case ID -> "";
+            case EMAIL -> last.getEmail();
+            case NAME -> last.getName();
+            case CREATED_AT -> last.getCreatedAt().toString();
+            case ORDER_COUNT -> String.valueOf(last.getOrderCount());
+            case LIFETIME_SPEND -> String.valueOf(last.getLifetimeSpend());
+        };
+        String raw = key + "\n" + last.getId();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static Cursor decodeCursor(String token, SortKey sort) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            int split = raw.lastIndexOf('\n');
+            String key = raw.substring(0, split);
+            Long id = Long.valueOf(raw.substring(split + 1));
+            Object value = switch (sort) {
+                case ID -> null;
+                case EMAIL, NAME -> key;
+                case CREATED_AT -> LocalDateTime.parse(key);
+                case ORDER_COUNT -> Long.valueOf(key);
+                case LIFETIME_SPEND -> Double.valueOf(key);
+            };
+            return new Cursor(value, id);
+        } catch (RuntimeException e) {
+            throw new ValidationException("Invalid cursor");
+        }
+    }
+
+    private static String escapeLike(String value) {
+        return value.replace("!", "!!").replace("%", "!%").replace("_", "!_");
+    }
+}
@@ -0,0 +1,81 @@
+package com.examly.springapp.service;
+
+import com.examly.springapp.config.ReadYourWritesTracker;
+import com.examly.springapp.utils.BatchLoader;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.*;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.function.Function;
+
+/**
+ * Creates the {@link BatchLoader}s behind the by-id reads of products, orders and users, and
+ * reports their counters at /api/metrics/batch-loaders. Each batch runs in its own read-only
+ * transaction, so what it returns is detached: batch functions must fetch everything the
+ * caller serialises.
+ * <p>
+ * Loads are only coalesced outside a transaction and for clients not pinned to the primary
+ * after a recent write; a caller waiting on a batch must not hold a connection the batch needs.
+ * Everyone else runs the batch function for their one key on their own thread.
+ */
+@Component
+public class BatchLoaders {
+
+    private final TransactionTemplate readOnly;
+    private final Optional<ReadYourWritesTracker> readYourWrites;
+    private final boolean enabled;
+    private final long windowMs;
+    private final int maxBatch;
+    private final ScheduledThreadPoolExecutor executor;
+    private final Map<String, BatchLoader<?, ?>> loaders = new LinkedHashMap<>();
+
+    public BatchLoaders(PlatformTransactionManager transactionManager,
+                        Optional<ReadYourWritesTracker> readYourWrites,
+                        @Value("${batch-loader.enabled:true}") boolean enabled,
+                        @Value("${batch-loader.window-ms:2}") long windowMs,
+                        @Value("${batch-loader.max-batch:100}") int maxBatch,
+                        @Value("${batch-loader.threads:4}") int threads) {
+        this.readOnly = new TransactionTemplate(transactionManager);
+        this.readOnly.setReadOnly(true);
+        this.readYourWrites = readYourWrites;
+        this.enabled = enabled;
+        this.windowMs = windowMs;
+        this.maxBatch = maxBatch;
+        this.executor = new ScheduledThreadPoolExecutor(Math.max(1, threads), runnable -> {
+            Thread thread = new Thread(runnable, "batch-loader");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public synchronized <K, V> BatchLoader<K, V> create(String name, Function<List<K>, Map<K, V>> batchFunction) {
+        BatchLoader<K, V> loader = new BatchLoader<>(name,
+                keys -> Objects.requireNonNullElse(readOnly.execute(status -> batchFunction.apply(keys)), Map.of()),
+                windowMs, maxBatch, executor, this::canCoalesce);
+        loaders.put(name, loader);
+        return loader;
+    }
+
+    private boolean canCoalesce() {
+        return enabled
+                && !TransactionSynchronizationManager.isActualTransactionActive()
+                && readYourWrites.map(tracker -> !tracker.isSticky()).orElse(true);
+    }
+
+    public synchronized Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        loaders.forEach((name, loader) -> stats.put(name, loader.stats()));
+        return stats;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,387 @@
+package com.examly.springapp.service;
+
+import com.examly.springapp.dto.TopSellers;
+import com.examly.springapp.event.OrderCreatedEvent;
+import com.examly.springapp.event.OrderLineSnapshot;
+import com.examly.springapp.event.OrderStatusChangedEvent;
+import com.examly.springapp.event.OutboxConsumer;
+import com.examly.springapp.event.OutboxMessage;
+import com.examly.springapp.model.Product;
+import com.examly.springapp.repository.OrderRepository;
+import com.examly.springapp.repository.OutboxEventRepository;
+import com.examly.springapp.repository.ProductRepository;
+import com.examly.springapp.utils.CountMinSketch;
+import com.examly.springapp.utils.IndexedMinHeap;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.validation.ValidationException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.*;
+import java.util.stream.Stream;
+
+/**
+ * Streaming best sellers (units sold) over sliding 1h / 24h / 7d windows.
+ * <p>
+ * Each window is a ring of time buckets, each holding a Count-Min sketch, plus a running sketch
+ * of the whole window; an expiring bucket is subtracted from the running sketch. A fixed-size
+ * Space-Saving candidate set, a min-heap on the window estimates, keeps the products with the
+ * highest estimates. Memory does not grow with the catalog and an update costs
+ * O(sketch depth + log candidates), whatever the number of products.
+ * <p>
+ * Fed by committed orders (through the outbox) and reduced by cancellations; seeded from the
+ * last 7 days of orders at startup. The outbox is replayed from a position read before the seed,
+ * so orders committed while it ran are not lost. Until the replay has passed the events that
+ * were already written when the seed finished, every order is counted at most once: the seeded
+ * order ids are kept and a replayed event only adds or removes an order whose counted state it
+ * changes.
+ */
+@Slf4j
+@Service
+public class BestSellerService implements SmartInitializingSingleton, OutboxConsumer {
+
+    public static final int MAX_LIMIT = 50;
+
+    enum WindowSpec {
+        HOUR("1h", Duration.ofMinutes(5), 12),
+        DAY("24h", Duration.ofHours(1), 24),
+        WEEK("7d", Duration.ofHours(6), 28);
+
+        final String label;
+        final long bucketMillis;
+        final int buckets;
+
+        WindowSpec(String label, Duration bucket, int buckets) {
+            this.label = label;
+            this.bucketMillis = bucket.toMillis();
+            this.buckets = buckets;
+        }
+    }
+
+    private final OrderRepository orderRepository;
+    private final ProductRepository productRepository;
+    private final OutboxEventRepository outboxEventRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+    private final Map<String, SlidingWindow> windows = new LinkedHashMap<>();
+    private final long gapTimeoutMs;
+    private final boolean loadData;
+    private final Optional<ShardedOrderStore> shardedOrders;
+
+    // Replay after the seed (see the class comment); counted is dropped once the replay is past seededThrough
+    private volatile long replayFrom = Long.MAX_VALUE;
+    private long seededThrough;
+    private Set<Long> counted;
+
+    public BestSellerService(OrderRepository orderRepository, ProductRepository productRepository,
+                             OutboxEventRepository outboxEventRepository,
+                             TransactionTemplate transactionTemplate, ObjectMapper objectMapper,
+                             Optional<ShardedOrderStore> shardedOrders,
+                             @Value("${bestsellers.sketch-width:2048}") int sketchWidth,
+                             @Value("${bestsellers.sketch-depth:4}") int sketchDepth,
+                             @Value("${bestsellers.candidates:100}") int candidates,
+                             @Value("${outbox.gap-timeout-ms:30000}") long gapTimeoutMs,
+                             @Value("${startup.load-data:true}") boolean loadData) {
+        this.orderRepository = orderRepository;
+        this.productRepository = productRepository;
+        this.outboxEventRepository = outboxEventRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.objectMapper = objectMapper;
+        this.gapTimeoutMs = gapTimeoutMs;
+        this.loadData = loadData;
+        this.shardedOrders = shardedOrders;
+        for (WindowSpec spec : WindowSpec.values()) {
+            windows.put(spec.label, new SlidingWindow(spec, sketchWidth, sketchDepth, Math.max(candidates, MAX_LIMIT)));
+        }
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        if (!loadData) {
+            return;
+        }
+        LocalDateTime since = LocalDateTime.now().minus(Duration.ofMillis(
+                WindowSpec.WEEK.bucketMillis * WindowSpec.WEEK.buckets));
+        Set<Long> seeded = new HashSet<>();
+        try {
+            long from = outboxEventRepository.findLatestIdBefore(LocalDateTime.now().minus(Duration.ofMillis(gapTimeoutMs)));
+            long lines = Objects.requireNonNullElse(transactionTemplate.execute(status -> {
+                long count = 0;
+                try (Stream<Object[]> rows = shardedOrders.isPresent() ? shardedOrders.get().streamLinesSince(since)
+                        : orderRepository.streamLinesSince(since)) {
+                    for (Iterator<Object[]> it = rows.iterator(); it.hasNext(); count++) {
+                        Object[] row = it.next();
+                        record((Long) row[0], ((Number) row[1]).intValue(), (LocalDateTime) row[2]);
+                        seeded.add((Long) row[3]);
+                    }
+                }
+                return count;
+            }), 0L);
+            seededThrough = outboxEventRepository.findLatestId();
+            counted = seeded;
+            replayFrom = from;
+            log.info("Seeded best sellers from {} order lines, replaying the outbox from event {}", lines, from);
+        } catch (RuntimeException e) {
+            log.warn("Could not seed best sellers, starting empty: {}", e.getMessage());
+        }
+    }
+
+    // ---- Outbox consumer: counts change off the checkout path ----
+
+    @Override
+    public String name() {
+        return "best-sellers";
+    }
+
+    // In-memory only and re-seeded from the orders table at startup, so no stored offset
+    @Override
+    public boolean durable() {
+        return false;
+    }
+
+    @Override
+    public long localOffset() {
+        return replayFrom;
+    }
+
+    @Override
+    public boolean accepts(String eventType) {
+        return OrderCreatedEvent.class.getSimpleName().equals(eventType)
+                || OrderStatusChangedEvent.class.getSimpleName().equals(eventType);
+    }
+
+    @Override
+    public void handle(OutboxMessage message) throws Exception {
+        if (counted != null && message.id() > seededThrough) {
+            counted = null;
+        }
+        if (OrderCreatedEvent.class.getSimpleName().equals(message.eventType())) {
+            on(objectMapper.readValue(message.payload(), OrderCreatedEvent.class));
+        } else {
+            on(objectMapper.readValue(message.payload(), OrderStatusChangedEvent.class));
+        }
+    }
+
+    void on(OrderCreatedEvent event) {
+        if (counted != null && !counted.add(event.orderId())) {
+            return;
+        }
+        for (OrderLineSnapshot line : event.lines()) {
+            record(line.productId(), line.quantity(), event.orderDate());
+        }
+    }
+
+    void on(OrderStatusChangedEvent event) {
+        boolean cancelled = "CANCELLED".equals(event.toStatus());
+        boolean reopened = "CANCELLED".equals(event.fromStatus()) && !cancelled;
+        if (!cancelled && !reopened) {
+            return;
+        }
+        if (counted != null && !(cancelled ? counted.remove(event.orderId()) : counted.add(event.orderId()))) {
+            return;
+        }
+        for (OrderLineSnapshot line : event.lines()) {
+            record(line.productId(), cancelled ? -line.quantity() : line.quantity(), event.orderDate());
+        }
+    }
+
+    public TopSellers getTopSellers(String window, int limit) {
+        SlidingWindow sliding = windows.get(window);
+        if (sliding == null) {
+            throw new ValidationException("Unknown window '" + window + "'. Allowed values: " + windows.keySet());
+        }
+        if (limit < 1 || limit > MAX_LIMIT) {
+            throw new ValidationException("Limit must be between 1 and " + MAX_LIMIT);
+        }
+
+        TopSellers top = sliding.top(limit, System.currentTimeMillis());
+        Map<Long, Product> products = new HashMap<>();
+        productRepository.findAllById(top.getItems().stream().map(TopSellers.Entry::getProductId).toList())
+                .forEach(p -> products.put(p.getId(), p));
+        for (TopSellers.Entry entry : top.getItems()) {
+            Product product = products.get(entry.getProductId());
+            if (product != null) {
+                entry.setName(product.getName());
+                entry.setCategory(product.getCategory());
+            }
+        }
+        return top;
+    }
+
+    // Units sold over the last 7 days per product (estimates; used as popularity weights)
+    public long[] estimateWeeklyUnits(long[] productIds) {
+        long[] units = new long[productIds.length];
+        windows.get(WindowSpec.WEEK.label).estimate(productIds, units, System.currentTimeMillis());
+        return units;
+    }
+
+    private void record(Long productId, int quantity, LocalDateTime orderDate) {
+        if (productId == null || quantity == 0) {
+            return;
+        }
+        long at = orderDate != null ? orderDate.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli()
+                : System.currentTimeMillis();
+        long now = System.currentTimeMillis();
+        for (SlidingWindow window : windows.values()) {
+            window.add(productId, quantity, at, now);
+        }
+    }
+
+    static final class SlidingWindow {
+
+        private final WindowSpec spec;
+        private final CountMinSketch[] buckets;
+        private final long[] bucketEpochs;
+        private final long[] bucketUnits;
+        private final CountMinSketch total;
+        private final int maxCandidates;
+        private final IndexedMinHeap candidates; // productId by window estimate, weakest on top
+        private long totalUnits;
+        private long currentEpoch = Long.MIN_VALUE;
+
+        SlidingWindow(WindowSpec spec, int width, int depth, int maxCandidates) {
+            this.spec = spec;
+            this.buckets = new CountMinSketch[spec.buckets];
+            for (int i = 0; i < spec.buckets; i++) {
+                buckets[i] = new CountMinSketch(width, depth);
+            }
+            this.bucketEpochs = new long[spec.buckets];
+            Arrays.fill(bucketEpochs, Long.MIN_VALUE);
+            this.bucketUnits = new long[spec.buckets];
+            this.total = new CountMinSketch(width, depth);
+            this.maxCandidates = maxCandidates;
+            this.candidates = new IndexedMinHeap(maxCandidates);
+        }
+
+        synchronized void add(long productId, int quantity, long atMillis, long nowMillis) {
+            advance(nowMillis / spec.bucketMillis);
+            long epoch = atMillis / spec.bucketMillis;
+            if (epoch <= currentEpoch - spec.buckets || epoch > currentEpoch) {
+                return; // outside the window (or from the future)
+            }
+            int slot = slot(epoch);
+            if (bucketEpochs[slot] != epoch) {
+                if (expire(slot)) {
+                    refreshCandidates();
+                }
+                bucketEpochs[slot] = epoch;
+            }
+            buckets[slot].add(productId, quantity);
+            bucketUnits[slot] += quantity;
+            total.add(productId, quantity);
+            totalUnits += quantity;
+            track(productId, total.estimate(productId));
+        }
+
+        synchronized TopSellers top(int limit, long nowMillis) {
+            advance(nowMillis / spec.bucketMillis);
+            List<TopSellers.Entry> items = new ArrayList<>();
+            long errorBound = (long) Math.ceil(total.epsilon() * totalUnits);
+            refreshCandidates();
+            for (long productId : candidates.smallest(candidates.size(), Double.POSITIVE_INFINITY)) {
+                long estimate = (long) candidates.priority(productId);
+                items.add(TopSellers.Entry.builder()
+                        .productId(productId)
+                        .unitsSold(estimate)
+                        .minUnitsSold(Math.max(0, estimate - errorBound))
+                        .build());
+            }
+            items.sort(Comparator.comparingLong(TopSellers.Entry::getUnitsSold).reversed()
+                    .thenComparing(TopSellers.Entry::getProductId));
+            return TopSellers.builder()
+                    .window(spec.label)
+                    .totalUnits(totalUnits)
+                    .errorBound(errorBound)
+                    .confidence(total.confidence())
+                    .items(new ArrayList<>(items.subList(0, Math.min(limit, items.size()))))
+                    .build();
+        }
+
+        synchronized void estimate(long[] productIds, long[] out, long nowMillis) {
+            advance(nowMillis / spec.bucketMillis);
+            for (int i = 0; i < productIds.length; i++) {
+                out[i] = Math.max(0, total.estimate(productIds[i]));
+            }
+        }
+
+        /*
+         * Space-Saving on the window estimates: a product joins while there is room, or by pushing
+         * out the weakest candidate it outsells. The weakest is re-estimated before the comparison,
+         * since collisions can have raised its count since it was stored; if that moves it up the
+         * heap the next weakest is checked, and each candidate is re-estimated at most once.
+         */
+        private void track(long productId, long estimate) {
+            if (candidates.contains(productId) || candidates.size() < maxCandidates) {
+                if (estimate > 0) {
+                    candidates.put(productId, estimate);
+                } else {
+                    candidates.remove(productId);
+                }
+                return;
+            }
+            while (estimate > 0) {
+                long weakest = candidates.smallest(1, Double.POSITIVE_INFINITY)[0];
+                long current = total.estimate(weakest);
+                if (current != (long) candidates.priority(weakest)) {
+                    candidates.put(weakest, current);
+                    continue;
+                }
+                if (estimate > current) {
+                    candidates.remove(weakest);
+                    candidates.put(productId, estimate);
+                }
+                return;
+            }
+        }
+
+        // Re-estimates every candidate (after buckets expire, every count may have dropped)
+        private void refreshCandidates() {
+            for (long productId : candidates.smallest(candidates.size(), Double.POSITIVE_INFINITY)) {
+                long estimate = total.estimate(productId);
+                if (estimate > 0) {
+                    candidates.put(productId, estimate);
+                } else {
+                    candidates.remove(productId);
+                }
+            }
+        }
+
+        private void advance(long nowEpoch) {
+            if (nowEpoch <= currentEpoch) {
+                return;
+            }
+            currentEpoch = nowEpoch;
+            boolean expired = false;
+            for (int slot = 0; slot < buckets.length; slot++) {
+                if (bucketEpochs[slot] <= nowEpoch - spec.buckets) {
+                    expired |= expire(slot);
+                }
+            }
+            if (expired) {
+                refreshCandidates();
+            }
+        }
+
+        private boolean expire(int slot) {
+            if (bucketEpochs[slot] == Long.MIN_VALUE) {
+                return false;
+            }
+            total.merge(buckets[slot], -1);
+            totalUnits -= bucketUnits[slot];
+            buckets[slot].clear();
+            bucketUnits[slot] = 0;
+            bucketEpochs[slot] = Long.MIN_VALUE;
+            return true;
+        }
+
+        private int slot(long epoch) {
+            return (int) Math.floorMod(epoch, (long) spec.buckets);
+        }
+    }
+}
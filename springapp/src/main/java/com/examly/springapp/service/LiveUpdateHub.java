@@ -0,0 +1,289 @@
+package com.examly.springapp.service;
+
+import com.examly.springapp.event.OrderCreatedEvent;
+import com.examly.springapp.event.OrderStatusChangedEvent;
+import com.examly.springapp.event.StockChangedEvent;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Pushes committed order and stock events to Server-Sent Events subscribers.
+ *
+ * Publishing never blocks: each subscriber has a small bounded queue drained by a shared
+ * writer pool. Stock events for the same product are coalesced in the queue; a subscriber
+ * whose queue still overflows is disconnected and can resume with Last-Event-ID from the
+ * replay buffer (or is told to resync if it fell out of it).
+ */
+@Slf4j
+@Service
+public class LiveUpdateHub {
+
+    public static final String ORDER_CREATED = "order-created";
+    public static final String ORDER_STATUS_CHANGED = "order-status-changed";
+    public static final String STOCK_CHANGED = "stock-changed";
+    public static final String LOW_STOCK = "low-stock";
+    public static final String RESYNC = "resync";
+
+    private record LiveEvent(long id, String name, String coalesceKey, Object data) {}
+
+    private final int queueCapacity;
+    private final int maxSubscribers;
+    private final long emitterTimeoutMs;
+
+    private final LiveEvent[] history;
+    private long lastId;                       // guarded by historyLock
+    private final Object historyLock = new Object();
+
+    private final Map<Long, Subscriber> subscribers = new ConcurrentHashMap<>();
+    private final AtomicLong subscriberIds = new AtomicLong();
+    private final ExecutorService writers;
+
+    public LiveUpdateHub(@Value("${live.queue-capacity:64}") int queueCapacity,
+                         @Value("${live.replay-buffer:1024}") int replayBuffer,
+                         @Value("${live.max-subscribers:2000}") int maxSubscribers,
+                         @Value("${live.emitter-timeout-ms:1800000}") long emitterTimeoutMs,
+                         @Value("${live.writer-threads:4}") int writerThreads) {
+        this.queueCapacity = queueCapacity;
+        this.maxSubscribers = maxSubscribers;
+        this.emitterTimeoutMs = emitterTimeoutMs;
+        this.history = new LiveEvent[replayBuffer];
+        this.writers = Executors.newFixedThreadPool(writerThreads, runnable -> {
+            Thread thread = new Thread(runnable, "sse-writer");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    // ---- Sources (after commit, so subscribers never see rolled-back changes) ----
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void on(OrderCreatedEvent event) {
+        broadcast(ORDER_CREATED, null, event);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void on(OrderStatusChangedEvent event) {
+        broadcast(ORDER_STATUS_CHANGED, null, event);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void on(StockChangedEvent event) {
+        broadcast(STOCK_CHANGED, "stock:" + event.productId(), event);
+    }
+
+    public void broadcast(String name, String coalesceKey, Object data) {
+        List<Subscriber> overflowed = new ArrayList<>();
+        // ids are handed out and queued under one lock, so every queue holds them in order
+        synchronized (historyLock) {
+            LiveEvent event = new LiveEvent(++lastId, name, coalesceKey, data);
+            history[(int) (event.id() % history.length)] = event;
+            for (Subscriber subscriber : subscribers.values()) {
+                if (!subscriber.offer(event)) {
+                    overflowed.add(subscriber);
+                }
+            }
+        }
+        overflowed.forEach(Subscriber::close);
+    }
+
+    // ---- Subscriptions ----
+
+    public SseEmitter subscribe(Long lastEventId) {
+        if (subscribers.size() >= maxSubscribers) {
+            throw new IllegalStateException("Too many live update subscribers");
+        }
+
+        Subscriber subscriber = new Subscriber(subscriberIds.incrementAndGet(), new SseEmitter(emitterTimeoutMs));
+        subscriber.emitter.onCompletion(() -> subscribers.remove(subscriber.id));
+        subscriber.emitter.onTimeout(() -> subscribers.remove(subscriber.id));
+        subscriber.emitter.onError(e -> subscribers.remove(subscriber.id));
+
+        // hold the writer off until the replay is out, so ids stay in order
+        subscriber.draining.set(true);
+        long snapshot;
+        synchronized (historyLock) {
+            subscribers.put(subscriber.id, subscriber);
+            snapshot = lastId;
+        }
+
+        try {
+            if (lastEventId != null) {
+                replay(subscriber, lastEventId, snapshot);
+            } else {
+                subscriber.emitter.send(SseEmitter.event().comment("connected"));
+            }
+            subscriber.lastSentId = snapshot;
+        } catch (IOException e) {
+            subscriber.close();
+        } finally {
+            subscriber.draining.set(false);
+            subscriber.scheduleDrain();
+        }
+        return subscriber.emitter;
+    }
+
+    private void replay(Subscriber subscriber, long lastEventId, long snapshot) throws IOException {
+        long oldest = Math.max(1, snapshot - history.length + 1);
+        if (lastEventId + 1 < oldest) {
+            // missed events are gone; the client has to reload
+            subscriber.emitter.send(SseEmitter.event().id(String.valueOf(snapshot)).name(RESYNC).data("{}"));
+            return;
+        }
+        for (long id = lastEventId + 1; id <= snapshot; id++) {
+            LiveEvent event = history[(int) (id % history.length)];
+            if (event != null && event.id() == id) {
+                subscriber.send(event);
+            }
+        }
+    }
+
+    @Scheduled(fixedRateString = "${live.heartbeat-ms:15000}")
+    public void heartbeat() {
+        subscribers.values().forEach(Subscriber::requestHeartbeat);
+    }
+
+    public int getSubscriberCount() {
+        return subscribers.size();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        subscribers.values().forEach(Subscriber::close);
+        writers.shutdownNow();
+    }
+
+    private final class Subscriber {
+        final long id;
+        final SseEmitter emitter;
+        final ArrayDeque<LiveEvent> queue = new ArrayDeque<>();
+        final AtomicBoolean draining = new AtomicBoolean();
+        volatile boolean heartbeatDue;
+        volatile boolean closed;
+        long lastSentId;   // only touched by the thread that holds `draining`
+
+        Subscriber(long id, SseEmitter emitter) {
+            this.id = id;
+            this.emitter = emitter;
+        }
+
+        // false when the queue is full; the caller closes the subscriber outside the history lock
+        boolean offer(LiveEvent event) {
+            if (closed) {
+                return true;
+            }
+            synchronized (queue) {
+                if (event.coalesceKey() != null && replacePending(event)) {
+                    return true;
+                }
+                if (queue.size() >= queueCapacity) {
+                    log.debug("Dropping slow live update subscriber {}", id);
+                    return false;
+                }
+                queue.addLast(event);
+            }
+            scheduleDrain();
+            return true;
+        }
+
+        // Newer stock level for a product replaces one still waiting in the queue
+        private boolean replacePending(LiveEvent event) {
+            Iterator<LiveEvent> pending = queue.descendingIterator();
+            while (pending.hasNext()) {
+                LiveEvent queued = pending.next();
+                if (event.coalesceKey().equals(queued.coalesceKey())) {
+                    pending.remove();
+                    queue.addLast(event);
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        void requestHeartbeat() {
+            heartbeatDue = true;
+            scheduleDrain();
+        }
+
+        void scheduleDrain() {
+            if (!closed && draining.compareAndSet(false, true)) {
+                writers.execute(this::drain);
+            }
+        }
+
+        private void drain() {
+            try {
+                while (!closed) {
+                    LiveEvent next;
+                    synchronized (queue) {
+                        next = queue.pollFirst();
+                    }
+                    if (next == null) {
+                        break;
+                    }
+                    // anything up to the replay snapshot already went out with the replay
+                    if (next.id() > lastSentId) {
+                        send(next);
+                        lastSentId = next.id();
+                    }
+                }
+                if (heartbeatDue && !closed) {
+                    heartbeatDue = false;
+                    emitter.send(SseEmitter.event().comment("heartbeat"));
+                }
+            } catch (IOException | IllegalStateException e) {
+                close();
+            } finally {
+                draining.set(false);
+            }
+            // something may have arrived between the last poll and releasing the flag
+            boolean more;
+            synchronized (queue) {
+                more = !queue.isEmpty();
+            }
+            if (more || heartbeatDue) {
+                scheduleDrain();
+            }
+        }
+
+        void send(LiveEvent event) throws IOException {
+            emitter.send(SseEmitter.event()
+                    .id(String.valueOf(event.id()))
+                    .name(event.name())
+                    .data(event.data(), MediaType.APPLICATION_JSON));
+        }
+
+        void close() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            subscribers.remove(id);
+            synchronized (queue) {
+                queue.clear();
+            }
+            try {
+                emitter.complete();
+            } catch (IllegalStateException ignored) {
+                // already completed by the container
+            }
+        }
+    }
+}
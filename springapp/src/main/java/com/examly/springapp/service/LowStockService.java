@@ -0,0 +1,318 @@
+package com.examly.springapp.service;
+
+import com.examly.springapp.dto.LowStockEntry;
+import com.examly.springapp.event.OrderCreatedEvent;
+import com.examly.springapp.event.OrderLineSnapshot;
+import com.examly.springapp.event.ProductCatalogChangedEvent;
+import com.examly.springapp.event.StockChangedEvent;
+import com.examly.springapp.repository.OrderRepository;
+import com.examly.springapp.repository.ProductRepository;
+import com.examly.springapp.utils.IndexedMinHeap;
+import jakarta.validation.ValidationException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+/**
+ * Low-stock watchlist: every product in two {@link IndexedMinHeap}s, one ordered by stock and one
+ * by days of cover (stock / sales rate), updated in O(log n) on each committed stock change and
+ * sale, so the lowest N are read without touching the database.
+ * <p>
+ * The sales rate is an exponentially weighted average of units per day with time constant
+ * {@code lowstock.ewma-days}, kept with forward decay: each sale adds q/tau * e^(t/tau) to a sum
+ * stored as a logarithm, and the rate at time t is that sum times e^(-t/tau). Because every
+ * product decays by the same factor, the cover ordering only changes when a product's own stock
+ * or sales change, and the heap never needs re-sorting as time passes. Cancellations restore
+ * stock but are not taken off the rate.
+ * <p>
+ * A product crossing {@code lowstock.threshold-units} or {@code lowstock.threshold-days} is logged
+ * and pushed to live subscribers as a {@value LiveUpdateHub#LOW_STOCK} event, once until it
+ * recovers. Seeded from the product table and recent orders at startup.
+ * <p>
+ * After-commit listeners for different transactions can run in any order, so a stock change is
+ * only taken as a hint: the product's stock is re-read, one reader at a time, and a reader that
+ * finds its product already re-read by someone else skips the query.
+ */
+@Slf4j
+@Service
+public class LowStockService implements SmartInitializingSingleton {
+
+    public static final int MAX_LIMIT = 100;
+
+    private static final double DAY_MS = 24 * 60 * 60 * 1000.0;
+
+    private static final class Watched {
+        String name;
+        int stock;
+        double logRate = Double.NEGATIVE_INFINITY;
+        boolean alerted;
+    }
+
+    private final ProductRepository productRepository;
+    private final OrderRepository orderRepository;
+    private final StockBucketService stockBucketService;
+    private final LiveUpdateHub liveUpdateHub;
+    private final TransactionTemplate transactionTemplate;
+    private final int thresholdUnits;
+    private final double thresholdDays;
+    private final double tau;
+    private final boolean loadData;
+    private final Optional<ShardedOrderStore> shardedOrders;
+    private final long landmark = System.currentTimeMillis();
+
+    // All guarded by this
+    private final Map<Long, Watched> products = new HashMap<>();
+    private final IndexedMinHeap byStock = new IndexedMinHeap();
+    private final IndexedMinHeap byCover = new IndexedMinHeap();
+
+    // Products whose stock changed since it was last read; stock reads are applied under stockReads
+    private final Set<Long> staleStock = ConcurrentHashMap.newKeySet();
+    private final Object stockReads = new Object();
+
+    public LowStockService(ProductRepository productRepository, OrderRepository orderRepository,
+                           StockBucketService stockBucketService, LiveUpdateHub liveUpdateHub,
+                           TransactionTemplate transactionTemplate, Optional<ShardedOrderStore> shardedOrders,
+                           @Value("${lowstock.threshold-units:10}") int thresholdUnits,
+                           @Value("${lowstock.threshold-days:7}") double thresholdDays,
+                           @Value("${lowstock.ewma-days:7}") double ewmaDays,
+                           @Value("${startup.load-data:true}") boolean loadData) {
+        if (ewmaDays <= 0) {
+            throw new IllegalArgumentException("lowstock.ewma-days must be positive");
+        }
+        this.productRepository = productRepository;
+        this.orderRepository = orderRepository;
+        this.stockBucketService = stockBucketService;
+        this.liveUpdateHub = liveUpdateHub;
+        this.transactionTemplate = transactionTemplate;
+        this.thresholdUnits = thresholdUnits;
+        this.thresholdDays = thresholdDays;
+        this.tau = ewmaDays;
+        this.loadData = loadData;
+        this.shardedOrders = shardedOrders;
+    }
+
+    // Products already low at startup are marked as alerted without raising alerts
+    @Override
+    public void afterSingletonsInstantiated() {
+        if (!loadData) {
+            return;
+        }
+        try {
+            List<Object[]> rows = productRepository.findWatchRows();
+            Map<Long, Integer> shardedTotals = stockBucketService.totalStocks(shardedIds(rows));
+            LocalDateTime since = LocalDateTime.now().minusHours((long) Math.ceil(4 * tau * 24));
+            long lines = Objects.requireNonNullElse(transactionTemplate.execute(status -> {
+                long count = 0;
+                synchronized (this) {
+                    for (Object[] row : rows) {
+                        Watched watched = products.computeIfAbsent((Long) row[0], id -> new Watched());
+                        watched.name = (String) row[1];
+                        watched.stock = shardedTotals.getOrDefault((Long) row[0], ((Number) row[2]).intValue());
+                    }
+                    try (Stream<Object[]> sales = shardedOrders.isPresent() ? shardedOrders.get().streamLinesSince(since)
+                            : orderRepository.streamLinesSince(since)) {
+                        for (Iterator<Object[]> it = sales.iterator(); it.hasNext(); count++) {
+                            Object[] line = it.next();
+                            Watched watched = products.get((Long) line[0]);
+                            if (watched != null) {
+                                addSale(watched, ((Number) line[1]).intValue(), (LocalDateTime) line[2]);
+                            }
+                        }
+                    }
+                    for (Map.Entry<Long, Watched> entry : products.entrySet()) {
+                        reindex(entry.getKey(), entry.getValue());
+                        entry.getValue().alerted = isLow(entry.getValue());
+                    }
+                }
+                return count;
+            }), 0L);
+            log.info("Seeded low-stock watchlist with {} products and {} order lines", rows.size(), lines);
+        } catch (RuntimeException e) {
+            log.warn("Could not seed the low-stock watchlist, starting empty: {}", e.getMessage());
+        }
+    }
+
+    // ---- Sources (after commit) ----
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void on(StockChangedEvent event) {
+        staleStock.add(event.productId());
+        List<LowStockEntry> alerts;
+        synchronized (stockReads) {
+            if (staleStock.isEmpty()) {
+                return;
+            }
+            List<Long> ids = new ArrayList<>(staleStock);
+            staleStock.removeAll(ids);
+            alerts = reread(ids);
+        }
+        alerts.forEach(this::sendAlert);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void on(OrderCreatedEvent event) {
+        List<LowStockEntry> alerts = new ArrayList<>();
+        synchronized (this) {
+            for (OrderLineSnapshot line : event.lines()) {
+                Watched watched = products.get(line.productId());
+                if (watched != null) {
+                    addSale(watched, line.quantity(), event.orderDate());
+                    alerts.add(reindex(line.productId(), watched));
+                }
+            }
+        }
+        alerts.forEach(this::sendAlert);
+    }
+
+    // Picks up names of new or renamed products and drops deleted ones
+    @TransactionalEventListener(fallbackExecution = true)
+    public void on(ProductCatalogChangedEvent event) {
+        List<LowStockEntry> alerts;
+        synchronized (stockReads) {
+            alerts = reread(event.productIds());
+        }
+        alerts.forEach(this::sendAlert);
+    }
+
+    // ---- Reads ----
+
+    /**
+     * Lowest products by "stock" (units) or "cover" (days), lowest first, up to limit; max caps
+     * the stock or days of cover and defaults to the alert threshold.
+     */
+    public List<LowStockEntry> getLowStock(String by, Double max, int limit) {
+        if (limit < 1 || limit > MAX_LIMIT) {
+            throw new ValidationException("Limit must be between 1 and " + MAX_LIMIT);
+        }
+        if (max != null && (max.isNaN() || max < 0)) {
+            throw new ValidationException("Max must not be negative");
+        }
+        double now = daysSinceLandmark(System.currentTimeMillis());
+        List<LowStockEntry> entries = new ArrayList<>(limit);
+        synchronized (this) {
+            long[] ids;
+            if ("stock".equalsIgnoreCase(by)) {
+                ids = byStock.smallest(limit, max != null ? max : thresholdUnits);
+            } else if ("cover".equalsIgnoreCase(by)) {
+                double days = max != null ? max : thresholdDays;
+                ids = byCover.smallest(limit, Math.log(days) - now / tau);
+            } else {
+                throw new ValidationException("By must be stock or cover");
+            }
+            for (long id : ids) {
+                entries.add(toEntry(id, products.get(id), now));
+            }
+        }
+        return entries;
+    }
+
+    // ---- Internals ----
+
+    private void addSale(Watched watched, int units, LocalDateTime at) {
+        if (units <= 0 || at == null) {
+            return;
+        }
+        double t = daysSinceLandmark(at.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli());
+        watched.logRate = logAddExp(watched.logRate, Math.log(units / tau) + t / tau);
+    }
+
+    // Current name and stock of the given products, dropping the ones that no longer exist; holds stockReads
+    private List<LowStockEntry> reread(Collection<Long> ids) {
+        List<Object[]> rows = productRepository.findWatchRows(ids);
+        Map<Long, Integer> shardedTotals = stockBucketService.totalStocks(shardedIds(rows));
+        List<LowStockEntry> alerts = new ArrayList<>();
+        synchronized (this) {
+            Set<Long> missing = new HashSet<>(ids);
+            for (Object[] row : rows) {
+                Long id = (Long) row[0];
+                missing.remove(id);
+                Watched watched = products.computeIfAbsent(id, key -> new Watched());
+                watched.name = (String) row[1];
+                watched.stock = shardedTotals.getOrDefault(id, ((Number) row[2]).intValue());
+                alerts.add(reindex(id, watched));
+            }
+            for (Long id : missing) {
+                products.remove(id);
+                byStock.remove(id);
+                byCover.remove(id);
+            }
+        }
+        return alerts;
+    }
+
+    // Updates both heaps; returns the alert to send if the product just became low, else null
+    private LowStockEntry reindex(Long id, Watched watched) {
+        byStock.put(id, Math.max(0, watched.stock));
+        byCover.put(id, coverKey(watched));
+        boolean low = isLow(watched);
+        LowStockEntry alert = low && !watched.alerted
+                ? toEntry(id, watched, daysSinceLandmark(System.currentTimeMillis())) : null;
+        watched.alerted = low;
+        return alert;
+    }
+
+    private boolean isLow(Watched watched) {
+        if (watched.stock <= thresholdUnits) {
+            return true;
+        }
+        double now = daysSinceLandmark(System.currentTimeMillis());
+        return coverKey(watched) <= Math.log(thresholdDays) - now / tau;
+    }
+
+    // log(stock) - log(forward-decayed rate): days of cover is e^(key + now/tau)
+    private static double coverKey(Watched watched) {
+        if (watched.stock <= 0) {
+            return Double.NEGATIVE_INFINITY;
+        }
+        if (watched.logRate == Double.NEGATIVE_INFINITY) {
+            return Double.POSITIVE_INFINITY;
+        }
+        return Math.log(watched.stock) - watched.logRate;
+    }
+
+    private LowStockEntry toEntry(long id, Watched watched, double now) {
+        double rate = Math.exp(watched.logRate - now / tau);
+        Double cover = rate > 0 ? Math.max(0, watched.stock) / rate : null;
+        return LowStockEntry.builder()
+                .productId(id)
+                .name(watched.name)
+                .stockQuantity(watched.stock)
+                .dailySales(rate)
+                .daysOfCover(cover)
+                .build();
+    }
+
+    private void sendAlert(LowStockEntry alert) {
+        if (alert == null) {
+            return;
+        }
+        log.info("Low stock: product {} ({}) has {} left, {} days of cover", alert.getProductId(), alert.getName(),
+                alert.getStockQuantity(), alert.getDaysOfCover() == null ? "unknown" : String.format("%.1f", alert.getDaysOfCover()));
+        liveUpdateHub.broadcast(LiveUpdateHub.LOW_STOCK, "low-stock:" + alert.getProductId(), alert);
+    }
+
+    private double daysSinceLandmark(long epochMillis) {
+        return (epochMillis - landmark) / DAY_MS;
+    }
+
+    private static double logAddExp(double a, double b) {
+        double high = Math.max(a, b);
+        if (high == Double.NEGATIVE_INFINITY) {
+            return high;
+        }
+        return high + Math.log1p(Math.exp(Math.min(a, b) - high));
+    }
+
+    private static List<Long> shardedIds(List<Object[]> rows) {
+        return rows.stream().filter(row -> ((Number) row[3]).intValue() > 1).map(row -> (Long) row[0]).toList();
+    }
+}
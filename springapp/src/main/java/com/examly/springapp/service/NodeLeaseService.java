@@ -0,0 +1,139 @@
+package com.examly.springapp.service;
+
+import com.examly.springapp.model.NodeLease;
+import com.examly.springapp.repository.NodeLeaseRepository;
+import com.examly.springapp.utils.SnowflakeIdGenerator;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManager;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Leases a node number for {@link SnowflakeIdGenerator} from the node_lease table, so no two
+ * running instances generate ids with the same node bits. The lease is renewed in the background;
+ * if it is ever lost (e.g. after a long pause) a new node is leased before continuing.
+ * <p>
+ * The generator is told the lease ends one TTL after the claim or renewal was started, measured on
+ * this instance's clock, so it stops handing out ids before anyone else can take the node over
+ * (the instances' clocks are assumed to be NTP-synchronised). While no node is held, id generation
+ * fails instead of falling back to an unleased node.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class NodeLeaseService implements SmartInitializingSingleton {
+
+    private final NodeLeaseRepository nodeLeaseRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final EntityManager entityManager;
+    private final String owner = ManagementFactory.getRuntimeMXBean().getName() + "/" + UUID.randomUUID();
+
+    @Value("${ids.lease-ttl-ms:60000}")
+    private long leaseTtlMs;
+
+    @Value("${startup.load-data:true}")
+    private boolean loadData;
+
+    private volatile Integer leasedNode;
+
+    // Runs once every bean is ready and before the app takes traffic
+    @Override
+    public void afterSingletonsInstantiated() {
+        if (loadData) {
+            acquire();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${ids.lease-renew-ms:15000}")
+    public void renew() {
+        Integer node = leasedNode;
+        if (node == null) {
+            acquire();
+            return;
+        }
+        try {
+            long started = System.currentTimeMillis();
+            Integer renewed = transactionTemplate.execute(status ->
+                    nodeLeaseRepository.renew(node, owner, LocalDateTime.now().plus(Duration.ofMillis(leaseTtlMs))));
+            if (renewed != null && renewed == 1) {
+                SnowflakeIdGenerator.extendLease(owner, started + leaseTtlMs);
+                return;
+            }
+            log.warn("Lost the lease on id node {}, leasing a new one", node);
+            SnowflakeIdGenerator.revoke(owner);
+            leasedNode = null;
+            acquire();
+        } catch (DataAccessException e) {
+            // the generator stops by itself once the last successful renewal runs out
+            log.warn("Could not renew the lease on id node {}: {}", node, e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void release() {
+        Integer node = leasedNode;
+        if (node != null) {
+            SnowflakeIdGenerator.revoke(owner);
+            try {
+                transactionTemplate.executeWithoutResult(status ->
+                        nodeLeaseRepository.renew(node, owner, LocalDateTime.now().minusSeconds(1)));
+            } catch (DataAccessException e) {
+                log.debug("Could not release id node {}: {}", node, e.getMessage());
+            }
+        }
+    }
+
+    public Integer getLeasedNode() {
+        return leasedNode;
+    }
+
+    private void acquire() {
+        int start = ThreadLocalRandom.current().nextInt(SnowflakeIdGenerator.MAX_NODES);
+        for (int i = 0; i < SnowflakeIdGenerator.MAX_NODES; i++) {
+            int node = (start + i) % SnowflakeIdGenerator.MAX_NODES;
+            try {
+                long started = System.currentTimeMillis();
+                if (tryClaim(node)) {
+                    SnowflakeIdGenerator.useNode(node, owner, started + leaseTtlMs);
+                    leasedNode = node;
+                    log.info("Leased id node {}", node);
+                    return;
+                }
+            } catch (DataAccessException e) {
+                // another instance inserted the same node first, or the table is unavailable
+                log.debug("Could not lease id node {}: {}", node, e.getMessage());
+            }
+        }
+        log.error("No id node could be leased; new rows cannot get ids until a later renewal leases one");
+    }
+
+    private boolean tryClaim(int node) {
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime expiresAt = now.plus(Duration.ofMillis(leaseTtlMs));
+        Boolean claimed = transactionTemplate.execute(status -> {
+            if (nodeLeaseRepository.claim(node, owner, expiresAt, now) == 1) {
+                return true;
+            }
+            if (nodeLeaseRepository.existsById(node)) {
+                return false;
+            }
+            // first use of this node number: a plain INSERT, so a concurrent claimer fails on the key
+            entityManager.persist(NodeLease.builder().nodeId(node).owner(owner).expiresAt(expiresAt).build());
+            entityManager.flush();
+            return true;
+        });
+        return Boolean.TRUE.equals(claimed);
+    }
+}
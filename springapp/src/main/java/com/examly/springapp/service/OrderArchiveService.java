@@ -0,0 +1,169 @@
+package com.examly.springapp.service;
+
+import com.examly.springapp.dto.OrderSearchQuery;
+import com.examly.springapp.model.*;
+import com.examly.springapp.repository.*;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.*;
+
+/**
+ * Cold storage for completed orders.
+ * <p>
+ * A background job moves DELIVERED and CANCELLED orders older than {@code archive.min-age-days}
+ * from {@code orders}/{@code order_item} into {@code orders_archive}/{@code order_item_archive},
+ * one batch per transaction: the batch is locked, copied with INSERT ... SELECT and deleted from
+ * the hot tables, so an order is always in exactly one place. Archived orders keep their ids and
+ * are read back as regular (read-only) {@link Order}s, which lets OrderService serve both. Reads
+ * are by id, by id range or by search, a page at a time; the archive is never loaded whole.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class OrderArchiveService {
+
+    private final OrderRepository orderRepository;
+    private final OrderItemRepository orderItemRepository;
+    private final ArchivedOrderRepository archivedOrderRepository;
+    private final ArchivedOrderItemRepository archivedOrderItemRepository;
+    private final UserRepository userRepository;
+    private final ProductRepository productRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${archive.min-age-days:90}")
+    private long minAgeDays;
+
+    @Value("${archive.batch-size:500}")
+    private int batchSize;
+
+    // ---- Hot -> cold ----
+
+    @Scheduled(cron = "${archive.cron:0 30 2 * * *}")
+    public void archiveCompleted() {
+        long started = System.currentTimeMillis();
+        LocalDateTime cutoff = LocalDateTime.now().minusDays(minAgeDays);
+        int moved = 0;
+        while (true) {
+            int batch = Objects.requireNonNullElse(transactionTemplate.execute(status -> moveBatch(cutoff)), 0);
+            moved += batch;
+            if (batch < batchSize) {
+                break;
+            }
+        }
+        log.info("Archived {} orders placed before {} in {} ms", moved, cutoff, System.currentTimeMillis() - started);
+    }
+
+    int moveBatch(LocalDateTime cutoff) {
+        List<Long> ids = orderRepository.lockArchivable(cutoff, PageRequest.of(0, batchSize)).stream()
+                .map(Order::getId).toList();
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        archivedOrderRepository.copyFromOrders(ids);
+        archivedOrderItemRepository.copyFromOrderItems(ids);
+        orderItemRepository.deleteByOrderIds(ids);
+        orderRepository.deleteByIds(ids);
+        return ids.size();
+    }
+
+    // ---- Reads ----
+
+    @Transactional(readOnly = true)
+    public Optional<Order> findById(Long id) {
+        return archivedOrderRepository.findById(id).map(archived -> toOrders(List.of(archived)).get(0));
+    }
+
+    @Transactional(readOnly = true)
+    public boolean isArchived(Long id) {
+        return archivedOrderRepository.existsById(id);
+    }
+
+    @Transactional(readOnly = true)
+    public List<Order> findIdRange(long fromId, long toId, int limit) {
+        return toOrders(archivedOrderRepository.findIdRange(fromId, toId, PageRequest.of(0, limit)));
+    }
+
+    // The first matches of an order search in the archive, newest first
+    @Transactional(readOnly = true)
+    public List<Order> search(OrderSearchQuery query, int limit) {
+        return toOrders(archivedOrderRepository.findSearchRows(query, limit));
+    }
+
+    // ---- Deletes (the only write allowed on an archived order) ----
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void delete(Long id) {
+        archivedOrderItemRepository.deleteByOrderId(id);
+        archivedOrderRepository.deleteById(id);
+        archivedOrderRepository.flush();
+    }
+
+    // Rebuilds the Order shape the API returns, loading users and products once per call
+    private List<Order> toOrders(List<ArchivedOrder> archived) {
+        if (archived.isEmpty()) {
+            return new ArrayList<>();
+        }
+        List<Long> orderIds = archived.stream().map(ArchivedOrder::getId).toList();
+        Map<Long, List<ArchivedOrderItem>> itemsByOrder = new HashMap<>();
+        for (ArchivedOrderItem item : archivedOrderItemRepository.findByOrderIdInOrderById(orderIds)) {
+            itemsByOrder.computeIfAbsent(item.getOrderId(), id -> new ArrayList<>()).add(item);
+        }
+
+        Map<Long, User> users = new HashMap<>();
+        userRepository.findAllById(archived.stream().map(ArchivedOrder::getUserId).distinct().toList())
+                .forEach(user -> users.put(user.getId(), user));
+        Map<Long, Product> products = new HashMap<>();
+        productRepository.findAllById(itemsByOrder.values().stream().flatMap(List::stream)
+                        .map(ArchivedOrderItem::getProductId).distinct().toList())
+                .forEach(product -> products.put(product.getId(), product));
+
+        List<Order> orders = new ArrayList<>(archived.size());
+        for (ArchivedOrder row : archived) {
+            Order order = Order.builder()
+                    .id(row.getId())
+                    .user(users.computeIfAbsent(row.getUserId(), OrderArchiveService::deletedUser))
+                    .customerName(row.getCustomerName())
+                    .customerEmail(row.getCustomerEmail())
+                    .shippingAddress(row.getShippingAddress())
+                    .orderDate(row.getOrderDate())
+                    .status(row.getStatus())
+                    .totalAmount(row.getTotalAmount())
+                    .subtotalAmount(row.getSubtotalAmount())
+                    .discountAmount(row.getDiscountAmount())
+                    .taxAmount(row.getTaxAmount())
+                    .couponCode(row.getCouponCode())
+                    .archived(true)
+                    .build();
+            List<OrderItem> items = new ArrayList<>();
+            for (ArchivedOrderItem item : itemsByOrder.getOrDefault(row.getId(), List.of())) {
+                items.add(OrderItem.builder()
+                        .id(item.getId())
+                        .product(products.computeIfAbsent(item.getProductId(),
+                                productId -> Product.builder().id(productId).build()))
+                        .order(order)
+                        .quantity(item.getQuantity())
+                        .priceAtPurchase(item.getPriceAtPurchase())
+                        .build());
+            }
+            order.setOrderItems(items);
+            orders.add(order);
+        }
+        return orders;
+    }
+
+    // The user may have been removed after the order was archived; keep the id
+    private static User deletedUser(Long id) {
+        User user = new User();
+        user.setId(id);
+        return user;
+    }
+}
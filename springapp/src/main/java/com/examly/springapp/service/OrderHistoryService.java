@@ -0,0 +1,130 @@
+package com.examly.springapp.service;
+
+import com.examly.springapp.dto.OrderHistoryEntry;
+import com.examly.springapp.event.OrderDeletedEvent;
+import com.examly.springapp.event.OrderStatusChangedEvent;
+import com.examly.springapp.event.OutboxConsumer;
+import com.examly.springapp.event.OutboxMessage;
+import com.examly.springapp.utils.OrderHistoryLog;
+import com.examly.springapp.utils.OrderStatusCodes;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.time.*;
+import java.util.List;
+
+// Audit trail of order status changes, kept in OrderHistoryLog files instead of MySQL.
+// Fed from the outbox; each dispatcher batch is one group commit. Every instance keeps its own
+// complete log: it resumes from the last event in its own files, so a new or wiped instance
+// replays the retained outbox rather than starting with holes. History older than
+// outbox.retention-hours has to be copied over from another instance's history.dir.
+@Slf4j
+@Service
+public class OrderHistoryService implements OutboxConsumer {
+
+    private final OrderHistoryLog historyLog;
+    private final ObjectMapper objectMapper;
+    private final OrderHistoryLog.FsyncPolicy fsyncPolicy;
+    private final long retentionDays;
+
+    public OrderHistoryService(ObjectMapper objectMapper,
+                               @Value("${history.dir:./data/order-history}") String dir,
+                               @Value("${history.segment-records:65536}") int segmentRecords,
+                               @Value("${history.fsync:ALWAYS}") OrderHistoryLog.FsyncPolicy fsyncPolicy,
+                               @Value("${history.retention-days:0}") long retentionDays) throws IOException {
+        this.objectMapper = objectMapper;
+        this.fsyncPolicy = fsyncPolicy;
+        this.retentionDays = retentionDays;
+        this.historyLog = new OrderHistoryLog(Path.of(dir), segmentRecords, fsyncPolicy);
+        log.info("Order history log opened in {} ({} segments, fsync {})", dir,
+                historyLog.getSegmentCount(), fsyncPolicy);
+    }
+
+    public List<OrderHistoryEntry> getHistory(Long orderId) {
+        return historyLog.history(orderId).stream()
+                .map(entry -> OrderHistoryEntry.builder()
+                        .eventId(entry.eventId())
+                        .orderId(entry.orderId())
+                        .fromStatus(OrderStatusCodes.decode(entry.fromStatus()))
+                        .toStatus(OrderStatusCodes.decode(entry.toStatus()))
+                        .deleted(entry.tombstone())
+                        .actor(entry.actor())
+                        .changedAt(LocalDateTime.ofInstant(Instant.ofEpochMilli(entry.timestampMillis()),
+                                ZoneId.systemDefault()))
+                        .build())
+                .toList();
+    }
+
+    // ---- Outbox consumer ----
+
+    @Override
+    public String name() {
+        return "order-history";
+    }
+
+    @Override
+    public boolean accepts(String eventType) {
+        return OrderStatusChangedEvent.class.getSimpleName().equals(eventType)
+                || OrderDeletedEvent.class.getSimpleName().equals(eventType);
+    }
+
+    @Override
+    public void handle(OutboxMessage message) throws Exception {
+        if (OrderStatusChangedEvent.class.getSimpleName().equals(message.eventType())) {
+            OrderStatusChangedEvent event = objectMapper.readValue(message.payload(), OrderStatusChangedEvent.class);
+            historyLog.append(new OrderHistoryLog.Entry(event.orderId(), message.id(), toMillis(event.changedAt()),
+                    OrderStatusCodes.encode(event.fromStatus()), OrderStatusCodes.encode(event.toStatus()),
+                    false, event.actor()));
+        } else {
+            OrderDeletedEvent event = objectMapper.readValue(message.payload(), OrderDeletedEvent.class);
+            historyLog.append(new OrderHistoryLog.Entry(event.orderId(), message.id(), toMillis(event.deletedAt()),
+                    (byte) 0, (byte) 0, true, event.actor()));
+        }
+    }
+
+    @Override
+    public long localOffset() {
+        return historyLog.getLastEventId();
+    }
+
+    // Durable before the dispatcher stores the offset past these events
+    @Override
+    public void flush() {
+        historyLog.commit();
+    }
+
+    @Scheduled(fixedDelayString = "${history.fsync-interval-ms:1000}")
+    public void syncPeriodically() {
+        if (fsyncPolicy == OrderHistoryLog.FsyncPolicy.INTERVAL) {
+            historyLog.sync();
+        }
+    }
+
+    @Scheduled(cron = "${history.compact-cron:0 0 4 * * *}")
+    public void compact() {
+        long retainAfter = retentionDays > 0 ? toMillis(LocalDateTime.now().minusDays(retentionDays)) : Long.MIN_VALUE;
+        try {
+            int dropped = historyLog.compact(retainAfter);
+            log.info("Compacted order history log: {} records dropped, {} segments", dropped,
+                    historyLog.getSegmentCount());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+        historyLog.close();
+    }
+
+    private static long toMillis(LocalDateTime time) {
+        return (time != null ? time : LocalDateTime.now()).atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+}
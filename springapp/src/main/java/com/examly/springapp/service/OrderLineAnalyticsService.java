@@ -0,0 +1,301 @@
+package com.examly.springapp.service;
+
+import com.examly.springapp.dto.OrderLineQuery;
+import com.examly.springapp.dto.OrderLineReport;
+import com.examly.springapp.event.OrderCreatedEvent;
+import com.examly.springapp.event.OrderDeletedEvent;
+import com.examly.springapp.event.OrderLineSnapshot;
+import com.examly.springapp.event.OrderStatusChangedEvent;
+import com.examly.springapp.event.OutboxConsumer;
+import com.examly.springapp.event.OutboxMessage;
+import com.examly.springapp.repository.ArchivedOrderRepository;
+import com.examly.springapp.repository.OrderRepository;
+import com.examly.springapp.repository.OutboxEventRepository;
+import com.examly.springapp.utils.OrderLineColumns;
+import com.examly.springapp.utils.OrderStatusCodes;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.validation.ValidationException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiFunction;
+import java.util.stream.Stream;
+
+/**
+ * Keeps every order line (hot and archived) in an {@link OrderLineColumns} store and answers
+ * group-by queries over it.
+ * <p>
+ * At startup the order id space of both tables is cut into ranges that are streamed on
+ * {@code analytics.load-threads} threads, each into its own partition; the partitions are then
+ * joined in id order. After that the store follows OrderService through the outbox: new orders
+ * are appended, status changes and deletes update the status column in place. The outbox is
+ * replayed from a position read before the scan, so an order committed while the tables were
+ * being read is not lost; orders the scan already loaded are not appended twice, and replayed
+ * status changes end at the current status.
+ */
+@Slf4j
+@Service
+public class OrderLineAnalyticsService implements SmartInitializingSingleton, OutboxConsumer {
+
+    public static final int MAX_GROUP_BY = 3;
+    public static final int MAX_LIMIT = 10_000;
+
+    private final OrderRepository orderRepository;
+    private final ArchivedOrderRepository archivedOrderRepository;
+    private final OutboxEventRepository outboxEventRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+    private final int loadThreads;
+    private final long gapTimeoutMs;
+    private final boolean loadData;
+    private final Optional<ShardedOrderStore> shardedOrders;
+    private final OrderLineColumns store = new OrderLineColumns();
+    private volatile long replayFrom = Long.MAX_VALUE;
+
+    public OrderLineAnalyticsService(OrderRepository orderRepository, ArchivedOrderRepository archivedOrderRepository,
+                                     OutboxEventRepository outboxEventRepository,
+                                     TransactionTemplate transactionTemplate, ObjectMapper objectMapper,
+                                     Optional<ShardedOrderStore> shardedOrders,
+                                     @Value("${analytics.load-threads:4}") int loadThreads,
+                                     @Value("${outbox.gap-timeout-ms:30000}") long gapTimeoutMs,
+                                     @Value("${startup.load-data:true}") boolean loadData) {
+        this.orderRepository = orderRepository;
+        this.archivedOrderRepository = archivedOrderRepository;
+        this.outboxEventRepository = outboxEventRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.objectMapper = objectMapper;
+        this.loadThreads = Math.max(1, loadThreads);
+        this.gapTimeoutMs = gapTimeoutMs;
+        this.loadData = loadData;
+        this.shardedOrders = shardedOrders;
+    }
+
+    // ---- Startup load ----
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        if (!loadData) {
+            return;
+        }
+        long started = System.currentTimeMillis();
+        // read before the scan: events after it are replayed, older ones may still be committing
+        replayFrom = outboxEventRepository.findLatestIdBefore(LocalDateTime.now().minus(Duration.ofMillis(gapTimeoutMs)));
+        List<LoadRange> ranges = new ArrayList<>();
+        if (shardedOrders.isPresent()) {
+            // every shard is split the same way, so the shards are read in parallel too
+            List<Long[]> bounds = shardedOrders.get().findIdBounds();
+            for (int shard = 0; shard < bounds.size(); shard++) {
+                int index = shard;
+                ranges.addAll(split(bounds.get(shard)[0], bounds.get(shard)[1],
+                        (fromId, toId) -> shardedOrders.get().streamLinesInRange(index, fromId, toId)));
+            }
+        } else {
+            ranges.addAll(split(orderRepository.findMinId(), orderRepository.findMaxId(), orderRepository::streamLinesInRange));
+        }
+        ranges.addAll(split(archivedOrderRepository.findMinId(), archivedOrderRepository.findMaxId(),
+                archivedOrderRepository::streamLinesInRange));
+
+        AtomicInteger threadNo = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(loadThreads, runnable -> {
+            Thread thread = new Thread(runnable, "analytics-load-" + threadNo.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            List<Future<OrderLineColumns>> partitions = new ArrayList<>();
+            for (LoadRange range : ranges) {
+                partitions.add(pool.submit(() -> load(range)));
+            }
+            for (Future<OrderLineColumns> partition : partitions) {
+                store.absorb(partition.get());
+            }
+            log.info("Loaded {} order lines into {} column chunks in {} ms", store.getLineCount(),
+                    store.getChunkCount(), System.currentTimeMillis() - started);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            log.warn("Could not load order lines for analytics, starting with what was loaded: {}", e.getMessage());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private record LoadRange(long fromId, long toId, BiFunction<Long, Long, Stream<Object[]>> lines) {}
+
+    private List<LoadRange> split(Long minId, Long maxId, BiFunction<Long, Long, Stream<Object[]>> lines) {
+        if (minId == null || maxId == null) {
+            return List.of();
+        }
+        List<LoadRange> ranges = new ArrayList<>();
+        long step = (maxId - minId) / loadThreads + 1;
+        for (long from = minId; from <= maxId; from += step) {
+            ranges.add(new LoadRange(from, Math.min(from + step, maxId + 1), lines));
+        }
+        return ranges;
+    }
+
+    private OrderLineColumns load(LoadRange range) {
+        OrderLineColumns partition = store.newPartition();
+        transactionTemplate.executeWithoutResult(status -> {
+            try (Stream<Object[]> rows = range.lines().apply(range.fromId(), range.toId())) {
+                Object[] order = null;
+                List<OrderLineColumns.Line> lines = new ArrayList<>();
+                for (Iterator<Object[]> it = rows.iterator(); it.hasNext(); ) {
+                    Object[] row = it.next();
+                    if (order != null && !order[0].equals(row[0])) {
+                        append(partition, order, lines);
+                        lines = new ArrayList<>();
+                    }
+                    order = row;
+                    lines.add(new OrderLineColumns.Line((String) row[5], (Long) row[4],
+                            ((Number) row[6]).intValue(), cents(((Number) row[7]).doubleValue())));
+                }
+                if (order != null) {
+                    append(partition, order, lines);
+                }
+            }
+        });
+        return partition;
+    }
+
+    private static void append(OrderLineColumns partition, Object[] order, List<OrderLineColumns.Line> lines) {
+        partition.appendOrder((Long) order[0], (Long) order[1], ((LocalDateTime) order[2]).toLocalDate(),
+                (String) order[3], lines);
+    }
+
+    // ---- Outbox consumer: follows OrderService ----
+
+    @Override
+    public String name() {
+        return "order-line-analytics";
+    }
+
+    // Rebuilt from the order tables at startup, so no stored offset
+    @Override
+    public boolean durable() {
+        return false;
+    }
+
+    @Override
+    public long localOffset() {
+        return replayFrom;
+    }
+
+    @Override
+    public boolean accepts(String eventType) {
+        return OrderCreatedEvent.class.getSimpleName().equals(eventType)
+                || OrderStatusChangedEvent.class.getSimpleName().equals(eventType)
+                || OrderDeletedEvent.class.getSimpleName().equals(eventType);
+    }
+
+    @Override
+    public void handle(OutboxMessage message) throws Exception {
+        if (OrderCreatedEvent.class.getSimpleName().equals(message.eventType())) {
+            OrderCreatedEvent event = objectMapper.readValue(message.payload(), OrderCreatedEvent.class);
+            List<OrderLineColumns.Line> lines = new ArrayList<>(event.lines().size());
+            for (OrderLineSnapshot line : event.lines()) {
+                lines.add(new OrderLineColumns.Line(line.category(), line.productId(), line.quantity(),
+                        cents(line.unitPrice())));
+            }
+            store.appendOrderIfAbsent(event.orderId(), event.userId(), event.orderDate().toLocalDate(), event.status(),
+                    lines);
+        } else if (OrderStatusChangedEvent.class.getSimpleName().equals(message.eventType())) {
+            OrderStatusChangedEvent event = objectMapper.readValue(message.payload(), OrderStatusChangedEvent.class);
+            store.setStatus(event.orderId(), event.toStatus());
+        } else {
+            OrderDeletedEvent event = objectMapper.readValue(message.payload(), OrderDeletedEvent.class);
+            store.setStatus(event.orderId(), null);
+        }
+    }
+
+    // ---- Queries ----
+
+    public OrderLineReport query(OrderLineQuery query) {
+        List<String> groupBy = query.getGroupBy() != null ? query.getGroupBy() : List.of();
+        if (groupBy.size() > MAX_GROUP_BY) {
+            throw new ValidationException("Group by at most " + MAX_GROUP_BY + " dimensions");
+        }
+        List<OrderLineColumns.Dimension> dimensions = new ArrayList<>();
+        for (String name : groupBy) {
+            try {
+                dimensions.add(OrderLineColumns.Dimension.valueOf(name.trim().toUpperCase()));
+            } catch (IllegalArgumentException e) {
+                throw new ValidationException("Invalid groupBy: '" + name + "'. Allowed values: "
+                        + Arrays.toString(OrderLineColumns.Dimension.values()).toLowerCase());
+            }
+        }
+        Set<String> statuses = null;
+        if (query.getStatuses() != null) {
+            statuses = new HashSet<>();
+            for (String status : query.getStatuses()) {
+                if (OrderStatusCodes.encode(status) == 0) {
+                    throw new ValidationException("Invalid status: '" + status + "'. Allowed values: "
+                            + OrderStatusCodes.all());
+                }
+                statuses.add(status.toUpperCase());
+            }
+        }
+        if (query.getLimit() < 1 || query.getLimit() > MAX_LIMIT) {
+            throw new ValidationException("Limit must be between 1 and " + MAX_LIMIT);
+        }
+        if (query.getFrom() != null && query.getTo() != null && !query.getFrom().isBefore(query.getTo())) {
+            throw new ValidationException("'from' must be before 'to'");
+        }
+
+        long started = System.currentTimeMillis();
+        OrderLineColumns.Result result;
+        try {
+            result = store.query(new OrderLineColumns.Filter(statuses, query.getCategories(), query.getProductId(),
+                    query.getUserId(), query.getFrom(), query.getTo()), dimensions, query.getLimit());
+        } catch (IllegalArgumentException e) {
+            throw new ValidationException(e.getMessage());
+        }
+
+        List<OrderLineReport.Row> rows = new ArrayList<>(result.groups().size());
+        for (OrderLineColumns.Group group : result.groups()) {
+            Map<String, Object> key = new LinkedHashMap<>();
+            for (int k = 0; k < dimensions.size(); k++) {
+                key.put(dimensions.get(k).name().toLowerCase(), group.keys().get(k));
+            }
+            rows.add(OrderLineReport.Row.builder()
+                    .key(key)
+                    .lines(group.lines())
+                    .orders(group.orders())
+                    .units(group.units())
+                    .revenue(group.revenueCents() / 100.0)
+                    .avgBasketValue(group.orders() > 0 ? group.revenueCents() / 100.0 / group.orders() : 0)
+                    .avgBasketUnits(group.orders() > 0 ? (double) group.units() / group.orders() : 0)
+                    .build());
+        }
+        return OrderLineReport.builder()
+                .groupBy(dimensions.stream().map(dimension -> dimension.name().toLowerCase()).toList())
+                .rows(rows)
+                .totalGroups(result.totalGroups())
+                .scannedLines(result.scannedLines())
+                .matchedLines(result.matchedLines())
+                .elapsedMs(System.currentTimeMillis() - started)
+                .build();
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("lines", store.getLineCount());
+        stats.put("chunks", store.getChunkCount());
+        stats.put("allocatedBytes", store.getAllocatedBytes());
+        return stats;
+    }
+
+    private static int cents(double amount) {
+        return (int) Math.round(amount * 100);
+    }
+}
@@ -1,33 +1,88 @@
 package com.examly.springapp.service;
 
 import com.examly.springapp.dto.*;
+import com.examly.springapp.event.OrderCreatedEvent;
+import com.examly.springapp.event.OrderDeletedEvent;
+import com.examly.springapp.event.OrderLineSnapshot;
+import com.examly.springapp.event.OrderStatusChangedEvent;
+import com.examly.springapp.event.StockChangedEvent;
 import com.examly.springapp.model.*;
 import com.examly.springapp.repository.*;
+import com.examly.springapp.utils.BatchLoader;
+import com.examly.springapp.utils.PricingTables;
+import com.examly.springapp.utils.SnowflakeIdGenerator;
+import com.examly.springapp.utils.SparseFields;
 import jakarta.validation.ValidationException;
-import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
 import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Service
-@RequiredArgsConstructor
 @Transactional
 public class OrderService {
 
     private final OrderRepository orderRepository;
     private final ProductRepository productRepository;
     private final UserRepository userRepository; // ✅ added
+    private final UserOrderSummaryService userOrderSummaryService;
+    private final ProductChangeService productChangeService;
+    private final StockBucketService stockBucketService;
+    private final OrderArchiveService orderArchiveService;
+    private final PricingEngine pricingEngine;
+    private final ApplicationEventPublisher eventPublisher;
+    private final Optional<ShardedOrderStore> shardedOrders; // present when orders are sharded by user
+    private final BatchLoader<Long, Order> hotOrderLoader;
+
+    private static final int MAX_PAGE_SIZE = 200;
+
+    // fields= of GET /api/orders; the user and the lines are entities and not on the list
+    public static final Set<String> LIST_FIELDS = Collections.unmodifiableSet(new LinkedHashSet<>(List.of(
+            "id", "userId", "customerName", "customerEmail", "shippingAddress", "orderDate", "status",
+            "totalAmount", "subtotalAmount", "discountAmount", "taxAmount", "couponCode")));
 
     private static final Set<String> VALID_STATUSES = Set.of(
         "PENDING", "PROCESSING", "SHIPPED", "DELIVERED", "CANCELLED"
     );
 
+    // what OrderArchiveService moves to cold storage
+    private static final Set<String> ARCHIVED_STATUSES = Set.of("DELIVERED", "CANCELLED");
+
+    public OrderService(OrderRepository orderRepository, ProductRepository productRepository,
+                        UserRepository userRepository, UserOrderSummaryService userOrderSummaryService,
+                        ProductChangeService productChangeService, StockBucketService stockBucketService,
+                        OrderArchiveService orderArchiveService, PricingEngine pricingEngine,
+                        ApplicationEventPublisher eventPublisher, Optional<ShardedOrderStore> shardedOrders,
+                        BatchLoaders batchLoaders) {
+        this.orderRepository = orderRepository;
+        this.productRepository = productRepository;
+        this.userRepository = userRepository;
+        this.userOrderSummaryService = userOrderSummaryService;
+        this.productChangeService = productChangeService;
+        this.stockBucketService = stockBucketService;
+        this.orderArchiveService = orderArchiveService;
+        this.pricingEngine = pricingEngine;
+        this.eventPublisher = eventPublisher;
+        this.shardedOrders = shardedOrders;
+        // lines are fetched with the orders, the batch's results are detached
+        this.hotOrderLoader = batchLoaders.create("orders", ids -> (shardedOrders.isPresent()
+                ? shardedOrders.get().findAllById(ids) : orderRepository.findWithItemsByIdIn(ids))
+                .stream().collect(Collectors.toMap(Order::getId, Function.identity())));
+    }
+
     // CREATE ORDER
     public Order createOrder(OrderCreateRequest request) {
         List<OrderItem> orderItems = new ArrayList<>();
-        double total = 0.0;
+        PricingTables.Basket basket = new PricingTables.Basket(request.getOrderItems().size());
 
         // ✅ Find User
         User user = userRepository.findById(request.getUserId())
@@ -42,19 +97,22 @@ public class OrderService {
         order.setOrderDate(LocalDateTime.now());
         order.setStatus("PENDING");
 
-        // Build order items
+        // Build order items; all products in one IN query (in this transaction, not coalesced)
+        Map<Long, Product> products = new HashMap<>();
+        productRepository.findAllById(request.getOrderItems().stream()
+                        .map(OrderItemCreateRequest::getProductId).distinct().toList())
+                .forEach(product -> products.put(product.getId(), product));
         for (OrderItemCreateRequest itemReq : request.getOrderItems()) {
-            Product product = productRepository.findById(itemReq.getProductId())
-                    .orElseThrow(() -> new ValidationException("Product not found"));
+            Product product = products.get(itemReq.getProductId());
+            if (product == null) {
+                throw new ValidationException("Product not found");
+            }
 
-            if (product.getStockQuantity() < itemReq.getQuantity()) {
+            // reduce stock in place; the row (or one bucket of a hot product) is only locked for this one statement
+            if (!stockBucketService.reserve(product, itemReq.getQuantity())) {
                 throw new ValidationException("Insufficient stock for product: " + product.getName());
             }
 
-            // reduce stock
-            product.setStockQuantity(product.getStockQuantity() - itemReq.getQuantity());
-            productRepository.save(product);
-
             // build item
             OrderItem item = OrderItem.builder()
                     .product(product)
@@ -64,29 +122,208 @@ public class OrderService {
                     .build();
 
             orderItems.add(item);
-            total += product.getPrice() * itemReq.getQuantity();
+            basket.add(product.getId(), product.getCategory(), toCents(product.getPrice()), itemReq.getQuantity());
         }
 
+        // discounts, coupon and tax; a bad coupon rolls back the stock reserved above
+        PricingTables.Result price = pricingEngine.price(basket, request.getCouponCode(), new PricingTables.Result());
+        checkCoupon(price);
         order.setOrderItems(orderItems);
-        order.setTotalAmount(total);
+        order.setSubtotalAmount(fromCents(price.subtotalCents));
+        order.setDiscountAmount(fromCents(price.lineDiscountCents + price.couponDiscountCents));
+        order.setTaxAmount(fromCents(price.taxCents));
+        order.setTotalAmount(fromCents(price.totalCents));
+        if (price.couponStatus == PricingTables.CouponStatus.APPLIED) {
+            order.setCouponCode(request.getCouponCode().trim().toUpperCase());
+        }
 
-        return orderRepository.save(order); // cascades items
+        Order saved = shardedOrders.isPresent() ? shardedOrders.get().insert(order)
+                : orderRepository.save(order); // cascades items
+        stockChanged(orderItems);
+        userOrderSummaryService.orderCreated(saved);
+        eventPublisher.publishEvent(new OrderCreatedEvent(saved.getId(), user.getId(), saved.getStatus(),
+                saved.getTotalAmount(), saved.getOrderDate(), OrderLineSnapshot.of(orderItems)));
+        return saved;
     }
 
-    // GET ALL ORDERS
+    // PRICE A BASKET without placing it (same rules as createOrder, no stock check)
+    @Transactional(readOnly = true)
+    public PriceQuote quote(PriceQuoteRequest request) {
+        List<OrderItemCreateRequest> lines = request.getOrderItems();
+        Map<Long, Product> products = new HashMap<>();
+        productRepository.findAllById(lines.stream().map(OrderItemCreateRequest::getProductId).distinct().toList())
+                .forEach(product -> products.put(product.getId(), product));
+
+        PricingTables.Basket basket = new PricingTables.Basket(lines.size());
+        for (OrderItemCreateRequest line : lines) {
+            Product product = products.get(line.getProductId());
+            if (product == null) {
+                throw new ValidationException("Product not found");
+            }
+            basket.add(product.getId(), product.getCategory(), toCents(product.getPrice()), line.getQuantity());
+        }
+        PricingTables.Result price = pricingEngine.price(basket, request.getCouponCode(), new PricingTables.Result());
+
+        List<PriceQuote.Line> quoted = new ArrayList<>(lines.size());
+        for (int i = 0; i < lines.size(); i++) {
+            OrderItemCreateRequest line = lines.get(i);
+            quoted.add(PriceQuote.Line.builder()
+                    .productId(line.getProductId())
+                    .quantity(line.getQuantity())
+                    .unitPrice(products.get(line.getProductId()).getPrice())
+                    .discount(fromCents(price.lineDiscount[i] + price.lineCoupon[i]))
+                    .tax(fromCents(price.lineTax[i]))
+                    .total(fromCents(price.lineTotal[i]))
+                    .build());
+        }
+        return PriceQuote.builder()
+                .subtotal(fromCents(price.subtotalCents))
+                .discount(fromCents(price.lineDiscountCents))
+                .couponDiscount(fromCents(price.couponDiscountCents))
+                .tax(fromCents(price.taxCents))
+                .total(fromCents(price.totalCents))
+                .couponCode(request.getCouponCode())
+                .couponStatus(price.couponStatus.name())
+                .lines(quoted)
+                .build();
+    }
+
+    private static void checkCoupon(PricingTables.Result price) {
+        if (price.couponStatus == PricingTables.CouponStatus.UNKNOWN) {
+            throw new ValidationException("Invalid coupon code");
+        }
+        if (price.couponStatus == PricingTables.CouponStatus.BELOW_MINIMUM) {
+            throw new ValidationException("Coupon requires a subtotal of at least "
+                    + String.format("%.2f", fromCents(price.couponMinSubtotalCents)));
+        }
+    }
+
+    private static long toCents(double amount) {
+        return Math.round(amount * 100);
+    }
+
+    private static double fromCents(long cents) {
+        return cents / 100.0;
+    }
+
+    // GET ALL ORDERS: the open and recent ones in the hot tables. The archive grows without bound,
+    // so archived orders are only read by id or a page at a time through getOrdersPlacedBetween.
+    @Transactional(readOnly = true)
     public List<Order> getAllOrders() {
-        return orderRepository.findAll();
+        return shardedOrders.isPresent() ? shardedOrders.get().findAll() : orderRepository.findAll();
     }
 
-    // GET ORDER BY ID
+    // GET /api/orders?fields=: only those columns of hot orders, newest first
+    @Transactional(readOnly = true)
+    public List<Map<String, Object>> getAllOrderFields(String fields) {
+        SparseFields selected = SparseFields.parse(fields, LIST_FIELDS);
+        return selected.toRows(shardedOrders.isPresent()
+                ? shardedOrders.get().findColumns(selected.names())
+                : orderRepository.findColumns(selected.names()));
+    }
+
+    // ORDERS PLACED IN [from, to), newest first, keyset-paged on the id
+    @Transactional(readOnly = true)
+    public CursorPage<Order> getOrdersPlacedBetween(LocalDateTime from, LocalDateTime to, Long cursor, int size) {
+        if (size < 1 || size > MAX_PAGE_SIZE) {
+            throw new ValidationException("Page size must be between 1 and " + MAX_PAGE_SIZE);
+        }
+        long fromId = from != null ? SnowflakeIdGenerator.lowestIdAt(from) : 0L;
+        long toId = to != null ? SnowflakeIdGenerator.lowestIdAt(to) : Long.MAX_VALUE;
+        if (cursor != null) {
+            toId = Math.min(toId, cursor);
+        }
+        // the hot and archive tables hold disjoint ids; merge the two newest-first runs
+        List<Order> rows = new ArrayList<>(shardedOrders.isPresent() ? shardedOrders.get().findIdRange(fromId, toId, size + 1)
+                : orderRepository.findIdRange(fromId, toId, PageRequest.of(0, size + 1)));
+        rows.addAll(orderArchiveService.findIdRange(fromId, toId, size + 1));
+        rows.sort(Comparator.comparing(Order::getId).reversed());
+        boolean hasMore = rows.size() > size;
+        List<Order> items = hasMore ? rows.subList(0, size) : rows;
+        String nextCursor = hasMore ? String.valueOf(items.get(items.size() - 1).getId()) : null;
+        return new CursorPage<>(new ArrayList<>(items), nextCursor, hasMore);
+    }
+
+    // ADMIN SEARCH, newest first, keyset-paged on the id. A search for a date range or a customer
+    // also covers the archive; others read only the hot orders, as the archive has no index for them.
+    @Transactional(readOnly = true)
+    public CursorPage<Order> searchOrders(OrderSearchQuery query) {
+        if (query.getSize() < 1 || query.getSize() > MAX_PAGE_SIZE) {
+            throw new ValidationException("Page size must be between 1 and " + MAX_PAGE_SIZE);
+        }
+        if (query.getStatus() != null && !query.getStatus().isBlank()) {
+            String status = query.getStatus().toUpperCase().trim();
+            if ("CANCELED".equals(status)) {
+                status = "CANCELLED";
+            }
+            if (!VALID_STATUSES.contains(status)) {
+                throw new ValidationException("Invalid status: " + query.getStatus() + ". Allowed values: " + VALID_STATUSES);
+            }
+            query.setStatus(status);
+        } else {
+            query.setStatus(null);
+        }
+        if (query.getMinAmount() != null && query.getMaxAmount() != null && query.getMinAmount() > query.getMaxAmount()) {
+            throw new ValidationException("minAmount must not be greater than maxAmount");
+        }
+        if (query.getFrom() != null && query.getTo() != null && !query.getFrom().isBefore(query.getTo())) {
+            throw new ValidationException("from must be before to");
+        }
+        CursorPage<Order> hot = shardedOrders.isPresent() ? shardedOrders.get().search(query) : orderRepository.findSearchPage(query);
+        if (!searchesArchive(query)) {
+            return hot;
+        }
+        // the hot page is the newest matches there; the same number from the archive and a merge by id
+        // give the newest of both
+        List<Order> rows = new ArrayList<>(hot.getItems());
+        rows.addAll(orderArchiveService.search(query, query.getSize() + 1));
+        rows.sort(Comparator.comparing(Order::getId).reversed());
+        boolean hasMore = hot.isHasMore() || rows.size() > query.getSize();
+        List<Order> items = rows.size() > query.getSize() ? rows.subList(0, query.getSize()) : rows;
+        String nextCursor = hasMore ? String.valueOf(items.get(items.size() - 1).getId()) : null;
+        return new CursorPage<>(new ArrayList<>(items), nextCursor, hasMore);
+    }
+
+    // Only completed orders are archived, and only the date range (the id) and the customer are indexed there
+    private static boolean searchesArchive(OrderSearchQuery query) {
+        boolean indexed = query.getFrom() != null || query.getTo() != null
+                || (query.getCustomerEmail() != null && !query.getCustomerEmail().isBlank())
+                || (query.getCustomerName() != null && !query.getCustomerName().isBlank());
+        return indexed && (query.getStatus() == null || ARCHIVED_STATUSES.contains(query.getStatus()));
+    }
+
+    // GET ORDER BY ID (hot table first, then the archive)
+    // Outside a transaction the hot lookup is coalesced with concurrent ones, see BatchLoaders
+    @Transactional(propagation = Propagation.SUPPORTS)
     public Order getOrderById(Long id) {
-        return orderRepository.findById(id)
+        return Optional.ofNullable(hotOrderLoader.load(id))
+                .or(() -> orderArchiveService.findById(id))
                 .orElseThrow(() -> new RuntimeException("Order not found"));
     }
 
+    // Orders that may still change; archived ones are read-only
+    private Order getOpenOrder(Long id) {
+        return findHot(id).orElseThrow(() -> orderArchiveService.isArchived(id)
+                ? new ValidationException("Archived orders are read-only")
+                : new RuntimeException("Order not found"));
+    }
+
+    private Optional<Order> findHot(Long id) {
+        return shardedOrders.isPresent() ? shardedOrders.get().findById(id) : orderRepository.findById(id);
+    }
+
+    // Sharded orders are detached, so the status is written back explicitly (guarded by the old one)
+    private Order saveStatus(Order order, String fromStatus) {
+        if (shardedOrders.isPresent()) {
+            shardedOrders.get().updateStatus(order, fromStatus);
+            return order;
+        }
+        return orderRepository.save(order);
+    }
+
     // UPDATE STATUS
     public Order updateStatus(Long id, OrderStatusUpdateRequest request) {
-        Order order = getOrderById(id);
+        Order order = getOpenOrder(id);
         String newStatus = request.getStatus().toUpperCase().trim();
 
         // Handle common typo
@@ -119,12 +356,14 @@ public class OrderService {
         }
 
         order.setStatus(newStatus);
-        return orderRepository.save(order);
+        userOrderSummaryService.statusChanged(order, currentStatus, newStatus);
+        publishStatusChange(order, currentStatus, newStatus);
+        return saveStatus(order, currentStatus);
     }
 
     // CANCEL ORDER (Dedicated method)
     public Order cancelOrder(Long id) {
-        Order order = getOrderById(id);
+        Order order = getOpenOrder(id);
         String currentStatus = order.getStatus().toUpperCase();
 
         if (!Set.of("PENDING", "PROCESSING").contains(currentStatus)) {
@@ -136,21 +375,61 @@ public class OrderService {
 
         restoreStock(order.getOrderItems());
         order.setStatus("CANCELLED");
-        return orderRepository.save(order);
+        userOrderSummaryService.statusChanged(order, currentStatus, "CANCELLED");
+        publishStatusChange(order, currentStatus, "CANCELLED");
+        return saveStatus(order, currentStatus);
+    }
+
+    private void publishStatusChange(Order order, String fromStatus, String toStatus) {
+        eventPublisher.publishEvent(new OrderStatusChangedEvent(order.getId(), order.getUser().getId(),
+                fromStatus, toStatus, order.getOrderDate(), LocalDateTime.now(), currentActor(),
+                OrderLineSnapshot.of(order.getOrderItems())));
+    }
+
+    // Who made the change, for the audit trail: the authenticated user, otherwise "system"
+    private static String currentActor() {
+        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+        if (auth == null || auth instanceof AnonymousAuthenticationToken || !auth.isAuthenticated()) {
+            return "system";
+        }
+        return auth.getName();
     }
 
     // Helper method to restore stock
     private void restoreStock(List<OrderItem> items) {
-        items.forEach(item -> {
-            Product product = item.getProduct();
-            product.setStockQuantity(product.getStockQuantity() + item.getQuantity());
-            productRepository.save(product);
-        });
+        for (OrderItem item : items) {
+            stockBucketService.release(item.getProduct(), item.getQuantity());
+        }
+        stockChanged(items);
+    }
+
+    // Record the change feed entries and announce the new stock levels of the touched products
+    private void stockChanged(List<OrderItem> items) {
+        List<Long> productIds = items.stream().map(item -> item.getProduct().getId()).distinct().toList();
+        productChangeService.recordUpserts(productIds);
+        List<Long> sharded = items.stream().map(OrderItem::getProduct).filter(StockBucketService::isSharded)
+                .map(Product::getId).distinct().toList();
+        Map<Long, Integer> levels = new HashMap<>(stockBucketService.totalStocks(sharded));
+        for (Object[] level : productRepository.findStockLevels(productIds)) {
+            levels.putIfAbsent((Long) level[0], ((Number) level[1]).intValue());
+        }
+        levels.forEach((productId, stock) -> eventPublisher.publishEvent(new StockChangedEvent(productId, stock)));
     }
 
     // DELETE ORDER
     public void deleteOrder(Long id) {
-        Order order = getOrderById(id);
-        orderRepository.delete(order);
+        Order order = findHot(id)
+                .or(() -> orderArchiveService.findById(id))
+                .orElseThrow(() -> new RuntimeException("Order not found"));
+        if (order.isArchived()) {
+            orderArchiveService.delete(id);
+        } else if (shardedOrders.isPresent()) {
+            shardedOrders.get().delete(order);
+        } else {
+            orderRepository.delete(order);
+        }
+        userOrderSummaryService.orderDeleted(order);
+        eventPublisher.publishEvent(new OrderDeletedEvent(order.getId(), order.getUser().getId(),
+                LocalDateTime.now(), currentActor()));
     }
 }
@@ -0,0 +1,331 @@
+package com.examly.springapp.service;
+
+import com.examly.springapp.event.OutboxConsumer;
+import com.examly.springapp.event.OutboxMessage;
+import com.examly.springapp.model.OutboxEvent;
+import com.examly.springapp.model.OutboxOffset;
+import com.examly.springapp.repository.OutboxEventRepository;
+import com.examly.springapp.repository.OutboxOffsetRepository;
+import com.examly.springapp.utils.VersionGaps;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Moves outbox rows to the in-process {@link OutboxConsumer}s off the request path.
+ * <p>
+ * One poller thread reads rows in id order, in batches, and publishes them into a bounded ring
+ * buffer. It stops in front of a hole in the ids until the row after it is older than
+ * outbox.gap-timeout-ms, since the missing id may belong to a transaction that has not committed
+ * yet (see {@link VersionGaps}). Every consumer has its own thread and its own position in the
+ * ring; the poller waits when the slowest consumer is a full ring behind, so a stuck consumer
+ * applies back-pressure instead of growing memory. A failing message is retried with back-off
+ * until it succeeds.
+ * <p>
+ * Every instance runs its own dispatcher for its own consumers, whose state lives on that
+ * instance. Durable consumers store the id of the last handled event per instance (outbox.node)
+ * after each batch and resume from it, or from their own {@link OutboxConsumer#localOffset} if
+ * that is lower; events are only purged once every active instance has handled them.
+ */
+@Slf4j
+@Service
+public class OutboxDispatcher implements SmartLifecycle {
+
+    private static final long IDLE_PARK_NANOS = 1_000_000;
+
+    private final OutboxEventRepository outboxEventRepository;
+    private final OutboxOffsetRepository outboxOffsetRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final List<OutboxConsumer> consumers;
+
+    private final OutboxMessage[] ring;
+    private final int mask;
+    private final int batchSize;
+    private final long pollMs;
+    private final long retentionHours;
+    private final long gapTimeoutMs;
+    private final String node;
+
+    private volatile long published;      // ring sequences [0, published) are filled
+    private volatile long lastReadId;
+    private volatile boolean running;
+    private final List<Worker> workers = new ArrayList<>();
+    private Thread poller;
+
+    public OutboxDispatcher(OutboxEventRepository outboxEventRepository,
+                            OutboxOffsetRepository outboxOffsetRepository,
+                            TransactionTemplate transactionTemplate,
+                            List<OutboxConsumer> consumers,
+                            @Value("${outbox.ring-size:1024}") int ringSize,
+                            @Value("${outbox.batch-size:200}") int batchSize,
+                            @Value("${outbox.poll-ms:200}") long pollMs,
+                            @Value("${outbox.gap-timeout-ms:30000}") long gapTimeoutMs,
+                            @Value("${outbox.retention-hours:24}") long retentionHours,
+                            @Value("${outbox.node:}") String node) {
+        this.outboxEventRepository = outboxEventRepository;
+        this.outboxOffsetRepository = outboxOffsetRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.consumers = consumers;
+        int size = Integer.highestOneBit(Math.max(2, ringSize - 1)) << 1;
+        this.ring = new OutboxMessage[size];
+        this.mask = size - 1;
+        this.batchSize = batchSize;
+        this.pollMs = pollMs;
+        this.gapTimeoutMs = gapTimeoutMs;
+        this.retentionHours = retentionHours;
+        this.node = node.isBlank() ? hostName() : node;
+    }
+
+    // ---- Lifecycle ----
+
+    @Override
+    public synchronized void start() {
+        long latest = outboxEventRepository.findLatestId();
+        long earliest = outboxEventRepository.findEarliestId();
+        for (OutboxConsumer consumer : consumers) {
+            long offset = Math.min(consumer.durable() ? loadOffset(consumer, latest) : latest, consumer.localOffset());
+            if (consumer.durable() && earliest > offset + 1) {
+                log.warn("Outbox consumer {} resumes at event {} but events before {} have been purged; "
+                        + "its state on node {} may be missing them", consumer.name(), offset, earliest, node);
+            }
+            workers.add(new Worker(consumer, offset));
+        }
+        lastReadId = workers.stream().mapToLong(worker -> worker.offset).min().orElse(latest);
+        running = true;
+        for (Worker worker : workers) {
+            worker.thread.start();
+        }
+        poller = daemon(this::poll, "outbox-poller");
+        poller.start();
+        log.info("Outbox dispatcher on node {} started at event {} with consumers {}", node, lastReadId,
+                consumers.stream().map(OutboxConsumer::name).toList());
+    }
+
+    @Override
+    public synchronized void stop() {
+        running = false;
+        List<Thread> threads = new ArrayList<>();
+        threads.add(poller);
+        workers.forEach(worker -> threads.add(worker.thread));
+        for (Thread thread : threads) {
+            if (thread != null) {
+                thread.interrupt();
+                try {
+                    thread.join(5000);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+        workers.clear();
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    private long loadOffset(OutboxConsumer consumer, long latest) {
+        return Objects.requireNonNull(transactionTemplate.execute(status ->
+                outboxOffsetRepository.findById(new OutboxOffset.Key(consumer.name(), node))
+                        .orElseGet(() -> outboxOffsetRepository.save(OutboxOffset.builder()
+                                .consumer(consumer.name())
+                                .node(node)
+                                .lastEventId(latest)
+                                .updatedAt(LocalDateTime.now())
+                                .build()))
+                        .getLastEventId()));
+    }
+
+    // ---- Poller: outbox table -> ring ----
+
+    private void poll() {
+        while (running) {
+            try {
+                LocalDateTime holeCutoff = LocalDateTime.now().minus(Duration.ofMillis(gapTimeoutMs));
+                List<OutboxEvent> fetched = outboxEventRepository.findAfter(lastReadId, PageRequest.of(0, batchSize));
+                List<OutboxEvent> rows = fetched.subList(0, VersionGaps.readable(lastReadId, fetched,
+                        OutboxEvent::getId, OutboxEvent::getCreatedAt, holeCutoff));
+                for (OutboxEvent row : rows) {
+                    while (published - slowestSequence() >= ring.length) {
+                        if (!running) {
+                            return;
+                        }
+                        LockSupport.parkNanos(IDLE_PARK_NANOS);
+                    }
+                    ring[(int) (published & mask)] = new OutboxMessage(row.getId(), row.getEventType(),
+                            row.getAggregateId(), row.getPayload(), row.getCreatedAt());
+                    published = published + 1;  // only this thread writes; volatile store publishes the slot
+                    lastReadId = row.getId();
+                }
+                if (rows.size() < batchSize) {
+                    Thread.sleep(pollMs);
+                }
+            } catch (InterruptedException e) {
+                return;
+            } catch (RuntimeException e) {
+                log.warn("Outbox poll failed, retrying: {}", e.getMessage());
+                LockSupport.parkNanos(Duration.ofMillis(pollMs * 5).toNanos());
+            }
+        }
+    }
+
+    private long slowestSequence() {
+        long slowest = published;
+        for (Worker worker : workers) {
+            slowest = Math.min(slowest, worker.sequence);
+        }
+        return slowest;
+    }
+
+    // ---- Consumers: ring -> handler ----
+
+    private final class Worker {
+        final OutboxConsumer consumer;
+        final Thread thread;
+        volatile long sequence;       // next ring slot to read
+        volatile long offset;         // last outbox id handled
+        volatile long storedOffset;
+        final AtomicLong delivered = new AtomicLong();
+        final AtomicLong failures = new AtomicLong();
+
+        Worker(OutboxConsumer consumer, long offset) {
+            this.consumer = consumer;
+            this.offset = offset;
+            this.storedOffset = offset;
+            this.thread = daemon(this::run, "outbox-" + consumer.name());
+        }
+
+        void run() {
+            while (running) {
+                long available = published;
+                if (sequence >= available) {
+                    LockSupport.parkNanos(IDLE_PARK_NANOS);
+                    continue;
+                }
+                for (long seq = sequence; seq < available && running; seq++) {
+                    OutboxMessage message = ring[(int) (seq & mask)];
+                    if (message.id() > offset) {
+                        if (consumer.accepts(message.eventType()) && !deliver(message)) {
+                            return; // stopped while retrying
+                        }
+                        offset = message.id();
+                    }
+                    sequence = seq + 1;
+                }
+                storeOffset();
+            }
+        }
+
+        private boolean deliver(OutboxMessage message) {
+            long backoffMs = 100;
+            while (running) {
+                try {
+                    consumer.handle(message);
+                    delivered.incrementAndGet();
+                    return true;
+                } catch (Exception e) {
+                    failures.incrementAndGet();
+                    log.warn("Outbox consumer {} failed on event {}, retrying in {}ms: {}",
+                            consumer.name(), message.id(), backoffMs, e.getMessage());
+                    LockSupport.parkNanos(Duration.ofMillis(backoffMs).toNanos());
+                    backoffMs = Math.min(backoffMs * 2, 30_000);
+                }
+            }
+            return false;
+        }
+
+        private void storeOffset() {
+            long current = offset;
+            if (!consumer.durable() || current == storedOffset) {
+                return;
+            }
+            try {
+                consumer.flush();
+            } catch (Exception e) {
+                // keep the stored offset behind; the batch is redelivered after a restart
+                failures.incrementAndGet();
+                log.warn("Outbox consumer {} could not flush: {}", consumer.name(), e.getMessage());
+                return;
+            }
+            try {
+                transactionTemplate.executeWithoutResult(status ->
+                        outboxOffsetRepository.advance(consumer.name(), node, current, LocalDateTime.now()));
+                storedOffset = current;
+            } catch (RuntimeException e) {
+                // handled events will be redelivered after a restart; at-least-once still holds
+                log.warn("Could not store outbox offset for {}: {}", consumer.name(), e.getMessage());
+            }
+        }
+    }
+
+    // ---- Housekeeping and metrics ----
+
+    // Drops events every durable consumer on every instance has handled, once they are past the
+    // retention period. An instance whose offsets have not moved for that long counts as gone.
+    @Scheduled(cron = "${outbox.purge-cron:0 45 * * * *}")
+    public void purgeDelivered() {
+        LocalDateTime cutoff = LocalDateTime.now().minusHours(retentionHours);
+        long through = workers.stream().filter(worker -> worker.consumer.durable())
+                .mapToLong(worker -> worker.storedOffset).min().orElse(lastReadId);
+        Long lowestActive = outboxOffsetRepository.findLowestActiveOffset(cutoff);
+        long purgeThrough = lowestActive != null ? Math.min(through, lowestActive) : through;
+        Integer purged = transactionTemplate.execute(status ->
+                outboxEventRepository.deleteDelivered(purgeThrough, cutoff));
+        log.info("Purged {} delivered outbox events through {}", purged, purgeThrough);
+    }
+
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        long latestId = outboxEventRepository.findLatestId();
+        metrics.put("node", node);
+        metrics.put("latestEventId", latestId);
+        metrics.put("lastReadId", lastReadId);
+        metrics.put("ringCapacity", ring.length);
+        metrics.put("ringUsed", published - slowestSequence());
+
+        List<Map<String, Object>> consumerMetrics = new ArrayList<>();
+        for (Worker worker : workers) {
+            Map<String, Object> entry = new LinkedHashMap<>();
+            long offset = worker.offset;
+            LocalDateTime oldestPending = outboxEventRepository.findOldestCreatedAtAfter(offset);
+            entry.put("name", worker.consumer.name());
+            entry.put("durable", worker.consumer.durable());
+            entry.put("offset", offset);
+            entry.put("lagEvents", outboxEventRepository.countByIdGreaterThan(offset));
+            entry.put("lagMs", oldestPending != null
+                    ? Math.max(0, Duration.between(oldestPending, LocalDateTime.now()).toMillis()) : 0);
+            entry.put("delivered", worker.delivered.get());
+            entry.put("failures", worker.failures.get());
+            consumerMetrics.add(entry);
+        }
+        metrics.put("consumers", consumerMetrics);
+        return metrics;
+    }
+
+    private static String hostName() {
+        try {
+            return InetAddress.getLocalHost().getHostName();
+        } catch (UnknownHostException e) {
+            throw new IllegalStateException("Set outbox.node: the host name cannot be resolved", e);
+        }
+    }
+
+    private static Thread daemon(Runnable runnable, String name) {
+        Thread thread = new Thread(runnable, name);
+        thread.setDaemon(true);
+        return thread;
+    }
+}
@@ -0,0 +1,60 @@
+package com.examly.springapp.service;
+
+import com.examly.springapp.event.OrderCreatedEvent;
+import com.examly.springapp.event.OrderDeletedEvent;
+import com.examly.springapp.event.OrderStatusChangedEvent;
+import com.examly.springapp.event.StockChangedEvent;
+import com.examly.springapp.model.OutboxEvent;
+import com.examly.springapp.repository.OutboxEventRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.LocalDateTime;
+
+// Copies domain events into the outbox inside the publishing transaction, just before it commits,
+// so an event is stored if and only if its change is. Late insertion also keeps the gap between
+// taking an id and committing it short.
+@Component
+@RequiredArgsConstructor
+public class OutboxWriter {
+
+    private final OutboxEventRepository outboxEventRepository;
+    private final ObjectMapper objectMapper;
+
+    @TransactionalEventListener(phase = TransactionPhase.BEFORE_COMMIT, fallbackExecution = true)
+    public void on(OrderCreatedEvent event) {
+        write(event.orderId(), event);
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.BEFORE_COMMIT, fallbackExecution = true)
+    public void on(OrderStatusChangedEvent event) {
+        write(event.orderId(), event);
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.BEFORE_COMMIT, fallbackExecution = true)
+    public void on(OrderDeletedEvent event) {
+        write(event.orderId(), event);
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.BEFORE_COMMIT, fallbackExecution = true)
+    public void on(StockChangedEvent event) {
+        write(event.productId(), event);
+    }
+
+    private void write(Long aggregateId, Object event) {
+        try {
+            outboxEventRepository.save(OutboxEvent.builder()
+                    .eventType(event.getClass().getSimpleName())
+                    .aggregateId(aggregateId)
+                    .payload(objectMapper.writeValueAsString(event))
+                    .createdAt(LocalDateTime.now())
+                    .build());
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not serialise " + event.getClass().getSimpleName(), e);
+        }
+    }
+}
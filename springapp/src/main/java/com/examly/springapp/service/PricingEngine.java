@@ -0,0 +1,71 @@
+package com.examly.springapp.service;
+
+import com.examly.springapp.event.PricingRulesChangedEvent;
+import com.examly.springapp.model.PricingRule;
+import com.examly.springapp.repository.PricingRuleRepository;
+import com.examly.springapp.utils.PricingTables;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+// Holds the compiled pricing tables; recompiled when rules change, when a rule's validity
+// window opens or closes, and periodically to pick up edits made on other instances
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class PricingEngine {
+
+    private final PricingRuleRepository pricingRuleRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    private volatile PricingTables tables;
+
+    public PricingTables.Result price(PricingTables.Basket basket, String couponCode, PricingTables.Result out) {
+        tables().price(basket, couponCode, out);
+        return out;
+    }
+
+    public PricingTables tables() {
+        PricingTables current = tables;
+        if (isStale(current)) {
+            current = refreshIfStale();
+        }
+        return current;
+    }
+
+    // Callers that all saw the same stale tables queue here; only the first one recompiles
+    private synchronized PricingTables refreshIfStale() {
+        PricingTables current = tables;
+        return isStale(current) ? refresh() : current;
+    }
+
+    private static boolean isStale(PricingTables current) {
+        return current == null || System.currentTimeMillis() >= current.getNextChangeMillis();
+    }
+
+    public synchronized PricingTables refresh() {
+        List<PricingRule> rules = transactionTemplate.execute(status -> pricingRuleRepository.findByActiveTrue());
+        PricingTables compiled = PricingTables.compile(rules != null ? rules : List.of(), LocalDateTime.now());
+        tables = compiled;
+        log.debug("Compiled {} pricing rules", compiled.getRuleCount());
+        return compiled;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void on(PricingRulesChangedEvent event) {
+        refresh();
+    }
+
+    @Scheduled(fixedDelayString = "${pricing.refresh-ms:60000}")
+    public void scheduledRefresh() {
+        if (tables != null) {
+            refresh();
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package com.examly.springapp.service;
+
+import com.examly.springapp.event.PricingRulesChangedEvent;
+import com.examly.springapp.model.PricingRule;
+import com.examly.springapp.repository.PricingRuleRepository;
+import com.examly.springapp.utils.PricingTables;
+import jakarta.validation.ValidationException;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+@Service
+@RequiredArgsConstructor
+@Transactional
+public class PricingRuleService {
+
+    private final PricingRuleRepository pricingRuleRepository;
+    private final ApplicationEventPublisher eventPublisher;
+
+    @Transactional(readOnly = true)
+    public List<PricingRule> getAllRules() {
+        return pricingRuleRepository.findAll();
+    }
+
+    public PricingRule createRule(PricingRule rule) {
+        rule.setId(null);
+        validate(rule);
+        PricingRule saved = pricingRuleRepository.save(rule);
+        eventPublisher.publishEvent(new PricingRulesChangedEvent(saved.getId()));
+        return saved;
+    }
+
+    public PricingRule updateRule(Long id, PricingRule rule) {
+        PricingRule existing = pricingRuleRepository.findById(id)
+                .orElseThrow(() -> new RuntimeException("Pricing rule not found"));
+        rule.setId(existing.getId());
+        validate(rule);
+        PricingRule saved = pricingRuleRepository.save(rule);
+        eventPublisher.publishEvent(new PricingRulesChangedEvent(saved.getId()));
+        return saved;
+    }
+
+    public void deleteRule(Long id) {
+        if (!pricingRuleRepository.existsById(id)) {
+            throw new RuntimeException("Pricing rule not found");
+        }
+        pricingRuleRepository.deleteById(id);
+        eventPublisher.publishEvent(new PricingRulesChangedEvent(id));
+    }
+
+    private void validate(PricingRule rule) {
+        if (rule.getType() == null) {
+            throw new ValidationException("Rule type is required");
+        }
+        if (rule.getName() == null || rule.getName().isBlank()) {
+            throw new ValidationException("Rule name is required");
+        }
+        if (rule.getBasisPoints() < 0 || rule.getBasisPoints() > PricingTables.BASIS) {
+            throw new ValidationException("basisPoints must be between 0 and " + PricingTables.BASIS);
+        }
+        if (rule.getAmountOffCents() < 0 || rule.getMinSubtotalCents() < 0 || rule.getMinQuantity() < 0) {
+            throw new ValidationException("Amounts and quantities cannot be negative");
+        }
+        if (rule.getStartsAt() != null && rule.getEndsAt() != null && !rule.getStartsAt().isBefore(rule.getEndsAt())) {
+            throw new ValidationException("'endsAt' must be after 'startsAt'");
+        }
+        if (rule.getCategory() != null && rule.getCategory().isBlank()) {
+            rule.setCategory(null);
+        }
+
+        switch (rule.getType()) {
+            case CATEGORY_DISCOUNT -> {
+                if (rule.getCategory() == null) {
+                    throw new ValidationException("A category discount needs a category");
+                }
+            }
+            case QUANTITY_BREAK -> {
+                if (rule.getMinQuantity() < 1) {
+                    throw new ValidationException("A quantity break needs minQuantity of at least 1");
+                }
+            }
+            case COUPON -> {
+                if (rule.getCouponCode() == null || rule.getCouponCode().isBlank()) {
+                    throw new ValidationException("A coupon needs a couponCode");
+                }
+                if ((rule.getBasisPoints() > 0) == (rule.getAmountOffCents() > 0)) {
+                    throw new ValidationException("A coupon needs either basisPoints or amountOffCents");
+                }
+                rule.setCouponCode(rule.getCouponCode().trim().toUpperCase());
+                pricingRuleRepository.findByCouponCodeIgnoreCase(rule.getCouponCode())
+                        .filter(other -> !other.getId().equals(rule.getId()))
+                        .ifPresent(other -> {
+                            throw new ValidationException("Coupon code already exists");
+                        });
+            }
+            case TAX_RATE -> {
+                if (rule.getProductId() != null) {
+                    throw new ValidationException("Tax rates apply to a category or to everything, not to a product");
+                }
+            }
+        }
+        if (rule.getType() != PricingRule.Type.COUPON) {
+            rule.setCouponCode(null);
+        }
+    }
+}
@@ -0,0 +1,188 @@
+package com.examly.springapp.service;
+
+import com.examly.springapp.dto.ProductChangeFeed;
+import com.examly.springapp.model.ChangeFeedState;
+import com.examly.springapp.model.Product;
+import com.examly.springapp.model.ProductChange;
+import com.examly.springapp.repository.ChangeFeedStateRepository;
+import com.examly.springapp.repository.ProductChangeRepository;
+import com.examly.springapp.repository.ProductRepository;
+import com.examly.springapp.utils.VersionGaps;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+import java.util.*;
+
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ProductChangeService {
+
+    private static final String FEED = "product";
+
+    private final ProductChangeRepository changeRepository;
+    private final ChangeFeedStateRepository stateRepository;
+    private final ProductRepository productRepository;
+
+    // A hole in the versions is a write that may still commit; the feed stops in front of it
+    // until the change written after it is this old (see VersionGaps). Versions are only taken
+    // as the writer commits, so a real hole lives for the length of a commit, not of the writer's
+    // transaction; anything older is a commit that failed or an id MySQL skipped, and waiting
+    // longer would only stall every client behind it.
+    @Value("${changes.gap-timeout-ms:2000}")
+    private long gapTimeoutMs;
+
+    @Value("${changes.max-batch:1000}")
+    private int maxBatch;
+
+    @Value("${changes.retention-hours:72}")
+    private long retentionHours;
+
+    // ---- Recording (joins the writer's transaction) ----
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordUpsert(Long productId) {
+        record(productId, false);
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordUpserts(Collection<Long> productIds) {
+        new LinkedHashSet<>(productIds).forEach(id -> record(id, false));
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordDelete(Long productId) {
+        record(productId, true);
+    }
+
+    private void record(Long productId, boolean deleted) {
+        Map<Long, Boolean> pending = pendingChanges().changes;
+        pending.remove(productId);
+        pending.put(productId, deleted);
+    }
+
+    // The writer's changes, written just before it commits so their versions are taken last
+    private PendingChanges pendingChanges() {
+        for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+            if (synchronization instanceof PendingChanges pending && pending.owner() == this) {
+                return pending;
+            }
+        }
+        PendingChanges pending = new PendingChanges();
+        TransactionSynchronizationManager.registerSynchronization(pending);
+        return pending;
+    }
+
+    private class PendingChanges implements TransactionSynchronization {
+        private final Map<Long, Boolean> changes = new LinkedHashMap<>();
+
+        ProductChangeService owner() {
+            return ProductChangeService.this;
+        }
+
+        @Override
+        public void beforeCommit(boolean readOnly) {
+            LocalDateTime now = LocalDateTime.now();
+            List<ProductChange> rows = new ArrayList<>();
+            changes.forEach((productId, deleted) -> rows.add(ProductChange.builder()
+                    .productId(productId)
+                    .deleted(deleted)
+                    .changedAt(now)
+                    .build()));
+            changeRepository.saveAll(rows);
+        }
+    }
+
+    // ---- Reading ----
+
+    @Transactional(readOnly = true)
+    public ProductChangeFeed getChangesSince(long since) {
+        LocalDateTime holeCutoff = LocalDateTime.now().minusNanos(gapTimeoutMs * 1_000_000);
+        long purgedThrough = stateRepository.findById(FEED).map(ChangeFeedState::getPurgedThrough).orElse(0L);
+
+        if (since < 0 || since < purgedThrough) {
+            return ProductChangeFeed.builder()
+                    .version(Math.max(readableVersion(holeCutoff), purgedThrough))
+                    .resync(true)
+                    .upserts(List.of())
+                    .deletes(List.of())
+                    .build();
+        }
+
+        List<ProductChange> fetched = changeRepository.findAfter(since, PageRequest.of(0, maxBatch));
+        List<ProductChange> changes = fetched.subList(0, VersionGaps.readable(since, fetched,
+                ProductChange::getVersion, ProductChange::getChangedAt, holeCutoff));
+        if (changes.isEmpty()) {
+            return ProductChangeFeed.builder()
+                    .version(since)
+                    .upserts(List.of())
+                    .deletes(List.of())
+                    .build();
+        }
+
+        // compact: only the newest change per product matters
+        Map<Long, Boolean> latest = new LinkedHashMap<>();
+        for (ProductChange change : changes) {
+            latest.remove(change.getProductId());
+            latest.put(change.getProductId(), change.isDeleted());
+        }
+
+        List<Long> upsertIds = new ArrayList<>();
+        List<Long> deletes = new ArrayList<>();
+        latest.forEach((id, deleted) -> (deleted ? deletes : upsertIds).add(id));
+
+        List<Product> upserts = productRepository.findAllById(upsertIds);
+        if (upserts.size() < upsertIds.size()) {
+            // deleted after the horizon; report as gone rather than drop silently
+            Set<Long> found = new HashSet<>();
+            upserts.forEach(p -> found.add(p.getId()));
+            upsertIds.stream().filter(id -> !found.contains(id)).forEach(deletes::add);
+        }
+
+        return ProductChangeFeed.builder()
+                .version(changes.get(changes.size() - 1).getVersion())
+                .hasMore(changes.size() == maxBatch)
+                .upserts(upserts)
+                .deletes(deletes)
+                .build();
+    }
+
+    // Highest version a full reload is guaranteed to cover: every hole below a change older than
+    // the cutoff is settled, so walk forward from there to the first hole that may still fill.
+    private long readableVersion(LocalDateTime holeCutoff) {
+        long version = changeRepository.findLatestVersionBefore(holeCutoff);
+        List<ProductChange> recent = changeRepository.findAfter(version, PageRequest.of(0, maxBatch));
+        int readable = VersionGaps.readable(version, recent,
+                ProductChange::getVersion, ProductChange::getChangedAt, holeCutoff);
+        return readable == 0 ? version : recent.get(readable - 1).getVersion();
+    }
+
+    // ---- Retention ----
+
+    @Scheduled(cron = "${changes.purge-cron:0 15 * * * *}")
+    @Transactional
+    public void purgeExpired() {
+        long through = changeRepository.findLatestVersionBefore(LocalDateTime.now().minusHours(retentionHours));
+        if (through == 0) {
+            return;
+        }
+        ChangeFeedState state = stateRepository.findById(FEED)
+                .orElseGet(() -> ChangeFeedState.builder().feed(FEED).build());
+        if (through <= state.getPurgedThrough()) {
+            return;
+        }
+        int removed = changeRepository.deleteThrough(through);
+        state.setPurgedThrough(through);
+        stateRepository.save(state);
+        log.info("Purged {} product changes through version {}", removed, through);
+    }
+}
@@ -0,0 +1,250 @@
+package com.examly.springapp.service;
+
+import com.examly.springapp.model.Product;
+import com.examly.springapp.utils.ContentAddressedStore;
+import jakarta.annotation.PreDestroy;
+import jakarta.validation.ValidationException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Product images kept in a local {@link ContentAddressedStore}.
+ * <p>
+ * An upload is checked (PNG or JPEG, size and pixel limits), stored as {@code <sha256>.<ext>}
+ * and becomes the product's imageUrl ({@code /api/images/<name>}). Thumbnails for each of
+ * {@code images.thumbnail-sizes} are generated in the background as {@code <sha256>-<size>.<ext>}
+ * and served with {@code ?size=}. A thumbnail requested before it exists is queued (once, however
+ * many requests ask for it) and the original is served in its place, marked not cacheable.
+ * Since names are derived from content, every stored file is immutable and cacheable forever.
+ */
+@Slf4j
+@Service
+public class ProductImageService {
+
+    public static final String URL_PREFIX = "/api/images/";
+
+    // cacheable is false when the original stands in for a thumbnail that is still being generated
+    public record StoredImage(Path path, long length, MediaType contentType, String etag, boolean cacheable) {}
+
+    private final ProductService productService;
+    private final ContentAddressedStore store;
+    private final long maxBytes;
+    private final long maxPixels;
+    private final int[] thumbnailSizes;
+    private final ExecutorService thumbnailer = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "image-thumbnails");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final Set<String> pendingThumbnails = ConcurrentHashMap.newKeySet();
+
+    public ProductImageService(ProductService productService,
+                               @Value("${images.dir:./data/images}") String dir,
+                               @Value("${images.max-bytes:10485760}") long maxBytes,
+                               @Value("${images.max-pixels:40000000}") long maxPixels,
+                               @Value("${images.thumbnail-sizes:64,256,512}") int[] thumbnailSizes) throws IOException {
+        this.productService = productService;
+        this.store = new ContentAddressedStore(Path.of(dir));
+        this.maxBytes = maxBytes;
+        this.maxPixels = maxPixels;
+        this.thumbnailSizes = Arrays.stream(thumbnailSizes).sorted().toArray();
+    }
+
+    // ---- Upload ----
+
+    public Product upload(Long productId, MultipartFile file) {
+        if (file == null || file.isEmpty()) {
+            throw new ValidationException("Image file is required");
+        }
+        if (file.getSize() > maxBytes) {
+            throw new ValidationException("Image must be at most " + maxBytes / (1024 * 1024) + " MB");
+        }
+        byte[] content;
+        try {
+            content = file.getBytes();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        String extension = extensionOf(content);
+        if (extension == null) {
+            throw new ValidationException("Only PNG and JPEG images are supported");
+        }
+        checkDimensions(content);
+
+        String hash = ContentAddressedStore.sha256(content);
+        String name = hash + "." + extension;
+        try {
+            store.put(name, content);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        Product product = productService.setImageUrl(productId, URL_PREFIX + name);
+        for (int size : thumbnailSizes) {
+            queueThumbnail(hash, extension, size);
+        }
+        return product;
+    }
+
+    // Decoding is the expensive and dangerous part, so the header is read first
+    private void checkDimensions(byte[] content) {
+        try (ImageInputStream input = ImageIO.createImageInputStream(new ByteArrayInputStream(content))) {
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+            if (!readers.hasNext()) {
+                throw new ValidationException("Image could not be read");
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(input);
+                long pixels = (long) reader.getWidth(0) * reader.getHeight(0);
+                if (pixels > maxPixels) {
+                    throw new ValidationException("Image must have at most " + maxPixels + " pixels");
+                }
+            } finally {
+                reader.dispose();
+            }
+        } catch (IOException e) {
+            throw new ValidationException("Image could not be read");
+        }
+    }
+
+    private static String extensionOf(byte[] content) {
+        if (content.length > 8 && (content[0] & 0xFF) == 0x89 && content[1] == 'P' && content[2] == 'N' && content[3] == 'G') {
+            return "png";
+        }
+        if (content.length > 3 && (content[0] & 0xFF) == 0xFF && (content[1] & 0xFF) == 0xD8 && (content[2] & 0xFF) == 0xFF) {
+            return "jpg";
+        }
+        return null;
+    }
+
+    // ---- Serving ----
+
+    // name is "<sha256>.<ext>"; size must be one of the thumbnail sizes, or null for the original
+    public Optional<StoredImage> open(String name, Integer size) {
+        if (!ContentAddressedStore.isValidName(name) || name.indexOf('-') >= 0) {
+            return Optional.empty();
+        }
+        String hash = name.substring(0, name.indexOf('.'));
+        String extension = name.substring(name.indexOf('.') + 1);
+        MediaType contentType = "png".equals(extension) ? MediaType.IMAGE_PNG
+                : "jpg".equals(extension) ? MediaType.IMAGE_JPEG : null;
+        if (contentType == null || !store.exists(name)) {
+            return Optional.empty();
+        }
+        try {
+            if (size != null && Arrays.binarySearch(thumbnailSizes, size) < 0) {
+                throw new ValidationException("Size must be one of " + Arrays.toString(thumbnailSizes));
+            }
+            if (size != null) {
+                String thumbnailName = hash + "-" + size + "." + extension;
+                if (store.exists(thumbnailName)) {
+                    Path path = store.resolve(thumbnailName);
+                    return Optional.of(new StoredImage(path, Files.size(path), contentType,
+                            "\"" + hash + "-" + size + "\"", true));
+                }
+                // Decoding belongs on the thumbnailer, not on a request thread
+                queueThumbnail(hash, extension, size);
+            }
+            Path path = store.resolve(name);
+            return Optional.of(new StoredImage(path, Files.size(path), contentType, "\"" + hash + "\"", size == null));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // ---- Thumbnails ----
+
+    // At most one queued or running job per thumbnail; later requests for it just get the original
+    private void queueThumbnail(String hash, String extension, int size) {
+        String name = hash + "-" + size + "." + extension;
+        if (!pendingThumbnails.add(name)) {
+            return;
+        }
+        try {
+            thumbnailer.execute(() -> {
+                try {
+                    thumbnail(hash, extension, size);
+                } catch (IOException | RuntimeException e) {
+                    log.warn("Could not create {}: {}", name, e.getMessage());
+                } finally {
+                    pendingThumbnails.remove(name);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            pendingThumbnails.remove(name);
+        }
+    }
+
+    private Path thumbnail(String hash, String extension, int size) throws IOException {
+        String name = hash + "-" + size + "." + extension;
+        if (store.exists(name)) {
+            return store.resolve(name);
+        }
+        BufferedImage original = ImageIO.read(store.resolve(hash + "." + extension).toFile());
+        if (original == null) {
+            throw new IOException("Unreadable image " + hash);
+        }
+        BufferedImage scaled = scale(original, size, "png".equals(extension));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(scaled, "png".equals(extension) ? "png" : "jpg", out);
+        return store.put(name, out.toByteArray());
+    }
+
+    // Fits the image in size x size (never upscales), halving first so large reductions stay smooth
+    private static BufferedImage scale(BufferedImage image, int size, boolean alpha) {
+        double factor = Math.min(1.0, (double) size / Math.max(image.getWidth(), image.getHeight()));
+        int targetWidth = Math.max(1, (int) Math.round(image.getWidth() * factor));
+        int targetHeight = Math.max(1, (int) Math.round(image.getHeight() * factor));
+        BufferedImage current = image;
+        int width = image.getWidth();
+        int height = image.getHeight();
+        do {
+            width = Math.max(targetWidth, width / 2);
+            height = Math.max(targetHeight, height / 2);
+            BufferedImage next = new BufferedImage(width, height,
+                    alpha ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB);
+            Graphics2D graphics = next.createGraphics();
+            try {
+                graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+                graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+                if (!alpha) {
+                    graphics.setColor(Color.WHITE);
+                    graphics.fillRect(0, 0, width, height);
+                }
+                graphics.drawImage(current, 0, 0, width, height, null);
+            } finally {
+                graphics.dispose();
+            }
+            current = next;
+        } while (width > targetWidth || height > targetHeight);
+        return current;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        thumbnailer.shutdownNow();
+    }
+}
@@ -0,0 +1,387 @@
+package com.examly.springapp.service;
+
+import com.examly.springapp.dto.ProductImportStatus;
+import com.examly.springapp.model.Product;
+import com.examly.springapp.utils.CsvReader;
+import jakarta.annotation.PreDestroy;
+import jakarta.validation.ValidationException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Asynchronous CSV catalog import.
+ * <p>
+ * The upload is spooled to {@code import.dir} and the request returns at once with a job id. One
+ * import runs at a time; it reads the file with a streaming {@link CsvReader} in chunks of
+ * {@code import.chunk-size} rows. Each chunk is parsed and validated in parallel (same rules as
+ * {@link ProductService#createProduct}), then written by {@link ProductService#upsertBySku} in one
+ * transaction: one SELECT for the chunk's SKUs and batched INSERTs/UPDATEs. If the database rejects
+ * the chunk, it is retried in halves down to single rows, so only the offending rows fail. Rejected
+ * rows go to {@code <job>-errors.csv} (line, sku, error) and never stop the import.
+ * <p>
+ * Columns (header row, any order, case-insensitive): sku, name, description, price, category,
+ * stockQuantity and optionally imageUrl. Jobs are kept in memory; the newest
+ * {@code import.retained-jobs} are listed.
+ */
+@Slf4j
+@Service
+public class ProductImportService {
+
+    public static final List<String> REQUIRED_COLUMNS =
+            List.of("sku", "name", "description", "price", "category", "stockquantity");
+    public static final int MAX_SKU_LENGTH = ProductService.MAX_SKU_LENGTH;
+
+    private enum State { QUEUED, RUNNING, COMPLETED, FAILED }
+
+    private static final class Job {
+        final String id = UUID.randomUUID().toString();
+        final String fileName;
+        final LocalDateTime createdAt = LocalDateTime.now();
+        final AtomicLong rowsRead = new AtomicLong();
+        final AtomicLong inserted = new AtomicLong();
+        final AtomicLong updated = new AtomicLong();
+        final AtomicLong unchanged = new AtomicLong();
+        final AtomicLong failed = new AtomicLong();
+        volatile State state = State.QUEUED;
+        volatile String message;
+        volatile LocalDateTime startedAt;
+        volatile LocalDateTime finishedAt;
+
+        Job(String fileName) {
+            this.fileName = fileName;
+        }
+    }
+
+    private record Row(long line, List<String> fields) {}
+
+    private record Parsed(long line, String sku, Product product, String error) {}
+
+    private final ProductService productService;
+    private final Path dir;
+    private final int chunkSize;
+    private final int retainedJobs;
+    private final ForkJoinPool validators;
+    private final Map<String, Job> jobs = new ConcurrentHashMap<>();
+    private final ExecutorService runner = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "product-import");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public ProductImportService(ProductService productService,
+                                @Value("${import.dir:./data/imports}") String dir,
+                                @Value("${import.chunk-size:1000}") int chunkSize,
+                                @Value("${import.validate-threads:4}") int validateThreads,
+                                @Value("${import.retained-jobs:50}") int retainedJobs) throws IOException {
+        this.productService = productService;
+        this.dir = Files.createDirectories(Path.of(dir));
+        this.chunkSize = Math.max(1, chunkSize);
+        this.retainedJobs = Math.max(1, retainedJobs);
+        this.validators = new ForkJoinPool(Math.max(1, validateThreads));
+    }
+
+    // ---- Jobs ----
+
+    public ProductImportStatus start(MultipartFile file) {
+        if (file == null || file.isEmpty()) {
+            throw new ValidationException("CSV file is required");
+        }
+        Job job = new Job(file.getOriginalFilename());
+        Path input = dir.resolve(job.id + ".csv");
+        try {
+            file.transferTo(input);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        jobs.put(job.id, job);
+        forgetOldJobs();
+        runner.execute(() -> run(job, input));
+        return toStatus(job);
+    }
+
+    public ProductImportStatus getStatus(String id) {
+        return toStatus(find(id));
+    }
+
+    public List<ProductImportStatus> getJobs() {
+        return jobs.values().stream()
+                .sorted(Comparator.comparing((Job job) -> job.createdAt).reversed())
+                .map(this::toStatus)
+                .toList();
+    }
+
+    public Path getErrorFile(String id) {
+        Path errors = errorFile(find(id));
+        if (!Files.exists(errors)) {
+            throw new ValidationException("Import has not started yet");
+        }
+        return errors;
+    }
+
+    private Job find(String id) {
+        Job job = jobs.get(id);
+        if (job == null) {
+            throw new RuntimeException("Import not found");
+        }
+        return job;
+    }
+
+    private void forgetOldJobs() {
+        List<Job> finished = jobs.values().stream()
+                .filter(job -> job.state == State.COMPLETED || job.state == State.FAILED)
+                .sorted(Comparator.comparing((Job job) -> job.createdAt))
+                .toList();
+        for (int i = 0; i < finished.size() && jobs.size() > retainedJobs; i++) {
+            Job job = finished.get(i);
+            jobs.remove(job.id);
+            try {
+                Files.deleteIfExists(errorFile(job));
+            } catch (IOException e) {
+                log.debug("Could not delete {}: {}", errorFile(job), e.getMessage());
+            }
+        }
+    }
+
+    private Path errorFile(Job job) {
+        return dir.resolve(job.id + "-errors.csv");
+    }
+
+    // ---- Import ----
+
+    private void run(Job job, Path input) {
+        job.state = State.RUNNING;
+        job.startedAt = LocalDateTime.now();
+        try (CsvReader csv = new CsvReader(Files.newBufferedReader(input, StandardCharsets.UTF_8));
+             BufferedWriter errors = Files.newBufferedWriter(errorFile(job), StandardCharsets.UTF_8)) {
+            errors.write("line,sku,error\n");
+            Map<String, Integer> columns = columns(csv.next());
+
+            List<Row> chunk = new ArrayList<>(chunkSize);
+            for (List<String> record = csv.next(); record != null; record = csv.next()) {
+                if (record.size() == 1 && record.get(0).isBlank()) {
+                    continue;
+                }
+                chunk.add(new Row(csv.getRecordLine(), record));
+                if (chunk.size() == chunkSize) {
+                    importChunk(job, columns, chunk, errors);
+                    chunk = new ArrayList<>(chunkSize);
+                }
+            }
+            if (!chunk.isEmpty()) {
+                importChunk(job, columns, chunk, errors);
+            }
+            job.state = State.COMPLETED;
+            log.info("Imported {}: {} rows, {} inserted, {} updated, {} unchanged, {} failed", job.fileName,
+                    job.rowsRead.get(), job.inserted.get(), job.updated.get(), job.unchanged.get(), job.failed.get());
+        } catch (IOException | RuntimeException e) {
+            job.state = State.FAILED;
+            job.message = e.getMessage();
+            log.warn("Import {} of {} failed after {} rows: {}", job.id, job.fileName, job.rowsRead.get(), e.getMessage());
+        } finally {
+            job.finishedAt = LocalDateTime.now();
+            try {
+                Files.deleteIfExists(input);
+            } catch (IOException e) {
+                log.debug("Could not delete {}: {}", input, e.getMessage());
+            }
+        }
+    }
+
+    private static Map<String, Integer> columns(List<String> header) {
+        if (header == null) {
+            throw new ValidationException("The file is empty");
+        }
+        Map<String, Integer> columns = new HashMap<>();
+        for (int i = 0; i < header.size(); i++) {
+            columns.putIfAbsent(header.get(i).trim().toLowerCase(), i);
+        }
+        List<String> missing = REQUIRED_COLUMNS.stream().filter(column -> !columns.containsKey(column)).toList();
+        if (!missing.isEmpty()) {
+            throw new ValidationException("Missing columns: " + missing);
+        }
+        return columns;
+    }
+
+    private void importChunk(Job job, Map<String, Integer> columns, List<Row> chunk, BufferedWriter errors)
+            throws IOException {
+        job.rowsRead.addAndGet(chunk.size());
+        List<Parsed> parsed = validators.submit(() -> chunk.parallelStream().map(row -> parse(row, columns)).toList())
+                .join();
+
+        Map<String, Parsed> bySku = new LinkedHashMap<>();
+        for (Parsed row : parsed) {
+            if (row.error() != null) {
+                fail(job, errors, row.line(), row.sku(), row.error());
+            } else if (bySku.containsKey(row.sku())) {
+                fail(job, errors, row.line(), row.sku(), "Duplicate SKU, first seen on line " + bySku.get(row.sku()).line());
+            } else {
+                bySku.put(row.sku(), row);
+            }
+        }
+        if (bySku.isEmpty()) {
+            return;
+        }
+
+        upsert(job, errors, new ArrayList<>(bySku.values()), false);
+    }
+
+    private void upsert(Job job, BufferedWriter errors, List<Parsed> rows, boolean retried) throws IOException {
+        ProductService.UpsertResult result;
+        try {
+            result = productService.upsertBySku(rows.stream().map(row -> toProduct(row.product())).toList());
+        } catch (OptimisticLockingFailureException e) {
+            if (!retried) {
+                // a product of these rows was edited meanwhile; they rolled back, so try once more
+                upsert(job, errors, rows, true);
+                return;
+            }
+            bisect(job, errors, rows, e);
+            return;
+        } catch (RuntimeException e) {
+            bisect(job, errors, rows, e);
+            return;
+        }
+        job.inserted.addAndGet(result.inserted());
+        job.updated.addAndGet(result.updated());
+        job.unchanged.addAndGet(result.unchanged());
+    }
+
+    // One bad row rolls back all the rows written with it: retry each half so the others still get in
+    private void bisect(Job job, BufferedWriter errors, List<Parsed> rows, RuntimeException e) throws IOException {
+        if (rows.size() == 1) {
+            Parsed row = rows.get(0);
+            fail(job, errors, row.line(), row.sku(), "Row could not be saved: " + reason(e));
+            return;
+        }
+        int half = rows.size() / 2;
+        upsert(job, errors, rows.subList(0, half), true);
+        upsert(job, errors, rows.subList(half, rows.size()), true);
+    }
+
+    // The driver's own message, without the statement it appends
+    private static String reason(RuntimeException e) {
+        String message = String.valueOf(NestedExceptionUtils.getMostSpecificCause(e).getMessage());
+        int end = message.indexOf("; SQL statement");
+        end = end >= 0 ? end : message.indexOf('\n');
+        return end >= 0 ? message.substring(0, end) : message;
+    }
+
+    private static void fail(Job job, BufferedWriter errors, long line, String sku, String error) throws IOException {
+        job.failed.incrementAndGet();
+        errors.write(line + "," + csvField(sku) + "," + csvField(error) + "\n");
+    }
+
+    // ---- Rows (run on the validator pool) ----
+
+    private static Parsed parse(Row row, Map<String, Integer> columns) {
+        String sku = field(row, columns, "sku");
+        if (sku == null || sku.isBlank()) {
+            return new Parsed(row.line(), sku, null, "SKU is required");
+        }
+        sku = sku.trim();
+        if (sku.length() > MAX_SKU_LENGTH) {
+            return new Parsed(row.line(), sku, null, "SKU must be at most " + MAX_SKU_LENGTH + " characters");
+        }
+        double price;
+        int stock;
+        try {
+            price = Double.parseDouble(Objects.requireNonNullElse(field(row, columns, "price"), "").trim());
+        } catch (NumberFormatException e) {
+            return new Parsed(row.line(), sku, null, "Invalid price");
+        }
+        try {
+            stock = Integer.parseInt(Objects.requireNonNullElse(field(row, columns, "stockquantity"), "").trim());
+        } catch (NumberFormatException e) {
+            return new Parsed(row.line(), sku, null, "Invalid stockQuantity");
+        }
+        if (stock < 0) {
+            return new Parsed(row.line(), sku, null, "stockQuantity cannot be negative");
+        }
+        String imageUrl = field(row, columns, "imageurl");
+        Product product = Product.builder()
+                .sku(sku)
+                .name(trimmed(field(row, columns, "name")))
+                .description(trimmed(field(row, columns, "description")))
+                .price(price)
+                .category(trimmed(field(row, columns, "category")))
+                .stockQuantity(stock)
+                .imageUrl(imageUrl == null || imageUrl.isBlank() ? null : imageUrl.trim())
+                .build();
+        try {
+            ProductService.validate(product);
+        } catch (ValidationException e) {
+            return new Parsed(row.line(), sku, null, e.getMessage());
+        }
+        return new Parsed(row.line(), sku, product, null);
+    }
+
+    private static String field(Row row, Map<String, Integer> columns, String column) {
+        Integer index = columns.get(column);
+        return index != null && index < row.fields().size() ? row.fields().get(index) : null;
+    }
+
+    private static String trimmed(String value) {
+        return value != null ? value.trim() : null;
+    }
+
+    // A fresh copy, since a failed attempt may have assigned an id to the original
+    private static Product toProduct(Product row) {
+        return Product.builder()
+                .sku(row.getSku())
+                .name(row.getName())
+                .description(row.getDescription())
+                .price(row.getPrice())
+                .category(row.getCategory())
+                .stockQuantity(row.getStockQuantity())
+                .imageUrl(row.getImageUrl())
+                .build();
+    }
+
+    private static String csvField(String value) {
+        if (value == null) {
+            return "";
+        }
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return "\"" + value.replace("\"", "\"\"") + "\"";
+    }
+
+    private ProductImportStatus toStatus(Job job) {
+        return ProductImportStatus.builder()
+                .id(job.id)
+                .state(job.state.name())
+                .fileName(job.fileName)
+                .rowsRead(job.rowsRead.get())
+                .inserted(job.inserted.get())
+                .updated(job.updated.get())
+                .unchanged(job.unchanged.get())
+                .failed(job.failed.get())
+                .message(job.message)
+                .createdAt(job.createdAt)
+                .startedAt(job.startedAt)
+                .finishedAt(job.finishedAt)
+                .build();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        runner.shutdownNow();
+        validators.shutdownNow();
+    }
+}
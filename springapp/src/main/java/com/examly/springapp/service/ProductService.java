@@ -1,57 +1,446 @@
 package com.examly.springapp.service;
 
+import com.examly.springapp.dto.ProductPatchRequest;
+import com.examly.springapp.event.ProductCatalogChangedEvent;
+import com.examly.springapp.event.StockChangedEvent;
 import com.examly.springapp.model.Product;
 import com.examly.springapp.repository.ProductRepository;
+import com.examly.springapp.utils.BatchLoader;
+import com.examly.springapp.utils.SparseFields;
+import jakarta.persistence.EntityManager;
 import jakarta.validation.ValidationException;
-import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
-import java.util.List;
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Service
-@RequiredArgsConstructor
 public class ProductService {
 
+    private static final int MAX_PATCH_BATCH = 500;
+    public static final int MAX_SKU_LENGTH = 64;
+
+    // fields= of GET /api/products
+    public static final Set<String> LIST_FIELDS = Collections.unmodifiableSet(new LinkedHashSet<>(List.of(
+            "id", "name", "description", "price", "category", "stockQuantity", "imageUrl", "sku")));
+
     private final ProductRepository productRepository;
+    private final ProductChangeService productChangeService;
+    private final StockBucketService stockBucketService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final EntityManager entityManager;
+    private final BatchLoader<Long, Product> productLoader;
 
-    public Product createProduct(Product product) {
+    public ProductService(ProductRepository productRepository, ProductChangeService productChangeService,
+                          StockBucketService stockBucketService, ApplicationEventPublisher eventPublisher,
+                          EntityManager entityManager, BatchLoaders batchLoaders) {
+        this.productRepository = productRepository;
+        this.productChangeService = productChangeService;
+        this.stockBucketService = stockBucketService;
+        this.eventPublisher = eventPublisher;
+        this.entityManager = entityManager;
+        // concurrent GET /api/products/{id} share one IN query; live stock is overlaid per batch
+        this.productLoader = batchLoaders.create("products", ids -> withLiveStock(productRepository.findAllById(ids))
+                .stream().collect(Collectors.toMap(Product::getId, Function.identity())));
+    }
+
+    // Result of one upsertBySku call
+    public record UpsertResult(int inserted, int updated, int unchanged) {}
+
+    // Rules every new product must pass (also applied to each row of a CSV import)
+    public static void validate(Product product) {
         if (product.getName() == null || product.getName().isBlank() ||
             product.getDescription() == null || product.getDescription().isBlank() ||
             product.getPrice() <= 0 || product.getCategory() == null || product.getCategory().isBlank()) {
             throw new ValidationException("Invalid product data");
         }
-        return productRepository.save(product);
     }
 
+    @Transactional
+    public Product createProduct(Product product) {
+        validate(product);
+        if (product.getSku() != null) {
+            product.setSku(checkedSku(product.getSku(), null));
+        }
+        Product saved = productRepository.save(product);
+        productChangeService.recordUpsert(saved.getId());
+        eventPublisher.publishEvent(new StockChangedEvent(saved.getId(), saved.getStockQuantity()));
+        eventPublisher.publishEvent(new ProductCatalogChangedEvent(List.of(saved.getId())));
+        return saved;
+    }
+
+    @Transactional(readOnly = true)
     public List<Product> getAllProducts(String category, Double minPrice, Double maxPrice) {
+        List<Product> products;
         if (category != null && minPrice != null && maxPrice != null) {
-            return productRepository.findByCategoryContainingIgnoreCaseAndPriceBetween(category, minPrice, maxPrice);
+            products = productRepository.findByCategoryContainingIgnoreCaseAndPriceBetween(category, minPrice, maxPrice);
         } else if (category != null) {
-            return productRepository.findByCategoryContainingIgnoreCase(category);
+            products = productRepository.findByCategoryContainingIgnoreCase(category);
         } else if (minPrice != null && maxPrice != null) {
-            return productRepository.findByPriceBetween(minPrice, maxPrice);
+            products = productRepository.findByPriceBetween(minPrice, maxPrice);
         } else {
-            return productRepository.findAll();
+            products = productRepository.findAll();
         }
+        return withLiveStock(products);
     }
 
+    // Same listing with only the requested fields selected; the stock of sharded products is
+    // still their bucket total (stockBuckets is selected after the requested fields for that)
+    @Transactional(readOnly = true)
+    public List<Map<String, Object>> getProductFields(String fields, String category, Double minPrice, Double maxPrice) {
+        SparseFields selected = SparseFields.parse(fields, LIST_FIELDS);
+        boolean stock = selected.contains("stockQuantity");
+        List<String> attributes = new ArrayList<>(selected.names());
+        if (stock) {
+            attributes.add("stockBuckets");
+        }
+        List<Object[]> tuples = productRepository.findColumns(attributes, category, minPrice, maxPrice);
+        List<Map<String, Object>> rows = selected.toRows(tuples);
+        if (stock) {
+            List<Long> sharded = tuples.stream().filter(tuple -> ((Number) tuple[tuple.length - 1]).intValue() > 1)
+                    .map(tuple -> (Long) tuple[0]).toList();
+            if (!sharded.isEmpty()) {
+                Map<Long, Integer> totals = stockBucketService.totalStocks(sharded);
+                rows.stream().filter(row -> totals.containsKey((Long) row.get("id")))
+                        .forEach(row -> row.put("stockQuantity", totals.get((Long) row.get("id"))));
+            }
+        }
+        return rows;
+    }
+
+    // Not transactional: coalesced with concurrent lookups, see BatchLoaders
     public Product getProductById(Long id) {
+        return Optional.ofNullable(productLoader.load(id)).orElseThrow(() -> new RuntimeException("Product not found"));
+    }
+
+    private Product findProduct(Long id) {
         return productRepository.findById(id).orElseThrow(() -> new RuntimeException("Product not found"));
     }
 
+    // Sharded products report the sum of their buckets; they are detached first so the
+    // overlaid value is never flushed back over the stored snapshot
+    private List<Product> withLiveStock(List<Product> products) {
+        List<Long> sharded = products.stream().filter(StockBucketService::isSharded).map(Product::getId).toList();
+        if (!sharded.isEmpty()) {
+            Map<Long, Integer> totals = stockBucketService.totalStocks(sharded);
+            for (Product product : products) {
+                if (StockBucketService.isSharded(product)) {
+                    entityManager.detach(product);
+                    product.setStockQuantity(totals.getOrDefault(product.getId(), 0));
+                }
+            }
+        }
+        return products;
+    }
+
+    @Transactional
+    public Product setStockBuckets(Long id, int buckets) {
+        Product product = stockBucketService.setBucketCount(id, buckets);
+        productChangeService.recordUpsert(id);
+        return product;
+    }
+
+    // Import path: one SELECT for all SKUs of the chunk, then JDBC-batched INSERTs for new SKUs and
+    // UPDATEs for changed products. Rows must be validated and have distinct SKUs; a null imageUrl
+    // keeps the current one. A row with an unknown SKU first adopts the product created without a
+    // SKU that has its name and category, if there is exactly one, so the first import of a catalog
+    // keyed by hand does not duplicate it.
+    @Transactional
+    public UpsertResult upsertBySku(List<Product> rows) {
+        Map<String, Product> existing = new HashMap<>();
+        productRepository.findBySkuIn(rows.stream().map(Product::getSku).toList())
+                .forEach(product -> existing.put(product.getSku(), product));
+        Set<String> adopted = adoptUnkeyed(rows, existing);
+
+        List<Product> inserts = new ArrayList<>();
+        List<Long> changedIds = new ArrayList<>();
+        List<Long> catalogIds = new ArrayList<>();
+        int unchanged = 0;
+        for (Product row : rows) {
+            Product product = existing.get(row.getSku());
+            if (product == null) {
+                row.setId(null);
+                row.setStockBuckets(0);
+                inserts.add(row);
+                continue;
+            }
+            boolean sharded = StockBucketService.isSharded(product);
+            int stock = sharded ? stockBucketService.totalStock(product.getId()) : product.getStockQuantity();
+            String imageUrl = row.getImageUrl() != null ? row.getImageUrl() : product.getImageUrl();
+            boolean renamed = !product.getName().equals(row.getName()) || !product.getCategory().equals(row.getCategory());
+            if (!renamed && !adopted.contains(row.getSku()) && stock == row.getStockQuantity() && product.getPrice() == row.getPrice()
+                    && product.getDescription().equals(row.getDescription())
+                    && Objects.equals(product.getImageUrl(), imageUrl)) {
+                unchanged++;
+                continue;
+            }
+            product.setName(row.getName());
+            product.setDescription(row.getDescription());
+            product.setPrice(row.getPrice());
+            product.setCategory(row.getCategory());
+            product.setImageUrl(imageUrl);
+            if (stock != row.getStockQuantity()) {
+                if (sharded) {
+                    stockBucketService.setTotal(product, row.getStockQuantity());
+                }
+                product.setStockQuantity(row.getStockQuantity());
+                eventPublisher.publishEvent(new StockChangedEvent(product.getId(), row.getStockQuantity()));
+            }
+            changedIds.add(product.getId());
+            if (renamed) {
+                catalogIds.add(product.getId());
+            }
+        }
+
+        productRepository.saveAll(inserts);
+        productRepository.flush();
+        for (Product inserted : inserts) {
+            changedIds.add(inserted.getId());
+            catalogIds.add(inserted.getId());
+            eventPublisher.publishEvent(new StockChangedEvent(inserted.getId(), inserted.getStockQuantity()));
+        }
+        productChangeService.recordUpserts(changedIds);
+        if (!catalogIds.isEmpty()) {
+            eventPublisher.publishEvent(new ProductCatalogChangedEvent(catalogIds));
+        }
+        return new UpsertResult(inserts.size(), rows.size() - inserts.size() - unchanged, unchanged);
+    }
+
+    // Gives unmatched rows' SKUs to unambiguous SKU-less products (same name and category); returns those SKUs
+    private Set<String> adoptUnkeyed(List<Product> rows, Map<String, Product> existing) {
+        List<Product> unmatched = rows.stream().filter(row -> !existing.containsKey(row.getSku())).toList();
+        if (unmatched.isEmpty()) {
+            return Set.of();
+        }
+        Map<List<String>, List<Product>> unkeyed = new HashMap<>();
+        productRepository.findBySkuIsNullAndNameIn(unmatched.stream().map(Product::getName).distinct().toList())
+                .forEach(product -> unkeyed.computeIfAbsent(List.of(product.getName(), product.getCategory()),
+                        key -> new ArrayList<>()).add(product));
+        Map<List<String>, List<Product>> claims = new HashMap<>();
+        unmatched.forEach(row -> claims.computeIfAbsent(List.of(row.getName(), row.getCategory()),
+                key -> new ArrayList<>()).add(row));
+
+        Set<String> adopted = new HashSet<>();
+        claims.forEach((key, claimants) -> {
+            List<Product> candidates = unkeyed.getOrDefault(key, List.of());
+            if (claimants.size() == 1 && candidates.size() == 1) {
+                Product product = candidates.get(0);
+                product.setSku(claimants.get(0).getSku());
+                existing.put(product.getSku(), product);
+                adopted.add(product.getSku());
+            }
+        });
+        return adopted;
+    }
+
+    // Trimmed and length-checked; rejected if another product already has it
+    private String checkedSku(String sku, Long productId) {
+        String trimmed = sku.trim();
+        if (trimmed.isEmpty() || trimmed.length() > MAX_SKU_LENGTH) {
+            throw new ValidationException("SKU must be 1 to " + MAX_SKU_LENGTH + " characters");
+        }
+        for (Product other : productRepository.findBySkuIn(List.of(trimmed))) {
+            if (!other.getId().equals(productId)) {
+                throw new ValidationException("SKU " + trimmed + " is already used by product " + other.getId());
+            }
+        }
+        return trimmed;
+    }
+
+    // Points the product at an image in the local store (see ProductImageService)
+    @Transactional
+    public Product setImageUrl(Long id, String imageUrl) {
+        Product product = findProduct(id);
+        product.setImageUrl(imageUrl);
+        productChangeService.recordUpsert(id);
+        return productRepository.save(product);
+    }
+
+    @Transactional
     public Product updateProduct(Long id, Product updated) {
-        Product product = getProductById(id);
+        Product product = findProduct(id);
+        if (!Objects.equals(product.getName(), updated.getName())
+                || !Objects.equals(product.getCategory(), updated.getCategory())) {
+            eventPublisher.publishEvent(new ProductCatalogChangedEvent(List.of(id)));
+        }
         product.setName(updated.getName());
         product.setDescription(updated.getDescription());
         product.setPrice(updated.getPrice());
         product.setCategory(updated.getCategory());
+        int stockBefore = StockBucketService.isSharded(product)
+                ? stockBucketService.totalStock(id) : product.getStockQuantity();
+        if (stockBefore != updated.getStockQuantity()) {
+            if (StockBucketService.isSharded(product)) {
+                stockBucketService.setTotal(product, updated.getStockQuantity());
+            }
+            eventPublisher.publishEvent(new StockChangedEvent(id, updated.getStockQuantity()));
+        }
         product.setStockQuantity(updated.getStockQuantity());
         product.setImageUrl(updated.getImageUrl());
+        // clients that predate SKUs send none; that keeps the current one
+        if (updated.getSku() != null) {
+            product.setSku(checkedSku(updated.getSku(), id));
+        }
+        productChangeService.recordUpsert(id);
         return productRepository.save(product);
     }
 
+    // Applies all patches in one transaction: one SELECT for the batch, JDBC-batched UPDATEs
+    // for the rows that actually changed. Returns only those rows.
+    @Transactional
+    public List<Product> patchProducts(List<ProductPatchRequest> patches) {
+        if (patches == null || patches.isEmpty()) {
+            return List.of();
+        }
+        if (patches.size() > MAX_PATCH_BATCH) {
+            throw new ValidationException("At most " + MAX_PATCH_BATCH + " products can be patched at once");
+        }
+
+        Set<Long> ids = new LinkedHashSet<>();
+        for (ProductPatchRequest patch : patches) {
+            if (patch.getId() == null || !ids.add(patch.getId())) {
+                throw new ValidationException("Each patch needs a distinct product id");
+            }
+            if (patch.getStockQuantity() != null && patch.getStockDelta() != null) {
+                throw new ValidationException("Use either stockQuantity or stockDelta for product " + patch.getId());
+            }
+        }
+
+        Map<Long, Product> products = new HashMap<>();
+        productRepository.findAllById(ids).forEach(p -> products.put(p.getId(), p));
+        if (products.size() < ids.size()) {
+            throw new RuntimeException("Product not found");
+        }
+
+        List<Long> conflicts = patches.stream()
+                .filter(patch -> patch.getVersion() != null
+                        && patch.getVersion() != products.get(patch.getId()).getVersion())
+                .map(ProductPatchRequest::getId)
+                .toList();
+        if (!conflicts.isEmpty()) {
+            throw new ObjectOptimisticLockingFailureException(Product.class, conflicts);
+        }
+
+        List<Product> changed = new ArrayList<>();
+        List<Long> renamed = new ArrayList<>();
+        Map<Long, Integer> stockDeltas = new LinkedHashMap<>();
+        for (ProductPatchRequest patch : patches) {
+            Product product = products.get(patch.getId());
+            String nameBefore = product.getName();
+            String categoryBefore = product.getCategory();
+            if (StockBucketService.isSharded(product)) {
+                // bucketed stock is patched through the buckets; the row keeps a fresh snapshot
+                product.setStockQuantity(stockBucketService.totalStock(product.getId()));
+            }
+            int stockBefore = product.getStockQuantity();
+            // a restock on a single-row product is applied in place after the flush, so it cannot
+            // conflict with checkout decrementing the same row meanwhile
+            boolean relativeStock = !StockBucketService.isSharded(product)
+                    && patch.getStockDelta() != null && patch.getStockDelta() != 0;
+            if (relativeStock) {
+                stockDeltas.put(product.getId(), patch.getStockDelta());
+            }
+            boolean skuChanged = patch.getSku() != null && !patch.getSku().trim().equals(product.getSku());
+            if (skuChanged) {
+                product.setSku(checkedSku(patch.getSku(), product.getId()));
+            }
+            if (applyPatch(product, patch, !relativeStock) || relativeStock || skuChanged) {
+                if (StockBucketService.isSharded(product) && product.getStockQuantity() != stockBefore) {
+                    product.setStockQuantity(patch.getStockDelta() != null
+                            ? stockBucketService.adjust(product, patch.getStockDelta())
+                            : stockBucketService.setTotal(product, product.getStockQuantity()));
+                }
+                changed.add(product);
+                if (product.getStockQuantity() != stockBefore) {
+                    eventPublisher.publishEvent(new StockChangedEvent(product.getId(), product.getStockQuantity()));
+                }
+                if (!product.getName().equals(nameBefore) || !product.getCategory().equals(categoryBefore)) {
+                    renamed.add(product.getId());
+                }
+            }
+        }
+        if (!renamed.isEmpty()) {
+            eventPublisher.publishEvent(new ProductCatalogChangedEvent(renamed));
+        }
+
+        // surface version conflicts here rather than at commit
+        productRepository.flush();
+        stockDeltas.forEach((id, delta) -> {
+            Product product = products.get(id);
+            int updated = delta > 0
+                    ? productRepository.incrementStock(id, delta)
+                    : productRepository.decrementStock(id, -delta);
+            if (updated == 0) {
+                throw new ValidationException("Insufficient stock for product: " + product.getName());
+            }
+            entityManager.refresh(product);
+            eventPublisher.publishEvent(new StockChangedEvent(product.getId(), product.getStockQuantity()));
+        });
+        productChangeService.recordUpserts(changed.stream().map(Product::getId).toList());
+        return changed;
+    }
+
+    private static boolean applyPatch(Product product, ProductPatchRequest patch, boolean applyStockDelta) {
+        boolean changed = false;
+        if (patch.getName() != null && !patch.getName().equals(product.getName())) {
+            requireText(patch.getName(), patch);
+            product.setName(patch.getName());
+            changed = true;
+        }
+        if (patch.getDescription() != null && !patch.getDescription().equals(product.getDescription())) {
+            requireText(patch.getDescription(), patch);
+            product.setDescription(patch.getDescription());
+            changed = true;
+        }
+        if (patch.getCategory() != null && !patch.getCategory().equals(product.getCategory())) {
+            requireText(patch.getCategory(), patch);
+            product.setCategory(patch.getCategory());
+            changed = true;
+        }
+        if (patch.getPrice() != null && patch.getPrice() != product.getPrice()) {
+            if (patch.getPrice() <= 0) {
+                throw new ValidationException("Invalid product data for product " + patch.getId());
+            }
+            product.setPrice(patch.getPrice());
+            changed = true;
+        }
+        if (patch.getImageUrl() != null && !patch.getImageUrl().equals(product.getImageUrl())) {
+            product.setImageUrl(patch.getImageUrl());
+            changed = true;
+        }
+
+        int stock = product.getStockQuantity();
+        if (patch.getStockQuantity() != null) {
+            stock = patch.getStockQuantity();
+        } else if (patch.getStockDelta() != null && applyStockDelta) {
+            stock = stock + patch.getStockDelta();
+        }
+        if (stock != product.getStockQuantity()) {
+            if (stock < 0) {
+                throw new ValidationException("Insufficient stock for product: " + product.getName());
+            }
+            product.setStockQuantity(stock);
+            changed = true;
+        }
+        return changed;
+    }
+
+    private static void requireText(String value, ProductPatchRequest patch) {
+        if (value.isBlank()) {
+            throw new ValidationException("Invalid product data for product " + patch.getId());
+        }
+    }
+
+    @Transactional
     public void deleteProduct(Long id) {
+        stockBucketService.dropBuckets(id);
         productRepository.deleteById(id);
+        productChangeService.recordDelete(id);
+        eventPublisher.publishEvent(new ProductCatalogChangedEvent(List.of(id)));
     }
 
 }
@@ -0,0 +1,136 @@
+package com.examly.springapp.service;
+
+import com.examly.springapp.dto.ProductSuggestion;
+import com.examly.springapp.event.ProductCatalogChangedEvent;
+import com.examly.springapp.repository.ProductRepository;
+import com.examly.springapp.utils.ProductSuggestIndex;
+import jakarta.annotation.PreDestroy;
+import jakarta.validation.ValidationException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Serves product typeahead from an immutable {@link ProductSuggestIndex}.
+ * <p>
+ * Lookups only read the current index through a volatile field. Catalog changes (and a periodic
+ * refresh, since popularity drifts) request a rebuild on a single background thread; requests
+ * arriving while one is queued are folded into it. The new index is built from a projection of
+ * the product table weighted by 7-day units sold, then swapped in with one write.
+ */
+@Slf4j
+@Service
+public class ProductSuggestService implements SmartInitializingSingleton {
+
+    public static final int MAX_LIMIT = 20;
+    public static final int MAX_PREFIX_LENGTH = 100;
+
+    private final ProductRepository productRepository;
+    private final BestSellerService bestSellerService;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean loadData;
+    private final AtomicBoolean rebuildQueued = new AtomicBoolean();
+    private final ExecutorService rebuilder = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "suggest-rebuild");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private volatile ProductSuggestIndex index = ProductSuggestIndex.EMPTY;
+
+    public ProductSuggestService(ProductRepository productRepository, BestSellerService bestSellerService,
+                                 TransactionTemplate transactionTemplate,
+                                 @Value("${startup.load-data:true}") boolean loadData) {
+        this.productRepository = productRepository;
+        this.bestSellerService = bestSellerService;
+        this.transactionTemplate = transactionTemplate;
+        this.loadData = loadData;
+    }
+
+    // Built in the background so startup does not wait for it; suggestions are empty until then
+    @Override
+    public void afterSingletonsInstantiated() {
+        if (loadData) {
+            requestRebuild();
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void on(ProductCatalogChangedEvent event) {
+        requestRebuild();
+    }
+
+    @Scheduled(fixedDelayString = "${suggest.refresh-ms:300000}", initialDelayString = "${suggest.refresh-ms:300000}")
+    public void scheduledRebuild() {
+        requestRebuild();
+    }
+
+    public void requestRebuild() {
+        if (rebuildQueued.compareAndSet(false, true)) {
+            rebuilder.execute(() -> {
+                rebuildQueued.set(false);
+                try {
+                    rebuild();
+                } catch (RuntimeException e) {
+                    log.warn("Could not rebuild the product suggest index, keeping the current one: {}", e.getMessage());
+                }
+            });
+        }
+    }
+
+    public ProductSuggestIndex rebuild() {
+        long started = System.currentTimeMillis();
+        List<Object[]> rows = Objects.requireNonNullElse(
+                transactionTemplate.execute(status -> productRepository.findSuggestRows()), List.of());
+        long[] productIds = new long[rows.size()];
+        for (int i = 0; i < productIds.length; i++) {
+            productIds[i] = (Long) rows.get(i)[0];
+        }
+        long[] units = bestSellerService.estimateWeeklyUnits(productIds);
+
+        ProductSuggestIndex.Builder builder = new ProductSuggestIndex.Builder();
+        for (int i = 0; i < productIds.length; i++) {
+            Object[] row = rows.get(i);
+            builder.addProduct(productIds[i], (String) row[1], (String) row[2], units[i]);
+        }
+        ProductSuggestIndex built = builder.build();
+        index = built;
+        log.debug("Built product suggest index: {} targets, {} keys, {} bytes in {} ms", built.getTargetCount(),
+                built.getKeyCount(), built.getKeyBytes(), System.currentTimeMillis() - started);
+        return built;
+    }
+
+    public List<ProductSuggestion> suggest(String prefix, int limit) {
+        if (limit < 1 || limit > MAX_LIMIT) {
+            throw new ValidationException("Limit must be between 1 and " + MAX_LIMIT);
+        }
+        if (prefix == null || prefix.length() > MAX_PREFIX_LENGTH) {
+            throw new ValidationException("Prefix must be at most " + MAX_PREFIX_LENGTH + " characters");
+        }
+        List<ProductSuggestion> suggestions = new ArrayList<>(limit);
+        for (ProductSuggestIndex.Suggestion hit : index.suggest(prefix, limit)) {
+            suggestions.add(ProductSuggestion.builder()
+                    .type(hit.kind().name())
+                    .text(hit.text())
+                    .productId(hit.productId())
+                    .category(hit.category())
+                    .weight(hit.weight())
+                    .build());
+        }
+        return suggestions;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        rebuilder.shutdownNow();
+    }
+}
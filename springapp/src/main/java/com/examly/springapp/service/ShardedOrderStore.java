@@ -0,0 +1,460 @@
+package com.examly.springapp.service;
+
+import com.examly.springapp.config.OrderShards;
+import com.examly.springapp.config.OrderShards.Shard;
+import com.examly.springapp.dto.CursorPage;
+import com.examly.springapp.dto.OrderSearchQuery;
+import com.examly.springapp.model.Order;
+import com.examly.springapp.model.OrderItem;
+import com.examly.springapp.model.Product;
+import com.examly.springapp.model.User;
+import com.examly.springapp.repository.OrderRepository;
+import com.examly.springapp.repository.ProductRepository;
+import com.examly.springapp.repository.UserRepository;
+import com.examly.springapp.utils.SnowflakeIdGenerator;
+import com.examly.springapp.utils.SparseFields;
+import jakarta.annotation.PostConstruct;
+import jakarta.validation.ValidationException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Orders and their lines on the {@link OrderShards}, partitioned by user id; used by OrderService
+ * and the order readers instead of the JPA repositories when sharding is configured.
+ * <p>
+ * Writes and per-user reads go to the user's shard. Lookups by order id probe all shards in
+ * parallel (a primary-key read each). Admin lists and search run on every shard in parallel with
+ * the same keyset limit and are merged newest first, so a page never needs more than
+ * (size + 1) rows per shard and no shard is asked for a count. Orders are returned as detached
+ * entities with their user and products loaded from the primary.
+ * <p>
+ * Shard writes commit on their own, not with the caller's primary transaction (stock, summaries,
+ * outbox). Inserts and status changes are applied straight away, so the order can be read back and
+ * a lost status race fails the primary transaction; each registers a compensation that undoes it
+ * if the primary transaction then rolls back. Deletes need neither, so they wait for the primary
+ * commit. A crash between the two commits is not covered and leaves the shard write in place.
+ * <p>
+ * Orders written to the primary before sharding was turned on are not moved automatically; the
+ * application refuses to start while the primary still has any, rather than silently hide them.
+ */
+@Slf4j
+@Service
+@ConditionalOnProperty(prefix = "app.order-shards", name = "urls")
+public class ShardedOrderStore {
+
+    private static final String ORDER_COLUMNS = "o.id, o.user_id, o.customer_name, o.customer_email, " +
+            "o.shipping_address, o.order_date, o.status, o.total_amount, o.subtotal_amount, o.discount_amount, " +
+            "o.tax_amount, o.coupon_code";
+    private static final int ITEM_LOOKUP_CHUNK = 1000;
+
+    private final OrderShards shards;
+    private final UserRepository userRepository;
+    private final ProductRepository productRepository;
+    private final OrderRepository orderRepository;
+
+    public ShardedOrderStore(OrderShards shards, UserRepository userRepository, ProductRepository productRepository,
+                             OrderRepository orderRepository) {
+        this.shards = shards;
+        this.userRepository = userRepository;
+        this.productRepository = productRepository;
+        this.orderRepository = orderRepository;
+    }
+
+    // Once sharding is on, nothing reads orders from the primary: refuse to hide the ones still there
+    @PostConstruct
+    void refuseOrdersLeftOnThePrimary() {
+        long left = orderRepository.count();
+        if (left > 0) {
+            throw new IllegalStateException("The primary database still holds " + left + " orders; move them to " +
+                    "the order shards (to the shard of each order's user) before setting app.order-shards.urls");
+        }
+    }
+
+    public int shardOf(Long userId) {
+        return shards.forUser(userId).index();
+    }
+
+    // ---- Writes ----
+
+    // Assigns the order and line ids and writes them to the user's shard
+    public Order insert(Order order) {
+        Shard shard = shards.forUser(order.getUser().getId());
+        order.setId(SnowflakeIdGenerator.nextId());
+        List<OrderItem> items = order.getOrderItems() != null ? order.getOrderItems() : List.of();
+        for (OrderItem item : items) {
+            item.setId(SnowflakeIdGenerator.nextId());
+            item.setOrder(order);
+        }
+        shard.transactions().executeWithoutResult(status -> {
+            shard.jdbc().update("insert into orders (id, user_id, customer_name, customer_email, shipping_address, " +
+                            "order_date, status, total_amount, subtotal_amount, discount_amount, tax_amount, coupon_code) " +
+                            "values (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)",
+                    order.getId(), order.getUser().getId(), order.getCustomerName(), order.getCustomerEmail(),
+                    order.getShippingAddress(), timestamp(order.getOrderDate()), order.getStatus(),
+                    order.getTotalAmount(), order.getSubtotalAmount(), order.getDiscountAmount(),
+                    order.getTaxAmount(), order.getCouponCode());
+            shard.jdbc().batchUpdate("insert into order_item (id, order_id, product_id, category, quantity, " +
+                            "price_at_purchase) values (?, ?, ?, ?, ?, ?)",
+                    items.stream().map(item -> new Object[]{item.getId(), order.getId(), item.getProduct().getId(),
+                            item.getProduct().getCategory(), item.getQuantity(), item.getPriceAtPurchase()}).toList());
+        });
+        Long orderId = order.getId();
+        onRollback(() -> deleteRows(shard, orderId), "remove order " + orderId + " from shard " + shard.index());
+        return order;
+    }
+
+    // Compare-and-set on the status, so two concurrent changes cannot both apply
+    public void updateStatus(Order order, String fromStatus) {
+        Shard shard = shards.forUser(order.getUser().getId());
+        int updated = shard.jdbc().update("update orders set status = ? where id = ? and status = ?",
+                order.getStatus(), order.getId(), fromStatus);
+        if (updated == 0) {
+            throw new ValidationException("Order was changed meanwhile, reload and retry");
+        }
+        Long orderId = order.getId();
+        String toStatus = order.getStatus();
+        // Guarded by the new status, so a change made after this one is not overwritten
+        onRollback(() -> shard.jdbc().update("update orders set status = ? where id = ? and status = ?",
+                fromStatus, orderId, toStatus), "restore the status of order " + orderId + " on shard " + shard.index());
+    }
+
+    public void delete(Order order) {
+        Shard shard = shards.forUser(order.getUser().getId());
+        Long orderId = order.getId();
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            deleteRows(shard, orderId);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                try {
+                    deleteRows(shard, orderId);
+                } catch (RuntimeException e) {
+                    log.error("Could not remove deleted order {} from shard {}: {}", orderId, shard.index(), e.getMessage());
+                }
+            }
+        });
+    }
+
+    // Runs undo if the caller's primary transaction ends without committing
+    private static void onRollback(Runnable undo, String what) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status != STATUS_COMMITTED) {
+                    try {
+                        undo.run();
+                    } catch (RuntimeException e) {
+                        log.error("Could not {} after a rollback: {}", what, e.getMessage());
+                    }
+                }
+            }
+        });
+    }
+
+    private static void deleteRows(Shard shard, Long orderId) {
+        shard.transactions().executeWithoutResult(status -> {
+            shard.jdbc().update("delete from order_item where order_id = ?", orderId);
+            shard.jdbc().update("delete from orders where id = ?", orderId);
+        });
+    }
+
+    // ---- Reads ----
+
+    public Optional<Order> findById(Long id) {
+        List<List<Order>> found = shards.scatter(shard -> load(shard,
+                "select " + ORDER_COLUMNS + " from orders o where o.id = ?", List.of(id)));
+        return hydrate(found.stream().flatMap(List::stream).toList()).stream().findFirst();
+    }
+
+    // Batch of the order loader; every shard gets the whole id list
+    public List<Order> findAllById(Collection<Long> ids) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        String placeholders = String.join(", ", Collections.nCopies(ids.size(), "?"));
+        List<List<Order>> found = shards.scatter(shard -> load(shard,
+                "select " + ORDER_COLUMNS + " from orders o where o.id in (" + placeholders + ")", List.copyOf(ids)));
+        return hydrate(found.stream().flatMap(List::stream).toList());
+    }
+
+    // Orders of a batch of users (the user loader); each shard is asked only for its own users
+    public List<Order> findByUserIds(Collection<Long> userIds) {
+        if (userIds.isEmpty()) {
+            return List.of();
+        }
+        List<List<Order>> found = shards.scatter(shard -> {
+            List<Object> own = userIds.stream().filter(userId -> shards.forUser(userId) == shard)
+                    .map(Object.class::cast).toList();
+            if (own.isEmpty()) {
+                return List.of();
+            }
+            String placeholders = String.join(", ", Collections.nCopies(own.size(), "?"));
+            return load(shard, "select " + ORDER_COLUMNS + " from orders o where o.user_id in (" + placeholders + ") " +
+                    "order by o.id", own);
+        });
+        return hydrate(found.stream().flatMap(List::stream).collect(Collectors.toCollection(ArrayList::new)));
+    }
+
+    public List<Order> findAll() {
+        List<List<Order>> found = shards.scatter(shard -> load(shard,
+                "select " + ORDER_COLUMNS + " from orders o order by o.id desc", List.of()));
+        return hydrate(mergeNewestFirst(found, Integer.MAX_VALUE));
+    }
+
+    // Only the given order fields (see OrderRepository.findColumns) of every order, newest first
+    public List<Object[]> findColumns(List<String> fields) {
+        String columns = fields.stream().map(field -> "o." + SparseFields.column(field)).collect(Collectors.joining(", "));
+        List<List<Object[]>> found = shards.scatter(shard -> shard.jdbc().query(
+                "select " + columns + " from orders o order by o.id desc", (rs, row) -> {
+                    Object[] values = new Object[fields.size()];
+                    for (int i = 0; i < values.length; i++) {
+                        values[i] = rs.getObject(i + 1);
+                    }
+                    return values;
+                }));
+        return found.stream().flatMap(List::stream)
+                .sorted(Comparator.comparing((Object[] row) -> ((Number) row[0]).longValue()).reversed())
+                .toList();
+    }
+
+    // Orders with fromId <= id < toId, newest first
+    public List<Order> findIdRange(long fromId, long toId, int limit) {
+        List<List<Order>> found = shards.scatter(shard -> load(shard,
+                "select " + ORDER_COLUMNS + " from orders o where o.id >= ? and o.id < ? order by o.id desc limit ?",
+                List.of(fromId, toId, limit)));
+        return hydrate(mergeNewestFirst(found, limit));
+    }
+
+    // Same criteria and paging as OrderRepositoryImpl.findSearchPage, on every shard
+    public CursorPage<Order> search(OrderSearchQuery query) {
+        StringBuilder sql = new StringBuilder("select " + ORDER_COLUMNS + " from orders o where 1 = 1");
+        List<Object> params = new ArrayList<>();
+        if (query.getCustomerEmail() != null && !query.getCustomerEmail().isBlank()) {
+            sql.append(" and o.customer_email like ? escape '!'");
+            params.add(escapeLike(query.getCustomerEmail().trim()) + "%");
+        }
+        if (query.getCustomerName() != null && !query.getCustomerName().isBlank()) {
+            sql.append(" and o.customer_name like ? escape '!'");
+            params.add(escapeLike(query.getCustomerName().trim()) + "%");
+        }
+        if (query.getStatus() != null) {
+            sql.append(" and o.status = ?");
+            params.add(query.getStatus());
+        }
+        if (query.getProductId() != null) {
+            sql.append(" and o.id in (select i.order_id from order_item i where i.product_id = ?)");
+            params.add(query.getProductId());
+        }
+        if (query.getMinAmount() != null) {
+            sql.append(" and o.total_amount >= ?");
+            params.add(query.getMinAmount());
+        }
+        if (query.getMaxAmount() != null) {
+            sql.append(" and o.total_amount <= ?");
+            params.add(query.getMaxAmount());
+        }
+        long belowId = query.getCursor() != null ? query.getCursor() : Long.MAX_VALUE;
+        if (query.getFrom() != null || query.getTo() != null) {
+            // Generated ids are ranged by their timestamp; legacy ids (all below FIRST_ID) on the order date
+            long fromId = Math.max(SnowflakeIdGenerator.FIRST_ID,
+                    query.getFrom() != null ? SnowflakeIdGenerator.lowestIdAt(query.getFrom()) : 0L);
+            long toId = Math.min(belowId,
+                    query.getTo() != null ? SnowflakeIdGenerator.lowestIdAt(query.getTo()) : Long.MAX_VALUE);
+            sql.append(" and ((o.id >= ? and o.id < ?) or (o.id < ?");
+            params.add(fromId);
+            params.add(toId);
+            params.add(Math.min(belowId, SnowflakeIdGenerator.FIRST_ID));
+            if (query.getFrom() != null) {
+                sql.append(" and o.order_date >= ?");
+                params.add(timestamp(query.getFrom()));
+            }
+            if (query.getTo() != null) {
+                sql.append(" and o.order_date < ?");
+                params.add(timestamp(query.getTo()));
+            }
+            sql.append("))");
+        } else {
+            sql.append(" and o.id < ?");
+            params.add(belowId);
+        }
+        sql.append(" order by o.id desc limit ?");
+        params.add(query.getSize() + 1);
+
+        List<List<Order>> found = shards.scatter(shard -> load(shard, sql.toString(), params));
+        List<Order> rows = mergeNewestFirst(found, query.getSize() + 1);
+        boolean hasMore = rows.size() > query.getSize();
+        List<Order> items = hydrate(new ArrayList<>(hasMore ? rows.subList(0, query.getSize()) : rows));
+        String next = hasMore ? String.valueOf(items.get(items.size() - 1).getId()) : null;
+        return new CursorPage<>(items, next, hasMore);
+    }
+
+    public LocalDateTime findLastOrderDate(Long userId) {
+        Timestamp last = shards.forUser(userId).jdbc().queryForObject(
+                "select max(order_date) from orders where user_id = ?", Timestamp.class, userId);
+        return last != null ? last.toLocalDateTime() : null;
+    }
+
+    // ---- Readers of all order lines (analytics, best sellers, summaries) ----
+
+    // Same row shape as OrderRepository.streamLinesSince, shard after shard; close the stream
+    public Stream<Object[]> streamLinesSince(LocalDateTime since) {
+        return shards.all().stream().flatMap(shard -> shard.jdbc().queryForStream(
+                "select i.product_id, i.quantity, o.order_date, o.id from orders o join order_item i on i.order_id = o.id " +
+                "where o.order_date >= ? and o.status <> 'CANCELLED'",
+                (rs, row) -> new Object[]{rs.getLong(1), rs.getInt(2), localDateTime(rs.getTimestamp(3)), rs.getLong(4)},
+                timestamp(since)));
+    }
+
+    // [minId, maxId] of each shard (nulls for an empty shard), fetched in parallel
+    public List<Long[]> findIdBounds() {
+        return shards.scatter(shard -> shard.jdbc().queryForObject("select min(id), max(id) from orders",
+                (rs, row) -> new Long[]{rs.getObject(1, Long.class), rs.getObject(2, Long.class)}));
+    }
+
+    // Same row shape as OrderRepository.streamLinesInRange, from one shard; close the stream
+    public Stream<Object[]> streamLinesInRange(int shardIndex, long fromId, long toId) {
+        return shards.all().get(shardIndex).jdbc().queryForStream(
+                "select o.id, o.user_id, o.order_date, o.status, i.product_id, i.category, i.quantity, " +
+                "i.price_at_purchase from orders o join order_item i on i.order_id = o.id " +
+                "where o.id >= ? and o.id < ? order by o.id",
+                (rs, row) -> new Object[]{rs.getLong(1), rs.getLong(2), localDateTime(rs.getTimestamp(3)),
+                        rs.getString(4), rs.getLong(5), rs.getString(6), rs.getInt(7), rs.getDouble(8)},
+                fromId, toId);
+    }
+
+    /**
+     * Same rows as OrderRepository.summariseByUserAfter, gathered from every shard. A user's orders
+     * are all on one shard, so the union is exact; when a shard returned a full chunk, only users
+     * up to its last id are known to be complete, and the result is cut there (still a full chunk).
+     */
+    public List<Object[]> summariseByUserAfter(Long afterUserId, int chunkSize) {
+        List<List<Object[]>> found = shards.scatter(shard -> shard.jdbc().query(
+                "select o.user_id, count(*), " +
+                "sum(case when o.status <> 'CANCELLED' then o.total_amount else 0.0 end), " +
+                "max(o.order_date), " +
+                "sum(case when o.status in ('PENDING', 'PROCESSING', 'SHIPPED') then 1 else 0 end) " +
+                "from orders o where o.user_id > ? group by o.user_id order by o.user_id limit ?",
+                (rs, row) -> new Object[]{rs.getLong(1), rs.getLong(2), rs.getDouble(3),
+                        localDateTime(rs.getTimestamp(4)), rs.getLong(5)},
+                afterUserId, chunkSize));
+        long upTo = Long.MAX_VALUE;
+        for (List<Object[]> rows : found) {
+            if (rows.size() == chunkSize) {
+                upTo = Math.min(upTo, (Long) rows.get(rows.size() - 1)[0]);
+            }
+        }
+        final long limit = upTo;
+        return found.stream().flatMap(List::stream)
+                .filter(row -> (Long) row[0] <= limit)
+                .sorted(Comparator.comparing(row -> (Long) row[0]))
+                .limit(chunkSize)
+                .toList();
+    }
+
+    // ---- Mapping ----
+
+    private List<Order> load(Shard shard, String sql, List<Object> params) {
+        List<Order> orders = shard.jdbc().query(sql, ShardedOrderStore::mapOrder, params.toArray());
+        if (orders.isEmpty()) {
+            return orders;
+        }
+        Map<Long, Order> byId = orders.stream().collect(Collectors.toMap(Order::getId, Function.identity()));
+        List<Long> ids = new ArrayList<>(byId.keySet());
+        for (int from = 0; from < ids.size(); from += ITEM_LOOKUP_CHUNK) {
+            List<Long> chunk = ids.subList(from, Math.min(from + ITEM_LOOKUP_CHUNK, ids.size()));
+            String placeholders = String.join(", ", Collections.nCopies(chunk.size(), "?"));
+            shard.jdbc().query("select id, order_id, product_id, quantity, price_at_purchase from order_item " +
+                    "where order_id in (" + placeholders + ") order by id", rs -> {
+                Order order = byId.get(rs.getLong(2));
+                Product product = new Product();
+                product.setId(rs.getLong(3));
+                order.getOrderItems().add(OrderItem.builder()
+                        .id(rs.getLong(1))
+                        .order(order)
+                        .product(product)
+                        .quantity(rs.getInt(4))
+                        .priceAtPurchase(rs.getDouble(5))
+                        .build());
+            }, chunk.toArray());
+        }
+        return orders;
+    }
+
+    private static Order mapOrder(ResultSet rs, int row) throws SQLException {
+        User user = new User();
+        user.setId(rs.getLong(2));
+        return Order.builder()
+                .id(rs.getLong(1))
+                .user(user)
+                .customerName(rs.getString(3))
+                .customerEmail(rs.getString(4))
+                .shippingAddress(rs.getString(5))
+                .orderDate(localDateTime(rs.getTimestamp(6)))
+                .status(rs.getString(7))
+                .totalAmount(rs.getDouble(8))
+                .subtotalAmount(rs.getDouble(9))
+                .discountAmount(rs.getDouble(10))
+                .taxAmount(rs.getDouble(11))
+                .couponCode(rs.getString(12))
+                .orderItems(new ArrayList<>())
+                .build();
+    }
+
+    // Swaps the id-only user and product placeholders for the entities on the primary
+    private List<Order> hydrate(List<Order> orders) {
+        if (orders.isEmpty()) {
+            return orders;
+        }
+        Set<Long> userIds = orders.stream().map(order -> order.getUser().getId()).collect(Collectors.toSet());
+        Set<Long> productIds = orders.stream().flatMap(order -> order.getOrderItems().stream())
+                .map(item -> item.getProduct().getId()).collect(Collectors.toSet());
+        Map<Long, User> users = userRepository.findAllById(userIds).stream()
+                .collect(Collectors.toMap(User::getId, Function.identity()));
+        Map<Long, Product> products = productRepository.findAllById(productIds).stream()
+                .collect(Collectors.toMap(Product::getId, Function.identity()));
+        for (Order order : orders) {
+            order.setUser(users.getOrDefault(order.getUser().getId(), order.getUser()));
+            for (OrderItem item : order.getOrderItems()) {
+                item.setProduct(products.getOrDefault(item.getProduct().getId(), item.getProduct()));
+            }
+        }
+        return orders;
+    }
+
+    // Each shard's list is already newest first; ids are unique across shards
+    private static List<Order> mergeNewestFirst(List<List<Order>> perShard, int limit) {
+        return perShard.stream().flatMap(List::stream)
+                .sorted(Comparator.comparing(Order::getId).reversed())
+                .limit(limit)
+                .collect(Collectors.toCollection(ArrayList::new));
+    }
+
+    private static Timestamp timestamp(LocalDateTime time) {
+        return time != null ? Timestamp.valueOf(time) : null;
+    }
+
+    private static LocalDateTime localDateTime(Timestamp timestamp) {
+        return timestamp != null ? timestamp.toLocalDateTime() : null;
+    }
+
+    private static String escapeLike(String value) {
+        return value.replace("!", "!!").replace("%", "!%").replace("_", "!_");
+    }
+}
@@ -0,0 +1,243 @@
+package com.examly.springapp.service;
+
+import com.examly.springapp.model.Product;
+import com.examly.springapp.model.StockBucket;
+import com.examly.springapp.repository.ProductRepository;
+import com.examly.springapp.repository.StockBucketRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.validation.ValidationException;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.*;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Optional storage mode for hot products: stock is split across N {@link StockBucket} rows so
+ * concurrent orders lock different rows instead of queueing on the single product row.
+ * <p>
+ * A reservation starts at a random (or thread-affine) bucket and only moves on to the other
+ * buckets when that one cannot cover the quantity; if no single bucket can, it locks the product
+ * and then all buckets in bucketNo order and drains them. Reservations and releases go through
+ * this service in either mode: the single-row updates only match unbucketed products, and
+ * whenever the fast path misses, the mode is read again under the product lock. The total stock is the sum of the buckets. A background job
+ * evens the buckets out again and refreshes the product's stockQuantity snapshot.
+ * <p>
+ * Whatever locks more than one bucket locks the product row first, then the buckets in bucketNo
+ * order: the reservation fallback, setTotal, the rebalancer and setBucketCount all follow it, so
+ * none of them can wait on another in a cycle.
+ */
+@Service
+@RequiredArgsConstructor
+public class StockBucketService {
+
+    public static final int MAX_BUCKETS = 64;
+
+    private final StockBucketRepository stockBucketRepository;
+    private final ProductRepository productRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final EntityManager entityManager;
+
+    // random | thread
+    @Value("${stock.bucket-selection:random}")
+    private String bucketSelection;
+
+    public static boolean isSharded(Product product) {
+        return product.getStockBuckets() > 1;
+    }
+
+    // Switches a product between single-row (0 or 1) and bucketed (2..MAX_BUCKETS) storage
+    @Transactional
+    public Product setBucketCount(Long productId, int buckets) {
+        if (buckets < 0 || buckets > MAX_BUCKETS) {
+            throw new ValidationException("Bucket count must be between 0 and " + MAX_BUCKETS);
+        }
+        Product product = productRepository.findByIdForUpdate(productId)
+                .orElseThrow(() -> new RuntimeException("Product not found"));
+
+        int total = isSharded(product) ? sumLocked(productId) : product.getStockQuantity();
+        stockBucketRepository.deleteByProductId(productId);
+        if (buckets > 1) {
+            List<StockBucket> rows = new ArrayList<>(buckets);
+            int[] split = split(total, buckets);
+            for (int i = 0; i < buckets; i++) {
+                rows.add(StockBucket.builder().productId(productId).bucketNo(i).quantity(split[i]).build());
+            }
+            stockBucketRepository.saveAll(rows);
+        }
+        product.setStockBuckets(buckets > 1 ? buckets : 0);
+        product.setStockQuantity(total);
+        return product;
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void dropBuckets(Long productId) {
+        stockBucketRepository.deleteByProductId(productId);
+    }
+
+    // Takes quantity from the product row or its buckets, whichever holds the stock; false when too little is left
+    @Transactional(propagation = Propagation.MANDATORY)
+    public boolean reserve(Product product, int quantity) {
+        if (isSharded(product)) {
+            int buckets = product.getStockBuckets();
+            int start = firstBucket(buckets);
+            for (int i = 0; i < buckets; i++) {
+                if (stockBucketRepository.take(product.getId(), (start + i) % buckets, quantity) == 1) {
+                    return true;
+                }
+            }
+        } else if (productRepository.decrementStock(product.getId(), quantity) == 1) {
+            return true;
+        }
+
+        // short of stock, or setBucketCount switched the mode since the product was read:
+        // decide again under the product lock, which the switch holds while it moves the stock
+        if (!lockShardedMode(product.getId())) {
+            return productRepository.decrementStock(product.getId(), quantity) == 1;
+        }
+        // no single bucket covers it: drain several under a lock on all of them
+        List<StockBucket> rows = lockBuckets(product.getId());
+        int total = rows.stream().mapToInt(StockBucket::getQuantity).sum();
+        if (total < quantity) {
+            return false;
+        }
+        int remaining = quantity;
+        for (StockBucket row : rows) {
+            int taken = Math.min(row.getQuantity(), remaining);
+            row.setQuantity(row.getQuantity() - taken);
+            remaining -= taken;
+            if (remaining == 0) {
+                break;
+            }
+        }
+        return true;
+    }
+
+    // Puts quantity back on the product row or into a bucket, whichever holds the stock
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void release(Product product, int quantity) {
+        boolean released = isSharded(product)
+                ? stockBucketRepository.give(product.getId(), firstBucket(product.getStockBuckets()), quantity) == 1
+                : productRepository.incrementStock(product.getId(), quantity) == 1;
+        if (released) {
+            return;
+        }
+        // the mode (or the bucket count) changed since the product was read
+        if (lockShardedMode(product.getId())) {
+            stockBucketRepository.give(product.getId(), 0, quantity);
+        } else {
+            productRepository.incrementStock(product.getId(), quantity);
+        }
+    }
+
+    // Replaces the total stock of a sharded product (admin edits); returns the new total
+    @Transactional(propagation = Propagation.MANDATORY)
+    public int setTotal(Product product, int total) {
+        if (total < 0) {
+            throw new ValidationException("Insufficient stock for product: " + product.getName());
+        }
+        if (!lockShardedMode(product.getId())) {
+            // switched back to the single row meanwhile; the caller writes the total there
+            return total;
+        }
+        List<StockBucket> rows = lockBuckets(product.getId());
+        int[] split = split(total, rows.size());
+        for (int i = 0; i < rows.size(); i++) {
+            rows.get(i).setQuantity(split[i]);
+        }
+        return total;
+    }
+
+    // Adds (or with a negative delta removes) stock; returns the new total
+    @Transactional(propagation = Propagation.MANDATORY)
+    public int adjust(Product product, int delta) {
+        if (delta >= 0) {
+            release(product, delta);
+        } else if (!reserve(product, -delta)) {
+            throw new ValidationException("Insufficient stock for product: " + product.getName());
+        }
+        return totalStock(product.getId());
+    }
+
+    @Transactional(readOnly = true)
+    public int totalStock(Long productId) {
+        return totalStocks(List.of(productId)).getOrDefault(productId, 0);
+    }
+
+    @Transactional(readOnly = true)
+    public Map<Long, Integer> totalStocks(Collection<Long> productIds) {
+        Map<Long, Integer> totals = new HashMap<>();
+        if (productIds.isEmpty()) {
+            return totals;
+        }
+        for (Object[] row : stockBucketRepository.sumByProduct(productIds)) {
+            totals.put((Long) row[0], ((Number) row[1]).intValue());
+        }
+        return totals;
+    }
+
+    // Evens out the buckets of every sharded product, one short transaction per product
+    @Scheduled(fixedDelayString = "${stock.rebalance-interval-ms:30000}")
+    public void rebalanceAll() {
+        for (Long productId : productRepository.findShardedIds()) {
+            transactionTemplate.executeWithoutResult(status -> rebalance(productId));
+        }
+    }
+
+    private void rebalance(Long productId) {
+        if (!lockShardedMode(productId)) {
+            return;
+        }
+        List<StockBucket> rows = stockBucketRepository.lockAll(productId);
+        if (rows.isEmpty()) {
+            return;
+        }
+        int total = rows.stream().mapToInt(StockBucket::getQuantity).sum();
+        int fairShare = total / rows.size();
+        // leave roughly even buckets alone so the rebalancer does not fight with live orders
+        boolean skewed = rows.stream().anyMatch(row -> row.getQuantity() < fairShare / 2);
+        if (skewed) {
+            int[] split = split(total, rows.size());
+            for (int i = 0; i < rows.size(); i++) {
+                rows.get(i).setQuantity(split[i]);
+            }
+        }
+        productRepository.updateStockSnapshot(productId, total);
+    }
+
+    private boolean lockShardedMode(Long productId) {
+        Integer buckets = productRepository.lockStockBuckets(productId);
+        return buckets != null && buckets > 1;
+    }
+
+    // Bulk take/give bypass the persistence context, so re-read buckets this transaction already holds
+    private List<StockBucket> lockBuckets(Long productId) {
+        List<StockBucket> rows = stockBucketRepository.lockAll(productId);
+        rows.forEach(entityManager::refresh);
+        return rows;
+    }
+
+    private int sumLocked(Long productId) {
+        return lockBuckets(productId).stream().mapToInt(StockBucket::getQuantity).sum();
+    }
+
+    private int firstBucket(int buckets) {
+        if ("thread".equalsIgnoreCase(bucketSelection)) {
+            return (int) (Thread.currentThread().getId() % buckets);
+        }
+        return ThreadLocalRandom.current().nextInt(buckets);
+    }
+
+    private static int[] split(int total, int buckets) {
+        int[] split = new int[buckets];
+        for (int i = 0; i < buckets; i++) {
+            split[i] = total / buckets + (i < total % buckets ? 1 : 0);
+        }
+        return split;
+    }
+}
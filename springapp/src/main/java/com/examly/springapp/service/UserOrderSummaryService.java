@@ -0,0 +1,218 @@
+package com.examly.springapp.service;
+
+import com.examly.springapp.model.Order;
+import com.examly.springapp.model.UserOrderSummary;
+import com.examly.springapp.repository.ArchivedOrderRepository;
+import com.examly.springapp.repository.OrderRepository;
+import com.examly.springapp.repository.UserOrderSummaryRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceException;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class UserOrderSummaryService {
+
+    private static final Set<String> OPEN_STATUSES = Set.of("PENDING", "PROCESSING", "SHIPPED");
+    private static final int REBUILD_CHUNK_SIZE = 500;
+
+    private final UserOrderSummaryRepository summaryRepository;
+    private final OrderRepository orderRepository;
+    private final ArchivedOrderRepository archivedOrderRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final EntityManager entityManager;
+    private final Optional<ShardedOrderStore> shardedOrders;
+
+    // ---- Incremental maintenance (always joins the caller's transaction) ----
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void orderCreated(Order order) {
+        Long userId = order.getUser().getId();
+        double spend = spendOf(order.getStatus(), order.getTotalAmount());
+        long open = isOpen(order.getStatus()) ? 1 : 0;
+
+        if (!summaryRepository.existsById(userId)) {
+            createEmptyRow(userId);
+        }
+        summaryRepository.recordOrder(userId, spend, open, order.getOrderDate());
+    }
+
+    // First order of this user: an all-zero row is committed on its own, so two first orders
+    // placed at once both end up incrementing the same row instead of one failing on the
+    // duplicate key. It stays if the order rolls back; a zero row reads the same as no row.
+    private void createEmptyRow(Long userId) {
+        TransactionTemplate requiresNew = new TransactionTemplate(transactionTemplate.getTransactionManager());
+        requiresNew.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        try {
+            requiresNew.executeWithoutResult(status ->
+                    entityManager.persist(UserOrderSummary.builder().userId(userId).build()));
+        } catch (DataIntegrityViolationException | PersistenceException e) {
+            // another transaction created it first
+        }
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void statusChanged(Order order, String fromStatus, String toStatus) {
+        double spendDelta = spendOf(toStatus, order.getTotalAmount()) - spendOf(fromStatus, order.getTotalAmount());
+        long openDelta = (isOpen(toStatus) ? 1 : 0) - (isOpen(fromStatus) ? 1 : 0);
+        if (spendDelta == 0 && openDelta == 0) {
+            return;
+        }
+        summaryRepository.applyDelta(order.getUser().getId(), 0, spendDelta, openDelta);
+    }
+
+    // Call after the order row has been removed so lastOrderDate is recomputed without it
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void orderDeleted(Order order) {
+        Long userId = order.getUser().getId();
+        summaryRepository.applyDelta(userId, -1,
+                -spendOf(order.getStatus(), order.getTotalAmount()),
+                isOpen(order.getStatus()) ? -1 : 0);
+        entityManager.flush();
+        LocalDateTime hotLast = shardedOrders.isPresent() ? shardedOrders.get().findLastOrderDate(userId)
+                : orderRepository.findLastOrderDate(userId);
+        summaryRepository.setLastOrderDate(userId, latest(hotLast, archivedOrderRepository.findLastOrderDate(userId)));
+    }
+
+    // ---- Reads ----
+
+    @Transactional(readOnly = true)
+    public UserOrderSummary getSummary(Long userId) {
+        return summaryRepository.findById(userId)
+                .orElseGet(() -> UserOrderSummary.builder().userId(userId).build());
+    }
+
+    @Transactional(readOnly = true)
+    public Page<UserOrderSummary> getSummaries(Pageable pageable) {
+        return summaryRepository.findAll(pageable);
+    }
+
+    // ---- Resync from the orders and archive tables ----
+
+    // Walks the summary rows and the users with orders in id order and rewrites them chunk by
+    // chunk, so the job never holds one long transaction over the whole table.
+    @Scheduled(cron = "${summary.rebuild-cron:0 30 3 * * *}")
+    public void rebuildAll() {
+        long started = System.currentTimeMillis();
+        Long after = 0L;
+        int users = 0;
+
+        while (after != null) {
+            final Long from = after;
+            RebuiltChunk chunk = transactionTemplate.execute(status -> rebuildChunk(from));
+            if (chunk == null) {
+                break;
+            }
+            users += chunk.users();
+            after = chunk.next();
+        }
+        log.info("Rebuilt order summaries for {} users in {} ms", users, System.currentTimeMillis() - started);
+    }
+
+    // next is the last user id covered, or null once everything after afterUserId was
+    private record RebuiltChunk(Long next, int users) {}
+
+    /*
+     * The chunk's summary rows are locked before the orders are read. An order placed meanwhile
+     * either committed before the read, and is counted, or is still waiting to increment its
+     * user's row, and does so on top of the rebuilt values. Rows are therefore rewritten in place
+     * rather than deleted and re-inserted, and only locked rows are ever deleted.
+     */
+    private RebuiltChunk rebuildChunk(Long afterUserId) {
+        Pageable chunk = PageRequest.of(0, REBUILD_CHUNK_SIZE);
+        List<UserOrderSummary> locked = summaryRepository.lockAfter(afterUserId, chunk);
+        List<Object[]> hot = shardedOrders.isPresent()
+                ? shardedOrders.get().summariseByUserAfter(afterUserId, REBUILD_CHUNK_SIZE)
+                : orderRepository.summariseByUserAfter(afterUserId, chunk);
+        List<Object[]> cold = archivedOrderRepository.summariseByUserAfter(afterUserId, chunk);
+
+        // A full chunk from any of the three may stop short of users the others have already
+        // returned, so only users up to the lowest of the full chunks' last ids are complete
+        long upTo = Long.MAX_VALUE;
+        if (locked.size() == REBUILD_CHUNK_SIZE) {
+            upTo = locked.get(locked.size() - 1).getUserId();
+        }
+        if (hot.size() == REBUILD_CHUNK_SIZE) {
+            upTo = Math.min(upTo, (Long) hot.get(hot.size() - 1)[0]);
+        }
+        if (cold.size() == REBUILD_CHUNK_SIZE) {
+            upTo = Math.min(upTo, (Long) cold.get(cold.size() - 1)[0]);
+        }
+
+        TreeMap<Long, UserOrderSummary> byUser = new TreeMap<>();
+        for (List<Object[]> rows : List.of(hot, cold)) {
+            for (Object[] row : rows) {
+                Long userId = (Long) row[0];
+                if (userId > upTo) {
+                    break;
+                }
+                UserOrderSummary summary = byUser.computeIfAbsent(userId,
+                        id -> UserOrderSummary.builder().userId(id).build());
+                summary.setOrderCount(summary.getOrderCount() + ((Number) row[1]).longValue());
+                summary.setLifetimeSpend(summary.getLifetimeSpend()
+                        + (row[2] == null ? 0.0 : ((Number) row[2]).doubleValue()));
+                summary.setLastOrderDate(latest(summary.getLastOrderDate(), (LocalDateTime) row[3]));
+                summary.setOpenOrderCount(summary.getOpenOrderCount()
+                        + (row[4] == null ? 0 : ((Number) row[4]).longValue()));
+            }
+        }
+
+        int users = 0;
+        for (UserOrderSummary row : locked) {
+            if (row.getUserId() > upTo) {
+                break;
+            }
+            UserOrderSummary rebuilt = byUser.remove(row.getUserId());
+            if (rebuilt == null) {
+                // every order of this user is gone
+                entityManager.remove(row);
+            } else {
+                row.setOrderCount(rebuilt.getOrderCount());
+                row.setLifetimeSpend(rebuilt.getLifetimeSpend());
+                row.setLastOrderDate(rebuilt.getLastOrderDate());
+                row.setOpenOrderCount(rebuilt.getOpenOrderCount());
+                users++;
+            }
+        }
+        // Users without a row. One that appeared since the lock belongs to a first order still
+        // in flight, which increments it itself; the next run settles anything it missed.
+        for (UserOrderSummary missing : byUser.values()) {
+            if (!summaryRepository.existsById(missing.getUserId())) {
+                entityManager.persist(missing);
+                users++;
+            }
+        }
+        return new RebuiltChunk(upTo == Long.MAX_VALUE ? null : upTo, users);
+    }
+
+    private static LocalDateTime latest(LocalDateTime a, LocalDateTime b) {
+        return a == null || (b != null && b.isAfter(a)) ? b : a;
+    }
+
+    private static boolean isOpen(String status) {
+        return status != null && OPEN_STATUSES.contains(status.toUpperCase());
+    }
+
+    private static double spendOf(String status, double total) {
+        return "CANCELLED".equalsIgnoreCase(status) ? 0.0 : total;
+    }
+}
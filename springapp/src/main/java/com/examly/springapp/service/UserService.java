@@ -1,35 +1,125 @@
 package com.examly.springapp.service;
 
+import com.examly.springapp.dto.CursorPage;
+import com.examly.springapp.dto.UserDirectoryEntry;
+import com.examly.springapp.dto.UserDirectoryQuery;
+import com.examly.springapp.model.Order;
 import com.examly.springapp.model.User;
+import com.examly.springapp.repository.OrderRepository;
 import com.examly.springapp.repository.UserRepository;
+import com.examly.springapp.utils.BatchLoader;
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.SmartInitializingSingleton;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
+@Slf4j
 @Service
-public class UserService {
+public class UserService implements SmartInitializingSingleton {
 
     @Autowired
     private UserRepository userRepository;
 
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private BatchLoaders batchLoaders;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private Optional<ShardedOrderStore> shardedOrders; // present when orders are sharded by user
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Value("${startup.load-data:true}")
+    private boolean loadData;
+
+    private BatchLoader<Long, User> userLoader;
+
+    // Users are returned with their orders and lines: one query for the users, one for the lines
+    @PostConstruct
+    void createLoader() {
+        userLoader = batchLoaders.create("users", this::loadUsers);
+    }
+
+    // The directory's keyset sorts need non-null names and creation dates on older rows too
+    @Override
+    public void afterSingletonsInstantiated() {
+        if (!loadData) {
+            return;
+        }
+        try {
+            Integer filled = transactionTemplate.execute(status -> userRepository.fillDirectoryKeys());
+            if (filled != null && filled > 0) {
+                log.info("Filled missing name or creation date of {} users", filled);
+            }
+        } catch (RuntimeException e) {
+            log.warn("Could not fill missing user names and creation dates: {}", e.getMessage());
+        }
+    }
+
+    private Map<Long, User> loadUsers(List<Long> ids) {
+        if (shardedOrders.isPresent()) {
+            return loadUsersWithShardedOrders(ids);
+        }
+        List<User> users = userRepository.findWithOrdersByIdIn(ids);
+        orderRepository.findWithItemsByUserIdIn(ids); // initialises the lines of the orders fetched above
+        return users.stream().collect(Collectors.toMap(User::getId, Function.identity()));
+    }
+
+    // The orders come from the users' shards; the users are detached first so the loaded list is never flushed
+    private Map<Long, User> loadUsersWithShardedOrders(List<Long> ids) {
+        Map<Long, User> users = new LinkedHashMap<>();
+        for (User user : userRepository.findAllById(ids)) {
+            entityManager.detach(user);
+            user.setOrders(new ArrayList<>());
+            users.put(user.getId(), user);
+        }
+        for (Order order : shardedOrders.get().findByUserIds(users.keySet())) {
+            User user = users.get(order.getUser().getId());
+            order.setUser(user);
+            user.getOrders().add(order);
+        }
+        return users;
+    }
+
     // Create
+    @Transactional
     public User saveUser(User user) {
         return userRepository.save(user);
     }
 
-    // Read all
-    public List<User> getAllUsers() {
-        return userRepository.findAll();
+    // Read all (keyset page of directory fields, no orders)
+    @Transactional(readOnly = true)
+    public CursorPage<UserDirectoryEntry> getUserDirectory(UserDirectoryQuery query) {
+        return userRepository.findDirectoryPage(query);
     }
 
-    // Read by id
+    // Read by id; outside a transaction coalesced with concurrent lookups, see BatchLoaders
     public Optional<User> getUserById(Long id) {
-        return userRepository.findById(id);
+        return Optional.ofNullable(userLoader.load(id));
     }
 
     // Update
+    @Transactional
     public User updateUser(Long id, User userDetails) {
         return userRepository.findById(id).map(user -> {
             user.setEmail(userDetails.getEmail());
@@ -40,6 +130,7 @@ public class UserService {
     }
 
     // Delete
+    @Transactional
     public void deleteUser(Long id) {
         userRepository.deleteById(id);
     }
@@ -0,0 +1,263 @@
+package com.examly.springapp.utils;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BooleanSupplier;
+import java.util.function.Function;
+
+/**
+ * Coalesces lookups by key. Concurrent loads of the same key share one in-flight future
+ * (single-flight), and distinct keys requested within {@code windowMs} of the first one are
+ * fetched together by one call of the batch function, i.e. one {@code WHERE id IN (...)} query.
+ * A batch is sent early once it holds {@code maxBatch} keys. Nothing is cached: a key leaves the
+ * in-flight map as soon as its batch returns, so the next load queries again.
+ * <p>
+ * Batches run on the given executor. Pending keys are grouped by the caller's
+ * {@link TrafficClass} and each batch runs under that class, so the per-class connection
+ * limits still apply to the query.
+ * <p>
+ * While {@code coalesce} is false (e.g. the caller is inside a transaction that must see its own
+ * writes) a load calls the batch function for its one key on the calling thread instead.
+ */
+public final class BatchLoader<K, V> {
+
+    // Batch sizes are counted in power-of-two buckets: 1, 2, 3-4, 5-8, ..., 513+
+    private static final int SIZE_BUCKETS = 11;
+
+    private final String name;
+    private final Function<List<K>, Map<K, V>> batchFunction;
+    private final long windowMs;
+    private final int maxBatch;
+    private final ScheduledExecutorService executor;
+    private final BooleanSupplier coalesce;
+
+    private final Map<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+    // one lane per traffic class plus one for callers outside a request; guarded by itself
+    private final Lane<K>[] lanes;
+
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder shared = new LongAdder();
+    private final LongAdder direct = new LongAdder();
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder keysQueried = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final AtomicLong largestBatch = new AtomicLong();
+    private final AtomicLongArray batchSizes = new AtomicLongArray(SIZE_BUCKETS);
+
+    private static final class Lane<K> {
+        List<K> keys = new ArrayList<>();
+        long epoch; // bumped whenever the lane is taken, so a stale window timer does nothing
+    }
+
+    @SuppressWarnings("unchecked")
+    public BatchLoader(String name, Function<List<K>, Map<K, V>> batchFunction, long windowMs, int maxBatch,
+                       ScheduledExecutorService executor, BooleanSupplier coalesce) {
+        if (windowMs < 0 || maxBatch < 1) {
+            throw new IllegalArgumentException("Batch window must not be negative and max batch must be positive");
+        }
+        this.name = name;
+        this.batchFunction = batchFunction;
+        this.windowMs = windowMs;
+        this.maxBatch = maxBatch;
+        this.executor = executor;
+        this.coalesce = coalesce;
+        this.lanes = new Lane[TrafficClass.values().length + 1];
+        for (int i = 0; i < lanes.length; i++) {
+            lanes[i] = new Lane<>();
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /** Value for the key, or null when the batch function returned none; blocks until its batch ran. */
+    public V load(K key) {
+        if (!coalesce.getAsBoolean()) {
+            direct.increment();
+            return batchFunction.apply(List.of(key)).get(key);
+        }
+        return await(loadAsync(key));
+    }
+
+    private CompletableFuture<V> loadAsync(K key) {
+        requests.increment();
+        CompletableFuture<V> future = inFlight.get(key);
+        if (future == null) {
+            CompletableFuture<V> created = new CompletableFuture<>();
+            future = inFlight.putIfAbsent(key, created);
+            if (future == null) {
+                enqueue(key);
+                return created;
+            }
+        }
+        shared.increment();
+        return future;
+    }
+
+    /** Values of all keys found; the keys may land in several batches. */
+    public Map<K, V> loadAll(Collection<K> keys) {
+        if (!coalesce.getAsBoolean()) {
+            direct.increment();
+            return batchFunction.apply(List.copyOf(new LinkedHashSet<>(keys)));
+        }
+        Map<K, CompletableFuture<V>> futures = new LinkedHashMap<>();
+        for (K key : keys) {
+            futures.computeIfAbsent(key, this::loadAsync);
+        }
+        Map<K, V> values = new LinkedHashMap<>();
+        futures.forEach((key, future) -> {
+            V value = await(future);
+            if (value != null) {
+                values.put(key, value);
+            }
+        });
+        return values;
+    }
+
+    private void enqueue(K key) {
+        TrafficClass trafficClass = TrafficClass.current();
+        Lane<K> lane = lanes[trafficClass == null ? lanes.length - 1 : trafficClass.ordinal()];
+        List<K> full = null;
+        long epoch;
+        boolean first;
+        synchronized (lane) {
+            lane.keys.add(key);
+            first = lane.keys.size() == 1;
+            if (lane.keys.size() >= maxBatch || windowMs == 0) {
+                full = take(lane);
+            }
+            epoch = lane.epoch;
+        }
+        if (full != null) {
+            List<K> batch = full;
+            submit(() -> run(trafficClass, batch));
+        } else if (first) {
+            schedule(() -> flush(trafficClass, lane, epoch));
+        }
+    }
+
+    private void flush(TrafficClass trafficClass, Lane<K> lane, long epoch) {
+        List<K> batch;
+        synchronized (lane) {
+            if (lane.epoch != epoch || lane.keys.isEmpty()) {
+                return;
+            }
+            batch = take(lane);
+        }
+        run(trafficClass, batch);
+    }
+
+    private List<K> take(Lane<K> lane) {
+        List<K> batch = lane.keys;
+        lane.keys = new ArrayList<>();
+        lane.epoch++;
+        return batch;
+    }
+
+    private void run(TrafficClass trafficClass, List<K> keys) {
+        recordBatch(keys.size());
+        Map<K, V> values;
+        TrafficClass previous = TrafficClass.current();
+        TrafficClass.set(trafficClass);
+        try {
+            values = batchFunction.apply(Collections.unmodifiableList(keys));
+        } catch (RuntimeException | Error e) {
+            failures.increment();
+            for (K key : keys) {
+                inFlight.remove(key).completeExceptionally(e);
+            }
+            return;
+        } finally {
+            restore(previous);
+        }
+        for (K key : keys) {
+            inFlight.remove(key).complete(values.get(key));
+        }
+    }
+
+    private void submit(Runnable task) {
+        try {
+            executor.execute(task);
+        } catch (RuntimeException e) {
+            // executor shut down or saturated: run on the caller rather than strand the waiters
+            task.run();
+        }
+    }
+
+    private void schedule(Runnable task) {
+        try {
+            executor.schedule(task, windowMs, TimeUnit.MILLISECONDS);
+        } catch (RuntimeException e) {
+            task.run();
+        }
+    }
+
+    private static void restore(TrafficClass previous) {
+        if (previous == null) {
+            TrafficClass.clear();
+        } else {
+            TrafficClass.set(previous);
+        }
+    }
+
+    private static <V> V await(CompletableFuture<V> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            if (e.getCause() instanceof Error cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    private void recordBatch(int size) {
+        batches.increment();
+        keysQueried.add(size);
+        largestBatch.accumulateAndGet(size, Math::max);
+        int bucket = size <= 1 ? 0 : 64 - Long.numberOfLeadingZeros(size - 1);
+        batchSizes.incrementAndGet(Math.min(bucket, SIZE_BUCKETS - 1));
+    }
+
+    /**
+     * Counters since startup. coalescingRatio is coalesced loads per query (1.0 = none merged);
+     * batchSizes maps the upper bound of each power-of-two bucket to its number of batches.
+     */
+    public Map<String, Object> stats() {
+        long loads = requests.sum();
+        long queries = batches.sum();
+        long keys = keysQueried.sum();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("loads", loads);
+        stats.put("sharedInFlight", shared.sum());
+        stats.put("uncoalesced", direct.sum());
+        stats.put("queries", queries);
+        stats.put("keysQueried", keys);
+        stats.put("failedQueries", failures.sum());
+        stats.put("coalescingRatio", queries == 0 ? 0.0 : (double) loads / queries);
+        stats.put("averageBatchSize", queries == 0 ? 0.0 : (double) keys / queries);
+        stats.put("largestBatch", largestBatch.get());
+        Map<String, Long> sizes = new LinkedHashMap<>();
+        for (int i = 0; i < SIZE_BUCKETS; i++) {
+            long count = batchSizes.get(i);
+            if (count > 0) {
+                sizes.put(i == SIZE_BUCKETS - 1 ? (1 << (i - 1)) + 1 + "+" : String.valueOf(1 << i), count);
+            }
+        }
+        stats.put("batchSizes", sizes);
+        stats.put("windowMs", windowMs);
+        stats.put("maxBatch", maxBatch);
+        return stats;
+    }
+}
@@ -0,0 +1,61 @@
+package com.examly.springapp.utils;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+// Admits each request into its traffic class's compartment or sheds it with 503.
+// Added to the security filter chain by SecurityConfig, after rate limiting.
+public class BulkheadFilter extends OncePerRequestFilter {
+
+    private final Bulkheads bulkheads;
+
+    public BulkheadFilter(Bulkheads bulkheads) {
+        this.bulkheads = bulkheads;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request,
+                                    HttpServletResponse response,
+                                    FilterChain filterChain)
+            throws ServletException, IOException {
+
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        TrafficClass trafficClass = bulkheads.classify(request.getMethod(), path);
+        if (trafficClass == null) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        Bulkheads.Compartment compartment = bulkheads.compartment(trafficClass);
+        boolean admitted;
+        try {
+            admitted = compartment.enter();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            admitted = false;
+        }
+        if (!admitted) {
+            response.setHeader("Retry-After", "1");
+            response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+            response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+            response.getWriter().write("{\"message\":\"Server busy (" + trafficClass.name().toLowerCase()
+                    + " capacity), retry shortly\"}");
+            return;
+        }
+
+        TrafficClass.set(trafficClass);
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            TrafficClass.clear();
+            compartment.exit();
+        }
+    }
+}
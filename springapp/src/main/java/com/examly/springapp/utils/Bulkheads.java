@@ -0,0 +1,143 @@
+package com.examly.springapp.utils;
+
+import org.springframework.core.env.Environment;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.server.PathContainer;
+import org.springframework.stereotype.Component;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
+
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Separate concurrency limits per {@link TrafficClass}: each class has its own in-flight limit,
+ * a bounded number of requests allowed to wait for a slot, and a maximum wait. Anything beyond
+ * that is shed, so a storm of admin calls queues and fails on its own instead of taking the
+ * threads and connections that checkout needs. Connection limits per class are enforced by
+ * PartitionedDataSource using the same class.
+ */
+@Component
+public class Bulkheads {
+
+    private record Route(HttpMethod method, PathPattern pattern, TrafficClass trafficClass) {}
+
+    private static final PathPatternParser PARSER = new PathPatternParser();
+    private static final List<Route> ROUTES = List.of(
+            route(HttpMethod.POST, "/api/orders", TrafficClass.CHECKOUT),
+            route(HttpMethod.POST, "/api/orders/quote", TrafficClass.CHECKOUT),
+            route(HttpMethod.GET, "/api/orders", TrafficClass.ADMIN),
+            route(HttpMethod.GET, "/api/orders/placed", TrafficClass.ADMIN),
+            route(HttpMethod.GET, "/api/orders/search", TrafficClass.ADMIN),
+            route(HttpMethod.GET, "/api/users/**", TrafficClass.ADMIN),
+            route(HttpMethod.POST, "/api/users/summaries/rebuild", TrafficClass.ADMIN),
+            route(HttpMethod.PATCH, "/api/products", TrafficClass.ADMIN),
+            route(HttpMethod.POST, "/api/products/*/image", TrafficClass.ADMIN),
+            route(HttpMethod.POST, "/api/products/import", TrafficClass.ADMIN),
+            route(HttpMethod.GET, "/api/metrics/**", TrafficClass.ADMIN),
+            route(HttpMethod.POST, "/api/analytics/**", TrafficClass.ADMIN)
+    );
+
+    // Long-lived streams hold no DB work and would pin a slot for their whole lifetime;
+    // image files come straight from disk and never touch the database either
+    private static final List<PathPattern> UNLIMITED = List.of(
+            PARSER.parse("/api/live/**"),
+            PARSER.parse("/api/images/**"));
+
+    public static final class Compartment {
+        private final Semaphore slots;
+        private final int maxConcurrent;
+        private final int maxQueued;
+        private final long maxWaitMs;
+        private final AtomicInteger queued = new AtomicInteger();
+        private final AtomicLong rejected = new AtomicLong();
+
+        Compartment(int maxConcurrent, int maxQueued, long maxWaitMs) {
+            this.slots = new Semaphore(maxConcurrent, true);
+            this.maxConcurrent = maxConcurrent;
+            this.maxQueued = maxQueued;
+            this.maxWaitMs = maxWaitMs;
+        }
+
+        // false = shed: the queue is full or no slot freed up in time
+        boolean enter() throws InterruptedException {
+            if (slots.tryAcquire()) {
+                return true;
+            }
+            if (queued.incrementAndGet() > maxQueued) {
+                queued.decrementAndGet();
+                rejected.incrementAndGet();
+                return false;
+            }
+            try {
+                if (slots.tryAcquire(maxWaitMs, TimeUnit.MILLISECONDS)) {
+                    return true;
+                }
+                rejected.incrementAndGet();
+                return false;
+            } finally {
+                queued.decrementAndGet();
+            }
+        }
+
+        void exit() {
+            slots.release();
+        }
+
+        public Map<String, Object> stats() {
+            Map<String, Object> stats = new LinkedHashMap<>();
+            stats.put("active", maxConcurrent - slots.availablePermits());
+            stats.put("maxConcurrent", maxConcurrent);
+            stats.put("queued", queued.get());
+            stats.put("maxQueued", maxQueued);
+            stats.put("rejected", rejected.get());
+            return stats;
+        }
+    }
+
+    private final Map<TrafficClass, Compartment> compartments = new EnumMap<>(TrafficClass.class);
+
+    public Bulkheads(Environment env) {
+        for (TrafficClass trafficClass : TrafficClass.values()) {
+            String prefix = "bulkhead." + trafficClass.name().toLowerCase() + ".";
+            compartments.put(trafficClass, new Compartment(
+                    env.getProperty(prefix + "max-concurrent", Integer.class, trafficClass == TrafficClass.ADMIN ? 8 : 50),
+                    env.getProperty(prefix + "max-queued", Integer.class, 20),
+                    env.getProperty(prefix + "max-wait-ms", Long.class, 1000L)));
+        }
+    }
+
+    // null = not limited
+    public TrafficClass classify(String method, String path) {
+        PathContainer container = PathContainer.parsePath(path);
+        if (UNLIMITED.stream().anyMatch(pattern -> pattern.matches(container))) {
+            return null;
+        }
+        for (Route route : ROUTES) {
+            if (route.method().matches(method) && route.pattern().matches(container)) {
+                return route.trafficClass();
+            }
+        }
+        return TrafficClass.DEFAULT;
+    }
+
+    public Compartment compartment(TrafficClass trafficClass) {
+        return compartments.get(trafficClass);
+    }
+
+    public Map<TrafficClass, Map<String, Object>> stats() {
+        Map<TrafficClass, Map<String, Object>> stats = new EnumMap<>(TrafficClass.class);
+        compartments.forEach((trafficClass, compartment) -> stats.put(trafficClass, compartment.stats()));
+        return stats;
+    }
+
+    private static Route route(HttpMethod method, String pattern, TrafficClass trafficClass) {
+        return new Route(method, PARSER.parse(pattern), trafficClass);
+    }
+}
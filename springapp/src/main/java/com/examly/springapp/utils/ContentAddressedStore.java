@@ -0,0 +1,77 @@
+package com.examly.springapp.utils;
+
+import java.io.IOException;
+import java.nio.file.*;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.regex.Pattern;
+
+/**
+ * Immutable files named after the SHA-256 of their content (or of the content they were derived
+ * from), fanned out over 256 directories by the first two hex digits.
+ * <p>
+ * A file is written to a temporary name in its final directory and renamed into place, so
+ * readers never see a partial file; writing a name that already exists is a no-op, which makes
+ * uploads of the same bytes and concurrent writers of the same derived file harmless.
+ */
+public final class ContentAddressedStore {
+
+    // <64 hex digits>[-<variant>].<ext>
+    private static final Pattern NAME = Pattern.compile("[0-9a-f]{64}(-[0-9a-z]{1,16})?\\.[0-9a-z]{1,8}");
+
+    private final Path root;
+
+    public ContentAddressedStore(Path root) throws IOException {
+        this.root = Files.createDirectories(root);
+    }
+
+    public static String sha256(byte[] content) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(content));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    public static boolean isValidName(String name) {
+        return name != null && NAME.matcher(name).matches();
+    }
+
+    // Stores content under name unless it is already there; returns the file
+    public Path put(String name, byte[] content) throws IOException {
+        Path target = resolve(name);
+        if (Files.exists(target)) {
+            return target;
+        }
+        Files.createDirectories(target.getParent());
+        Path temp = Files.createTempFile(target.getParent(), ".incoming-", ".tmp");
+        try {
+            Files.write(temp, content);
+            try {
+                Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+            } catch (FileAlreadyExistsException e) {
+                // written by someone else meanwhile; same name, same bytes
+            }
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+        return target;
+    }
+
+    // Path of a (possibly missing) file; the name must come from isValidName
+    public Path resolve(String name) {
+        if (!isValidName(name)) {
+            throw new IllegalArgumentException("Invalid content name: " + name);
+        }
+        return root.resolve(name.substring(0, 2)).resolve(name);
+    }
+
+    public boolean exists(String name) {
+        return Files.isRegularFile(resolve(name));
+    }
+
+    public Path getRoot() {
+        return root;
+    }
+}
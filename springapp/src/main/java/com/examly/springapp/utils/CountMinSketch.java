@@ -0,0 +1,79 @@
+package com.examly.springapp.utils;
+
+import java.util.Arrays;
+
+/**
+ * Count-Min sketch over long keys: fixed memory (depth x width counters), O(depth) updates.
+ * <p>
+ * Estimates never undercount as long as no key's true count goes below zero, and overcount by at
+ * most {@link #epsilon()} x total with probability {@link #confidence()}.
+ */
+public class CountMinSketch {
+
+    private static final long[] SEEDS = {
+            0x9E3779B97F4A7C15L, 0xC2B2AE3D27D4EB4FL, 0x165667B19E3779F9L, 0xD6E8FEB86659FD93L,
+            0xFF51AFD7ED558CCDL, 0xC4CEB9FE1A85EC53L, 0x94D049BB133111EBL, 0xBF58476D1CE4E5B9L
+    };
+
+    private final int depth;
+    private final int mask;
+    private final long[][] counts;
+
+    // width is rounded up to a power of two; depth is at most 8
+    public CountMinSketch(int width, int depth) {
+        if (depth < 1 || depth > SEEDS.length) {
+            throw new IllegalArgumentException("Depth must be between 1 and " + SEEDS.length);
+        }
+        int size = Integer.highestOneBit(Math.max(2, width - 1)) << 1;
+        this.depth = depth;
+        this.mask = size - 1;
+        this.counts = new long[depth][size];
+    }
+
+    public void add(long key, long delta) {
+        for (int row = 0; row < depth; row++) {
+            counts[row][index(key, row)] += delta;
+        }
+    }
+
+    public long estimate(long key) {
+        long min = Long.MAX_VALUE;
+        for (int row = 0; row < depth; row++) {
+            min = Math.min(min, counts[row][index(key, row)]);
+        }
+        return Math.max(0, min);
+    }
+
+    // Adds (sign = 1) or removes (sign = -1) every counter of a sketch with the same shape
+    public void merge(CountMinSketch other, int sign) {
+        for (int row = 0; row < depth; row++) {
+            long[] target = counts[row];
+            long[] source = other.counts[row];
+            for (int i = 0; i < target.length; i++) {
+                target[i] += sign * source[i];
+            }
+        }
+    }
+
+    public void clear() {
+        for (long[] row : counts) {
+            Arrays.fill(row, 0);
+        }
+    }
+
+    public double epsilon() {
+        return Math.E / (mask + 1);
+    }
+
+    public double confidence() {
+        return 1 - Math.exp(-depth);
+    }
+
+    private int index(long key, int row) {
+        long h = (key ^ SEEDS[row]) * 0xBF58476D1CE4E5B9L;
+        h ^= h >>> 31;
+        h *= 0x94D049BB133111EBL;
+        h ^= h >>> 29;
+        return (int) h & mask;
+    }
+}
@@ -0,0 +1,206 @@
+package com.examly.springapp.utils;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Binary min-heap of long keys with double priorities, plus a key -> slot index so a key's
+ * priority can be changed or the key removed in O(log n). Ties are broken by key, so the order
+ * is deterministic. Not thread-safe.
+ */
+public final class IndexedMinHeap {
+
+    private long[] keys;
+    private double[] priorities;
+    private int size;
+    private final Map<Long, Integer> slots = new HashMap<>();
+
+    public IndexedMinHeap() {
+        this(16);
+    }
+
+    public IndexedMinHeap(int initialCapacity) {
+        int capacity = Math.max(1, initialCapacity);
+        keys = new long[capacity];
+        priorities = new double[capacity];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean contains(long key) {
+        return slots.containsKey(key);
+    }
+
+    // Priority of key, or NaN if absent
+    public double priority(long key) {
+        Integer slot = slots.get(key);
+        return slot == null ? Double.NaN : priorities[slot];
+    }
+
+    // Inserts key or moves it to its new priority (NaN is not a valid priority)
+    public void put(long key, double priority) {
+        if (Double.isNaN(priority)) {
+            throw new IllegalArgumentException("Priority must be a number");
+        }
+        Integer slot = slots.get(key);
+        if (slot == null) {
+            if (size == keys.length) {
+                keys = Arrays.copyOf(keys, size * 2);
+                priorities = Arrays.copyOf(priorities, size * 2);
+            }
+            keys[size] = key;
+            priorities[size] = priority;
+            slots.put(key, size);
+            siftUp(size++);
+            return;
+        }
+        double previous = priorities[slot];
+        priorities[slot] = priority;
+        if (priority < previous) {
+            siftUp(slot);
+        } else if (priority > previous) {
+            siftDown(slot);
+        }
+    }
+
+    public boolean remove(long key) {
+        Integer slot = slots.remove(key);
+        if (slot == null) {
+            return false;
+        }
+        int last = --size;
+        if (slot != last) {
+            move(last, slot);
+            if (!siftUp(slot)) {
+                siftDown(slot);
+            }
+        }
+        return true;
+    }
+
+    public void clear() {
+        size = 0;
+        slots.clear();
+    }
+
+    /**
+     * Up to limit keys with priority <= maxPriority, smallest first, without touching the heap:
+     * a second small heap of frontier slots is expanded one child pair at a time, so this costs
+     * O(limit log limit) whatever the size of the heap.
+     */
+    public long[] smallest(int limit, double maxPriority) {
+        int max = Math.min(limit, size);
+        long[] result = new long[max];
+        int found = 0;
+        int[] frontier = new int[2 * max + 1];
+        int frontierSize = 0;
+        if (size > 0) {
+            frontier[frontierSize++] = 0;
+        }
+        while (found < max && frontierSize > 0) {
+            int slot = frontier[0];
+            frontier[0] = frontier[--frontierSize];
+            siftDownFrontier(frontier, frontierSize);
+            if (priorities[slot] > maxPriority) {
+                break;
+            }
+            result[found++] = keys[slot];
+            for (int child = 2 * slot + 1; child <= 2 * slot + 2 && child < size; child++) {
+                frontier[frontierSize] = child;
+                siftUpFrontier(frontier, frontierSize++);
+            }
+        }
+        return found == max ? result : Arrays.copyOf(result, found);
+    }
+
+    // ---- Heap maintenance ----
+
+    private boolean less(int a, int b) {
+        return priorities[a] < priorities[b] || (priorities[a] == priorities[b] && keys[a] < keys[b]);
+    }
+
+    private boolean siftUp(int slot) {
+        int start = slot;
+        while (slot > 0) {
+            int parent = (slot - 1) >>> 1;
+            if (!less(slot, parent)) {
+                break;
+            }
+            swap(slot, parent);
+            slot = parent;
+        }
+        return slot != start;
+    }
+
+    private void siftDown(int slot) {
+        while (true) {
+            int smallest = slot;
+            int left = 2 * slot + 1;
+            if (left < size && less(left, smallest)) {
+                smallest = left;
+            }
+            if (left + 1 < size && less(left + 1, smallest)) {
+                smallest = left + 1;
+            }
+            if (smallest == slot) {
+                return;
+            }
+            swap(slot, smallest);
+            slot = smallest;
+        }
+    }
+
+    private void swap(int a, int b) {
+        long key = keys[a];
+        double priority = priorities[a];
+        keys[a] = keys[b];
+        priorities[a] = priorities[b];
+        keys[b] = key;
+        priorities[b] = priority;
+        slots.put(keys[a], a);
+        slots.put(keys[b], b);
+    }
+
+    private void move(int from, int to) {
+        keys[to] = keys[from];
+        priorities[to] = priorities[from];
+        slots.put(keys[to], to);
+    }
+
+    private void siftUpFrontier(int[] frontier, int i) {
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (!less(frontier[i], frontier[parent])) {
+                return;
+            }
+            int slot = frontier[i];
+            frontier[i] = frontier[parent];
+            frontier[parent] = slot;
+            i = parent;
+        }
+    }
+
+    private void siftDownFrontier(int[] frontier, int frontierSize) {
+        int i = 0;
+        while (true) {
+            int smallest = i;
+            int left = 2 * i + 1;
+            if (left < frontierSize && less(frontier[left], frontier[smallest])) {
+                smallest = left;
+            }
+            if (left + 1 < frontierSize && less(frontier[left + 1], frontier[smallest])) {
+                smallest = left + 1;
+            }
+            if (smallest == i) {
+                return;
+            }
+            int slot = frontier[i];
+            frontier[i] = frontier[smallest];
+            frontier[smallest] = slot;
+            i = smallest;
+        }
+    }
+}
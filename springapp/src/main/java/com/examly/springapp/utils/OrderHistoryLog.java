@@ -0,0 +1,338 @@
+package com.examly.springapp.utils;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only log of order status transitions in memory-mapped segment files.
+ * <p>
+ * Records are fixed-size (96 bytes) so a record's address is just its segment and slot:
+ * <pre>
+ *  0  long  orderId
+ *  8  long  eventId        (outbox id; used to drop redelivered events)
+ * 16  long  timestamp      (epoch millis)
+ * 24  byte  from status    (OrderStatusCodes)
+ * 25  byte  to status
+ * 26  byte  flags          (1 = tombstone: the order was deleted)
+ * 27  byte  actor length
+ * 28  int   CRC32 of the other 92 bytes
+ * 32  64 bytes actor (UTF-8, truncated)
+ * </pre>
+ * The last segment takes appends; when it is full it is forced to disk and a new one is started.
+ * {@link #commit()} makes everything appended so far durable according to the fsync policy, so a
+ * caller appending a group of records pays for one fsync per group. On open, segments are scanned
+ * to rebuild the per-order index; a torn record (bad CRC) ends the scan of the last segment.
+ * {@link #compact} rewrites sealed segments without the status records of deleted orders and
+ * records older than the retention cutoff. Tombstones are always kept, so a deleted order still
+ * reads as deleted rather than as never having existed.
+ */
+public class OrderHistoryLog implements Closeable {
+
+    public static final int RECORD_SIZE = 96;
+    private static final int ACTOR_BYTES = 64;
+    private static final byte TOMBSTONE = 1;
+
+    public enum FsyncPolicy {
+        ALWAYS,     // commit() forces the active segment
+        INTERVAL,   // the owner calls sync() on a timer
+        NONE        // left to the OS
+    }
+
+    public record Entry(long orderId, long eventId, long timestampMillis, byte fromStatus, byte toStatus,
+                        boolean tombstone, String actor) {
+    }
+
+    private static final class Segment {
+        final long base;
+        final Path path;
+        FileChannel channel;
+        MappedByteBuffer buffer;
+        int capacity;
+        int count;
+
+        Segment(long base, Path path) {
+            this.base = base;
+            this.path = path;
+        }
+    }
+
+    private final Path directory;
+    private final int segmentRecords;
+    private final FsyncPolicy fsyncPolicy;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final TreeMap<Long, Segment> segments = new TreeMap<>();
+    private final Map<Long, long[]> index = new HashMap<>();     // orderId -> record addresses
+    private final Set<Long> tombstoned = new HashSet<>();
+    private final ByteBuffer scratch = ByteBuffer.allocate(RECORD_SIZE);
+    private long lastEventId;
+    private boolean dirty;
+
+    public OrderHistoryLog(Path directory, int segmentRecords, FsyncPolicy fsyncPolicy) throws IOException {
+        this.directory = directory;
+        this.segmentRecords = segmentRecords;
+        this.fsyncPolicy = fsyncPolicy;
+        Files.createDirectories(directory);
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path path : files.filter(p -> p.getFileName().toString().matches("segment-\\d{20}\\.log")).sorted().toList()) {
+                long base = Long.parseLong(path.getFileName().toString().substring(8, 28));
+                Segment segment = new Segment(base, path);
+                map(segment, Files.size(path) / RECORD_SIZE);
+                segments.put(base, segment);
+            }
+        }
+        rebuildIndex();
+        if (segments.isEmpty()) {
+            segments.put(0L, newSegment(0L));
+        }
+    }
+
+    // false when the event was already recorded (redelivery)
+    public boolean append(Entry entry) throws IOException {
+        lock.writeLock().lock();
+        try {
+            if (entry.eventId() > 0 && entry.eventId() <= lastEventId) {
+                return false;
+            }
+            Segment active = segments.lastEntry().getValue();
+            if (active.count == active.capacity) {
+                active.buffer.force();
+                active = newSegment(active.base + active.capacity);
+                segments.put(active.base, active);
+            }
+            encode(entry);
+            active.buffer.put(active.count * RECORD_SIZE, scratch.array());
+            addToIndex(entry, active.base + active.count);
+            active.count++;
+            lastEventId = Math.max(lastEventId, entry.eventId());
+            dirty = true;
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // End of a group of appends
+    public void commit() {
+        if (fsyncPolicy == FsyncPolicy.ALWAYS) {
+            sync();
+        }
+    }
+
+    public void sync() {
+        lock.writeLock().lock();
+        try {
+            if (dirty) {
+                segments.lastEntry().getValue().buffer.force();
+                dirty = false;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public List<Entry> history(long orderId) {
+        lock.readLock().lock();
+        try {
+            long[] addresses = index.get(orderId);
+            if (addresses == null) {
+                return List.of();
+            }
+            List<Entry> entries = new ArrayList<>(addresses.length);
+            byte[] record = new byte[RECORD_SIZE];
+            for (long address : addresses) {
+                Segment segment = segments.floorEntry(address).getValue();
+                segment.buffer.get((int) (address - segment.base) * RECORD_SIZE, record);
+                entries.add(decode(ByteBuffer.wrap(record)));
+            }
+            return entries;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public long getLastEventId() {
+        lock.readLock().lock();
+        try {
+            return lastEventId;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int getSegmentCount() {
+        lock.readLock().lock();
+        try {
+            return segments.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Rewrites every sealed segment that holds status records of deleted orders or records older
+     * than the cutoff; tombstones and the active segment are never touched. Returns the number of
+     * records dropped.
+     */
+    public int compact(long retainAfterMillis) throws IOException {
+        lock.writeLock().lock();
+        try {
+            int dropped = 0;
+            Segment active = segments.lastEntry().getValue();
+            Predicate<Entry> drop = entry -> !entry.tombstone()
+                    && (tombstoned.contains(entry.orderId()) || entry.timestampMillis() < retainAfterMillis);
+            for (Segment segment : new ArrayList<>(segments.headMap(active.base).values())) {
+                List<byte[]> survivors = new ArrayList<>(segment.count);
+                for (int slot = 0; slot < segment.count; slot++) {
+                    byte[] record = new byte[RECORD_SIZE];
+                    segment.buffer.get(slot * RECORD_SIZE, record);
+                    if (!drop.test(decode(ByteBuffer.wrap(record)))) {
+                        survivors.add(record);
+                    }
+                }
+                if (survivors.size() == segment.count) {
+                    continue;
+                }
+                dropped += segment.count - survivors.size();
+                segment.channel.close();
+                if (survivors.isEmpty()) {
+                    Files.delete(segment.path);
+                    segments.remove(segment.base);
+                    continue;
+                }
+                Path compacted = segment.path.resolveSibling(segment.path.getFileName() + ".compact");
+                try (FileChannel out = FileChannel.open(compacted, StandardOpenOption.CREATE,
+                        StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                    for (byte[] record : survivors) {
+                        out.write(ByteBuffer.wrap(record));
+                    }
+                    out.force(true);
+                }
+                Files.move(compacted, segment.path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                map(segment, survivors.size());
+            }
+            if (dropped > 0) {
+                rebuildIndex();
+            }
+            return dropped;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        lock.writeLock().lock();
+        try {
+            for (Segment segment : segments.values()) {
+                segment.buffer.force();
+                segment.channel.close();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // ---- Internals (callers hold the write lock or are the constructor) ----
+
+    private Segment newSegment(long base) throws IOException {
+        Segment segment = new Segment(base, directory.resolve(String.format("segment-%020d.log", base)));
+        map(segment, segmentRecords);
+        return segment;
+    }
+
+    // Maps capacity records (growing a new file to that size) and counts the valid ones
+    private void map(Segment segment, long capacity) throws IOException {
+        segment.channel = FileChannel.open(segment.path, StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        segment.capacity = (int) capacity;
+        segment.buffer = segment.channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity * RECORD_SIZE);
+        segment.count = 0;
+        byte[] record = new byte[RECORD_SIZE];
+        while (segment.count < segment.capacity) {
+            segment.buffer.get(segment.count * RECORD_SIZE, record);
+            if (isBlank(record) || !hasValidChecksum(record)) {
+                break;
+            }
+            segment.count++;
+        }
+    }
+
+    private void rebuildIndex() {
+        index.clear();
+        tombstoned.clear();
+        byte[] record = new byte[RECORD_SIZE];
+        for (Segment segment : segments.values()) {
+            for (int slot = 0; slot < segment.count; slot++) {
+                segment.buffer.get(slot * RECORD_SIZE, record);
+                Entry entry = decode(ByteBuffer.wrap(record));
+                addToIndex(entry, segment.base + slot);
+                lastEventId = Math.max(lastEventId, entry.eventId());
+            }
+        }
+    }
+
+    private void addToIndex(Entry entry, long address) {
+        long[] addresses = index.get(entry.orderId());
+        long[] grown = addresses == null ? new long[1] : Arrays.copyOf(addresses, addresses.length + 1);
+        grown[grown.length - 1] = address;
+        index.put(entry.orderId(), grown);
+        if (entry.tombstone()) {
+            tombstoned.add(entry.orderId());
+        }
+    }
+
+    private void encode(Entry entry) {
+        byte[] actor = entry.actor() == null ? new byte[0] : entry.actor().getBytes(StandardCharsets.UTF_8);
+        int actorLength = Math.min(actor.length, ACTOR_BYTES);
+        Arrays.fill(scratch.array(), (byte) 0);
+        scratch.clear();
+        scratch.putLong(entry.orderId())
+                .putLong(entry.eventId())
+                .putLong(entry.timestampMillis())
+                .put(entry.fromStatus())
+                .put(entry.toStatus())
+                .put(entry.tombstone() ? TOMBSTONE : 0)
+                .put((byte) actorLength)
+                .putInt(0)
+                .put(actor, 0, actorLength);
+        scratch.putInt(28, checksum(scratch.array()));
+    }
+
+    private static Entry decode(ByteBuffer record) {
+        int actorLength = Math.min(record.get(27) & 0xFF, ACTOR_BYTES);
+        return new Entry(record.getLong(0), record.getLong(8), record.getLong(16), record.get(24), record.get(25),
+                record.get(26) == TOMBSTONE,
+                new String(record.array(), 32, actorLength, StandardCharsets.UTF_8));
+    }
+
+    private static boolean isBlank(byte[] record) {
+        for (byte b : record) {
+            if (b != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean hasValidChecksum(byte[] record) {
+        return ByteBuffer.wrap(record).getInt(28) == checksum(record);
+    }
+
+    private static int checksum(byte[] record) {
+        CRC32 crc = new CRC32();
+        crc.update(record, 0, 28);
+        crc.update(record, 32, RECORD_SIZE - 32);
+        return (int) crc.getValue();
+    }
+}
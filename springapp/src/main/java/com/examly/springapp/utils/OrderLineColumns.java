@@ -0,0 +1,517 @@
+package com.examly.springapp.utils;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiConsumer;
+import java.util.stream.IntStream;
+
+/**
+ * In-memory column store of order lines for ad-hoc group-by queries.
+ * <p>
+ * Lines live in fixed-size chunks of primitive arrays (order id, epoch day, status code,
+ * category / product / user codes, quantity, unit price in cents). Categories, products and users
+ * are dictionary-encoded to dense ints, so every group-by key is a small mixed-radix number.
+ * A query scans chunks on all cores, a chunk at a time: one tight loop builds the selection
+ * vector from the filters, one loop per dimension computes the group keys, one loop accumulates.
+ * <p>
+ * All lines of an order are appended together and never span two chunks. There is a single
+ * writer at a time (methods are synchronized); readers take a snapshot of the chunk sizes and
+ * only look at rows published before it, so queries never block appends.
+ */
+public class OrderLineColumns {
+
+    public static final int CHUNK_SIZE = 1 << 16;
+    public static final int BYTES_PER_LINE = 8 + 4 + 1 + 4 + 4 + 4 + 4 + 4;
+
+    // Groups up to this many use flat arrays instead of a hash map
+    private static final int DENSE_LIMIT = 1 << 18;
+    private static final int STATUS_CODES = 8;
+
+    public enum Dimension { STATUS, CATEGORY, PRODUCT, USER, DAY, WEEK, MONTH }
+
+    public record Line(String category, long productId, int quantity, int unitPriceCents) {}
+
+    // Null fields do not filter; from is inclusive, to exclusive
+    public record Filter(Set<String> statuses, Set<String> categories, Long productId, Long userId,
+                         LocalDate from, LocalDate to) {}
+
+    public record Group(List<Object> keys, long lines, long orders, long units, long revenueCents) {}
+
+    public record Result(List<Group> groups, long totalGroups, long scannedLines, long matchedLines) {}
+
+    private static final class Chunk {
+        final long[] orderId = new long[CHUNK_SIZE];
+        final int[] epochDay = new int[CHUNK_SIZE];
+        final byte[] status = new byte[CHUNK_SIZE];
+        final int[] category = new int[CHUNK_SIZE];
+        final int[] product = new int[CHUNK_SIZE];
+        final int[] user = new int[CHUNK_SIZE];
+        final int[] quantity = new int[CHUNK_SIZE];
+        final int[] priceCents = new int[CHUNK_SIZE];
+        long minOrderId = Long.MAX_VALUE;
+        long maxOrderId = Long.MIN_VALUE;
+        volatile int size;
+    }
+
+    // Value <-> dense code; encode is called by the writer only
+    private static final class Dictionary<T> {
+        private final Map<T, Integer> codes = new ConcurrentHashMap<>();
+        private volatile Object[] values = new Object[64];
+        private volatile int size;
+
+        synchronized int encode(T value) {
+            Integer code = codes.get(value);
+            if (code != null) {
+                return code;
+            }
+            int next = size;
+            if (next == values.length) {
+                values = Arrays.copyOf(values, next * 2);
+            }
+            values[next] = value;
+            codes.put(value, next);
+            size = next + 1;
+            return next;
+        }
+
+        int find(T value) {
+            Integer code = codes.get(value);
+            return code == null ? -1 : code;
+        }
+
+        int size() {
+            return size;
+        }
+
+        @SuppressWarnings("unchecked")
+        T value(int code) {
+            return (T) values[code];
+        }
+    }
+
+    private final Dictionary<String> categories;
+    private final Dictionary<Long> products;
+    private final Dictionary<Long> users;
+    private volatile Chunk[] chunks = new Chunk[0];
+    private volatile int minDay = Integer.MAX_VALUE;
+    private volatile int maxDay = Integer.MIN_VALUE;
+
+    public OrderLineColumns() {
+        this(new Dictionary<>(), new Dictionary<>(), new Dictionary<>());
+    }
+
+    private OrderLineColumns(Dictionary<String> categories, Dictionary<Long> products, Dictionary<Long> users) {
+        this.categories = categories;
+        this.products = products;
+        this.users = users;
+    }
+
+    // Empty store sharing this one's dictionaries; filled on another thread and then absorbed
+    public OrderLineColumns newPartition() {
+        return new OrderLineColumns(categories, products, users);
+    }
+
+    // ---- Writes ----
+
+    public synchronized void appendOrder(long orderId, long userId, LocalDate orderDate, String status, List<Line> lines) {
+        if (lines.isEmpty()) {
+            return;
+        }
+        if (lines.size() > CHUNK_SIZE) {
+            throw new IllegalArgumentException("Order has more than " + CHUNK_SIZE + " lines");
+        }
+        Chunk chunk = chunks.length == 0 ? null : chunks[chunks.length - 1];
+        if (chunk == null || CHUNK_SIZE - chunk.size < lines.size()) {
+            chunk = new Chunk();
+            chunks = appendChunks(chunks, new Chunk[]{chunk});
+        }
+        int day = (int) orderDate.toEpochDay();
+        byte statusCode = OrderStatusCodes.encode(status);
+        int userCode = users.encode(userId);
+        int row = chunk.size;
+        for (Line line : lines) {
+            chunk.orderId[row] = orderId;
+            chunk.epochDay[row] = day;
+            chunk.status[row] = statusCode;
+            chunk.category[row] = categories.encode(line.category() != null ? line.category() : "");
+            chunk.product[row] = products.encode(line.productId());
+            chunk.user[row] = userCode;
+            chunk.quantity[row] = line.quantity();
+            chunk.priceCents[row] = line.unitPriceCents();
+            row++;
+        }
+        chunk.minOrderId = Math.min(chunk.minOrderId, orderId);
+        chunk.maxOrderId = Math.max(chunk.maxOrderId, orderId);
+        widenDays(day, day);
+        chunk.size = row; // publishes the rows
+    }
+
+    // For replayed events: false (and nothing appended) if the order is already in the store
+    public synchronized boolean appendOrderIfAbsent(long orderId, long userId, LocalDate orderDate, String status,
+                                                    List<Line> lines) {
+        if (contains(orderId)) {
+            return false;
+        }
+        appendOrder(orderId, userId, orderDate, status, lines);
+        return true;
+    }
+
+    // Moves the chunks of a partition (see newPartition) to the end of this store
+    public synchronized void absorb(OrderLineColumns partition) {
+        Chunk[] moved = Arrays.stream(partition.chunks).filter(chunk -> chunk.size > 0).toArray(Chunk[]::new);
+        if (moved.length == 0) {
+            return;
+        }
+        widenDays(partition.minDay, partition.maxDay);
+        chunks = appendChunks(chunks, moved);
+    }
+
+    // Returns the number of lines changed; a null status hides the order's lines from queries
+    public synchronized int setStatus(long orderId, String status) {
+        byte code = OrderStatusCodes.encode(status);
+        int changed = 0;
+        for (Chunk chunk : chunks) {
+            if (orderId < chunk.minOrderId || orderId > chunk.maxOrderId) {
+                continue;
+            }
+            long[] ids = chunk.orderId;
+            for (int i = 0, n = chunk.size; i < n; i++) {
+                if (ids[i] == orderId) {
+                    chunk.status[i] = code;
+                    changed++;
+                }
+            }
+        }
+        return changed;
+    }
+
+    public synchronized boolean contains(long orderId) {
+        for (Chunk chunk : chunks) {
+            if (orderId < chunk.minOrderId || orderId > chunk.maxOrderId) {
+                continue;
+            }
+            long[] ids = chunk.orderId;
+            for (int i = 0, n = chunk.size; i < n; i++) {
+                if (ids[i] == orderId) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    public long getLineCount() {
+        long lines = 0;
+        for (Chunk chunk : chunks) {
+            lines += chunk.size;
+        }
+        return lines;
+    }
+
+    public int getChunkCount() {
+        return chunks.length;
+    }
+
+    public long getAllocatedBytes() {
+        return (long) chunks.length * CHUNK_SIZE * BYTES_PER_LINE;
+    }
+
+    // ---- Queries ----
+
+    public Result query(Filter filter, List<Dimension> groupBy, int limit) {
+        Chunk[] snapshot = chunks;
+        int[] sizes = new int[snapshot.length];
+        for (int c = 0; c < snapshot.length; c++) {
+            sizes[c] = snapshot[c].size;
+        }
+        // read after the sizes: every visible row is covered by the days and dictionaries below
+        int lowDay = minDay;
+        int highDay = maxDay;
+        int fromDay = filter.from() != null ? (int) Math.max(lowDay, filter.from().toEpochDay()) : lowDay;
+        int toDay = filter.to() != null ? (int) Math.min(highDay + 1L, filter.to().toEpochDay()) : highDay + 1;
+        if (lowDay > highDay || fromDay >= toDay) {
+            return new Result(List.of(), 0, 0, 0);
+        }
+
+        Scan scan = new Scan(fromDay, toDay, groupBy);
+        for (String status : filter.statuses() != null ? filter.statuses() : OrderStatusCodes.all()) {
+            scan.statusAllowed[OrderStatusCodes.encode(status)] = true;
+        }
+        scan.statusAllowed[0] = false;
+        if (filter.categories() != null) {
+            scan.categoryAllowed = new boolean[Math.max(1, categories.size())];
+            for (String category : filter.categories()) {
+                int code = categories.find(category);
+                if (code >= 0) {
+                    scan.categoryAllowed[code] = true;
+                }
+            }
+        }
+        if (filter.productId() != null && (scan.productCode = products.find(filter.productId())) < 0
+                || filter.userId() != null && (scan.userCode = users.find(filter.userId())) < 0) {
+            return new Result(List.of(), 0, 0, 0);
+        }
+
+        int workers = Math.max(1, Math.min(snapshot.length, Runtime.getRuntime().availableProcessors()));
+        Accumulator total = IntStream.range(0, workers).parallel()
+                .mapToObj(worker -> scan.run(snapshot, sizes, worker, workers))
+                .reduce(Accumulator::merge)
+                .orElseGet(scan::newAccumulator);
+
+        List<Group> groups = new ArrayList<>();
+        total.forEach((key, metrics) -> groups.add(new Group(scan.decode(key),
+                metrics[0], metrics[1], metrics[2], metrics[3])));
+        groups.sort(Comparator.comparingLong(Group::revenueCents).thenComparingLong(Group::lines).reversed());
+        return new Result(new ArrayList<>(groups.subList(0, Math.min(limit, groups.size()))),
+                groups.size(), total.scanned, total.matched);
+    }
+
+    // One query's compiled filters and key layout
+    private final class Scan {
+        final int fromDay;
+        final int toDay;
+        final Dimension[] dims;
+        final int[] cards;
+        final long[] strides;
+        final int[][] dayCodes;   // per time dimension: (day - fromDay) -> code
+        final int[] dayBases;
+        final long groupSpace;
+        final boolean[] statusAllowed = new boolean[256];
+        boolean[] categoryAllowed;
+        int productCode = -1;
+        int userCode = -1;
+
+        Scan(int fromDay, int toDay, List<Dimension> groupBy) {
+            this.fromDay = fromDay;
+            this.toDay = toDay;
+            this.dims = groupBy.toArray(new Dimension[0]);
+            this.cards = new int[dims.length];
+            this.strides = new long[dims.length];
+            this.dayCodes = new int[dims.length][];
+            this.dayBases = new int[dims.length];
+            long space = 1;
+            for (int k = 0; k < dims.length; k++) {
+                cards[k] = Math.max(1, switch (dims[k]) {
+                    case STATUS -> STATUS_CODES;
+                    case CATEGORY -> categories.size();
+                    case PRODUCT -> products.size();
+                    case USER -> users.size();
+                    case DAY, WEEK, MONTH -> timeCodes(k);
+                });
+                strides[k] = space;
+                try {
+                    space = Math.multiplyExact(space, cards[k]);
+                } catch (ArithmeticException e) {
+                    throw new IllegalArgumentException("Too many groups; group by fewer dimensions");
+                }
+            }
+            this.groupSpace = space;
+        }
+
+        // Builds the day -> bucket table of a time dimension and returns its number of buckets
+        private int timeCodes(int k) {
+            int[] table = new int[toDay - fromDay];
+            int base = bucketOf(dims[k], fromDay);
+            for (int day = fromDay; day < toDay; day++) {
+                table[day - fromDay] = bucketOf(dims[k], day) - base;
+            }
+            dayCodes[k] = table;
+            dayBases[k] = base;
+            return table[table.length - 1] + 1;
+        }
+
+        Accumulator newAccumulator() {
+            return new Accumulator(groupSpace);
+        }
+
+        Accumulator run(Chunk[] snapshot, int[] sizes, int worker, int workers) {
+            Accumulator acc = newAccumulator();
+            int[] sel = new int[CHUNK_SIZE];
+            long[] keys = new long[CHUNK_SIZE];
+            for (int c = worker; c < snapshot.length; c += workers) {
+                Chunk chunk = snapshot[c];
+                int n = sizes[c];
+                acc.scanned += n;
+
+                // 1. selection vector
+                int m = 0;
+                byte[] status = chunk.status;
+                int[] days = chunk.epochDay;
+                int[] category = chunk.category;
+                int[] product = chunk.product;
+                int[] user = chunk.user;
+                for (int i = 0; i < n; i++) {
+                    int day = days[i];
+                    boolean keep = statusAllowed[status[i] & 0xFF] & day >= fromDay & day < toDay
+                            & (categoryAllowed == null || categoryAllowed[category[i]])
+                            & (productCode < 0 | product[i] == productCode)
+                            & (userCode < 0 | user[i] == userCode);
+                    sel[m] = i;
+                    m += keep ? 1 : 0;
+                }
+                acc.matched += m;
+
+                // 2. group keys, a column at a time
+                Arrays.fill(keys, 0, m, 0L);
+                for (int k = 0; k < dims.length; k++) {
+                    long stride = strides[k];
+                    switch (dims[k]) {
+                        case STATUS -> { for (int j = 0; j < m; j++) keys[j] += status[sel[j]] * stride; }
+                        case CATEGORY -> { for (int j = 0; j < m; j++) keys[j] += category[sel[j]] * stride; }
+                        case PRODUCT -> { for (int j = 0; j < m; j++) keys[j] += product[sel[j]] * stride; }
+                        case USER -> { for (int j = 0; j < m; j++) keys[j] += user[sel[j]] * stride; }
+                        default -> {
+                            int[] table = dayCodes[k];
+                            for (int j = 0; j < m; j++) keys[j] += table[days[sel[j]] - fromDay] * stride;
+                        }
+                    }
+                }
+
+                // 3. accumulate; an order counts once per group it has lines in
+                long[] orderIds = chunk.orderId;
+                int[] quantity = chunk.quantity;
+                int[] price = chunk.priceCents;
+                for (int j = 0; j < m; j++) {
+                    int i = sel[j];
+                    long orderId = orderIds[i];
+                    boolean firstInGroup = true;
+                    for (int p = j - 1; p >= 0 && orderIds[sel[p]] == orderId; p--) {
+                        if (keys[p] == keys[j]) {
+                            firstInGroup = false;
+                            break;
+                        }
+                    }
+                    acc.add(keys[j], 1, firstInGroup ? 1 : 0, quantity[i], (long) quantity[i] * price[i]);
+                }
+            }
+            return acc;
+        }
+
+        List<Object> decode(long key) {
+            List<Object> values = new ArrayList<>(dims.length);
+            for (int k = 0; k < dims.length; k++) {
+                int code = (int) (key / strides[k] % cards[k]);
+                int bucket = dayBases[k] + code;
+                values.add(switch (dims[k]) {
+                    case STATUS -> OrderStatusCodes.decode((byte) code);
+                    case CATEGORY -> categories.value(code);
+                    case PRODUCT -> products.value(code);
+                    case USER -> users.value(code);
+                    case DAY -> LocalDate.ofEpochDay(bucket);
+                    case WEEK -> LocalDate.ofEpochDay(bucket * 7L - 3);   // the Monday
+                    case MONTH -> YearMonth.of(Math.floorDiv(bucket, 12), Math.floorMod(bucket, 12) + 1);
+                });
+            }
+            return values;
+        }
+    }
+
+    // [lines, orders, units, revenueCents] per group key: flat arrays indexed by the key when the
+    // key space is small, otherwise an open-addressing table of primitive keys
+    private static final class Accumulator {
+        private static final long EMPTY = -1;
+        final boolean dense;
+        long[] keys;
+        long[][] metrics;
+        int used;
+        long scanned;
+        long matched;
+
+        Accumulator(long groupSpace) {
+            this.dense = groupSpace <= DENSE_LIMIT;
+            int capacity = dense ? (int) groupSpace : 1024;
+            this.metrics = new long[4][capacity];
+            if (!dense) {
+                this.keys = new long[capacity];
+                Arrays.fill(keys, EMPTY);
+            }
+        }
+
+        void add(long key, long lines, long orders, long units, long revenue) {
+            int slot = dense ? (int) key : slotOf(key);
+            metrics[0][slot] += lines;
+            metrics[1][slot] += orders;
+            metrics[2][slot] += units;
+            metrics[3][slot] += revenue;
+        }
+
+        Accumulator merge(Accumulator other) {
+            other.forEach((key, values) -> add(key, values[0], values[1], values[2], values[3]));
+            scanned += other.scanned;
+            matched += other.matched;
+            return this;
+        }
+
+        void forEach(BiConsumer<Long, long[]> visitor) {
+            for (int slot = 0; slot < metrics[0].length; slot++) {
+                if (metrics[0][slot] > 0) {
+                    visitor.accept(dense ? slot : keys[slot],
+                            new long[]{metrics[0][slot], metrics[1][slot], metrics[2][slot], metrics[3][slot]});
+                }
+            }
+        }
+
+        private int slotOf(long key) {
+            int mask = keys.length - 1;
+            int slot = (int) (key * 0x9E3779B97F4A7C15L >>> 40) & mask;
+            while (keys[slot] != key) {
+                if (keys[slot] == EMPTY) {
+                    if (used * 2 >= keys.length) {
+                        grow();
+                        return slotOf(key);
+                    }
+                    keys[slot] = key;
+                    used++;
+                    return slot;
+                }
+                slot = (slot + 1) & mask;
+            }
+            return slot;
+        }
+
+        private void grow() {
+            long[] oldKeys = keys;
+            long[][] oldMetrics = metrics;
+            keys = new long[oldKeys.length * 2];
+            Arrays.fill(keys, EMPTY);
+            metrics = new long[4][keys.length];
+            used = 0;
+            for (int slot = 0; slot < oldKeys.length; slot++) {
+                if (oldKeys[slot] != EMPTY) {
+                    int target = slotOf(oldKeys[slot]);
+                    for (int m = 0; m < 4; m++) {
+                        metrics[m][target] = oldMetrics[m][slot];
+                    }
+                }
+            }
+        }
+    }
+
+    private static int bucketOf(Dimension dimension, int epochDay) {
+        return switch (dimension) {
+            case WEEK -> Math.floorDiv(epochDay + 3, 7);      // weeks start on Monday; day 0 is a Thursday
+            case MONTH -> {
+                LocalDate date = LocalDate.ofEpochDay(epochDay);
+                yield date.getYear() * 12 + date.getMonthValue() - 1;
+            }
+            default -> epochDay;
+        };
+    }
+
+    private void widenDays(int low, int high) {
+        if (low < minDay) {
+            minDay = low;
+        }
+        if (high > maxDay) {
+            maxDay = high;
+        }
+    }
+
+    private static Chunk[] appendChunks(Chunk[] current, Chunk[] added) {
+        Chunk[] grown = Arrays.copyOf(current, current.length + added.length);
+        System.arraycopy(added, 0, grown, current.length, added.length);
+        return grown;
+    }
+}
@@ -0,0 +1,26 @@
+package com.examly.springapp.utils;
+
+import java.util.List;
+
+// One-byte codes for order statuses in binary records; 0 = unknown/none
+public final class OrderStatusCodes {
+
+    private static final List<String> STATUSES = List.of(
+            "", "PENDING", "PROCESSING", "SHIPPED", "DELIVERED", "CANCELLED");
+
+    private OrderStatusCodes() {
+    }
+
+    public static byte encode(String status) {
+        int code = status == null ? 0 : STATUSES.indexOf(status.toUpperCase());
+        return (byte) Math.max(code, 0);
+    }
+
+    public static List<String> all() {
+        return STATUSES.subList(1, STATUSES.size());
+    }
+
+    public static String decode(byte code) {
+        return code > 0 && code < STATUSES.size() ? STATUSES.get(code) : null;
+    }
+}
@@ -0,0 +1,423 @@
+package com.examly.springapp.utils;
+
+import com.examly.springapp.model.PricingRule;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.*;
+
+/**
+ * Pricing rules compiled into flat lookup tables, and the basket pricer that reads them.
+ * <p>
+ * Categories get dense codes; discounts and tax rates are int arrays indexed by code. Quantity
+ * breaks are tiers in flat arrays, grouped by scope (product, category, everything) and sorted by
+ * minimum quantity. Product ids are looked up in a primitive open-addressing table. All money is
+ * in integer cents and percentages in basis points, rounded half up. Pricing writes into a
+ * caller-owned {@link Result}, so a basket costs no allocation per line.
+ * <p>
+ * Rules: a line gets the best of its category discount and its quantity breaks (they do not
+ * stack); a coupon then applies to the eligible lines' net amount; tax is charged per line on
+ * what remains after its share of the coupon. The tables are immutable; rules in their validity
+ * window at compile time are included and {@link #getNextChangeMillis()} says when to recompile.
+ */
+public final class PricingTables {
+
+    public static final int BASIS = 10_000;
+
+    public enum CouponStatus { NONE, APPLIED, UNKNOWN, BELOW_MINIMUM }
+
+    // Caller-owned input; reuse it with clear()
+    public static final class Basket {
+        int size;
+        long[] productIds;
+        String[] categories;
+        long[] unitCents;
+        int[] quantities;
+
+        public Basket(int capacity) {
+            int n = Math.max(1, capacity);
+            productIds = new long[n];
+            categories = new String[n];
+            unitCents = new long[n];
+            quantities = new int[n];
+        }
+
+        public Basket add(long productId, String category, long unitPriceCents, int quantity) {
+            if (size == productIds.length) {
+                int n = size * 2;
+                productIds = Arrays.copyOf(productIds, n);
+                categories = Arrays.copyOf(categories, n);
+                unitCents = Arrays.copyOf(unitCents, n);
+                quantities = Arrays.copyOf(quantities, n);
+            }
+            productIds[size] = productId;
+            categories[size] = category;
+            unitCents[size] = unitPriceCents;
+            quantities[size] = quantity;
+            size++;
+            return this;
+        }
+
+        public Basket clear() {
+            Arrays.fill(categories, 0, size, null);
+            size = 0;
+            return this;
+        }
+
+        public int size() {
+            return size;
+        }
+    }
+
+    // Caller-owned output; per-line arrays grow to the largest basket seen and are then reused
+    public static final class Result {
+        public long subtotalCents;          // list price x quantity
+        public long lineDiscountCents;      // category discounts and quantity breaks
+        public long couponDiscountCents;
+        public long taxCents;
+        public long totalCents;
+        public CouponStatus couponStatus = CouponStatus.NONE;
+        public long couponMinSubtotalCents;
+        public long[] lineDiscount = new long[0];
+        public long[] lineCoupon = new long[0];
+        public long[] lineTax = new long[0];
+        public long[] lineTotal = new long[0];
+
+        void reset(int n) {
+            if (lineDiscount.length < n) {
+                int capacity = Math.max(n, lineDiscount.length * 2);
+                lineDiscount = new long[capacity];
+                lineCoupon = new long[capacity];
+                lineTax = new long[capacity];
+                lineTotal = new long[capacity];
+            }
+            subtotalCents = lineDiscountCents = couponDiscountCents = taxCents = totalCents = 0;
+            couponStatus = CouponStatus.NONE;
+            couponMinSubtotalCents = 0;
+        }
+    }
+
+    private final Map<String, Integer> categoryCodes;
+    private final int[] categoryDiscountBp;   // by category code
+    private final int[] categoryTaxBp;        // by category code
+    private final int defaultTaxBp;           // categories without their own rate
+
+    private final LongIntMap productBreaks;   // productId -> tier group
+    private final int[] categoryBreaks;       // category code -> tier group, or -1
+    private final int globalBreaks;           // tier group, or -1
+    private final int[] groupStart;           // tiers of group g: [groupStart[g], groupStart[g + 1])
+    private final int[] tierMinQuantity;      // descending within a group
+    private final int[] tierBp;
+
+    private final Map<String, Integer> couponCodes;
+    private final int[] couponBp;
+    private final long[] couponAmountOff;
+    private final long[] couponMinSubtotal;
+    private final int[] couponCategory;       // -1 = whole basket
+
+    private final long nextChangeMillis;
+    private final int ruleCount;
+
+    private PricingTables(Builder builder) {
+        this.categoryCodes = builder.categoryCodes;
+        int categories = builder.categoryCodes.size();
+        this.categoryDiscountBp = new int[categories];
+        this.categoryTaxBp = new int[categories];
+        this.defaultTaxBp = builder.defaultTaxBp;
+        Arrays.fill(categoryTaxBp, defaultTaxBp);
+        builder.categoryDiscounts.forEach((code, bp) -> categoryDiscountBp[code] = bp);
+        builder.categoryTaxes.forEach((code, bp) -> categoryTaxBp[code] = bp);
+
+        // flatten tier groups
+        List<List<int[]>> groups = builder.tierGroups;
+        this.groupStart = new int[groups.size() + 1];
+        int tiers = groups.stream().mapToInt(List::size).sum();
+        this.tierMinQuantity = new int[tiers];
+        this.tierBp = new int[tiers];
+        int t = 0;
+        for (int g = 0; g < groups.size(); g++) {
+            groupStart[g] = t;
+            List<int[]> group = new ArrayList<>(groups.get(g));
+            group.sort((a, b) -> Integer.compare(b[0], a[0]));
+            for (int[] tier : group) {
+                tierMinQuantity[t] = tier[0];
+                tierBp[t] = tier[1];
+                t++;
+            }
+        }
+        groupStart[groups.size()] = t;
+        this.productBreaks = new LongIntMap(builder.productGroups.size());
+        builder.productGroups.forEach(productBreaks::put);
+        this.categoryBreaks = new int[categories];
+        Arrays.fill(categoryBreaks, -1);
+        builder.categoryGroups.forEach((code, group) -> categoryBreaks[code] = group);
+        this.globalBreaks = builder.globalGroup;
+
+        int coupons = builder.coupons.size();
+        this.couponCodes = new HashMap<>(coupons * 2);
+        this.couponBp = new int[coupons];
+        this.couponAmountOff = new long[coupons];
+        this.couponMinSubtotal = new long[coupons];
+        this.couponCategory = new int[coupons];
+        for (int c = 0; c < coupons; c++) {
+            PricingRule rule = builder.coupons.get(c);
+            couponCodes.put(rule.getCouponCode().trim().toUpperCase(), c);
+            couponBp[c] = rule.getBasisPoints();
+            couponAmountOff[c] = rule.getAmountOffCents();
+            couponMinSubtotal[c] = rule.getMinSubtotalCents();
+            couponCategory[c] = rule.getCategory() != null ? builder.categoryCodes.get(rule.getCategory()) : -1;
+        }
+        this.nextChangeMillis = builder.nextChangeMillis;
+        this.ruleCount = builder.ruleCount;
+    }
+
+    // ---- Compile ----
+
+    public static PricingTables compile(Collection<PricingRule> rules, LocalDateTime now) {
+        Builder builder = new Builder();
+        for (PricingRule rule : rules) {
+            if (!rule.isActive()) {
+                continue;
+            }
+            if (rule.getStartsAt() != null && rule.getStartsAt().isAfter(now)) {
+                builder.changesAt(rule.getStartsAt());
+                continue;
+            }
+            if (rule.getEndsAt() != null) {
+                if (!rule.getEndsAt().isAfter(now)) {
+                    continue;
+                }
+                builder.changesAt(rule.getEndsAt());
+            }
+            builder.add(rule);
+        }
+        return new PricingTables(builder);
+    }
+
+    private static final class Builder {
+        final Map<String, Integer> categoryCodes = new HashMap<>();
+        final Map<Integer, Integer> categoryDiscounts = new HashMap<>();
+        final Map<Integer, Integer> categoryTaxes = new HashMap<>();
+        int defaultTaxBp;
+        final List<List<int[]>> tierGroups = new ArrayList<>();
+        final Map<Long, Integer> productGroups = new HashMap<>();
+        final Map<Integer, Integer> categoryGroups = new HashMap<>();
+        int globalGroup = -1;
+        final List<PricingRule> coupons = new ArrayList<>();
+        long nextChangeMillis = Long.MAX_VALUE;
+        int ruleCount;
+
+        void add(PricingRule rule) {
+            ruleCount++;
+            Integer category = rule.getCategory() != null
+                    ? categoryCodes.computeIfAbsent(rule.getCategory(), c -> categoryCodes.size()) : null;
+            switch (rule.getType()) {
+                case CATEGORY_DISCOUNT -> {
+                    if (category != null) {
+                        categoryDiscounts.merge(category, rule.getBasisPoints(), Math::max);
+                    }
+                }
+                case TAX_RATE -> {
+                    if (category != null) {
+                        categoryTaxes.put(category, rule.getBasisPoints());
+                    } else {
+                        defaultTaxBp = rule.getBasisPoints();
+                    }
+                }
+                case QUANTITY_BREAK -> {
+                    int[] tier = {Math.max(1, rule.getMinQuantity()), rule.getBasisPoints()};
+                    if (rule.getProductId() != null) {
+                        tierGroups.get(productGroups.computeIfAbsent(rule.getProductId(), p -> newGroup())).add(tier);
+                    } else if (category != null) {
+                        tierGroups.get(categoryGroups.computeIfAbsent(category, c -> newGroup())).add(tier);
+                    } else {
+                        if (globalGroup < 0) {
+                            globalGroup = newGroup();
+                        }
+                        tierGroups.get(globalGroup).add(tier);
+                    }
+                }
+                case COUPON -> {
+                    if (rule.getCouponCode() != null && !rule.getCouponCode().isBlank()) {
+                        coupons.add(rule);
+                    }
+                }
+            }
+        }
+
+        int newGroup() {
+            tierGroups.add(new ArrayList<>());
+            return tierGroups.size() - 1;
+        }
+
+        void changesAt(LocalDateTime at) {
+            nextChangeMillis = Math.min(nextChangeMillis, at.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli());
+        }
+    }
+
+    // ---- Price ----
+
+    public void price(Basket basket, String couponCode, Result out) {
+        int n = basket.size;
+        out.reset(n);
+        long[] unitCents = basket.unitCents;
+        int[] quantities = basket.quantities;
+
+        // 1. line discounts: best of category discount and quantity breaks
+        long net = 0;
+        for (int i = 0; i < n; i++) {
+            int category = categoryCode(basket.categories[i]);
+            int quantity = quantities[i];
+            int bp = category >= 0 ? categoryDiscountBp[category] : 0;
+            bp = Math.max(bp, breakBp(productBreaks.get(basket.productIds[i]), quantity));
+            if (category >= 0) {
+                bp = Math.max(bp, breakBp(categoryBreaks[category], quantity));
+            }
+            bp = Math.max(bp, breakBp(globalBreaks, quantity));
+
+            long gross = unitCents[i] * quantity;
+            long discount = percent(gross, bp);
+            out.subtotalCents += gross;
+            out.lineDiscountCents += discount;
+            out.lineDiscount[i] = discount;
+            out.lineTotal[i] = gross - discount;
+            out.lineCoupon[i] = 0;
+            net += gross - discount;
+        }
+
+        // 2. coupon over the eligible lines, spread over them in proportion to their net amount
+        if (couponCode != null && !couponCode.isBlank()) {
+            Integer coupon = couponCodes.get(couponCode.trim().toUpperCase());
+            if (coupon == null) {
+                out.couponStatus = CouponStatus.UNKNOWN;
+            } else if (net < couponMinSubtotal[coupon]) {
+                out.couponStatus = CouponStatus.BELOW_MINIMUM;
+                out.couponMinSubtotalCents = couponMinSubtotal[coupon];
+            } else {
+                out.couponStatus = CouponStatus.APPLIED;
+                applyCoupon(basket, coupon, out);
+            }
+        }
+
+        // 3. tax per line on what is left
+        long tax = 0;
+        for (int i = 0; i < n; i++) {
+            int category = categoryCode(basket.categories[i]);
+            long taxable = out.lineTotal[i] - out.lineCoupon[i];
+            long lineTax = percent(taxable, category >= 0 ? categoryTaxBp[category] : defaultTaxBp);
+            out.lineTax[i] = lineTax;
+            out.lineTotal[i] = taxable + lineTax;
+            tax += lineTax;
+        }
+        out.taxCents = tax;
+        out.totalCents = net - out.couponDiscountCents + tax;
+    }
+
+    private void applyCoupon(Basket basket, int coupon, Result out) {
+        int n = basket.size;
+        int scope = couponCategory[coupon];
+        long eligible = 0;
+        int last = -1;
+        for (int i = 0; i < n; i++) {
+            if (scope < 0 || categoryCode(basket.categories[i]) == scope) {
+                eligible += out.lineTotal[i];
+                last = i;
+            }
+        }
+        if (eligible <= 0) {
+            return;
+        }
+        long discount = couponBp[coupon] > 0 ? percent(eligible, couponBp[coupon])
+                : Math.min(couponAmountOff[coupon], eligible);
+        long allocated = 0;
+        for (int i = 0; i < n; i++) {
+            if (scope < 0 || categoryCode(basket.categories[i]) == scope) {
+                long share = i == last ? discount - allocated : scale(discount, out.lineTotal[i], eligible);
+                out.lineCoupon[i] = share;
+                allocated += share;
+            }
+        }
+        out.couponDiscountCents = discount;
+    }
+
+    private int breakBp(int group, int quantity) {
+        if (group < 0) {
+            return 0;
+        }
+        for (int t = groupStart[group], end = groupStart[group + 1]; t < end; t++) {
+            if (quantity >= tierMinQuantity[t]) {
+                return tierBp[t];
+            }
+        }
+        return 0;
+    }
+
+    private int categoryCode(String category) {
+        if (category == null) {
+            return -1;
+        }
+        Integer code = categoryCodes.get(category);
+        return code != null ? code : -1;
+    }
+
+    // value * numerator / denominator, rounded down; exact unless the amounts are in the billions
+    private static long scale(long value, long numerator, long denominator) {
+        if (value < Integer.MAX_VALUE && numerator < Integer.MAX_VALUE) {
+            return value * numerator / denominator;
+        }
+        return (long) ((double) value * numerator / denominator);
+    }
+
+    private static long percent(long cents, int basisPoints) {
+        return (cents * basisPoints + BASIS / 2) / BASIS;
+    }
+
+    public long getNextChangeMillis() {
+        return nextChangeMillis;
+    }
+
+    public int getRuleCount() {
+        return ruleCount;
+    }
+
+    // long -> int, open addressing; get() returns -1 when absent
+    private static final class LongIntMap {
+        private final long[] keys;
+        private final int[] values;
+        private final boolean[] used;
+        private final int mask;
+
+        LongIntMap(int expected) {
+            int capacity = Integer.highestOneBit(Math.max(4, expected * 2 - 1)) << 1;
+            keys = new long[capacity];
+            values = new int[capacity];
+            used = new boolean[capacity];
+            mask = capacity - 1;
+        }
+
+        void put(long key, int value) {
+            int slot = slot(key);
+            while (used[slot] && keys[slot] != key) {
+                slot = (slot + 1) & mask;
+            }
+            keys[slot] = key;
+            values[slot] = value;
+            used[slot] = true;
+        }
+
+        int get(long key) {
+            int slot = slot(key);
+            while (used[slot]) {
+                if (keys[slot] == key) {
+                    return values[slot];
+                }
+                slot = (slot + 1) & mask;
+            }
+            return -1;
+        }
+
+        private int slot(long key) {
+            return (int) ((key * 0x9E3779B97F4A7C15L) >>> 40) & mask;
+        }
+    }
+}
@@ -0,0 +1,314 @@
+package com.examly.springapp.utils;
+
+import java.util.*;
+
+/**
+ * Immutable prefix index for product typeahead.
+ * <p>
+ * Every product contributes its normalised name, the name from each later word on ("phone" finds
+ * "Smart Phone") and its category; each category is also a suggestion of its own, weighted by
+ * the sum of its products. Normalised texts are packed into one char array and a key is just an
+ * offset into its target's text (it runs to the end of that text), so word keys cost 8 bytes and
+ * no characters. Keys are sorted, which makes the keys starting with a prefix one contiguous range
+ * found by two binary searches. A range-max tree over the key weights then yields the heaviest
+ * distinct targets in that range best-first, in O(k log n) without touching the rest of the range.
+ * <p>
+ * Built off to the side by {@link Builder} and never modified, so any number of threads can read
+ * it while the next one is built.
+ */
+public final class ProductSuggestIndex {
+
+    public static final int MAX_WORD_KEYS = 8;
+    public static final ProductSuggestIndex EMPTY = new Builder().build();
+
+    public enum Kind { PRODUCT, CATEGORY }
+
+    public record Suggestion(Kind kind, String text, Long productId, String category, long weight) {}
+
+    // Targets: what a key points at
+    private final Kind[] kinds;
+    private final String[] texts;
+    private final long[] productIds;
+    private final String[] categories;
+    private final long[] weights;
+
+    // Normalised text of target t: chars[textEnd[t - 1], textEnd[t]) (from 0 for t = 0)
+    private final char[] chars;
+    private final int[] textEnd;
+
+    // Keys, sorted: key i is chars[keyStart[i], textEnd[keyTarget[i]]) and points at keyTarget[i]
+    private final int[] keyStart;
+    private final int[] keyTarget;
+
+    // Range-max tree over key weights: leaves at [leaves, 2 * leaves), each node holds the index
+    // of the heaviest key below it (lowest index on ties), -1 for padding
+    private final int leaves;
+    private final int[] tree;
+
+    private ProductSuggestIndex(Builder builder) {
+        int targetCount = builder.texts.size();
+        kinds = builder.kinds.toArray(new Kind[0]);
+        texts = builder.texts.toArray(new String[0]);
+        categories = builder.categories.toArray(new String[0]);
+        productIds = new long[targetCount];
+        weights = new long[targetCount];
+        for (int t = 0; t < targetCount; t++) {
+            productIds[t] = builder.productIds.get(t);
+            weights[t] = builder.weights.get(t);
+        }
+
+        chars = builder.chars.toString().toCharArray();
+        textEnd = new int[targetCount];
+        for (int t = 0; t < targetCount; t++) {
+            textEnd[t] = builder.textEnds.get(t);
+        }
+        int n = builder.keys.size();
+        keyStart = new int[n];
+        keyTarget = new int[n];
+        for (int i = 0; i < n; i++) {
+            keyStart[i] = (int) (builder.keys.get(i) >>> 32);
+            keyTarget[i] = (int) (long) builder.keys.get(i);
+        }
+        sortKeys();
+
+        int size = 1;
+        while (size < n) {
+            size <<= 1;
+        }
+        leaves = size;
+        tree = new int[2 * size];
+        Arrays.fill(tree, -1);
+        for (int i = 0; i < n; i++) {
+            tree[size + i] = i;
+        }
+        for (int node = size - 1; node >= 1; node--) {
+            tree[node] = heavier(tree[2 * node], tree[2 * node + 1]);
+        }
+    }
+
+    // ---- Build ----
+
+    public static final class Builder {
+        private final List<Kind> kinds = new ArrayList<>();
+        private final List<String> texts = new ArrayList<>();
+        private final List<Long> productIds = new ArrayList<>();
+        private final List<String> categories = new ArrayList<>();
+        private final List<Long> weights = new ArrayList<>();
+        private final StringBuilder chars = new StringBuilder();
+        private final List<Integer> textEnds = new ArrayList<>();
+        private final List<Long> keys = new ArrayList<>();   // offset << 32 | target
+        private final Map<String, Integer> categoryTargets = new HashMap<>();
+
+        public Builder addProduct(long productId, String name, String category, long weight) {
+            String normalised = normalise(name);
+            if (normalised.isEmpty()) {
+                return this;
+            }
+            int start = chars.length();
+            int target = target(Kind.PRODUCT, name.trim(), normalised, productId, category, Math.max(0, weight));
+            key(start, target);
+            int words = 0;
+            for (int i = normalised.indexOf(' '); i >= 0 && words < MAX_WORD_KEYS; i = normalised.indexOf(' ', i + 1)) {
+                key(start + i + 1, target);
+                words++;
+            }
+
+            String categoryKey = normalise(category);
+            if (!categoryKey.isEmpty()) {
+                Integer categoryTarget = categoryTargets.get(categoryKey);
+                if (categoryTarget == null) {
+                    int categoryStart = chars.length();
+                    categoryTarget = target(Kind.CATEGORY, category.trim(), categoryKey, 0, category.trim(), 0);
+                    categoryTargets.put(categoryKey, categoryTarget);
+                    key(categoryStart, categoryTarget);
+                }
+                weights.set(categoryTarget, weights.get(categoryTarget) + Math.max(0, weight));
+            }
+            return this;
+        }
+
+        private int target(Kind kind, String text, String normalised, long productId, String category, long weight) {
+            chars.append(normalised);
+            textEnds.add(chars.length());
+            kinds.add(kind);
+            texts.add(text);
+            productIds.add(productId);
+            categories.add(category);
+            weights.add(weight);
+            return texts.size() - 1;
+        }
+
+        private void key(int offset, int target) {
+            keys.add((long) offset << 32 | target);
+        }
+
+        public ProductSuggestIndex build() {
+            return new ProductSuggestIndex(this);
+        }
+    }
+
+    // Lower case, single spaces, no leading/trailing space
+    public static String normalise(String text) {
+        if (text == null) {
+            return "";
+        }
+        StringBuilder out = new StringBuilder(text.length());
+        boolean space = false;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (Character.isWhitespace(c)) {
+                space = out.length() > 0;
+            } else {
+                if (space) {
+                    out.append(' ');
+                    space = false;
+                }
+                out.append(Character.toLowerCase(c));
+            }
+        }
+        return out.toString();
+    }
+
+    // ---- Lookup ----
+
+    public List<Suggestion> suggest(String prefix, int limit) {
+        String p = normalise(prefix);
+        if (p.isEmpty() || limit <= 0 || keyTarget.length == 0) {
+            return List.of();
+        }
+        int from = lowerBound(p, false);
+        int to = lowerBound(p, true);
+        if (from >= to) {
+            return List.of();
+        }
+
+        // best-first over sub-ranges: pop the range whose heaviest key is heaviest, emit it, split
+        PriorityQueue<int[]> ranges = new PriorityQueue<>((a, b) -> compareKeys(a[2], b[2]));
+        ranges.add(new int[]{from, to, rangeMax(from, to)});
+        List<Suggestion> out = new ArrayList<>(limit);
+        Set<Integer> seen = new HashSet<>();
+        while (!ranges.isEmpty() && out.size() < limit) {
+            int[] range = ranges.poll();
+            int best = range[2];
+            int target = keyTarget[best];
+            if (seen.add(target)) {
+                out.add(new Suggestion(kinds[target], texts[target],
+                        kinds[target] == Kind.PRODUCT ? productIds[target] : null, categories[target], weights[target]));
+            }
+            if (range[0] < best) {
+                ranges.add(new int[]{range[0], best, rangeMax(range[0], best)});
+            }
+            if (best + 1 < range[1]) {
+                ranges.add(new int[]{best + 1, range[1], rangeMax(best + 1, range[1])});
+            }
+        }
+        return out;
+    }
+
+    // First key >= prefix, or (past = true) first key that neither starts with prefix nor sorts before it
+    private int lowerBound(String prefix, boolean past) {
+        int lo = 0;
+        int hi = keyTarget.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            int cmp = comparePrefix(mid, prefix);
+            if (cmp < 0 || (past && cmp == 0)) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    // Compares key i, cut to the prefix length, with the prefix; a shorter key that is a prefix of it sorts first
+    private int comparePrefix(int i, String prefix) {
+        int start = keyStart[i];
+        int length = textEnd[keyTarget[i]] - start;
+        int n = Math.min(length, prefix.length());
+        for (int c = 0; c < n; c++) {
+            int diff = chars[start + c] - prefix.charAt(c);
+            if (diff != 0) {
+                return diff;
+            }
+        }
+        return length < prefix.length() ? -1 : 0;
+    }
+
+    // Sorts the keys by text, then target; keyStart and keyTarget move together
+    private void sortKeys() {
+        Integer[] order = new Integer[keyTarget.length];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> {
+            int cmp = compareKeyText(a, b);
+            return cmp != 0 ? cmp : Integer.compare(keyTarget[a], keyTarget[b]);
+        });
+        int[] starts = new int[order.length];
+        int[] targets = new int[order.length];
+        for (int i = 0; i < order.length; i++) {
+            starts[i] = keyStart[order[i]];
+            targets[i] = keyTarget[order[i]];
+        }
+        System.arraycopy(starts, 0, keyStart, 0, starts.length);
+        System.arraycopy(targets, 0, keyTarget, 0, targets.length);
+    }
+
+    private int compareKeyText(int a, int b) {
+        int startA = keyStart[a];
+        int startB = keyStart[b];
+        int lengthA = textEnd[keyTarget[a]] - startA;
+        int lengthB = textEnd[keyTarget[b]] - startB;
+        int n = Math.min(lengthA, lengthB);
+        for (int c = 0; c < n; c++) {
+            int diff = chars[startA + c] - chars[startB + c];
+            if (diff != 0) {
+                return diff;
+            }
+        }
+        return Integer.compare(lengthA, lengthB);
+    }
+
+    private int rangeMax(int from, int to) {
+        int best = -1;
+        for (int l = from + leaves, r = to + leaves; l < r; l >>= 1, r >>= 1) {
+            if ((l & 1) == 1) {
+                best = heavier(best, tree[l++]);
+            }
+            if ((r & 1) == 1) {
+                best = heavier(best, tree[--r]);
+            }
+        }
+        return best;
+    }
+
+    private int heavier(int a, int b) {
+        if (a < 0) {
+            return b;
+        }
+        if (b < 0) {
+            return a;
+        }
+        return compareKeys(a, b) <= 0 ? a : b;
+    }
+
+    // Heavier first, then key order
+    private int compareKeys(int a, int b) {
+        int byWeight = Long.compare(weights[keyTarget[b]], weights[keyTarget[a]]);
+        return byWeight != 0 ? byWeight : Integer.compare(a, b);
+    }
+
+    public int getTargetCount() {
+        return texts.length;
+    }
+
+    public int getKeyCount() {
+        return keyTarget.length;
+    }
+
+    public long getKeyBytes() {
+        return chars.length * 2L + textEnd.length * 4L + keyStart.length * 4L + keyTarget.length * 4L
+                + tree.length * 4L;
+    }
+}
@@ -0,0 +1,73 @@
+package com.examly.springapp.utils;
+
+import io.jsonwebtoken.JwtException;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+// Throttles each client (JWT subject, otherwise remote address) with RateLimiter.
+// Added to the security filter chain by SecurityConfig rather than registered as a bean,
+// so it runs exactly once per request.
+public class RateLimitFilter extends OncePerRequestFilter {
+
+    private final RateLimiter rateLimiter;
+    private final JwtUtil jwtUtil;
+
+    public RateLimitFilter(RateLimiter rateLimiter, JwtUtil jwtUtil) {
+        this.rateLimiter = rateLimiter;
+        this.jwtUtil = jwtUtil;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request,
+                                    HttpServletResponse response,
+                                    FilterChain filterChain)
+            throws ServletException, IOException {
+
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        int cost = rateLimiter.costOf(request.getMethod(), path);
+        RateLimiter.Decision decision = rateLimiter.tryAcquire(clientKey(request), cost);
+
+        response.setHeader("RateLimit-Limit", String.valueOf(decision.limit()));
+        response.setHeader("RateLimit-Remaining", String.valueOf(decision.remaining()));
+        response.setHeader("RateLimit-Reset", String.valueOf(decision.resetSeconds()));
+
+        if (!decision.allowed()) {
+            response.setHeader("Retry-After", String.valueOf(decision.retryAfterSeconds()));
+            response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+            response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+            response.getWriter().write("{\"message\":\"Too many requests, retry in "
+                    + decision.retryAfterSeconds() + "s\"}");
+            return;
+        }
+        filterChain.doFilter(request, response);
+    }
+
+    // CORS preflights are sent by the browser itself and should not spend tokens
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return HttpMethod.OPTIONS.matches(request.getMethod());
+    }
+
+    private String clientKey(HttpServletRequest request) {
+        String authHeader = request.getHeader("Authorization");
+        if (authHeader != null && authHeader.startsWith("Bearer ")) {
+            try {
+                String subject = jwtUtil.extractEmail(authHeader.substring(7));
+                if (subject != null) {
+                    return "user:" + subject;
+                }
+            } catch (JwtException | IllegalArgumentException e) {
+                // invalid or expired token: throttle by address like any anonymous caller
+            }
+        }
+        return "ip:" + request.getRemoteAddr();
+    }
+}
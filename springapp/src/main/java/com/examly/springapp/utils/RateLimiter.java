@@ -0,0 +1,106 @@
+package com.examly.springapp.utils;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.server.PathContainer;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Token buckets per client. Each bucket holds up to {@code capacity} tokens and refills at
+ * {@code refillPerSecond}; a request takes as many tokens as its route costs. Buckets are updated
+ * with a compare-and-set on an immutable state, so there are no locks on the request path.
+ * Buckets idle long enough to have refilled completely are dropped, since a new bucket is identical.
+ */
+@Component
+public class RateLimiter {
+
+    // Expensive routes first; anything unmatched costs 1
+    private record RouteCost(HttpMethod method, PathPattern pattern, int cost) {}
+
+    private static final PathPatternParser PARSER = new PathPatternParser();
+    private static final List<RouteCost> ROUTE_COSTS = List.of(
+            route(HttpMethod.POST, "/api/users/summaries/rebuild", 50),
+            route(HttpMethod.GET, "/api/orders", 10),
+            route(HttpMethod.GET, "/api/orders/search", 5),
+            route(HttpMethod.PATCH, "/api/products", 10),
+            route(HttpMethod.POST, "/api/products/*/image", 10),
+            route(HttpMethod.POST, "/api/products/import", 50),
+            route(HttpMethod.POST, "/api/analytics/**", 10),
+            route(HttpMethod.GET, "/api/users", 5),
+            route(HttpMethod.GET, "/api/users/summaries", 5),
+            route(HttpMethod.POST, "/auth/**", 5),
+            route(HttpMethod.GET, "/api/products", 3),
+            route(HttpMethod.GET, "/api/products/changes", 3)
+    );
+
+    private record State(double tokens, long refilledAtNanos) {}
+
+    // Outcome of one attempt; resetSeconds is how long until the bucket is full again
+    public record Decision(boolean allowed, long limit, long remaining, long resetSeconds, long retryAfterSeconds) {}
+
+    private final Map<String, AtomicReference<State>> buckets = new ConcurrentHashMap<>();
+    private final long capacity;
+    private final double refillPerNano;
+
+    public RateLimiter(@Value("${ratelimit.capacity:100}") long capacity,
+                       @Value("${ratelimit.refill-per-second:20}") double refillPerSecond) {
+        this.capacity = capacity;
+        this.refillPerNano = refillPerSecond / 1_000_000_000d;
+    }
+
+    public int costOf(String method, String path) {
+        PathContainer container = PathContainer.parsePath(path);
+        for (RouteCost route : ROUTE_COSTS) {
+            if (route.method().matches(method) && route.pattern().matches(container)) {
+                return route.cost();
+            }
+        }
+        return 1;
+    }
+
+    public Decision tryAcquire(String clientKey, int cost) {
+        AtomicReference<State> bucket = buckets.computeIfAbsent(clientKey,
+                key -> new AtomicReference<>(new State(capacity, System.nanoTime())));
+        while (true) {
+            State current = bucket.get();
+            long now = System.nanoTime();
+            double tokens = Math.min(capacity, current.tokens() + (now - current.refilledAtNanos()) * refillPerNano);
+            boolean allowed = tokens >= cost;
+            State next = new State(allowed ? tokens - cost : tokens, now);
+            if (bucket.compareAndSet(current, next)) {
+                long resetSeconds = secondsToRefill(capacity - next.tokens());
+                long retryAfter = allowed ? 0 : Math.max(1, secondsToRefill(cost - tokens));
+                return new Decision(allowed, capacity, (long) Math.floor(next.tokens()), resetSeconds, retryAfter);
+            }
+        }
+    }
+
+    public int getTrackedClients() {
+        return buckets.size();
+    }
+
+    @Scheduled(fixedDelayString = "${ratelimit.evict-interval-ms:60000}")
+    public void evictIdle() {
+        long now = System.nanoTime();
+        buckets.values().removeIf(bucket -> {
+            State state = bucket.get();
+            return state.tokens() + (now - state.refilledAtNanos()) * refillPerNano >= capacity;
+        });
+    }
+
+    private long secondsToRefill(double tokens) {
+        return (long) Math.ceil(tokens / refillPerNano / 1_000_000_000d);
+    }
+
+    private static RouteCost route(HttpMethod method, String pattern, int cost) {
+        return new RouteCost(method, PARSER.parse(pattern), cost);
+    }
+}
@@ -0,0 +1,130 @@
+package com.examly.springapp.utils;
+
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.generator.BeforeExecutionGenerator;
+import org.hibernate.generator.EventType;
+import org.hibernate.generator.EventTypeSets;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.EnumSet;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Time-ordered ids: milliseconds since 2024-01-01 UTC, then the node id, then a per-millisecond
+ * sequence.
+ * <p>
+ * The layout is 41 + 6 + 6 = 53 bits so ids stay exact as JavaScript numbers in the admin UI:
+ * about 69 years of timestamps, 64 nodes and 64 ids per millisecond per node. When a millisecond's
+ * sequence runs out the generator waits for the clock to move on. Node ids are leased from the
+ * node_lease table by NodeLeaseService, and ids are only handed out while that lease is unexpired:
+ * without one, or once it has run out without being renewed, {@link #nextId} throws rather than
+ * risk reusing a node another instance has taken over.
+ * <p>
+ * Because the timestamp is the high part, {@link #lowestIdAt} turns a time range into an id range.
+ * That only holds from {@link #FIRST_ID} up: rows created before the switch from auto-increment
+ * keys keep their small ids, which say nothing about when the row was written.
+ */
+public class SnowflakeIdGenerator implements BeforeExecutionGenerator {
+
+    public static final long EPOCH_MILLIS = 1704067200000L; // 2024-01-01T00:00:00Z
+    public static final int NODE_BITS = 6;
+    public static final int SEQUENCE_BITS = 6;
+    public static final int MAX_NODES = 1 << NODE_BITS;
+
+    private static final long SEQUENCE_MASK = (1L << SEQUENCE_BITS) - 1;
+    private static final int TIMESTAMP_SHIFT = NODE_BITS + SEQUENCE_BITS;
+
+    // Lowest id at 2025-01-01T00:00:00Z, before this generator shipped; every smaller id is a legacy one
+    public static final long FIRST_ID = (1735689600000L - EPOCH_MILLIS) << TIMESTAMP_SHIFT;
+
+    // (millis since epoch << SEQUENCE_BITS) | sequence of the last id handed out
+    private static final AtomicLong LAST = new AtomicLong();
+
+    // holder identifies who leased the node; validUntil is System.currentTimeMillis() at which it runs out
+    private record Lease(int node, Object holder, long validUntil) {}
+
+    private static volatile Lease lease = new Lease(-1, null, 0);
+
+    public static synchronized void useNode(int node, Object holder, long validUntilMillis) {
+        if (node < 0 || node >= MAX_NODES) {
+            throw new IllegalArgumentException("Node id must be between 0 and " + (MAX_NODES - 1));
+        }
+        lease = new Lease(node, holder, validUntilMillis);
+    }
+
+    // Moves the end of the holder's lease; false if the generator runs on someone else's lease
+    public static synchronized boolean extendLease(Object holder, long validUntilMillis) {
+        if (!Objects.equals(lease.holder(), holder)) {
+            return false;
+        }
+        lease = new Lease(lease.node(), holder, validUntilMillis);
+        return true;
+    }
+
+    // Stops handing out ids on the holder's lease, if it is the one in use
+    public static synchronized void revoke(Object holder) {
+        if (Objects.equals(lease.holder(), holder)) {
+            lease = new Lease(lease.node(), holder, 0);
+        }
+    }
+
+    // The node in use, or -1 while no unexpired lease is held
+    public static int currentNode() {
+        Lease held = lease;
+        return System.currentTimeMillis() < held.validUntil() ? held.node() : -1;
+    }
+
+    public static long nextId() {
+        Lease held = lease;
+        if (System.currentTimeMillis() >= held.validUntil()) {
+            throw new IllegalStateException(held.node() < 0
+                    ? "No id node has been leased yet"
+                    : "The lease on id node " + held.node() + " has expired");
+        }
+        while (true) {
+            long last = LAST.get();
+            long lastMillis = last >>> SEQUENCE_BITS;
+            long now = System.currentTimeMillis() - EPOCH_MILLIS;
+            long next;
+            if (now > lastMillis) {
+                next = now << SEQUENCE_BITS;
+            } else if ((last & SEQUENCE_MASK) < SEQUENCE_MASK) {
+                // same millisecond, or the clock stepped back: keep counting on the last timestamp
+                next = last + 1;
+            } else {
+                Thread.onSpinWait();
+                continue;
+            }
+            if (LAST.compareAndSet(last, next)) {
+                return ((next >>> SEQUENCE_BITS) << TIMESTAMP_SHIFT)
+                        | ((long) held.node() << SEQUENCE_BITS)
+                        | (next & SEQUENCE_MASK);
+            }
+        }
+    }
+
+    // Smallest id that can be generated at or after the given time
+    public static long lowestIdAt(LocalDateTime time) {
+        long millis = time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli() - EPOCH_MILLIS;
+        return Math.max(0, millis) << TIMESTAMP_SHIFT;
+    }
+
+    public static LocalDateTime timestampOf(long id) {
+        long millis = (id >>> TIMESTAMP_SHIFT) + EPOCH_MILLIS;
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(millis), ZoneId.systemDefault());
+    }
+
+    @Override
+    public Object generate(SharedSessionContractImplementor session, Object owner, Object currentValue,
+                           EventType eventType) {
+        return nextId();
+    }
+
+    @Override
+    public EnumSet<EventType> getEventTypes() {
+        return EventTypeSets.INSERT_ONLY;
+    }
+}
@@ -0,0 +1,71 @@
+package com.examly.springapp.utils;
+
+import jakarta.validation.ValidationException;
+
+import java.sql.Timestamp;
+import java.util.*;
+
+/**
+ * A {@code fields=} list checked against an endpoint's allow-list. The id is always returned
+ * first; the rest keep the order they were asked for, duplicates dropped. Rows come back as
+ * ordered maps, so the JSON holds exactly the selected fields.
+ */
+public final class SparseFields {
+
+    private final List<String> fields;
+
+    private SparseFields(List<String> fields) {
+        this.fields = fields;
+    }
+
+    public static SparseFields parse(String fields, Set<String> allowed) {
+        LinkedHashSet<String> selected = new LinkedHashSet<>();
+        selected.add("id");
+        for (String field : fields.split(",")) {
+            String name = field.trim();
+            if (name.isEmpty()) {
+                continue;
+            }
+            if (!allowed.contains(name)) {
+                throw new ValidationException("Unknown field: " + name + ". Allowed fields: " + allowed);
+            }
+            selected.add(name);
+        }
+        return new SparseFields(List.copyOf(selected));
+    }
+
+    public List<String> names() {
+        return fields;
+    }
+
+    public boolean contains(String field) {
+        return fields.contains(field);
+    }
+
+    /** One map per tuple; tuple[i] is the value of names().get(i), extra trailing values are ignored. */
+    public List<Map<String, Object>> toRows(List<Object[]> tuples) {
+        List<Map<String, Object>> rows = new ArrayList<>(tuples.size());
+        for (Object[] tuple : tuples) {
+            Map<String, Object> row = new LinkedHashMap<>();
+            for (int i = 0; i < fields.size(); i++) {
+                Object value = tuple[i];
+                row.put(fields.get(i), value instanceof Timestamp timestamp ? timestamp.toLocalDateTime() : value);
+            }
+            rows.add(row);
+        }
+        return rows;
+    }
+
+    // customerName -> customer_name, for the JDBC-backed stores
+    public static String column(String field) {
+        StringBuilder column = new StringBuilder(field.length() + 4);
+        for (char c : field.toCharArray()) {
+            if (Character.isUpperCase(c)) {
+                column.append('_').append(Character.toLowerCase(c));
+            } else {
+                column.append(c);
+            }
+        }
+        return column.toString();
+    }
+}
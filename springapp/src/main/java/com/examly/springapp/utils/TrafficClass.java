@@ -0,0 +1,43 @@
+package com.examly.springapp.utils;
+
+import java.util.concurrent.Callable;
+
+// Bulkhead a request belongs to; set by BulkheadFilter for the request thread
+public enum TrafficClass {
+    CHECKOUT,   // order placement: must keep its latency while the admin panel is busy
+    ADMIN,      // full listings, summaries, bulk edits
+    DEFAULT;
+
+    private static final ThreadLocal<TrafficClass> CURRENT = new ThreadLocal<>();
+
+    // null outside a request (startup, schedulers); such work gets DEFAULT's connection partition
+    public static TrafficClass current() {
+        return CURRENT.get();
+    }
+
+    // The task runs in the caller's class on whichever thread executes it (e.g. a fan-out pool)
+    public static <T> Callable<T> propagate(Callable<T> task) {
+        TrafficClass trafficClass = current();
+        return () -> {
+            TrafficClass previous = current();
+            CURRENT.set(trafficClass);
+            try {
+                return task.call();
+            } finally {
+                if (previous == null) {
+                    CURRENT.remove();
+                } else {
+                    CURRENT.set(previous);
+                }
+            }
+        };
+    }
+
+    static void set(TrafficClass trafficClass) {
+        CURRENT.set(trafficClass);
+    }
+
+    static void clear() {
+        CURRENT.remove();
+    }
+}
@@ -0,0 +1,37 @@
+package com.examly.springapp.utils;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
+
+/**
+ * Reading an auto-increment log by "version > since" is only safe up to the first hole: the
+ * missing version may belong to a transaction that has not committed yet, and a reader that
+ * moves past it never sees that row. A hole is waited on until the row written right after it
+ * is older than the cutoff; by then the transaction that took the version has rolled back
+ * (ids are never reused) or has outlived any sensible transaction timeout.
+ */
+public final class VersionGaps {
+
+    private VersionGaps() {
+    }
+
+    /**
+     * How many leading rows of {@code rows} (ordered by version, all above {@code since}) can be
+     * consumed without stepping over a hole younger than {@code holeCutoff}.
+     */
+    public static <T> int readable(long since, List<T> rows, ToLongFunction<T> version,
+                                   Function<T, LocalDateTime> writtenAt, LocalDateTime holeCutoff) {
+        long expected = since + 1;
+        for (int i = 0; i < rows.size(); i++) {
+            T row = rows.get(i);
+            long v = version.applyAsLong(row);
+            if (v != expected && writtenAt.apply(row).isAfter(holeCutoff)) {
+                return i;
+            }
+            expected = v + 1;
+        }
+        return rows.size();
+    }
+}
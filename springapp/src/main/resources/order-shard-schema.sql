@@ -0,0 +1,33 @@
+-- Order tables of one order shard (app.order-shards.urls); MySQL syntax, also accepted by H2 in MODE=MySQL.
+-- Products and users live on the primary, so there are no foreign keys; order_item keeps the
+-- product's category as it was at purchase for analytics.
+create table if not exists orders (
+    id bigint not null primary key,
+    user_id bigint not null,
+    customer_name varchar(255) not null,
+    customer_email varchar(255) not null,
+    shipping_address varchar(255) not null,
+    order_date datetime(6),
+    status varchar(255),
+    total_amount double not null,
+    subtotal_amount double not null,
+    discount_amount double not null,
+    tax_amount double not null,
+    coupon_code varchar(50),
+    index idx_orders_user (user_id, id),
+    index idx_orders_email (customer_email, id),
+    index idx_orders_name (customer_name, id),
+    index idx_orders_status_id (status, id),
+    index idx_orders_total (total_amount, id)
+);
+
+create table if not exists order_item (
+    id bigint not null primary key,
+    order_id bigint not null,
+    product_id bigint not null,
+    category varchar(255),
+    quantity integer not null,
+    price_at_purchase double not null,
+    index idx_order_item_order (order_id),
+    index idx_order_item_product_order (product_id, order_id)
+);
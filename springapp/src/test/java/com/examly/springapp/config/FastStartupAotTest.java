@@ -0,0 +1,39 @@
+package com.examly.springapp.config;
+
+import com.examly.springapp.ECommerceAdminPanelApplication;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.boot.SpringApplicationAotProcessor;
+import org.springframework.context.aot.AbstractAotProcessor;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// The same AOT processing the fast-startup profile runs (process-aot for the prod profile), so a bean
+// that breaks it fails the regular build instead of only mvn -Pfast-startup package
+public class FastStartupAotTest {
+
+    @TempDir
+    Path output;
+
+    @Test
+    void config_prodContextCanBeProcessedAheadOfTime() throws Exception {
+        AbstractAotProcessor.Settings settings = AbstractAotProcessor.Settings.builder()
+                .sourceOutput(output.resolve("sources"))
+                .resourceOutput(output.resolve("resources"))
+                .classOutput(output.resolve("classes"))
+                .groupId("com.examly")
+                .artifactId("springapp")
+                .build();
+        new SpringApplicationAotProcessor(ECommerceAdminPanelApplication.class, settings,
+                new String[]{"--spring.profiles.active=prod"}).process();
+
+        try (Stream<Path> sources = Files.walk(output.resolve("sources"))) {
+            assertTrue(sources.anyMatch(path -> path.getFileName().toString()
+                    .equals("ECommerceAdminPanelApplication__BeanFactoryRegistrations.java")));
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package com.examly.springapp.config;
+
+import com.examly.springapp.utils.BulkheadFilter;
+import com.examly.springapp.utils.Bulkheads;
+import com.examly.springapp.utils.TrafficClass;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.sql.Connection;
+import java.sql.SQLTransientConnectionException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Partitions over an in-memory H2 database; requests are classified by the real BulkheadFilter
+public class PartitionedDataSourceTest {
+
+    private PartitionedDataSource dataSource;
+    private final BulkheadFilter filter = new BulkheadFilter(new Bulkheads(new MockEnvironment()));
+    private final ExecutorService threads = Executors.newCachedThreadPool();
+
+    @BeforeEach
+    void setUp() {
+        DriverManagerDataSource target = new DriverManagerDataSource("jdbc:h2:mem:partitioned;DB_CLOSE_DELAY=-1");
+        dataSource = new PartitionedDataSource(target,
+                Map.of(TrafficClass.ADMIN, 1, TrafficClass.DEFAULT, 2), 100);
+    }
+
+    @AfterEach
+    void tearDown() {
+        threads.shutdownNow();
+    }
+
+    private <T> T inRequest(String method, String path, Callable<T> work) throws Exception {
+        AtomicReference<T> result = new AtomicReference<>();
+        AtomicReference<Exception> failure = new AtomicReference<>();
+        filter.doFilter(new MockHttpServletRequest(method, path), new MockHttpServletResponse(), (request, response) -> {
+            try {
+                result.set(work.call());
+            } catch (Exception e) {
+                failure.set(e);
+            }
+        });
+        if (failure.get() != null) {
+            throw failure.get();
+        }
+        return result.get();
+    }
+
+    // Opens a connection on another thread and keeps it until released
+    private CountDownLatch hold(String method, String path) throws Exception {
+        CountDownLatch opened = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        threads.submit(() -> {
+            Callable<Void> work = () -> {
+                try (Connection ignored = dataSource.getConnection()) {
+                    opened.countDown();
+                    release.await(10, TimeUnit.SECONDS);
+                }
+                return null;
+            };
+            return method == null ? work.call() : inRequest(method, path, work);
+        });
+        assertTrue(opened.await(10, TimeUnit.SECONDS));
+        return release;
+    }
+
+    private int inUse(TrafficClass trafficClass) {
+        return dataSource.stats().get(trafficClass).get("inUse");
+    }
+
+    @Test
+    void config_cappedClassesWaitThenFailWhileCheckoutIsNotCapped() throws Exception {
+        CountDownLatch admin = hold("GET", "/api/orders");
+        assertEquals(1, inUse(TrafficClass.ADMIN));
+        assertThrows(SQLTransientConnectionException.class,
+                () -> inRequest("GET", "/api/users", () -> dataSource.getConnection()));
+
+        // checkout takes as many connections as the pool has, with the admin partition full
+        List<Connection> checkout = inRequest("POST", "/api/orders", () -> {
+            List<Connection> connections = new ArrayList<>();
+            for (int i = 0; i < 3; i++) {
+                connections.add(dataSource.getConnection());
+            }
+            return connections;
+        });
+        for (Connection connection : checkout) {
+            connection.close();
+        }
+
+        admin.countDown();
+        try (Connection connection = inRequest("GET", "/api/orders", () -> dataSource.getConnection())) {
+            assertFalse(connection.isClosed());
+        }
+        assertEquals(0, inUse(TrafficClass.ADMIN));
+    }
+
+    @Test
+    void config_threadsOutsideARequestShareTheDefaultPartition() throws Exception {
+        CountDownLatch first = hold(null, null);
+        CountDownLatch second = hold("GET", "/api/products");
+        assertEquals(2, inUse(TrafficClass.DEFAULT));
+        // a scheduler-style thread is capped too
+        ExecutionException failed = assertThrows(ExecutionException.class,
+                () -> threads.submit(() -> dataSource.getConnection()).get(10, TimeUnit.SECONDS));
+        assertInstanceOf(SQLTransientConnectionException.class, failed.getCause());
+
+        first.countDown();
+        second.countDown();
+        Connection connection = threads.submit(() -> dataSource.getConnection()).get(10, TimeUnit.SECONDS);
+        connection.close();
+    }
+
+    @Test
+    void config_nestedConnectionsOnOneThreadShareItsPermit() throws Exception {
+        inRequest("GET", "/api/orders", () -> {
+            Connection outer = dataSource.getConnection();
+            // a REQUIRES_NEW transaction inside: must not wait for the permit its own thread holds
+            Connection inner = dataSource.getConnection();
+            assertEquals(1, inUse(TrafficClass.ADMIN));
+
+            outer.close();
+            assertEquals(1, inUse(TrafficClass.ADMIN));
+            inner.close();
+            inner.close();
+            assertEquals(0, inUse(TrafficClass.ADMIN));
+            return null;
+        });
+    }
+
+    @Test
+    void config_orderShardFanOutDrawsOnTheCallersPartitionOfEachShard() throws Exception {
+        try (OrderShards shards = new OrderShardConfig().orderShards(new String[]{
+                "jdbc:h2:mem:partitioned-shard0;MODE=MySQL;DB_CLOSE_DELAY=-1",
+                "jdbc:h2:mem:partitioned-shard1;MODE=MySQL;DB_CLOSE_DELAY=-1"}, "sa", "", 4, 2, 1, 2, 100)) {
+            List<Map<TrafficClass, Map<String, Integer>>> seen = inRequest("GET", "/api/orders",
+                    () -> shards.scatter(shard -> shard.transactions().execute(status ->
+                            ((PartitionedDataSource) shard.dataSource()).stats())));
+            for (Map<TrafficClass, Map<String, Integer>> stats : seen) {
+                assertEquals(1, stats.get(TrafficClass.ADMIN).get("inUse"));
+                assertEquals(1, stats.get(TrafficClass.ADMIN).get("maxConnections"));
+                assertEquals(0, stats.get(TrafficClass.DEFAULT).get("inUse"));
+            }
+        }
+    }
+}
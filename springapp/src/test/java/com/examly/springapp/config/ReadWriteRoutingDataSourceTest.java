@@ -0,0 +1,96 @@
+package com.examly.springapp.config;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import javax.sql.DataSource;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Two in-memory H2 databases stand in for the primary and the replica
+public class ReadWriteRoutingDataSourceTest {
+
+    private JdbcTemplate jdbc;
+    private TransactionTemplate readWrite;
+    private TransactionTemplate readOnly;
+
+    @BeforeEach
+    void setUp() {
+        DataSource primary = h2("routing_primary");
+        DataSource replica = h2("routing_replica");
+        new JdbcTemplate(primary).execute("create table if not exists db_marker(name varchar(20))");
+        new JdbcTemplate(primary).execute("merge into db_marker key(name) values ('primary')");
+        new JdbcTemplate(replica).execute("create table if not exists db_marker(name varchar(20))");
+        new JdbcTemplate(replica).execute("merge into db_marker key(name) values ('replica')");
+
+        DataSource routed = new LazyConnectionDataSourceProxy(
+                new ReadWriteRoutingDataSource(primary, replica, new ReadYourWritesTracker(60_000)));
+        DataSourceTransactionManager txManager = new DataSourceTransactionManager(routed);
+
+        jdbc = new JdbcTemplate(routed);
+        readWrite = new TransactionTemplate(txManager);
+        readOnly = new TransactionTemplate(txManager);
+        readOnly.setReadOnly(true);
+    }
+
+    @AfterEach
+    void tearDown() {
+        RequestContextHolder.resetRequestAttributes();
+    }
+
+    @Test
+    void config_readOnlyTransactionUsesReplica() {
+        asClient("reader");
+        assertEquals("replica", readOnly.execute(status -> currentDatabase()));
+    }
+
+    @Test
+    void config_readWriteTransactionUsesPrimary() {
+        asClient("writer");
+        assertEquals("primary", readWrite.execute(status -> currentDatabase()));
+    }
+
+    @Test
+    void config_readsStickToPrimaryAfterWrite() {
+        asClient("sticky");
+        readWrite.executeWithoutResult(status -> jdbc.update("update db_marker set name = name"));
+        assertEquals("primary", readOnly.execute(status -> currentDatabase()));
+
+        // a different client is unaffected by that write
+        asClient("someone-else");
+        assertEquals("replica", readOnly.execute(status -> currentDatabase()));
+    }
+
+    @Test
+    void config_rolledBackWriteDoesNotPinClient() {
+        asClient("rollback");
+        readWrite.executeWithoutResult(status -> {
+            jdbc.update("update db_marker set name = name");
+            status.setRollbackOnly();
+        });
+        assertEquals("replica", readOnly.execute(status -> currentDatabase()));
+    }
+
+    private String currentDatabase() {
+        return jdbc.queryForObject("select name from db_marker", String.class);
+    }
+
+    private static void asClient(String clientId) {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader(ReadYourWritesTracker.CLIENT_ID_HEADER, clientId);
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request));
+    }
+
+    private static DataSource h2(String name) {
+        return new DriverManagerDataSource("jdbc:h2:mem:" + name + ";DB_CLOSE_DELAY=-1", "sa", "");
+    }
+}
@@ -1,5 +1,6 @@
 package com.examly.springapp.controller;
 
+import com.examly.springapp.dto.ProductPatchRequest;
 import com.examly.springapp.model.Product;
 import com.examly.springapp.repository.ProductRepository;
 import com.fasterxml.jackson.databind.ObjectMapper;
@@ -15,6 +16,7 @@ import org.springframework.test.annotation.DirtiesContext;
 import java.util.List;
 
 import static org.hamcrest.Matchers.*;
+import static org.junit.jupiter.api.Assertions.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
@@ -116,4 +118,70 @@ public class ProductControllerTest {
             .andExpect(jsonPath("$", hasSize(1)))
             .andExpect(jsonPath("$[0].name").value("TV"));
     }
+
+    @Test
+    void controller_productControllerSparseFieldsTest() throws Exception {
+        productRepository.saveAll(List.of(
+                Product.builder().name("Phone").description("Mobile").price(120.0).category("Electronics")
+                        .stockQuantity(10).imageUrl("http://example.com/p.jpg").build(),
+                Product.builder().name("Shirt").description("Cotton").price(30.0).category("Apparel")
+                        .stockQuantity(15).build()));
+
+        // id always comes first, then the requested fields and nothing else
+        mockMvc.perform(get("/api/products?category=electro&fields=name, price,imageUrl,name"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$", hasSize(1)))
+            .andExpect(jsonPath("$[0].id").exists())
+            .andExpect(jsonPath("$[0].name").value("Phone"))
+            .andExpect(jsonPath("$[0].price").value(120.0))
+            .andExpect(jsonPath("$[0].imageUrl").value("http://example.com/p.jpg"))
+            .andExpect(jsonPath("$[0].*", hasSize(4)));
+
+        mockMvc.perform(get("/api/products?fields=stockQuantity"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$[*].stockQuantity", containsInAnyOrder(10, 15)))
+            .andExpect(jsonPath("$[0].*", hasSize(2)));
+
+        // only allow-listed fields
+        mockMvc.perform(get("/api/products?fields=name,version"))
+            .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void controller_productControllerPatchVersionConflictTest() throws Exception {
+        Product phone = productRepository.save(Product.builder().name("Phone").description("Mobile").price(120.0)
+                .category("Electronics").stockQuantity(10).build());
+        Product shirt = productRepository.save(Product.builder().name("Shirt").description("Cotton").price(30.0)
+                .category("Apparel").stockQuantity(15).build());
+        long phoneVersion = phone.getVersion();
+        long shirtVersion = shirt.getVersion();
+
+        mockMvc.perform(patch("/api/products")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(List.of(
+                        ProductPatchRequest.builder().id(phone.getId()).version(phoneVersion).price(99.0).build(),
+                        ProductPatchRequest.builder().id(shirt.getId()).version(shirtVersion).stockDelta(-5).build()))))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$", hasSize(2)))
+            .andExpect(jsonPath("$[0].price").value(99.0))
+            .andExpect(jsonPath("$[0].version").value((int) phoneVersion + 1))
+            .andExpect(jsonPath("$[1].stockQuantity").value(10));
+
+        // the phone's version is stale now: the whole batch is rejected, the shirt included
+        mockMvc.perform(patch("/api/products")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(List.of(
+                        ProductPatchRequest.builder().id(shirt.getId()).version(shirtVersion + 1).price(25.0).build(),
+                        ProductPatchRequest.builder().id(phone.getId()).version(phoneVersion).price(80.0).build()))))
+            .andExpect(status().isConflict())
+            .andExpect(jsonPath("$.message").value("Product was modified concurrently, reload and retry"));
+
+        Product phoneAfter = productRepository.findById(phone.getId()).orElseThrow();
+        Product shirtAfter = productRepository.findById(shirt.getId()).orElseThrow();
+        assertEquals(99.0, phoneAfter.getPrice());
+        assertEquals(phoneVersion + 1, phoneAfter.getVersion());
+        assertEquals(30.0, shirtAfter.getPrice());
+        assertEquals(10, shirtAfter.getStockQuantity());
+        assertEquals(shirtVersion + 1, shirtAfter.getVersion());
+    }
 }
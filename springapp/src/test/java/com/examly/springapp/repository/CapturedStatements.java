@@ -0,0 +1,110 @@
+package com.examly.springapp.repository;
+
+import org.hibernate.Session;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.test.context.TestComponent;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Records every prepared query the application sends, with its bound values, so a test can
+ * EXPLAIN the SQL Hibernate actually generated instead of a hand-written copy of it.
+ */
+@TestComponent
+public class CapturedStatements implements BeanPostProcessor {
+
+    public record Statement(String sql, Map<Integer, Object> values) {}
+
+    private final List<Statement> statements = new CopyOnWriteArrayList<>();
+
+    public void clear() {
+        statements.clear();
+    }
+
+    // The last recorded query whose SQL contains the given text (case-insensitive)
+    public Statement last(String containing) {
+        for (int i = statements.size() - 1; i >= 0; i--) {
+            if (statements.get(i).sql().toLowerCase().contains(containing.toLowerCase())) {
+                return statements.get(i);
+            }
+        }
+        throw new AssertionError("No statement containing " + containing + " was executed");
+    }
+
+    // The database's plan for the statement, on the session's own connection
+    public static String explain(Session session, Statement statement) {
+        return session.doReturningWork(connection -> {
+            try (PreparedStatement explain = connection.prepareStatement("explain " + statement.sql())) {
+                for (Map.Entry<Integer, Object> value : statement.values().entrySet()) {
+                    explain.setObject(value.getKey(), value.getValue());
+                }
+                StringBuilder plan = new StringBuilder();
+                try (ResultSet rows = explain.executeQuery()) {
+                    while (rows.next()) {
+                        plan.append(rows.getString(1)).append('\n');
+                    }
+                }
+                return plan.toString().toUpperCase();
+            }
+        });
+    }
+
+    // The plan scans exactly this index, not one whose name merely starts the same
+    public static boolean usesIndex(String plan, String index) {
+        return plan.contains("/* PUBLIC." + index + " */") || plan.contains("/* PUBLIC." + index + ":");
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (bean instanceof DataSource dataSource) {
+            return proxy(DataSource.class, dataSource, (method, args, result) ->
+                    result instanceof Connection connection ? recording(connection) : result);
+        }
+        return bean;
+    }
+
+    private Connection recording(Connection connection) {
+        return proxy(Connection.class, connection, (method, args, result) ->
+                result instanceof PreparedStatement prepared && method.getName().equals("prepareStatement")
+                        ? recording(prepared, (String) args[0]) : result);
+    }
+
+    private PreparedStatement recording(PreparedStatement prepared, String sql) {
+        Map<Integer, Object> values = new TreeMap<>();
+        return proxy(PreparedStatement.class, prepared, (method, args, result) -> {
+            if (method.getName().startsWith("set") && args != null && args.length >= 2 && args[0] instanceof Integer index) {
+                values.put(index, method.getName().equals("setNull") ? null : args[1]);
+            } else if (method.getName().equals("executeQuery")) {
+                statements.add(new Statement(sql, new TreeMap<>(values)));
+            }
+            return result;
+        });
+    }
+
+    private interface AfterCall {
+        Object apply(Method method, Object[] args, Object result) throws Exception;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T proxy(Class<T> type, T target, AfterCall after) {
+        InvocationHandler handler = (self, method, args) -> {
+            try {
+                return after.apply(method, args, method.invoke(target, args));
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        };
+        return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, handler);
+    }
+}
@@ -0,0 +1,177 @@
+package com.examly.springapp.repository;
+
+import com.examly.springapp.dto.CursorPage;
+import com.examly.springapp.dto.OrderSearchQuery;
+import com.examly.springapp.model.*;
+import com.examly.springapp.service.NodeLeaseService;
+import jakarta.persistence.EntityManager;
+import org.hibernate.Session;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.annotation.DirtiesContext;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+@Import({NodeLeaseService.class, CapturedStatements.class})
+@DirtiesContext(classMode = DirtiesContext.ClassMode.BEFORE_EACH_TEST_METHOD)
+public class OrderSearchRepositoryTest {
+    @Autowired
+    private OrderRepository orderRepository;
+    @Autowired
+    private ProductRepository productRepository;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private EntityManager entityManager;
+    @Autowired
+    private CapturedStatements statements;
+
+    private User user;
+    private Product lamp;
+    private Product desk;
+    private Order annSmall;
+    private Order bob;
+    private Order annLarge;
+
+    @BeforeEach
+    void setup() {
+        user = userRepository.save(new User("admin@example.com", "secret", "Admin", Role.ADMIN));
+        lamp = productRepository.save(Product.builder().name("Lamp").description("Desc").price(25.0)
+                .category("Home").stockQuantity(10).build());
+        desk = productRepository.save(Product.builder().name("Desk").description("Desc").price(150.0)
+                .category("Home").stockQuantity(10).build());
+        annSmall = save(user, "Ann Lee", "ann@example.com", "PENDING", 50.0, lamp);
+        bob = save(user, "Bob Stone", "bob@example.com", "SHIPPED", 150.0, desk);
+        annLarge = save(user, "Ann Marie", "ann.marie@example.com", "SHIPPED", 300.0, lamp, desk);
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    private Order save(User user, String name, String email, String status, double total, Product... products) {
+        Order order = Order.builder().user(user).customerName(name).customerEmail(email).shippingAddress("Addr")
+                .status(status).totalAmount(total).orderDate(LocalDateTime.now()).orderItems(new ArrayList<>()).build();
+        for (Product product : products) {
+            order.getOrderItems().add(OrderItem.builder().order(order).product(product).quantity(1)
+                    .priceAtPurchase(product.getPrice()).build());
+        }
+        return orderRepository.save(order);
+    }
+
+    private List<Long> ids(OrderSearchQuery query) {
+        return orderRepository.findSearchPage(query).getItems().stream().map(Order::getId).toList();
+    }
+
+    @Test
+    void repository_searchCombinesOnlySuppliedCriteria() {
+        assertEquals(List.of(annLarge.getId(), bob.getId(), annSmall.getId()), ids(OrderSearchQuery.builder().build()));
+        assertEquals(List.of(annLarge.getId(), annSmall.getId()),
+                ids(OrderSearchQuery.builder().customerEmail("ann").build()));
+        assertEquals(List.of(annLarge.getId()),
+                ids(OrderSearchQuery.builder().customerName("Ann").status("SHIPPED").build()));
+        assertEquals(List.of(annLarge.getId(), annSmall.getId()),
+                ids(OrderSearchQuery.builder().productId(lamp.getId()).build()));
+        assertEquals(List.of(bob.getId()),
+                ids(OrderSearchQuery.builder().productId(desk.getId()).maxAmount(200.0).build()));
+        assertEquals(List.of(bob.getId()),
+                ids(OrderSearchQuery.builder().minAmount(100.0).maxAmount(200.0).build()));
+        assertEquals(List.of(),
+                ids(OrderSearchQuery.builder().from(LocalDateTime.now().plusDays(1)).build()));
+        assertEquals(List.of(annLarge.getId(), bob.getId(), annSmall.getId()),
+                ids(OrderSearchQuery.builder().from(LocalDateTime.now().minusDays(1)).to(LocalDateTime.now().plusDays(1)).build()));
+        // LIKE wildcards in the input are literal
+        assertEquals(List.of(), ids(OrderSearchQuery.builder().customerEmail("%ann").build()));
+    }
+
+    @Test
+    void repository_searchPagesWithCursorWithoutCounting() {
+        List<Long> seen = new ArrayList<>();
+        Long cursor = null;
+        int pages = 0;
+        do {
+            CursorPage<Order> page = orderRepository.findSearchPage(OrderSearchQuery.builder().cursor(cursor).size(2).build());
+            page.getItems().forEach(order -> seen.add(order.getId()));
+            cursor = page.isHasMore() ? Long.valueOf(page.getNextCursor()) : null;
+            pages++;
+        } while (cursor != null);
+        assertEquals(2, pages);
+        assertEquals(List.of(annLarge.getId(), bob.getId(), annSmall.getId()), seen);
+    }
+
+    @Test
+    void repository_dateRangeMatchesLegacyIdsOnTheOrderDate() {
+        // keyed before the switch to generated ids: a small id that carries no timestamp
+        entityManager.createNativeQuery("insert into orders (id, user_id, customer_name, customer_email, shipping_address, " +
+                        "order_date, status, total_amount, subtotal_amount, discount_amount, tax_amount) " +
+                        "values (42, ?1, 'Old', 'old@example.com', 'Addr', ?2, 'DELIVERED', 10, 10, 0, 0)")
+                .setParameter(1, user.getId())
+                .setParameter(2, LocalDateTime.of(2023, 6, 1, 12, 0))
+                .executeUpdate();
+
+        assertEquals(List.of(42L),
+                ids(OrderSearchQuery.builder().from(LocalDateTime.of(2023, 1, 1, 0, 0)).to(LocalDateTime.of(2024, 1, 1, 0, 0)).build()));
+        assertEquals(List.of(annLarge.getId(), bob.getId(), annSmall.getId()),
+                ids(OrderSearchQuery.builder().from(LocalDateTime.now().minusDays(1)).build()));
+        assertEquals(List.of(annLarge.getId(), bob.getId(), annSmall.getId(), 42L),
+                ids(OrderSearchQuery.builder().to(LocalDateTime.now().plusDays(1)).build()));
+
+        // a page boundary between generated and legacy ids
+        CursorPage<Order> first = orderRepository.findSearchPage(OrderSearchQuery.builder()
+                .from(LocalDateTime.of(2023, 1, 1, 0, 0)).size(3).build());
+        assertTrue(first.isHasMore());
+        assertEquals(List.of(42L), orderRepository.findSearchPage(OrderSearchQuery.builder()
+                .from(LocalDateTime.of(2023, 1, 1, 0, 0)).cursor(Long.valueOf(first.getNextCursor())).size(3).build())
+                .getItems().stream().map(Order::getId).toList());
+    }
+
+    @Test
+    void repository_searchPageComesWithItsLines() {
+        CursorPage<Order> page = orderRepository.findSearchPage(OrderSearchQuery.builder().build());
+        statements.clear();
+        int lines = 0;
+        for (Order order : page.getItems()) {
+            assertEquals(user.getEmail(), order.getUser().getEmail());
+            for (OrderItem item : order.getOrderItems()) {
+                assertNotNull(item.getProduct().getName());
+                lines++;
+            }
+        }
+        assertEquals(4, lines);
+        assertThrows(AssertionError.class, () -> statements.last("select"));
+    }
+
+    @Test
+    void repository_searchCriteriaUseTheirIndexes() {
+        String[] statuses = {"PENDING", "PROCESSING", "SHIPPED", "DELIVERED", "CANCELLED"};
+        for (int i = 0; i < 500; i++) {
+            save(user, "Bulk " + i, "bulk" + i + "@example.com", statuses[i % statuses.length], i, i % 2 == 0 ? lamp : desk);
+        }
+        entityManager.flush();
+        entityManager.createNativeQuery("analyze").executeUpdate();
+
+        String byEmail = plan(OrderSearchQuery.builder().customerEmail("bulk4").build());
+        assertTrue(byEmail.contains("/* PUBLIC.IDX_ORDERS_EMAIL: CUSTOMER_EMAIL >= 'BULK4'"), byEmail);
+        String byName = plan(OrderSearchQuery.builder().customerName("Bulk 4").build());
+        assertTrue(byName.contains("/* PUBLIC.IDX_ORDERS_NAME: CUSTOMER_NAME >= 'BULK 4'"), byName);
+        String byStatus = plan(OrderSearchQuery.builder().status("SHIPPED").build());
+        assertTrue(CapturedStatements.usesIndex(byStatus, "IDX_ORDERS_STATUS_ID"), byStatus);
+        String byAmount = plan(OrderSearchQuery.builder().minAmount(100.0).maxAmount(110.0).build());
+        assertTrue(CapturedStatements.usesIndex(byAmount, "IDX_ORDERS_TOTAL"), byAmount);
+        String byProduct = plan(OrderSearchQuery.builder().productId(lamp.getId()).build());
+        assertTrue(CapturedStatements.usesIndex(byProduct, "IDX_ORDER_ITEM_PRODUCT_ORDER"), byProduct);
+    }
+
+    // Plan of the page query findSearchPage generated for this search
+    private String plan(OrderSearchQuery query) {
+        statements.clear();
+        orderRepository.findSearchPage(query);
+        return CapturedStatements.explain(entityManager.unwrap(Session.class), statements.last(" desc"));
+    }
+}
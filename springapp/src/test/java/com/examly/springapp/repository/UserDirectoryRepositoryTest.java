@@ -0,0 +1,128 @@
+package com.examly.springapp.repository;
+
+import com.examly.springapp.dto.CursorPage;
+import com.examly.springapp.dto.UserDirectoryEntry;
+import com.examly.springapp.dto.UserDirectoryQuery;
+import com.examly.springapp.dto.UserDirectoryQuery.SortKey;
+import com.examly.springapp.model.Role;
+import com.examly.springapp.model.User;
+import com.examly.springapp.service.NodeLeaseService;
+import jakarta.persistence.EntityManager;
+import org.hibernate.Session;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.annotation.DirtiesContext;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+@Import({NodeLeaseService.class, CapturedStatements.class})
+@DirtiesContext(classMode = DirtiesContext.ClassMode.BEFORE_EACH_TEST_METHOD)
+public class UserDirectoryRepositoryTest {
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private EntityManager entityManager;
+    @Autowired
+    private CapturedStatements statements;
+
+    private final List<User> users = new ArrayList<>();
+
+    @BeforeEach
+    void setup() {
+        String[] names = {"Ann Lee", "Bob Stone", "Ann Lee", "Cara Diaz", "Anna Park", "Bob Stone", "Dan Wu"};
+        for (int i = 0; i < names.length; i++) {
+            User user = new User("user" + i + "@example.com", "secret", names[i], i % 3 == 0 ? Role.ADMIN : Role.USER);
+            user.setCreatedAt(LocalDateTime.of(2024, 1, 1, 0, 0).plusDays(i % 4));
+            users.add(userRepository.save(user));
+        }
+        User unnamed = new User("zed@example.com", "secret", null, Role.USER);
+        users.add(userRepository.save(unnamed));
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    private List<Long> ids(UserDirectoryQuery query) {
+        return userRepository.findDirectoryPage(query).getItems().stream().map(UserDirectoryEntry::getId).toList();
+    }
+
+    @Test
+    void repository_prefixSearchesTheNameOrTheEmail() {
+        assertEquals(List.of(users.get(0).getId(), users.get(2).getId(), users.get(4).getId()),
+                ids(UserDirectoryQuery.builder().prefix("Ann").sort(SortKey.NAME).build()));
+        assertEquals(List.of(users.get(3).getId()), ids(UserDirectoryQuery.builder().prefix("user3@").build()));
+        assertEquals(List.of(users.get(3).getId()), ids(UserDirectoryQuery.builder().prefix("user3").build()));
+        // a user matching on both columns is listed once
+        User both = userRepository.save(new User("bo@example.com", "secret", "Bo Stone", Role.USER));
+        assertEquals(List.of(users.get(1).getId(), users.get(5).getId(), both.getId()),
+                ids(UserDirectoryQuery.builder().prefix("Bo").build()));
+        // a user saved without a name is listed with an empty one
+        assertEquals("", userRepository.findById(users.get(7).getId()).orElseThrow().getName());
+    }
+
+    @Test
+    void repository_keysetPagesFollowTheSortAcrossTies() {
+        for (SortKey sort : List.of(SortKey.NAME, SortKey.CREATED_AT, SortKey.EMAIL, SortKey.ID)) {
+            for (boolean descending : List.of(false, true)) {
+                List<UserDirectoryEntry> seen = new ArrayList<>();
+                String cursor = null;
+                do {
+                    CursorPage<UserDirectoryEntry> page = userRepository.findDirectoryPage(UserDirectoryQuery.builder()
+                            .sort(sort).descending(descending).cursor(cursor).size(3).build());
+                    seen.addAll(page.getItems());
+                    cursor = page.isHasMore() ? page.getNextCursor() : null;
+                } while (cursor != null);
+
+                Comparator<UserDirectoryEntry> order = switch (sort) {
+                    case NAME -> Comparator.comparing(UserDirectoryEntry::getName);
+                    case CREATED_AT -> Comparator.comparing(UserDirectoryEntry::getCreatedAt);
+                    case EMAIL -> Comparator.comparing(UserDirectoryEntry::getEmail);
+                    default -> Comparator.comparing(UserDirectoryEntry::getId);
+                };
+                order = order.thenComparing(UserDirectoryEntry::getId);
+                List<UserDirectoryEntry> expected = new ArrayList<>(seen);
+                expected.sort(descending ? order.reversed() : order);
+                assertEquals(users.size(), seen.size(), sort + " desc=" + descending);
+                assertEquals(expected, seen, sort + " desc=" + descending);
+            }
+        }
+    }
+
+    @Test
+    void repository_generatedQueriesUseTheirIndexes() {
+        for (int i = 0; i < 500; i++) {
+            userRepository.save(new User("bulk" + i + "@example.com", "secret", "Bulk " + i, Role.USER));
+        }
+        entityManager.flush();
+        entityManager.createNativeQuery("analyze").executeUpdate();
+        // a prefix search is a range scan on each column's index
+        String byEmail = plan(UserDirectoryQuery.builder().prefix("bulk4").build(), "email like");
+        assertTrue(byEmail.contains("EMAIL >= 'BULK4'"), byEmail);
+        String byName = plan(UserDirectoryQuery.builder().prefix("Bulk 4").build(), "name like");
+        assertTrue(byName.contains("/* PUBLIC.IDX_USERS_NAME: NAME >= 'BULK 4'"), byName);
+
+        CursorPage<UserDirectoryEntry> first = userRepository.findDirectoryPage(
+                UserDirectoryQuery.builder().sort(SortKey.NAME).size(2).build());
+        String nameSort = plan(UserDirectoryQuery.builder().sort(SortKey.NAME).cursor(first.getNextCursor()).build(), "from users");
+        assertTrue(CapturedStatements.usesIndex(nameSort, "IDX_USERS_NAME") && nameSort.contains("INDEX SORTED"), nameSort);
+
+        first = userRepository.findDirectoryPage(UserDirectoryQuery.builder().sort(SortKey.CREATED_AT).size(2).build());
+        String createdAtSort = plan(UserDirectoryQuery.builder().sort(SortKey.CREATED_AT).cursor(first.getNextCursor()).build(), "from users");
+        assertTrue(CapturedStatements.usesIndex(createdAtSort, "IDX_USERS_CREATED_AT") && createdAtSort.contains("INDEX SORTED"), createdAtSort);
+    }
+
+    // Plan of the SQL the directory query generated; marker picks the statement when it runs several
+    private String plan(UserDirectoryQuery query, String marker) {
+        statements.clear();
+        userRepository.findDirectoryPage(query);
+        return CapturedStatements.explain(entityManager.unwrap(Session.class), statements.last(marker));
+    }
+}
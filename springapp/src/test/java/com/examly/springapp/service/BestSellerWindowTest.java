@@ -0,0 +1,72 @@
+package com.examly.springapp.service;
+
+import com.examly.springapp.dto.TopSellers;
+import com.examly.springapp.service.BestSellerService.SlidingWindow;
+import com.examly.springapp.service.BestSellerService.WindowSpec;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// The sliding windows on their own, with a synthetic clock
+public class BestSellerWindowTest {
+
+    private static final long MINUTE = 60_000;
+    private static final long START = 5 * MINUTE * 6_000_000L; // on a bucket boundary
+
+    private static List<Long> ids(TopSellers top) {
+        return top.getItems().stream().map(TopSellers.Entry::getProductId).toList();
+    }
+
+    @Test
+    void service_heavyHittersWinTheCandidateSlotsWhateverTheArrivalOrder() {
+        SlidingWindow window = new SlidingWindow(WindowSpec.HOUR, 1024, 4, 5);
+        // the light products fill the candidate set first
+        List<long[]> sales = new ArrayList<>();
+        for (long light = 1_000; light < 1_300; light++) {
+            sales.add(new long[]{light, 1});
+        }
+        List<long[]> heavy = new ArrayList<>();
+        for (long product = 1; product <= 5; product++) {
+            for (int i = 0; i < 20; i++) {
+                heavy.add(new long[]{product, 1 + product});
+            }
+        }
+        Collections.shuffle(heavy, new Random(7));
+        sales.addAll(heavy);
+
+        long now = START + 10 * MINUTE;
+        for (long[] sale : sales) {
+            window.add(sale[0], (int) sale[1], now, now);
+        }
+
+        TopSellers top = window.top(5, now);
+        assertEquals(List.of(5L, 4L, 3L, 2L, 1L), ids(top));
+        assertEquals(120, top.getItems().get(0).getUnitsSold());
+        assertEquals(300 + 20 * (2 + 3 + 4 + 5 + 6), top.getTotalUnits());
+    }
+
+    @Test
+    void service_oldBucketsLeaveTheWindowAndCancellationsCount() {
+        SlidingWindow window = new SlidingWindow(WindowSpec.HOUR, 1024, 4, 3);
+        window.add(1, 50, START, START);
+        window.add(2, 10, START + 30 * MINUTE, START + 30 * MINUTE);
+        window.add(3, 8, START + 30 * MINUTE, START + 30 * MINUTE);
+        assertEquals(List.of(1L, 2L, 3L), ids(window.top(10, START + 30 * MINUTE)));
+
+        // a cancellation lowers the product's count in the bucket of its order
+        window.add(2, -5, START + 30 * MINUTE, START + 40 * MINUTE);
+        assertEquals(List.of(1L, 3L, 2L), ids(window.top(10, START + 40 * MINUTE)));
+
+        // an hour later product 1's bucket has expired: its slot goes to a newcomer with fewer units
+        window.add(4, 1, START + 61 * MINUTE, START + 61 * MINUTE);
+        TopSellers top = window.top(10, START + 61 * MINUTE);
+        assertEquals(List.of(3L, 2L, 4L), ids(top));
+        assertEquals(14, top.getTotalUnits());
+
+        // sales from outside the window are ignored
+        window.add(5, 100, START, START + 61 * MINUTE);
+        assertEquals(14, window.top(10, START + 61 * MINUTE).getTotalUnits());
+    }
+}
@@ -0,0 +1,92 @@
+package com.examly.springapp.service;
+
+import com.examly.springapp.dto.OrderCreateRequest;
+import com.examly.springapp.dto.OrderItemCreateRequest;
+import com.examly.springapp.model.Product;
+import com.examly.springapp.model.Role;
+import com.examly.springapp.model.User;
+import com.examly.springapp.repository.ProductRepository;
+import com.examly.springapp.repository.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.annotation.DirtiesContext;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Order throughput on one hot product, single stock row vs. bucketed stock.
+// Run with: mvn test -Dtest=HotSkuOrderBenchmarkTest -Dbenchmark=true [-Dbenchmark.threads=16 -Dbenchmark.orders=4000]
+@SpringBootTest
+@DirtiesContext
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+public class HotSkuOrderBenchmarkTest {
+
+    private static final int THREADS = Integer.getInteger("benchmark.threads", 16);
+    private static final int ORDERS = Integer.getInteger("benchmark.orders", 4000);
+
+    @Autowired
+    private OrderService orderService;
+    @Autowired
+    private ProductService productService;
+    @Autowired
+    private ProductRepository productRepository;
+    @Autowired
+    private UserRepository userRepository;
+
+    @Test
+    void benchmark_hotSkuSingleRowVsBuckets() throws Exception {
+        User user = userRepository.save(new User("bench@example.com", "secret", "Bench", Role.USER));
+
+        Product singleRow = productRepository.save(hotProduct("Hot single-row"));
+        double singleRowRate = run(user.getId(), singleRow.getId());
+
+        Product bucketed = productRepository.save(hotProduct("Hot bucketed"));
+        productService.setStockBuckets(bucketed.getId(), THREADS);
+        double bucketedRate = run(user.getId(), bucketed.getId());
+
+        System.out.printf("hot SKU, %d threads, %d orders: single row %.0f orders/s, %d buckets %.0f orders/s%n",
+                THREADS, ORDERS, singleRowRate, THREADS, bucketedRate);
+
+        // no stock may be lost or oversold in either mode
+        assertEquals(ORDERS, productService.getProductById(singleRow.getId()).getStockQuantity());
+        assertEquals(ORDERS, productService.getProductById(bucketed.getId()).getStockQuantity());
+    }
+
+    private Product hotProduct(String name) {
+        return Product.builder().name(name).description(name).price(10.0).category("Bench")
+                .stockQuantity(ORDERS * 2).build();
+    }
+
+    // Returns committed orders per second
+    private double run(Long userId, Long productId) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        AtomicInteger remaining = new AtomicInteger(ORDERS);
+        List<Future<?>> workers = new ArrayList<>();
+        long start = System.nanoTime();
+        for (int t = 0; t < THREADS; t++) {
+            workers.add(pool.submit(() -> {
+                while (remaining.getAndDecrement() > 0) {
+                    orderService.createOrder(OrderCreateRequest.builder()
+                            .userId(userId)
+                            .customerName("Bench")
+                            .customerEmail("bench@example.com")
+                            .shippingAddress("1 Bench St")
+                            .orderItems(List.of(new OrderItemCreateRequest(productId, 1)))
+                            .build());
+                }
+            }));
+        }
+        for (Future<?> worker : workers) {
+            worker.get(5, TimeUnit.MINUTES);
+        }
+        long elapsed = System.nanoTime() - start;
+        pool.shutdown();
+        return ORDERS / (elapsed / 1e9);
+    }
+}
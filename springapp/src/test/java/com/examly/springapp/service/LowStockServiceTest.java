@@ -0,0 +1,43 @@
+package com.examly.springapp.service;
+
+import com.examly.springapp.dto.LowStockEntry;
+import com.examly.springapp.event.StockChangedEvent;
+import com.examly.springapp.model.Product;
+import com.examly.springapp.repository.ProductRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.test.annotation.DirtiesContext;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@DirtiesContext(classMode = DirtiesContext.ClassMode.BEFORE_EACH_TEST_METHOD)
+public class LowStockServiceTest {
+    @Autowired
+    private LowStockService lowStockService;
+    @Autowired
+    private ProductRepository productRepository;
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Test
+    void service_lateStockEventDoesNotOverwriteANewerLevel() {
+        Product product = productRepository.save(Product.builder().name("Lamp").description("Lamp").price(10.0)
+                .category("Home").stockQuantity(20).build());
+        product.setStockQuantity(4);
+        productRepository.save(product);
+
+        eventPublisher.publishEvent(new StockChangedEvent(product.getId(), 4));
+        // the listener for the earlier change (20 left) runs last
+        eventPublisher.publishEvent(new StockChangedEvent(product.getId(), 20));
+
+        List<LowStockEntry> low = lowStockService.getLowStock("stock", null, 10);
+        assertEquals(1, low.size());
+        assertEquals(product.getId(), low.get(0).getProductId());
+        assertEquals(4, low.get(0).getStockQuantity());
+    }
+}
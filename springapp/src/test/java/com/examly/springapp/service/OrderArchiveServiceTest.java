@@ -0,0 +1,125 @@
+package com.examly.springapp.service;
+
+import com.examly.springapp.dto.CursorPage;
+import com.examly.springapp.dto.OrderCreateRequest;
+import com.examly.springapp.dto.OrderItemCreateRequest;
+import com.examly.springapp.dto.OrderSearchQuery;
+import com.examly.springapp.model.*;
+import com.examly.springapp.repository.OrderItemRepository;
+import com.examly.springapp.repository.OrderRepository;
+import com.examly.springapp.repository.ProductRepository;
+import com.examly.springapp.repository.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@DirtiesContext(classMode = DirtiesContext.ClassMode.BEFORE_EACH_TEST_METHOD)
+public class OrderArchiveServiceTest {
+    @Autowired
+    private OrderArchiveService orderArchiveService;
+    @Autowired
+    private OrderService orderService;
+    @Autowired
+    private OrderRepository orderRepository;
+    @Autowired
+    private OrderItemRepository orderItemRepository;
+    @Autowired
+    private ProductRepository productRepository;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private Order place(User user, Product product, int quantity) {
+        return orderService.createOrder(OrderCreateRequest.builder()
+                .userId(user.getId())
+                .customerName("Ann")
+                .customerEmail("ann@example.com")
+                .shippingAddress("1 Main St")
+                .orderItems(List.of(new OrderItemCreateRequest(product.getId(), quantity)))
+                .build());
+    }
+
+    @Test
+    void service_movedOrdersAreReadableByIdAndGoneFromTheHotTables() {
+        User user = userRepository.save(new User("ann@example.com", "secret", "Ann", Role.USER));
+        Product product = productRepository.save(Product.builder().name("Lamp").description("Lamp").price(10.0)
+                .category("Home").stockQuantity(10).build());
+        Order delivered = place(user, product, 2);
+        Order open = place(user, product, 1);
+        transactionTemplate.executeWithoutResult(status ->
+                orderRepository.findById(delivered.getId()).orElseThrow().setStatus("DELIVERED"));
+
+        int moved = transactionTemplate.execute(status ->
+                orderArchiveService.moveBatch(LocalDateTime.now().plusMinutes(1)));
+        assertEquals(1, moved);
+
+        assertFalse(orderRepository.existsById(delivered.getId()));
+        assertTrue(orderItemRepository.findAll().stream()
+                .noneMatch(item -> item.getOrder().getId().equals(delivered.getId())));
+        assertTrue(orderArchiveService.isArchived(delivered.getId()));
+
+        Order archived = orderService.getOrderById(delivered.getId());
+        assertTrue(archived.isArchived());
+        assertEquals("DELIVERED", archived.getStatus());
+        assertEquals(20.0, archived.getSubtotalAmount(), 1e-9);
+        assertEquals(1, archived.getOrderItems().size());
+        assertEquals(2, archived.getOrderItems().get(0).getQuantity());
+        assertEquals(product.getId(), archived.getOrderItems().get(0).getProduct().getId());
+        assertEquals(user.getId(), archived.getUser().getId());
+
+        // the unpaged list only holds the hot tables; the keyset listing merges in the archive
+        assertEquals(List.of(open.getId()), orderService.getAllOrders().stream().map(Order::getId).toList());
+        assertEquals(List.of(open.getId(), delivered.getId()), orderService.getOrdersPlacedBetween(null, null, null, 10)
+                .getItems().stream().map(Order::getId).toList());
+    }
+
+    @Test
+    void service_customerAndDateSearchesMergeInTheArchive() {
+        User user = userRepository.save(new User("ann@example.com", "secret", "Ann", Role.USER));
+        Product product = productRepository.save(Product.builder().name("Lamp").description("Lamp").price(10.0)
+                .category("Home").stockQuantity(10).build());
+        List<Order> placed = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            placed.add(place(user, product, 1));
+        }
+        // the first and third go to the archive
+        transactionTemplate.executeWithoutResult(status -> List.of(placed.get(0), placed.get(2)).forEach(order ->
+                orderRepository.findById(order.getId()).orElseThrow().setStatus("DELIVERED")));
+        int moved = transactionTemplate.execute(status ->
+                orderArchiveService.moveBatch(LocalDateTime.now().plusMinutes(1)));
+        assertEquals(2, moved);
+
+        List<Long> newestFirst = placed.stream().map(Order::getId).sorted(Comparator.reverseOrder()).toList();
+        List<Long> seen = new ArrayList<>();
+        Long cursor = null;
+        do {
+            CursorPage<Order> page = orderService.searchOrders(OrderSearchQuery.builder()
+                    .customerEmail("ann@").cursor(cursor).size(3).build());
+            page.getItems().forEach(order -> seen.add(order.getId()));
+            cursor = page.isHasMore() ? Long.valueOf(page.getNextCursor()) : null;
+        } while (cursor != null);
+        assertEquals(newestFirst, seen);
+
+        assertEquals(newestFirst, ids(OrderSearchQuery.builder().from(LocalDateTime.now().minusDays(1)).build()));
+        assertEquals(List.of(placed.get(2).getId(), placed.get(0).getId()),
+                ids(OrderSearchQuery.builder().customerName("Ann").status("DELIVERED").build()));
+        // no indexed criterion for the archive: the hot orders only
+        assertEquals(List.of(placed.get(3).getId(), placed.get(1).getId()),
+                ids(OrderSearchQuery.builder().productId(product.getId()).build()));
+    }
+
+    private List<Long> ids(OrderSearchQuery query) {
+        return orderService.searchOrders(query).getItems().stream().map(Order::getId).toList();
+    }
+}
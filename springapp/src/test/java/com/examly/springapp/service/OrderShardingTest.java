@@ -0,0 +1,182 @@
+package com.examly.springapp.service;
+
+import com.examly.springapp.config.OrderShards;
+import com.examly.springapp.dto.CursorPage;
+import com.examly.springapp.dto.OrderCreateRequest;
+import com.examly.springapp.dto.OrderItemCreateRequest;
+import com.examly.springapp.dto.OrderSearchQuery;
+import com.examly.springapp.model.*;
+import com.examly.springapp.repository.*;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Two embedded databases as order shards next to the primary test database
+@SpringBootTest(properties = "app.order-shards.urls="
+        + "jdbc:h2:mem:orders0;MODE=MySQL;DB_CLOSE_DELAY=-1,"
+        + "jdbc:h2:mem:orders1;MODE=MySQL;DB_CLOSE_DELAY=-1")
+@DirtiesContext(classMode = DirtiesContext.ClassMode.BEFORE_EACH_TEST_METHOD)
+public class OrderShardingTest {
+    @Autowired
+    private OrderService orderService;
+    @Autowired
+    private ShardedOrderStore shardedOrderStore;
+    @Autowired
+    private OrderShards orderShards;
+    @Autowired
+    private OrderRepository orderRepository;
+    @Autowired
+    private ProductRepository productRepository;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+    @Autowired
+    private UserService userService;
+
+    private Product product;
+    private final List<User> users = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        for (OrderShards.Shard shard : orderShards.all()) {
+            shard.jdbc().update("delete from order_item");
+            shard.jdbc().update("delete from orders");
+        }
+        product = productRepository.save(Product.builder().name("Phone").description("Phone").price(100.0)
+                .category("Electronics").stockQuantity(100).build());
+        for (int i = 0; i < 8; i++) {
+            users.add(userRepository.save(new User("user" + i + "@example.com", "secret", "User " + i, Role.USER)));
+        }
+    }
+
+    private Order place(User user, int quantity) {
+        return orderService.createOrder(OrderCreateRequest.builder()
+                .userId(user.getId())
+                .customerName(user.getName())
+                .customerEmail(user.getEmail())
+                .shippingAddress("1 Main St")
+                .orderItems(List.of(new OrderItemCreateRequest(product.getId(), quantity)))
+                .build());
+    }
+
+    private int rowsOn(int shard, Long orderId) {
+        return orderShards.all().get(shard).jdbc()
+                .queryForObject("select count(*) from orders where id = ?", Integer.class, orderId);
+    }
+
+    @Test
+    void service_ordersLiveOnTheirUsersShard() {
+        Set<Integer> used = new HashSet<>();
+        for (User user : users) {
+            Order order = place(user, 1);
+            int shard = shardedOrderStore.shardOf(user.getId());
+            used.add(shard);
+            assertEquals(1, rowsOn(shard, order.getId()));
+            assertEquals(0, rowsOn(1 - shard, order.getId()));
+
+            Order read = orderService.getOrderById(order.getId());
+            assertEquals(user.getEmail(), read.getUser().getEmail());
+            assertEquals(1, read.getOrderItems().size());
+            assertEquals("Phone", read.getOrderItems().get(0).getProduct().getName());
+        }
+        assertEquals(2, used.size(), "8 users should not all hash to one shard");
+        assertEquals(0, orderRepository.count(), "no order rows on the primary");
+        assertEquals(92, productRepository.findById(product.getId()).orElseThrow().getStockQuantity());
+    }
+
+    @Test
+    void service_searchMergesShardsNewestFirst() {
+        List<Long> placed = new ArrayList<>();
+        for (User user : users) {
+            placed.add(place(user, 1).getId());
+        }
+        Collections.reverse(placed);
+
+        List<Long> seen = new ArrayList<>();
+        Long cursor = null;
+        do {
+            CursorPage<Order> page = orderService.searchOrders(OrderSearchQuery.builder().cursor(cursor).size(3).build());
+            page.getItems().forEach(order -> seen.add(order.getId()));
+            cursor = page.isHasMore() ? Long.valueOf(page.getNextCursor()) : null;
+        } while (cursor != null);
+        assertEquals(placed, seen);
+
+        assertEquals(List.of(placed.get(7)), orderService.searchOrders(OrderSearchQuery.builder()
+                .customerEmail("user0@").build()).getItems().stream().map(Order::getId).toList());
+        assertEquals(8, orderService.getAllOrders().size());
+    }
+
+    @Test
+    void service_statusChangesAndDeletesGoToTheOwningShard() {
+        User user = users.get(0);
+        Order order = place(user, 5);
+        int shard = shardedOrderStore.shardOf(user.getId());
+
+        orderService.cancelOrder(order.getId());
+        assertEquals("CANCELLED", orderShards.all().get(shard).jdbc()
+                .queryForObject("select status from orders where id = ?", String.class, order.getId()));
+        assertEquals(100, productRepository.findById(product.getId()).orElseThrow().getStockQuantity());
+
+        orderService.deleteOrder(order.getId());
+        assertEquals(0, rowsOn(shard, order.getId()));
+        assertThrows(RuntimeException.class, () -> orderService.getOrderById(order.getId()));
+    }
+
+    @Test
+    void service_shardWritesAreUndoneWhenThePrimaryTransactionRollsBack() {
+        User user = users.get(0);
+        Order order = place(user, 5);
+        int shard = shardedOrderStore.shardOf(user.getId());
+        String placedStatus = order.getStatus();
+
+        transactionTemplate.executeWithoutResult(status -> {
+            orderService.cancelOrder(order.getId());
+            status.setRollbackOnly();
+        });
+        assertEquals(placedStatus, orderShards.all().get(shard).jdbc()
+                .queryForObject("select status from orders where id = ?", String.class, order.getId()));
+        assertEquals(95, productRepository.findById(product.getId()).orElseThrow().getStockQuantity());
+
+        transactionTemplate.executeWithoutResult(status -> {
+            orderService.deleteOrder(order.getId());
+            status.setRollbackOnly();
+        });
+        assertEquals(1, rowsOn(shard, order.getId()));
+        assertEquals(order.getId(), orderService.getOrderById(order.getId()).getId());
+    }
+
+    @Test
+    void service_userComesWithTheOrdersOnItsShard() {
+        User user = users.get(0);
+        Order first = place(user, 1);
+        Order second = place(user, 2);
+        place(users.get(1), 1);
+
+        User loaded = userService.getUserById(user.getId()).orElseThrow();
+        assertEquals(List.of(first.getId(), second.getId()), loaded.getOrders().stream().map(Order::getId).toList());
+        assertEquals(2, loaded.getOrders().get(1).getOrderItems().get(0).getQuantity());
+        assertEquals(product.getId(), loaded.getOrders().get(1).getOrderItems().get(0).getProduct().getId());
+        assertEquals(0, orderRepository.count(), "no order rows on the primary");
+    }
+
+    @Test
+    void service_refusesToStartWhileThePrimaryStillHoldsOrders() {
+        shardedOrderStore.refuseOrdersLeftOnThePrimary();
+        User user = users.get(0);
+        orderRepository.save(Order.builder().user(user).customerName(user.getName()).customerEmail(user.getEmail())
+                .shippingAddress("1 Main St").orderDate(LocalDateTime.now()).status("DELIVERED").build());
+
+        IllegalStateException refused = assertThrows(IllegalStateException.class,
+                () -> shardedOrderStore.refuseOrdersLeftOnThePrimary());
+        assertTrue(refused.getMessage().contains("still holds 1 orders"));
+    }
+}
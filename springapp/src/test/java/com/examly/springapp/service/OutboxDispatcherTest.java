@@ -0,0 +1,153 @@
+package com.examly.springapp.service;
+
+import com.examly.springapp.event.OutboxConsumer;
+import com.examly.springapp.event.OutboxMessage;
+import com.examly.springapp.model.OutboxEvent;
+import com.examly.springapp.model.OutboxOffset;
+import com.examly.springapp.repository.OutboxEventRepository;
+import com.examly.springapp.repository.OutboxOffsetRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = {"outbox.node=node-a", "outbox.poll-ms=20", "outbox.retention-hours=0"})
+@DirtiesContext(classMode = DirtiesContext.ClassMode.BEFORE_EACH_TEST_METHOD)
+public class OutboxDispatcherTest {
+    @Autowired
+    private OutboxDispatcher dispatcher;
+    @Autowired
+    private OutboxEventRepository outboxEventRepository;
+    @Autowired
+    private OutboxOffsetRepository outboxOffsetRepository;
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+    @Autowired
+    private Recorder recorder;
+
+    @TestConfiguration
+    static class RecorderConfig {
+        @Bean
+        Recorder recorder() {
+            return new Recorder();
+        }
+    }
+
+    static class Recorder implements OutboxConsumer {
+        final List<Long> seen = new CopyOnWriteArrayList<>();
+        volatile long localOffset = Long.MAX_VALUE;
+
+        @Override
+        public String name() {
+            return "test-recorder";
+        }
+
+        @Override
+        public boolean accepts(String eventType) {
+            return "TestEvent".equals(eventType);
+        }
+
+        @Override
+        public void handle(OutboxMessage message) {
+            seen.add(message.id());
+        }
+
+        @Override
+        public long localOffset() {
+            return localOffset;
+        }
+    }
+
+    private OutboxEvent event() {
+        return OutboxEvent.builder().eventType("TestEvent").payload("{}").createdAt(LocalDateTime.now()).build();
+    }
+
+    private void awaitSeen(int count) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (recorder.seen.size() < count && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+    }
+
+    @Test
+    void service_pollerWaitsForAnUncommittedLowerId() throws Exception {
+        ExecutorService pool = Executors.newSingleThreadExecutor();
+        try {
+            CountDownLatch inserted = new CountDownLatch(1);
+            CountDownLatch commit = new CountDownLatch(1);
+            Future<Long> slow = pool.submit(() -> transactionTemplate.execute(status -> {
+                long id = outboxEventRepository.saveAndFlush(event()).getId();
+                inserted.countDown();
+                try {
+                    commit.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return id;
+            }));
+            assertTrue(inserted.await(10, TimeUnit.SECONDS));
+            long fast = outboxEventRepository.save(event()).getId();
+
+            // the committed event sits behind the hole left by the open transaction
+            Thread.sleep(500);
+            assertEquals(List.of(), recorder.seen);
+
+            commit.countDown();
+            long slowId = slow.get(10, TimeUnit.SECONDS);
+            awaitSeen(2);
+            assertEquals(List.of(slowId, fast), recorder.seen);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    void service_offsetsAreKeptPerNodeAndPurgeWaitsForEveryActiveNode() throws Exception {
+        long id = outboxEventRepository.save(event()).getId();
+        awaitSeen(1);
+        assertEquals(List.of(id), recorder.seen);
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (outboxOffsetRepository.findById(new OutboxOffset.Key("test-recorder", "node-a")).orElseThrow()
+                .getLastEventId() < id && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+
+        // another instance that has not got this far yet keeps the event
+        outboxOffsetRepository.save(OutboxOffset.builder().consumer("test-recorder").node("node-b")
+                .lastEventId(id - 1).updatedAt(LocalDateTime.now().plusHours(1)).build());
+        dispatcher.purgeDelivered();
+        assertTrue(outboxEventRepository.existsById(id));
+
+        // once that instance has been idle for the retention period it no longer counts
+        outboxOffsetRepository.save(OutboxOffset.builder().consumer("test-recorder").node("node-b")
+                .lastEventId(id - 1).updatedAt(LocalDateTime.now().minusHours(1)).build());
+        dispatcher.purgeDelivered();
+        assertFalse(outboxEventRepository.existsById(id));
+    }
+
+    @Test
+    void service_consumerThatLostItsLocalStateIsReplayedFromTheOutbox() throws Exception {
+        long first = outboxEventRepository.save(event()).getId();
+        long second = outboxEventRepository.save(event()).getId();
+        awaitSeen(2);
+        dispatcher.stop();
+        outboxOffsetRepository.save(OutboxOffset.builder().consumer("test-recorder").node("node-a")
+                .lastEventId(second).updatedAt(LocalDateTime.now()).build());
+
+        // the stored offset is past both events, but the consumer's own state only has the first
+        recorder.seen.clear();
+        recorder.localOffset = first;
+        dispatcher.start();
+        awaitSeen(1);
+        assertEquals(List.of(second), recorder.seen);
+    }
+}
@@ -0,0 +1,133 @@
+package com.examly.springapp.service;
+
+import com.examly.springapp.dto.ProductChangeFeed;
+import com.examly.springapp.model.Product;
+import com.examly.springapp.model.ProductChange;
+import com.examly.springapp.repository.ProductChangeRepository;
+import com.examly.springapp.repository.ProductRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@DirtiesContext(classMode = DirtiesContext.ClassMode.BEFORE_EACH_TEST_METHOD)
+public class ProductChangeServiceTest {
+    @Autowired
+    private ProductChangeService changeService;
+    @Autowired
+    private ProductChangeRepository changeRepository;
+    @Autowired
+    private ProductRepository productRepository;
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private final List<Long> productIds = new ArrayList<>();
+
+    @BeforeEach
+    void setup() {
+        for (int i = 0; i < 3; i++) {
+            productIds.add(productRepository.save(Product.builder().name("P" + i).description("P").price(10.0)
+                    .category("Home").stockQuantity(5).build()).getId());
+        }
+    }
+
+    private void record(Long productId) {
+        transactionTemplate.executeWithoutResult(status -> changeService.recordUpsert(productId));
+    }
+
+    private List<Long> upsertIds(ProductChangeFeed feed) {
+        return feed.getUpserts().stream().map(Product::getId).toList();
+    }
+
+    @Test
+    void service_aWriterThatCommitsLateGetsTheLaterVersion() throws Exception {
+        record(productIds.get(0));
+        long start = changeService.getChangesSince(-1).getVersion();
+        assertEquals(changeService.getChangesSince(0).getVersion(), start);
+
+        CountDownLatch recorded = new CountDownLatch(1);
+        CountDownLatch commit = new CountDownLatch(1);
+        ExecutorService writer = Executors.newSingleThreadExecutor();
+        ProductChangeFeed first;
+        try {
+            Future<?> slow = writer.submit(() -> transactionTemplate.executeWithoutResult(status -> {
+                changeService.recordUpsert(productIds.get(1));
+                recorded.countDown();
+                try {
+                    commit.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }));
+            assertTrue(recorded.await(10, TimeUnit.SECONDS));
+            record(productIds.get(2));
+
+            // the open writer holds no version yet, so nothing stalls behind it
+            first = changeService.getChangesSince(start);
+            assertEquals(List.of(productIds.get(2)), upsertIds(first));
+            assertEquals(start + 1, first.getVersion());
+
+            commit.countDown();
+            slow.get(10, TimeUnit.SECONDS);
+        } finally {
+            writer.shutdownNow();
+        }
+
+        ProductChangeFeed next = changeService.getChangesSince(first.getVersion());
+        assertEquals(List.of(productIds.get(1)), upsertIds(next));
+        assertEquals(start + 2, next.getVersion());
+    }
+
+    @Test
+    void service_aRolledBackWriterLeavesNoHole() {
+        record(productIds.get(0));
+        long start = changeService.getChangesSince(-1).getVersion();
+
+        transactionTemplate.executeWithoutResult(status -> {
+            changeService.recordUpsert(productIds.get(1));
+            status.setRollbackOnly();
+        });
+        record(productIds.get(2));
+
+        ProductChangeFeed feed = changeService.getChangesSince(start);
+        assertEquals(List.of(productIds.get(2)), upsertIds(feed));
+        assertEquals(start + 1, feed.getVersion());
+    }
+
+    @Test
+    void service_feedStepsOverAVersionThatRolledBackOnceItIsOld() {
+        record(productIds.get(0));
+        long start = changeService.getChangesSince(-1).getVersion();
+
+        // a version taken by a commit that then failed
+        transactionTemplate.executeWithoutResult(status -> {
+            changeRepository.save(ProductChange.builder().productId(productIds.get(1))
+                    .changedAt(LocalDateTime.now()).build());
+            status.setRollbackOnly();
+        });
+        record(productIds.get(2));
+        // a young hole holds the feed back
+        assertEquals(start, changeService.getChangesSince(start).getVersion());
+
+        // once the change after the hole is older than the timeout, the hole is a rollback
+        ProductChange after = changeRepository.findAll().stream()
+                .filter(change -> change.getVersion() > start).findFirst().orElseThrow();
+        after.setChangedAt(LocalDateTime.now().minusHours(1));
+        changeRepository.save(after);
+
+        ProductChangeFeed feed = changeService.getChangesSince(start);
+        assertEquals(List.of(productIds.get(2)), upsertIds(feed));
+        assertEquals(after.getVersion(), feed.getVersion());
+        assertEquals(start + 2, after.getVersion());
+    }
+}
@@ -0,0 +1,94 @@
+package com.examly.springapp.service;
+
+import com.examly.springapp.dto.ProductImportStatus;
+import com.examly.springapp.model.Product;
+import com.examly.springapp.repository.ProductRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.annotation.DirtiesContext;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = {"import.dir=target/test-imports", "import.chunk-size=4"})
+@DirtiesContext(classMode = DirtiesContext.ClassMode.BEFORE_EACH_TEST_METHOD)
+public class ProductImportServiceTest {
+    @Autowired
+    private ProductImportService productImportService;
+    @Autowired
+    private ProductRepository productRepository;
+
+    private ProductImportStatus importCsv(String csv) throws InterruptedException {
+        ProductImportStatus status = productImportService.start(new MockMultipartFile("file", "products.csv",
+                "text/csv", csv.getBytes(StandardCharsets.UTF_8)));
+        for (int i = 0; i < 300; i++) {
+            status = productImportService.getStatus(status.getId());
+            if (status.getState().equals("COMPLETED") || status.getState().equals("FAILED")) {
+                return status;
+            }
+            Thread.sleep(100);
+        }
+        fail("Import did not finish");
+        return status;
+    }
+
+    @Test
+    void service_badRowsGoToTheErrorFileAndTheRestOfTheirChunkIsSaved() throws Exception {
+        String tooLong = "x".repeat(300);
+        ProductImportStatus status = importCsv("""
+                sku,name,description,price,category,stockQuantity
+                LAMP-1,Lamp,Desk lamp,20,Home,5
+                DESK-1,Desk,Oak desk,150,Home,2
+                LAMP-1,Lamp again,Desk lamp,21,Home,5
+                BAD-1,%s,Name too long for the column,10,Home,1
+                CHAIR-1,Chair,Kitchen chair,40,Home,3
+                RUG-1,Rug,Wool rug,-5,Home,1
+                SHELF-1,Shelf,Wall shelf,30,Home,4
+                """.formatted(tooLong));
+
+        assertEquals("COMPLETED", status.getState());
+        assertEquals(7, status.getRowsRead());
+        assertEquals(4, status.getInserted());
+        assertEquals(3, status.getFailed());
+        assertEquals(4, productRepository.count());
+        assertEquals(List.of("CHAIR-1", "DESK-1", "LAMP-1", "SHELF-1"), productRepository.findAll().stream()
+                .map(Product::getSku).sorted().toList());
+
+        // the database rejected BAD-1 together with the rows of its chunk; only BAD-1 is reported
+        List<String> errors = Files.readAllLines(productImportService.getErrorFile(status.getId()));
+        assertEquals("line,sku,error", errors.get(0));
+        assertEquals(4, errors.size());
+        assertEquals("4,LAMP-1,\"Duplicate SKU, first seen on line 2\"", errors.get(1));
+        assertTrue(errors.stream().anyMatch(line -> line.startsWith("5,BAD-1,\"Row could not be saved: Value too long")));
+        assertTrue(errors.stream().anyMatch(line -> line.startsWith("7,RUG-1,Invalid product data")));
+    }
+
+    @Test
+    void service_reimportUpdatesOnlyChangedRowsAndKeysLegacyProducts() throws Exception {
+        Product legacy = productRepository.save(Product.builder().name("Lamp").description("Desk lamp").price(20.0)
+                .category("Home").stockQuantity(5).build());
+        String csv = """
+                sku,name,description,price,category,stockQuantity
+                LAMP-1,Lamp,Desk lamp,20,Home,5
+                DESK-1,Desk,Oak desk,150,Home,2
+                """;
+
+        ProductImportStatus first = importCsv(csv);
+        assertEquals(1, first.getInserted());
+        assertEquals(1, first.getUpdated());
+        assertEquals("LAMP-1", productRepository.findById(legacy.getId()).orElseThrow().getSku());
+        assertEquals(2, productRepository.count());
+
+        ProductImportStatus second = importCsv(csv.replace("Home,2", "Home,9"));
+        assertEquals(0, second.getInserted());
+        assertEquals(1, second.getUpdated());
+        assertEquals(1, second.getUnchanged());
+        assertEquals(0, second.getFailed());
+        assertEquals(2, productRepository.count());
+    }
+}
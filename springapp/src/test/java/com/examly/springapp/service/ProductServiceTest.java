@@ -0,0 +1,169 @@
+package com.examly.springapp.service;
+
+import com.examly.springapp.dto.ProductPatchRequest;
+import com.examly.springapp.event.ProductCatalogChangedEvent;
+import com.examly.springapp.event.StockChangedEvent;
+import com.examly.springapp.model.Product;
+import com.examly.springapp.repository.ProductRepository;
+import jakarta.validation.ValidationException;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.event.EventListener;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@DirtiesContext(classMode = DirtiesContext.ClassMode.BEFORE_EACH_TEST_METHOD)
+public class ProductServiceTest {
+    @Autowired
+    private ProductService productService;
+    @Autowired
+    private ProductRepository productRepository;
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+    @Autowired
+    private RecordedEvents events;
+
+    // Catalog and stock events as the listeners receive them
+    @TestConfiguration
+    static class RecordedEvents {
+        private final List<Object> received = new CopyOnWriteArrayList<>();
+
+        @EventListener({ProductCatalogChangedEvent.class, StockChangedEvent.class})
+        void on(Object event) {
+            received.add(event);
+        }
+
+        <T> Stream<T> stream(Class<T> type) {
+            return received.stream().filter(type::isInstance).map(type::cast);
+        }
+
+        void clear() {
+            received.clear();
+        }
+    }
+
+    private static Product row(String sku, String name, double price, int stock) {
+        return Product.builder().sku(sku).name(name).description(name + " desc").price(price)
+                .category("Home").stockQuantity(stock).build();
+    }
+
+    @Test
+    void service_restockRacingCheckoutDoesNotConflict() throws Exception {
+        Product lamp = productRepository.save(Product.builder().name("Lamp").description("Desk lamp").price(20.0)
+                .category("Home").stockQuantity(50).build());
+        List<ProductPatchRequest> restock = List.of(ProductPatchRequest.builder().id(lamp.getId()).stockDelta(1).build());
+
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> results = new ArrayList<>();
+            for (int i = 0; i < 20; i++) {
+                results.add(pool.submit(() -> productService.patchProducts(restock)));
+                results.add(pool.submit(() -> transactionTemplate.execute(status ->
+                        productRepository.decrementStock(lamp.getId(), 1))));
+            }
+            for (Future<?> result : results) {
+                result.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        Product after = productRepository.findById(lamp.getId()).orElseThrow();
+        assertEquals(50, after.getStockQuantity());
+        assertEquals(lamp.getVersion() + 40, after.getVersion());
+    }
+
+    @Test
+    void service_stockDeltaCannotTakeStockBelowZero() {
+        Product lamp = productRepository.save(Product.builder().name("Lamp").description("Desk lamp").price(20.0)
+                .category("Home").stockQuantity(2).build());
+
+        assertThrows(ValidationException.class, () -> productService.patchProducts(List.of(
+                ProductPatchRequest.builder().id(lamp.getId()).price(25.0).stockDelta(-3).build())));
+
+        Product after = productRepository.findById(lamp.getId()).orElseThrow();
+        assertEquals(2, after.getStockQuantity());
+        assertEquals(20.0, after.getPrice());
+    }
+
+    @Test
+    void service_upsertBySkuCountsInsertsUpdatesAndUnchangedRows() {
+        ProductService.UpsertResult first = productService.upsertBySku(List.of(
+                row("LAMP-1", "Lamp", 20.0, 5), row("DESK-1", "Desk", 150.0, 2)));
+        assertEquals(new ProductService.UpsertResult(2, 0, 0), first);
+        Long lampId = productRepository.findBySkuIn(List.of("LAMP-1")).get(0).getId();
+        Long deskId = productRepository.findBySkuIn(List.of("DESK-1")).get(0).getId();
+        assertEquals(2, events.stream(ProductCatalogChangedEvent.class)
+                .mapToLong(event -> event.productIds().size()).sum());
+
+        events.clear();
+        ProductService.UpsertResult second = productService.upsertBySku(List.of(
+                row("LAMP-1", "Lamp", 20.0, 5), row("DESK-1", "Desk", 150.0, 7), row("CHAIR-1", "Chair", 40.0, 3)));
+        assertEquals(new ProductService.UpsertResult(1, 1, 1), second);
+        assertEquals(7, productRepository.findById(deskId).orElseThrow().getStockQuantity());
+        // a stock change only: no catalog event for the desk, a stock event for it and the new chair
+        List<Long> catalog = events.stream(ProductCatalogChangedEvent.class)
+                .flatMap(event -> event.productIds().stream()).toList();
+        assertEquals(1, catalog.size());
+        assertFalse(catalog.contains(deskId) || catalog.contains(lampId));
+        assertTrue(events.stream(StockChangedEvent.class)
+                .anyMatch(event -> event.productId().equals(deskId) && event.stockQuantity() == 7));
+        assertTrue(events.stream(StockChangedEvent.class).noneMatch(event -> event.productId().equals(lampId)));
+    }
+
+    @Test
+    void service_upsertBySkuAdoptsAnUnambiguousProductWithoutSku() {
+        Product lamp = productRepository.save(Product.builder().name("Lamp").description("Lamp desc").price(20.0)
+                .category("Home").stockQuantity(5).build());
+        // two SKU-less desks: which one the row means is unknown, so it becomes a new product
+        productRepository.save(Product.builder().name("Desk").description("Desk desc").price(150.0)
+                .category("Home").stockQuantity(2).build());
+        productRepository.save(Product.builder().name("Desk").description("Desk desc").price(150.0)
+                .category("Home").stockQuantity(2).build());
+
+        ProductService.UpsertResult result = productService.upsertBySku(List.of(
+                row("LAMP-1", "Lamp", 20.0, 5), row("DESK-1", "Desk", 150.0, 2)));
+        assertEquals(new ProductService.UpsertResult(1, 1, 0), result);
+        assertEquals("LAMP-1", productRepository.findById(lamp.getId()).orElseThrow().getSku());
+        assertEquals(4, productRepository.count());
+
+        // the next import of the same rows changes nothing
+        assertEquals(new ProductService.UpsertResult(0, 0, 2), productService.upsertBySku(List.of(
+                row("LAMP-1", "Lamp", 20.0, 5), row("DESK-1", "Desk", 150.0, 2))));
+    }
+
+    @Test
+    void service_skuCanBeSetByUpdateAndPatch() {
+        Product lamp = productRepository.save(Product.builder().name("Lamp").description("Lamp desc").price(20.0)
+                .category("Home").stockQuantity(5).build());
+        Product desk = productRepository.save(Product.builder().name("Desk").description("Desk desc").price(150.0)
+                .category("Home").stockQuantity(2).build());
+
+        productService.patchProducts(List.of(ProductPatchRequest.builder().id(lamp.getId()).sku(" LAMP-1 ").build()));
+        assertEquals("LAMP-1", productRepository.findById(lamp.getId()).orElseThrow().getSku());
+
+        Product put = productRepository.findById(desk.getId()).orElseThrow();
+        put.setSku("DESK-1");
+        productService.updateProduct(desk.getId(), put);
+        assertEquals("DESK-1", productRepository.findById(desk.getId()).orElseThrow().getSku());
+
+        // a PUT without a SKU keeps it; taking another product's SKU is rejected
+        put.setSku(null);
+        productService.updateProduct(desk.getId(), put);
+        assertEquals("DESK-1", productRepository.findById(desk.getId()).orElseThrow().getSku());
+        assertThrows(ValidationException.class, () -> productService.patchProducts(List.of(
+                ProductPatchRequest.builder().id(desk.getId()).sku("LAMP-1").build())));
+        assertEquals(new ProductService.UpsertResult(0, 0, 1),
+                productService.upsertBySku(List.of(row("LAMP-1", "Lamp", 20.0, 5))));
+    }
+}
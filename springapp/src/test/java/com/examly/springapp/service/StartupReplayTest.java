@@ -0,0 +1,110 @@
+package com.examly.springapp.service;
+
+import com.examly.springapp.dto.OrderCreateRequest;
+import com.examly.springapp.dto.OrderItemCreateRequest;
+import com.examly.springapp.dto.OrderLineQuery;
+import com.examly.springapp.dto.OrderLineReport;
+import com.examly.springapp.dto.TopSellers;
+import com.examly.springapp.event.OutboxConsumer;
+import com.examly.springapp.event.OutboxMessage;
+import com.examly.springapp.model.*;
+import com.examly.springapp.repository.*;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// A consumer seeded from the tables replays the outbox from before the seed without counting twice
+@SpringBootTest(properties = "outbox.gap-timeout-ms=3600000")
+@DirtiesContext(classMode = DirtiesContext.ClassMode.BEFORE_EACH_TEST_METHOD)
+public class StartupReplayTest {
+    private static final long GAP_TIMEOUT_MS = 3_600_000;
+
+    @Autowired
+    private OrderService orderService;
+    @Autowired
+    private OrderRepository orderRepository;
+    @Autowired
+    private ArchivedOrderRepository archivedOrderRepository;
+    @Autowired
+    private ProductRepository productRepository;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private OutboxEventRepository outboxEventRepository;
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private Product lamp;
+
+    @BeforeEach
+    void setup() {
+        User user = userRepository.save(new User("ann@example.com", "secret", "Ann", Role.USER));
+        lamp = productRepository.save(Product.builder().name("Lamp").description("Lamp").price(10.0)
+                .category("Home").stockQuantity(50).build());
+        place(user, 2);
+        Order cancelled = place(user, 5);
+        orderService.cancelOrder(cancelled.getId());
+    }
+
+    private Order place(User user, int quantity) {
+        return orderService.createOrder(OrderCreateRequest.builder()
+                .userId(user.getId())
+                .customerName("Ann")
+                .customerEmail("ann@example.com")
+                .shippingAddress("1 Main St")
+                .orderItems(List.of(new OrderItemCreateRequest(lamp.getId(), quantity)))
+                .build());
+    }
+
+    // What the dispatcher hands a freshly started consumer
+    private void replay(OutboxConsumer consumer) throws Exception {
+        long from = consumer.localOffset();
+        assertTrue(from < outboxEventRepository.findLatestId());
+        for (OutboxEvent row : outboxEventRepository.findAfter(from, PageRequest.of(0, 1000))) {
+            if (consumer.accepts(row.getEventType())) {
+                consumer.handle(new OutboxMessage(row.getId(), row.getEventType(), row.getAggregateId(),
+                        row.getPayload(), row.getCreatedAt()));
+            }
+        }
+    }
+
+    @Test
+    void service_bestSellersReplayCountsEachOrderOnce() throws Exception {
+        BestSellerService bestSellers = new BestSellerService(orderRepository, productRepository, outboxEventRepository,
+                transactionTemplate, objectMapper, Optional.empty(), 2048, 4, 100, GAP_TIMEOUT_MS, true);
+        bestSellers.afterSingletonsInstantiated();
+        replay(bestSellers);
+
+        TopSellers top = bestSellers.getTopSellers("7d", 10);
+        assertEquals(1, top.getItems().size());
+        assertEquals(lamp.getId(), top.getItems().get(0).getProductId());
+        assertEquals(2, top.getItems().get(0).getUnitsSold());
+    }
+
+    @Test
+    void service_orderLineAnalyticsReplayAppendsEachOrderOnce() throws Exception {
+        OrderLineAnalyticsService analytics = new OrderLineAnalyticsService(orderRepository, archivedOrderRepository,
+                outboxEventRepository, transactionTemplate, objectMapper, Optional.empty(), 2, GAP_TIMEOUT_MS, true);
+        analytics.afterSingletonsInstantiated();
+        replay(analytics);
+
+        OrderLineReport report = analytics.query(OrderLineQuery.builder().groupBy(List.of("status")).build());
+        assertEquals(2, report.getScannedLines());
+        assertEquals(Map.of("PENDING", 2L, "CANCELLED", 5L), Map.of(
+                report.getRows().get(0).getKey().get("status"), report.getRows().get(0).getUnits(),
+                report.getRows().get(1).getKey().get("status"), report.getRows().get(1).getUnits()));
+    }
+}
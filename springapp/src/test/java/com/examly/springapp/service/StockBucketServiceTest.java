@@ -0,0 +1,108 @@
+package com.examly.springapp.service;
+
+import com.examly.springapp.model.Product;
+import com.examly.springapp.repository.ProductRepository;
+import com.examly.springapp.repository.StockBucketRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@DirtiesContext(classMode = DirtiesContext.ClassMode.BEFORE_EACH_TEST_METHOD)
+public class StockBucketServiceTest {
+    @Autowired
+    private StockBucketService stockBucketService;
+    @Autowired
+    private ProductRepository productRepository;
+    @Autowired
+    private StockBucketRepository stockBucketRepository;
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private Product product;
+
+    @BeforeEach
+    void setup() {
+        product = productRepository.save(Product.builder().name("Hot").description("Hot").price(10.0)
+                .category("Home").stockQuantity(20).build());
+    }
+
+    // What a request read before setBucketCount switched the product over
+    private Product readAs(int stockBuckets) {
+        return Product.builder().id(product.getId()).name("Hot").stockQuantity(20).stockBuckets(stockBuckets).build();
+    }
+
+    private boolean reserve(Product seen, int quantity) {
+        return transactionTemplate.execute(status -> stockBucketService.reserve(seen, quantity));
+    }
+
+    private void release(Product seen, int quantity) {
+        transactionTemplate.executeWithoutResult(status -> stockBucketService.release(seen, quantity));
+    }
+
+    @Test
+    void service_staleSingleRowReadUsesTheBuckets() {
+        stockBucketService.setBucketCount(product.getId(), 4);
+
+        assertTrue(reserve(readAs(0), 5));
+        assertEquals(15, stockBucketService.totalStock(product.getId()));
+        assertFalse(reserve(readAs(0), 16));
+
+        release(readAs(0), 5);
+        assertEquals(20, stockBucketService.totalStock(product.getId()));
+        // the row only holds the snapshot; it was not decremented behind the buckets' back
+        assertEquals(20, productRepository.findById(product.getId()).orElseThrow().getStockQuantity());
+    }
+
+    @Test
+    void service_staleBucketedReadUsesTheRow() {
+        stockBucketService.setBucketCount(product.getId(), 4);
+        stockBucketService.setBucketCount(product.getId(), 0);
+        assertEquals(0, stockBucketRepository.count());
+
+        assertTrue(reserve(readAs(4), 5));
+        assertEquals(15, productRepository.findById(product.getId()).orElseThrow().getStockQuantity());
+        assertFalse(reserve(readAs(4), 16));
+
+        release(readAs(4), 5);
+        assertEquals(20, productRepository.findById(product.getId()).orElseThrow().getStockQuantity());
+        assertEquals(0, stockBucketRepository.count());
+    }
+
+    @Test
+    void service_reserveFallbackAndRebalanceDoNotDeadlock() throws Exception {
+        stockBucketService.setBucketCount(product.getId(), 4);
+        Product bucketed = readAs(4);
+
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        try {
+            // no single bucket holds 8, so every reservation takes the product lock and then all buckets
+            Future<?> orders = pool.submit(() -> {
+                for (int i = 0; i < 200; i++) {
+                    assertTrue(reserve(bucketed, 8));
+                    release(bucketed, 8);
+                }
+            });
+            Future<?> rebalancer = pool.submit(() -> {
+                for (int i = 0; i < 200; i++) {
+                    stockBucketService.rebalanceAll();
+                }
+            });
+            orders.get(60, TimeUnit.SECONDS);
+            rebalancer.get(60, TimeUnit.SECONDS);
+        } finally {
+            pool.shutdownNow();
+        }
+        assertEquals(20, stockBucketService.totalStock(product.getId()));
+    }
+}
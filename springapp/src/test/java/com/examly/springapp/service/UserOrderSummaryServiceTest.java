@@ -0,0 +1,140 @@
+package com.examly.springapp.service;
+
+import com.examly.springapp.dto.OrderCreateRequest;
+import com.examly.springapp.dto.OrderItemCreateRequest;
+import com.examly.springapp.model.*;
+import com.examly.springapp.repository.ProductRepository;
+import com.examly.springapp.repository.UserOrderSummaryRepository;
+import com.examly.springapp.repository.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.annotation.DirtiesContext;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@DirtiesContext(classMode = DirtiesContext.ClassMode.BEFORE_EACH_TEST_METHOD)
+public class UserOrderSummaryServiceTest {
+    @Autowired
+    private OrderService orderService;
+    @Autowired
+    private UserOrderSummaryService summaryService;
+    @Autowired
+    private ProductRepository productRepository;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private UserOrderSummaryRepository summaryRepository;
+
+    private Order place(User user, Long productId) {
+        return orderService.createOrder(OrderCreateRequest.builder()
+                .userId(user.getId())
+                .customerName(user.getName())
+                .customerEmail(user.getEmail())
+                .shippingAddress("1 Main St")
+                .orderItems(List.of(new OrderItemCreateRequest(productId, 1)))
+                .build());
+    }
+
+    @Test
+    void service_concurrentFirstOrdersOfAUserAllCount() throws Exception {
+        int threads = 8;
+        User user = userRepository.save(new User("first@example.com", "secret", "First", Role.USER));
+        List<Long> productIds = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            // one product per order, so the checkouts only meet on the summary row
+            productIds.add(productRepository.save(Product.builder().name("P" + i).description("P").price(10.0)
+                    .category("Home").stockQuantity(5).build()).getId());
+        }
+
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            CyclicBarrier start = new CyclicBarrier(threads);
+            List<Future<Order>> placed = new ArrayList<>();
+            for (Long productId : productIds) {
+                placed.add(pool.submit(() -> {
+                    start.await();
+                    return orderService.createOrder(OrderCreateRequest.builder()
+                            .userId(user.getId())
+                            .customerName("First")
+                            .customerEmail("first@example.com")
+                            .shippingAddress("1 Main St")
+                            .orderItems(List.of(new OrderItemCreateRequest(productId, 2)))
+                            .build());
+                }));
+            }
+            for (Future<Order> order : placed) {
+                assertNotNull(order.get(30, TimeUnit.SECONDS).getId());
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        UserOrderSummary summary = summaryService.getSummary(user.getId());
+        assertEquals(threads, summary.getOrderCount());
+        assertEquals(threads, summary.getOpenOrderCount());
+        assertEquals(threads * 20.0, summary.getLifetimeSpend(), 1e-9);
+        assertNotNull(summary.getLastOrderDate());
+    }
+
+    @Test
+    void service_rebuildRewritesDriftedRowsAndDropsUsersWithoutOrders() {
+        User ann = userRepository.save(new User("ann@example.com", "secret", "Ann", Role.USER));
+        User bob = userRepository.save(new User("bob@example.com", "secret", "Bob", Role.USER));
+        User cara = userRepository.save(new User("cara@example.com", "secret", "Cara", Role.USER));
+        Long productId = productRepository.save(Product.builder().name("P").description("P").price(10.0)
+                .category("Home").stockQuantity(50).build()).getId();
+        place(ann, productId);
+        place(ann, productId);
+        place(bob, productId);
+
+        UserOrderSummary drifted = summaryRepository.findById(ann.getId()).orElseThrow();
+        drifted.setOrderCount(7);
+        drifted.setLifetimeSpend(1.0);
+        summaryRepository.save(drifted);
+        summaryRepository.save(UserOrderSummary.builder().userId(cara.getId()).orderCount(3).build());
+        summaryRepository.deleteById(bob.getId());
+
+        summaryService.rebuildAll();
+
+        assertEquals(2, summaryService.getSummary(ann.getId()).getOrderCount());
+        assertEquals(20.0, summaryService.getSummary(ann.getId()).getLifetimeSpend(), 1e-9);
+        assertEquals(1, summaryService.getSummary(bob.getId()).getOrderCount());
+        assertFalse(summaryRepository.existsById(cara.getId()));
+    }
+
+    @Test
+    void service_ordersPlacedDuringRebuildsAreNotLost() throws Exception {
+        int orders = 40;
+        User user = userRepository.save(new User("busy@example.com", "secret", "Busy", Role.USER));
+        Long productId = productRepository.save(Product.builder().name("P").description("P").price(10.0)
+                .category("Home").stockQuantity(orders).build()).getId();
+        place(user, productId);
+
+        ExecutorService pool = Executors.newSingleThreadExecutor();
+        AtomicBoolean done = new AtomicBoolean();
+        try {
+            Future<?> rebuilds = pool.submit(() -> {
+                while (!done.get()) {
+                    summaryService.rebuildAll();
+                }
+            });
+            for (int i = 1; i < orders; i++) {
+                place(user, productId);
+            }
+            done.set(true);
+            rebuilds.get(60, TimeUnit.SECONDS);
+        } finally {
+            pool.shutdownNow();
+        }
+
+        assertEquals(orders, summaryService.getSummary(user.getId()).getOrderCount());
+        assertEquals(orders * 10.0, summaryService.getSummary(user.getId()).getLifetimeSpend(), 1e-9);
+    }
+}
@@ -0,0 +1,104 @@
+package com.examly.springapp.utils;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BatchLoaderTest {
+
+    private final ScheduledExecutorService executor = Executors.newScheduledThreadPool(2);
+    private final List<List<Long>> batches = Collections.synchronizedList(new ArrayList<>());
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    // Squares of the even keys; odd keys are "not found"
+    private Map<Long, Long> squares(List<Long> keys) {
+        batches.add(List.copyOf(keys));
+        Map<Long, Long> values = new HashMap<>();
+        keys.stream().filter(key -> key % 2 == 0).forEach(key -> values.put(key, key * key));
+        return values;
+    }
+
+    private List<Long> loadConcurrently(BatchLoader<Long, Long> loader, List<Long> keys) throws Exception {
+        ExecutorService callers = Executors.newFixedThreadPool(keys.size());
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<Long>> futures = new ArrayList<>();
+            for (Long key : keys) {
+                futures.add(callers.submit(() -> {
+                    start.await();
+                    return loader.load(key);
+                }));
+            }
+            start.countDown();
+            List<Long> values = new ArrayList<>();
+            for (Future<Long> future : futures) {
+                values.add(future.get(10, TimeUnit.SECONDS));
+            }
+            return values;
+        } finally {
+            callers.shutdownNow();
+        }
+    }
+
+    @Test
+    void utils_concurrentLoadsShareOneQuery() throws Exception {
+        BatchLoader<Long, Long> loader = new BatchLoader<>("squares", this::squares, 200, 100, executor, () -> true);
+        List<Long> keys = List.of(2L, 4L, 2L, 3L, 4L, 6L, 2L, 8L);
+
+        assertEquals(Arrays.asList(4L, 16L, 4L, null, 16L, 36L, 4L, 64L), loadConcurrently(loader, keys));
+        assertEquals(1, batches.size());
+        assertEquals(Set.of(2L, 3L, 4L, 6L, 8L), new HashSet<>(batches.get(0)));
+
+        Map<String, Object> stats = loader.stats();
+        assertEquals(8L, stats.get("loads"));
+        assertEquals(3L, stats.get("sharedInFlight"));
+        assertEquals(1L, stats.get("queries"));
+        assertEquals(8.0, (Double) stats.get("coalescingRatio"), 1e-9);
+
+        // nothing is cached once the batch is done
+        assertEquals(4L, loader.load(2L));
+        assertEquals(2, batches.size());
+    }
+
+    @Test
+    void utils_fullBatchesGoWithoutWaitingForTheWindow() throws Exception {
+        BatchLoader<Long, Long> loader = new BatchLoader<>("squares", this::squares, 60_000, 3, executor, () -> true);
+
+        List<Long> keys = List.of(2L, 4L, 6L, 8L, 10L, 12L);
+        assertEquals(List.of(4L, 16L, 36L, 64L, 100L, 144L), loadConcurrently(loader, keys));
+        assertEquals(2, batches.size());
+        batches.forEach(batch -> assertEquals(3, batch.size()));
+        assertEquals(3, (long) loader.stats().get("largestBatch"));
+    }
+
+    @Test
+    void utils_failuresReachEveryWaiterAndUncoalescedLoadsRunInline() {
+        AtomicBoolean coalesce = new AtomicBoolean(true);
+        Function<List<Long>, Map<Long, Long>> failing = keys -> {
+            throw new IllegalStateException("database down");
+        };
+        BatchLoader<Long, Long> broken = new BatchLoader<>("broken", failing, 0, 10, executor, coalesce::get);
+        assertThrows(IllegalStateException.class, () -> broken.load(1L));
+        assertEquals(1L, broken.stats().get("failedQueries"));
+        // the failed key is not left behind in flight
+        assertThrows(IllegalStateException.class, () -> broken.load(1L));
+        assertEquals(2L, broken.stats().get("queries"));
+
+        BatchLoader<Long, Long> loader = new BatchLoader<>("squares", this::squares, 0, 10, executor, coalesce::get);
+        coalesce.set(false);
+        assertEquals(Map.of(2L, 4L, 4L, 16L), loader.loadAll(List.of(2L, 3L, 4L, 2L)));
+        assertEquals(List.of(List.of(2L, 3L, 4L)), batches);
+        assertEquals(0L, loader.stats().get("queries"));
+        assertEquals(1L, loader.stats().get("uncoalesced"));
+    }
+}
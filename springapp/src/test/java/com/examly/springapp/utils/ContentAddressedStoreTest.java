@@ -0,0 +1,52 @@
+package com.examly.springapp.utils;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ContentAddressedStoreTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void utils_storesUnderContentHashOnce() throws Exception {
+        ContentAddressedStore store = new ContentAddressedStore(dir.resolve("images"));
+        byte[] content = "not really a png".getBytes(StandardCharsets.UTF_8);
+        String name = ContentAddressedStore.sha256(content) + ".png";
+
+        Path stored = store.put(name, content);
+        assertEquals(dir.resolve("images").resolve(name.substring(0, 2)).resolve(name), stored);
+        assertArrayEquals(content, Files.readAllBytes(stored));
+        assertTrue(store.exists(name));
+
+        // same name again is a no-op and leaves no temporary files behind
+        long modified = Files.getLastModifiedTime(stored).toMillis();
+        store.put(name, content);
+        assertEquals(modified, Files.getLastModifiedTime(stored).toMillis());
+        try (var files = Files.list(stored.getParent())) {
+            assertEquals(1, files.count());
+        }
+    }
+
+    @Test
+    void utils_rejectsNamesOutsideTheStore() {
+        String hash = ContentAddressedStore.sha256(new byte[0]);
+        assertEquals("e3b0c44298fc1c149afbf4c8996fb92427ae41e4649b934ca495991b7852b855", hash);
+        assertTrue(ContentAddressedStore.isValidName(hash + "-256.jpg"));
+        assertFalse(ContentAddressedStore.isValidName("../" + hash + ".jpg"));
+        assertFalse(ContentAddressedStore.isValidName(hash.toUpperCase() + ".jpg"));
+        assertFalse(ContentAddressedStore.isValidName(hash + ".jpg/x"));
+    }
+
+    @Test
+    void utils_resolveRefusesInvalidNames(@TempDir Path other) throws Exception {
+        ContentAddressedStore store = new ContentAddressedStore(other);
+        assertThrows(IllegalArgumentException.class, () -> store.resolve("../../etc/passwd"));
+    }
+}
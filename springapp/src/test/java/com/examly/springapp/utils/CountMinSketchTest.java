@@ -0,0 +1,64 @@
+package com.examly.springapp.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CountMinSketchTest {
+
+    @Test
+    void utils_estimatesNeverUndercountAndRarelyExceedTheBound() {
+        CountMinSketch sketch = new CountMinSketch(200, 4);
+        assertEquals(Math.E / 256, sketch.epsilon(), 1e-12);
+
+        Random random = new Random(42);
+        Map<Long, Long> counts = new HashMap<>();
+        long total = 0;
+        for (int i = 0; i < 20_000; i++) {
+            long key = random.nextInt(3_000);
+            long delta = 1 + random.nextInt(5);
+            sketch.add(key, delta);
+            counts.merge(key, delta, Long::sum);
+            total += delta;
+        }
+
+        long bound = (long) Math.ceil(sketch.epsilon() * total);
+        int overBound = 0;
+        for (Map.Entry<Long, Long> entry : counts.entrySet()) {
+            long estimate = sketch.estimate(entry.getKey());
+            assertTrue(estimate >= entry.getValue());
+            if (estimate - entry.getValue() > bound) {
+                overBound++;
+            }
+        }
+        assertTrue(overBound <= counts.size() * (1 - sketch.confidence()) * 2, "over the bound: " + overBound);
+    }
+
+    @Test
+    void utils_mergeAddsAndSubtractsWholeSketches() {
+        CountMinSketch window = new CountMinSketch(64, 3);
+        CountMinSketch bucket = new CountMinSketch(64, 3);
+        window.add(7, 10);
+        bucket.add(7, 4);
+        bucket.add(9, 6);
+
+        window.merge(bucket, 1);
+        assertTrue(window.estimate(7) >= 14);
+        assertTrue(window.estimate(9) >= 6);
+
+        window.merge(bucket, -1);
+        assertEquals(10, window.estimate(7));
+        assertEquals(0, window.estimate(9));
+
+        // removals below zero are reported as zero
+        window.add(7, -20);
+        assertEquals(0, window.estimate(7));
+        bucket.clear();
+        assertEquals(0, bucket.estimate(9));
+        assertThrows(IllegalArgumentException.class, () -> new CountMinSketch(64, 9));
+    }
+}
@@ -0,0 +1,48 @@
+package com.examly.springapp.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CsvReaderTest {
+
+    @Test
+    void utils_readsQuotedFieldsAcrossLines() throws IOException {
+        CsvReader csv = new CsvReader(new StringReader(
+                "\uFEFFsku,name,description\r\n" +
+                "A-1,\"Desk, oak\",\"Solid \"\"oak\"\"\nwith drawers\"\r\n" +
+                "A-2,Lamp,\n" +
+                "A-3,,\"\""));
+
+        assertEquals(List.of("sku", "name", "description"), csv.next());
+        assertEquals(1, csv.getRecordLine());
+        assertEquals(List.of("A-1", "Desk, oak", "Solid \"oak\"\nwith drawers"), csv.next());
+        assertEquals(2, csv.getRecordLine());
+        assertEquals(List.of("A-2", "Lamp", ""), csv.next());
+        assertEquals(4, csv.getRecordLine());
+        assertEquals(List.of("A-3", "", ""), csv.next());
+        assertNull(csv.next());
+    }
+
+    @Test
+    void utils_readsRecordsLargerThanTheBuffer() throws IOException {
+        String description = "x".repeat(200_000);
+        CsvReader csv = new CsvReader(new StringReader("a,\"" + description + "\"\nb,c\n"));
+
+        assertEquals(description, csv.next().get(1));
+        assertEquals(List.of("b", "c"), csv.next());
+        assertNull(csv.next());
+    }
+
+    @Test
+    void utils_rejectsUnterminatedQuotes() throws IOException {
+        CsvReader csv = new CsvReader(new StringReader("a,b\nc,\"never closed\n"));
+        csv.next();
+        IOException error = assertThrows(IOException.class, csv::next);
+        assertTrue(error.getMessage().contains("line 2"));
+    }
+}
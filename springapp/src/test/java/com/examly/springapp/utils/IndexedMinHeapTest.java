@@ -0,0 +1,59 @@
+package com.examly.springapp.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class IndexedMinHeapTest {
+
+    @Test
+    void utils_updatesAndRemovesByKey() {
+        IndexedMinHeap heap = new IndexedMinHeap(2);
+        heap.put(1, 30);
+        heap.put(2, 10);
+        heap.put(3, 20);
+        heap.put(4, 10);
+        assertArrayEquals(new long[]{2, 4, 3, 1}, heap.smallest(10, Double.POSITIVE_INFINITY));
+
+        heap.put(1, 5);
+        heap.put(2, 40);
+        assertTrue(heap.remove(4));
+        assertFalse(heap.remove(4));
+        assertEquals(3, heap.size());
+        assertEquals(5, heap.priority(1));
+        assertTrue(Double.isNaN(heap.priority(4)));
+        assertArrayEquals(new long[]{1, 3}, heap.smallest(2, Double.POSITIVE_INFINITY));
+        assertArrayEquals(new long[]{1, 3}, heap.smallest(10, 20));
+        assertArrayEquals(new long[0], heap.smallest(10, 1));
+    }
+
+    @Test
+    void utils_matchesASortedListUnderRandomUpdates() {
+        Random random = new Random(46);
+        IndexedMinHeap heap = new IndexedMinHeap();
+        Map<Long, Double> expected = new HashMap<>();
+        for (int step = 0; step < 20_000; step++) {
+            long key = random.nextInt(500);
+            if (random.nextInt(4) == 0) {
+                assertEquals(expected.remove(key) != null, heap.remove(key));
+            } else {
+                double priority = random.nextInt(5) == 0 ? Double.NEGATIVE_INFINITY : random.nextInt(100);
+                heap.put(key, priority);
+                expected.put(key, priority);
+            }
+            if (step % 500 == 0) {
+                double max = random.nextInt(100);
+                long[] sorted = expected.entrySet().stream()
+                        .filter(entry -> entry.getValue() <= max)
+                        .sorted(Map.Entry.<Long, Double>comparingByValue().thenComparing(Map.Entry.comparingByKey()))
+                        .limit(25)
+                        .mapToLong(Map.Entry::getKey)
+                        .toArray();
+                assertArrayEquals(sorted, heap.smallest(25, max));
+                assertEquals(expected.size(), heap.size());
+            }
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.examly.springapp.utils;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class OrderHistoryLogTest {
+
+    @TempDir
+    Path dir;
+
+    private static OrderHistoryLog.Entry change(long orderId, long eventId, String from, String to) {
+        return new OrderHistoryLog.Entry(orderId, eventId, System.currentTimeMillis(),
+                OrderStatusCodes.encode(from), OrderStatusCodes.encode(to), false, "admin@example.com");
+    }
+
+    @Test
+    void utils_historySurvivesReopenAndSegmentRollover() throws Exception {
+        try (OrderHistoryLog log = new OrderHistoryLog(dir, 4, OrderHistoryLog.FsyncPolicy.ALWAYS)) {
+            for (long event = 1; event <= 10; event++) {
+                log.append(change(event % 2 == 0 ? 100 : 200, event, "PENDING", "PROCESSING"));
+            }
+            log.commit();
+            assertEquals(3, log.getSegmentCount());
+        }
+
+        try (OrderHistoryLog log = new OrderHistoryLog(dir, 4, OrderHistoryLog.FsyncPolicy.ALWAYS)) {
+            List<OrderHistoryLog.Entry> history = log.history(100);
+            assertEquals(5, history.size());
+            assertEquals(List.of(2L, 4L, 6L, 8L, 10L), history.stream().map(OrderHistoryLog.Entry::eventId).toList());
+            assertEquals("PROCESSING", OrderStatusCodes.decode(history.get(0).toStatus()));
+            assertEquals("admin@example.com", history.get(0).actor());
+            assertEquals(10, log.getLastEventId());
+        }
+    }
+
+    @Test
+    void utils_redeliveredEventsAreIgnored() throws Exception {
+        try (OrderHistoryLog log = new OrderHistoryLog(dir, 16, OrderHistoryLog.FsyncPolicy.NONE)) {
+            assertTrue(log.append(change(1, 5, "PENDING", "SHIPPED")));
+            assertFalse(log.append(change(1, 5, "PENDING", "SHIPPED")));
+            assertFalse(log.append(change(1, 3, "PENDING", "CANCELLED")));
+            assertEquals(1, log.history(1).size());
+        }
+    }
+
+    @Test
+    void utils_compactionDropsDeletedOrdersButKeepsTheirTombstones() throws Exception {
+        try (OrderHistoryLog log = new OrderHistoryLog(dir, 2, OrderHistoryLog.FsyncPolicy.ALWAYS)) {
+            log.append(change(1, 1, "PENDING", "PROCESSING"));
+            log.append(change(2, 2, "PENDING", "PROCESSING"));
+            log.append(change(1, 3, "PROCESSING", "SHIPPED"));
+            log.append(new OrderHistoryLog.Entry(1, 4, System.currentTimeMillis(), (byte) 0, (byte) 0, true, "admin"));
+            log.append(change(2, 5, "PROCESSING", "SHIPPED"));
+
+            assertEquals(2, log.compact(Long.MIN_VALUE));
+            assertEquals(List.of(4L), log.history(1).stream().map(OrderHistoryLog.Entry::eventId).toList());
+            assertTrue(log.history(1).get(0).tombstone());
+            assertEquals(2, log.history(2).size());
+        }
+
+        // the tombstone also outlives the retention cutoff and a reopen
+        try (OrderHistoryLog log = new OrderHistoryLog(dir, 2, OrderHistoryLog.FsyncPolicy.ALWAYS)) {
+            log.append(change(3, 6, "PENDING", "PROCESSING"));
+            log.compact(Long.MAX_VALUE);
+            assertTrue(log.history(1).get(0).tombstone());
+            assertEquals(1, log.history(1).size());
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package com.examly.springapp.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class OrderLineColumnsTest {
+
+    private static final LocalDate MONDAY = LocalDate.of(2024, 5, 6);
+    private static final OrderLineColumns.Filter ALL = new OrderLineColumns.Filter(null, null, null, null, null, null);
+
+    private static OrderLineColumns.Line line(String category, long productId, int quantity, int cents) {
+        return new OrderLineColumns.Line(category, productId, quantity, cents);
+    }
+
+    private static OrderLineColumns sample() {
+        OrderLineColumns store = new OrderLineColumns();
+        store.appendOrder(1, 10, MONDAY, "DELIVERED",
+                List.of(line("Books", 100, 2, 500), line("Toys", 200, 1, 1000), line("Books", 101, 1, 300)));
+        store.appendOrder(2, 11, MONDAY.plusDays(1), "PENDING", List.of(line("Books", 100, 1, 500)));
+        store.appendOrder(3, 10, MONDAY.plusDays(8), "DELIVERED", List.of(line("Toys", 200, 3, 1000)));
+        return store;
+    }
+
+    @Test
+    void utils_groupsRevenueByCategoryAndWeek() {
+        OrderLineColumns.Result result = sample().query(ALL,
+                List.of(OrderLineColumns.Dimension.CATEGORY, OrderLineColumns.Dimension.WEEK), 10);
+
+        assertEquals(5, result.scannedLines());
+        assertEquals(3, result.totalGroups());
+        OrderLineColumns.Group top = result.groups().get(0);
+        assertEquals(List.of("Toys", MONDAY.plusDays(7)), top.keys());
+        assertEquals(3000, top.revenueCents());
+
+        OrderLineColumns.Group books = result.groups().stream()
+                .filter(group -> group.keys().get(0).equals("Books")).findFirst().orElseThrow();
+        assertEquals(MONDAY, books.keys().get(1));
+        assertEquals(3, books.lines());
+        assertEquals(2, books.orders());   // order 1 has two Books lines but counts once
+        assertEquals(4, books.units());
+        assertEquals(1800, books.revenueCents());
+    }
+
+    @Test
+    void utils_filtersAndFollowsStatusChanges() {
+        OrderLineColumns store = sample();
+        OrderLineColumns.Filter delivered = new OrderLineColumns.Filter(Set.of("DELIVERED"), null, null,
+                10L, MONDAY, MONDAY.plusDays(7));
+
+        OrderLineColumns.Result before = store.query(delivered, List.of(OrderLineColumns.Dimension.STATUS), 10);
+        assertEquals(1, before.groups().size());
+        assertEquals(2300, before.groups().get(0).revenueCents());
+        assertEquals(1, before.groups().get(0).orders());
+
+        assertEquals(3, store.setStatus(1, "CANCELLED"));
+        assertTrue(store.query(delivered, List.of(), 10).groups().isEmpty());
+
+        // deleted orders disappear from every query
+        store.setStatus(2, null);
+        OrderLineColumns.Result byMonth = store.query(ALL, List.of(OrderLineColumns.Dimension.MONTH), 10);
+        assertEquals(List.of(YearMonth.of(2024, 5)), byMonth.groups().get(0).keys());
+        assertEquals(4, byMonth.matchedLines());
+    }
+
+    @Test
+    void utils_partitionsShareDictionariesAndNeverSplitOrders() {
+        OrderLineColumns store = new OrderLineColumns();
+        OrderLineColumns first = store.newPartition();
+        OrderLineColumns second = store.newPartition();
+        for (long order = 0; order < OrderLineColumns.CHUNK_SIZE / 2; order++) {
+            first.appendOrder(order, order % 7, MONDAY, "SHIPPED", List.of(line("A", 1, 1, 100), line("B", 2, 1, 100)));
+        }
+        first.appendOrder(-1, 1, MONDAY, "SHIPPED", List.of(line("A", 1, 1, 100), line("B", 2, 1, 100)));
+        second.appendOrder(1_000_000, 3, MONDAY, "SHIPPED", List.of(line("B", 2, 5, 100)));
+        store.absorb(first);
+        store.absorb(second);
+
+        assertEquals(3, store.getChunkCount());
+        assertEquals(OrderLineColumns.CHUNK_SIZE + 3, store.getLineCount());
+        OrderLineColumns.Result byProduct = store.query(ALL, List.of(OrderLineColumns.Dimension.PRODUCT), 10);
+        assertEquals(List.of(2L), byProduct.groups().get(0).keys());
+        assertEquals(OrderLineColumns.CHUNK_SIZE / 2 + 2, byProduct.groups().get(0).orders());
+    }
+}
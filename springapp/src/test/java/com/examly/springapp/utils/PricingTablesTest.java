@@ -0,0 +1,127 @@
+package com.examly.springapp.utils;
+
+import com.examly.springapp.model.PricingRule;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PricingTablesTest {
+
+    private static final LocalDateTime NOW = LocalDateTime.of(2024, 5, 6, 12, 0);
+
+    private static PricingRule rule(PricingRule.Type type, String category, Long productId, int minQuantity, int bp) {
+        return PricingRule.builder().type(type).name(type.name()).category(category).productId(productId)
+                .minQuantity(minQuantity).basisPoints(bp).build();
+    }
+
+    private static PricingRule coupon(String code, long amountOffCents, long minSubtotalCents) {
+        return PricingRule.builder().type(PricingRule.Type.COUPON).name(code).couponCode(code)
+                .amountOffCents(amountOffCents).minSubtotalCents(minSubtotalCents).build();
+    }
+
+    private static PricingTables sample() {
+        return PricingTables.compile(List.of(
+                rule(PricingRule.Type.CATEGORY_DISCOUNT, "Books", null, 0, 1000),
+                rule(PricingRule.Type.QUANTITY_BREAK, null, null, 5, 1500),
+                rule(PricingRule.Type.TAX_RATE, null, null, 0, 800),
+                rule(PricingRule.Type.TAX_RATE, "Books", null, 0, 0),
+                coupon("SAVE5", 500, 2000)), NOW);
+    }
+
+    @Test
+    void utils_appliesDiscountsCouponAndTaxInCents() {
+        PricingTables.Basket basket = new PricingTables.Basket(1)
+                .add(1, "Books", 1000, 2)     // 10% category discount -> 1800
+                .add(2, "Toys", 500, 5);      // 15% quantity break     -> 2125
+        PricingTables.Result out = new PricingTables.Result();
+        sample().price(basket, " save5 ", out);
+
+        assertEquals(PricingTables.CouponStatus.APPLIED, out.couponStatus);
+        assertEquals(4500, out.subtotalCents);
+        assertEquals(575, out.lineDiscountCents);
+        assertEquals(500, out.couponDiscountCents);
+        // the coupon is split 229 / 271 by net amount; Books is untaxed, Toys pays 8% of 1854
+        assertEquals(229, out.lineCoupon[0]);
+        assertEquals(271, out.lineCoupon[1]);
+        assertEquals(148, out.taxCents);
+        assertEquals(3573, out.totalCents);
+        assertEquals(out.totalCents, out.lineTotal[0] + out.lineTotal[1]);
+    }
+
+    @Test
+    void utils_reportsCouponProblemsAndReusesResult() {
+        PricingTables tables = sample();
+        PricingTables.Result out = new PricingTables.Result();
+
+        tables.price(new PricingTables.Basket(1).add(1, "Books", 1000, 1), "SAVE5", out);
+        assertEquals(PricingTables.CouponStatus.BELOW_MINIMUM, out.couponStatus);
+        assertEquals(2000, out.couponMinSubtotalCents);
+        assertEquals(900, out.totalCents);
+
+        tables.price(new PricingTables.Basket(1).add(3, "Garden", 1000, 1), "NOPE", out);
+        assertEquals(PricingTables.CouponStatus.UNKNOWN, out.couponStatus);
+        assertEquals(0, out.couponDiscountCents);
+        assertEquals(1080, out.totalCents);
+    }
+
+    @Test
+    void utils_compilesOnlyRulesInTheirWindow() {
+        PricingRule expired = rule(PricingRule.Type.CATEGORY_DISCOUNT, "Books", null, 0, 5000);
+        expired.setEndsAt(NOW.minusDays(1));
+        PricingRule upcoming = rule(PricingRule.Type.CATEGORY_DISCOUNT, "Books", null, 0, 2500);
+        upcoming.setStartsAt(NOW.plusHours(1));
+        PricingRule inactive = rule(PricingRule.Type.CATEGORY_DISCOUNT, "Books", null, 0, 9000);
+        inactive.setActive(false);
+
+        PricingTables tables = PricingTables.compile(List.of(expired, upcoming, inactive), NOW);
+        assertEquals(0, tables.getRuleCount());
+        assertTrue(tables.getNextChangeMillis() < Long.MAX_VALUE);
+
+        PricingTables.Result out = new PricingTables.Result();
+        tables.price(new PricingTables.Basket(1).add(1, "Books", 1000, 1), null, out);
+        assertEquals(1000, out.totalCents);
+    }
+
+    // Run with: mvn test -Dtest=PricingTablesTest -Dbenchmark=true
+    @Test
+    @EnabledIfSystemProperty(named = "benchmark", matches = "true")
+    void utils_benchmarkLargeBaskets() {
+        List<PricingRule> rules = new ArrayList<>();
+        for (int c = 0; c < 200; c++) {
+            rules.add(rule(PricingRule.Type.CATEGORY_DISCOUNT, "cat-" + c, null, 0, c * 10));
+            rules.add(rule(PricingRule.Type.TAX_RATE, "cat-" + c, null, 0, 500 + c));
+            rules.add(rule(PricingRule.Type.QUANTITY_BREAK, "cat-" + c, null, 10, 700));
+        }
+        for (long p = 0; p < 5_000; p++) {
+            rules.add(rule(PricingRule.Type.QUANTITY_BREAK, null, p, 3, 1200));
+        }
+        rules.add(coupon("BIG", 10_000, 0));
+        PricingTables tables = PricingTables.compile(rules, NOW);
+
+        PricingTables.Basket basket = new PricingTables.Basket(1_000);
+        for (int i = 0; i < 1_000; i++) {
+            basket.add(i * 7L, "cat-" + (i % 250), 199 + i, 1 + i % 12);
+        }
+        PricingTables.Result out = new PricingTables.Result();
+        for (int i = 0; i < 20_000; i++) {
+            tables.price(basket, "BIG", out);
+        }
+
+        int rounds = 50_000;
+        long started = System.nanoTime();
+        long checksum = 0;
+        for (int i = 0; i < rounds; i++) {
+            tables.price(basket, "BIG", out);
+            checksum += out.totalCents;
+        }
+        double micros = (System.nanoTime() - started) / 1_000.0 / rounds;
+        System.out.printf("1000-line basket: %.1f us per basket (%.0f ns per line), checksum %d%n",
+                micros, micros * 1_000 / basket.size(), checksum);
+        assertEquals(out.totalCents * rounds, checksum);
+    }
+}
@@ -0,0 +1,98 @@
+package com.examly.springapp.utils;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ProductSuggestIndexTest {
+
+    private static ProductSuggestIndex sample() {
+        return new ProductSuggestIndex.Builder()
+                .addProduct(1, "Smart Phone X", "Electronics", 50)
+                .addProduct(2, "Phone Case", "Accessories", 80)
+                .addProduct(3, "Smart  Watch", "Electronics", 10)
+                .addProduct(4, "Paper Notebook", "Stationery", 0)
+                .build();
+    }
+
+    private static List<String> texts(List<ProductSuggestIndex.Suggestion> hits) {
+        return hits.stream().map(ProductSuggestIndex.Suggestion::text).toList();
+    }
+
+    @Test
+    void utils_matchesNamesFromAnyWordByWeight() {
+        ProductSuggestIndex index = sample();
+
+        // "phone" starts one name and the second word of another; each product appears once
+        assertEquals(List.of("Phone Case", "Smart Phone X"), texts(index.suggest("PHONE", 10)));
+        assertEquals(List.of("Smart Phone X", "Smart  Watch"), texts(index.suggest("smart", 10)));
+        assertEquals(List.of("Smart Phone X"), texts(index.suggest(" smart   ph", 10)));
+        assertEquals(Long.valueOf(1), index.suggest("smart p", 1).get(0).productId());
+        assertTrue(index.suggest("phones", 10).isEmpty());
+        assertTrue(index.suggest("  ", 10).isEmpty());
+    }
+
+    @Test
+    void utils_suggestsCategoriesWeightedByTheirProducts() {
+        List<ProductSuggestIndex.Suggestion> hits = sample().suggest("e", 10);
+
+        assertEquals(1, hits.size());
+        ProductSuggestIndex.Suggestion electronics = hits.get(0);
+        assertEquals(ProductSuggestIndex.Kind.CATEGORY, electronics.kind());
+        assertEquals("Electronics", electronics.text());
+        assertNull(electronics.productId());
+        assertEquals(60, electronics.weight());
+
+        assertEquals(List.of("Smart Phone X", "Smart  Watch", "Stationery"), texts(sample().suggest("s", 10)));
+        assertEquals(List.of("Phone Case", "Smart Phone X"), texts(sample().suggest("p", 2)));
+        assertEquals(List.of("Phone Case", "Smart Phone X", "Paper Notebook"), texts(sample().suggest("p", 3)));
+    }
+
+    @Test
+    void utils_emptyIndexSuggestsNothing() {
+        assertEquals(0, ProductSuggestIndex.EMPTY.getKeyCount());
+        assertTrue(ProductSuggestIndex.EMPTY.suggest("a", 10).isEmpty());
+    }
+
+    // Run with: mvn test -Dtest=ProductSuggestIndexTest -Dbenchmark=true
+    @Test
+    @EnabledIfSystemProperty(named = "benchmark", matches = "true")
+    void utils_benchmarkSuggestLatency() {
+        String[] words = {"smart", "phone", "case", "usb", "cable", "wireless", "charger", "laptop", "stand",
+                "paper", "notebook", "pen", "desk", "lamp", "mini", "pro", "max", "ultra", "slim", "kids"};
+        Random random = new Random(42);
+        ProductSuggestIndex.Builder builder = new ProductSuggestIndex.Builder();
+        for (int p = 0; p < 200_000; p++) {
+            StringBuilder name = new StringBuilder();
+            for (int w = 0; w < 3 + random.nextInt(3); w++) {
+                name.append(words[random.nextInt(words.length)]).append(' ');
+            }
+            name.append(p);
+            builder.addProduct(p, name.toString(), "category-" + random.nextInt(300), random.nextInt(1_000));
+        }
+        long buildStarted = System.nanoTime();
+        ProductSuggestIndex index = builder.build();
+        long buildMs = (System.nanoTime() - buildStarted) / 1_000_000;
+
+        int lookups = 200_000;
+        long[] nanos = new long[lookups];
+        for (int i = 0; i < lookups; i++) {
+            String word = words[random.nextInt(words.length)];
+            String prefix = word.substring(0, 1 + random.nextInt(word.length()));
+            long started = System.nanoTime();
+            List<ProductSuggestIndex.Suggestion> hits = index.suggest(prefix, 10);
+            nanos[i] = System.nanoTime() - started;
+            assertFalse(hits.isEmpty());
+        }
+        Arrays.sort(nanos);
+        System.out.printf("%d keys (%d KB) built in %d ms; suggest p50 %.1f us, p99 %.1f us, max %.1f us%n",
+                index.getKeyCount(), index.getKeyBytes() / 1024, buildMs, nanos[lookups / 2] / 1_000.0,
+                nanos[lookups * 99 / 100] / 1_000.0, nanos[lookups - 1] / 1_000.0);
+        assertTrue(nanos[lookups * 99 / 100] < 1_000_000, "p99 should be under a millisecond");
+    }
+}
@@ -0,0 +1,67 @@
+package com.examly.springapp.utils;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RateLimiterTest {
+
+    @Test
+    void utils_routesCostTheirWeight() {
+        RateLimiter limiter = new RateLimiter(100, 20);
+        assertEquals(10, limiter.costOf("GET", "/api/orders"));
+        assertEquals(5, limiter.costOf("GET", "/api/orders/search"));
+        assertEquals(1, limiter.costOf("GET", "/api/orders/42"));
+        assertEquals(10, limiter.costOf("POST", "/api/products/7/image"));
+        assertEquals(3, limiter.costOf("GET", "/api/products/changes"));
+        assertEquals(10, limiter.costOf("POST", "/api/analytics/orders/query"));
+        assertEquals(1, limiter.costOf("DELETE", "/api/products"));
+    }
+
+    @Test
+    void utils_requestsTakeTheirCostFromTheirClientsBucket() {
+        // practically no refill during the test
+        RateLimiter limiter = new RateLimiter(100, 0.001);
+
+        RateLimiter.Decision first = limiter.tryAcquire("a", 60);
+        assertTrue(first.allowed());
+        assertEquals(100, first.limit());
+        assertEquals(40, first.remaining());
+
+        // too expensive for what is left: nothing is taken
+        RateLimiter.Decision denied = limiter.tryAcquire("a", 50);
+        assertFalse(denied.allowed());
+        assertEquals(40, denied.remaining());
+        assertTrue(denied.retryAfterSeconds() >= 9_999);
+
+        assertTrue(limiter.tryAcquire("a", 40).allowed());
+        assertFalse(limiter.tryAcquire("a", 1).allowed());
+        // other clients have their own bucket
+        assertEquals(99, limiter.tryAcquire("b", 1).remaining());
+        assertEquals(2, limiter.getTrackedClients());
+    }
+
+    @Test
+    void utils_bucketsRefillAndIdleFullOnesAreEvicted() throws Exception {
+        RateLimiter limiter = new RateLimiter(10, 100);
+        RateLimiter.Decision drained = limiter.tryAcquire("a", 10);
+        assertTrue(drained.allowed());
+        assertEquals(1, drained.resetSeconds());
+
+        RateLimiter.Decision denied = limiter.tryAcquire("a", 10);
+        assertFalse(denied.allowed());
+        assertEquals(1, denied.retryAfterSeconds());
+
+        // a client that took nothing is back to a full bucket, which is not worth keeping
+        limiter.tryAcquire("b", 0);
+        limiter.evictIdle();
+        assertEquals(1, limiter.getTrackedClients());
+
+        // 10 tokens at 100 a second
+        Thread.sleep(150);
+        assertTrue(limiter.tryAcquire("a", 10).allowed());
+        Thread.sleep(150);
+        limiter.evictIdle();
+        assertEquals(0, limiter.getTrackedClients());
+    }
+}
@@ -0,0 +1,85 @@
+package com.examly.springapp.utils;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.Set;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SnowflakeIdGeneratorTest {
+
+    private final Object holder = new Object();
+
+    @BeforeEach
+    void lease() {
+        SnowflakeIdGenerator.useNode(3, holder, System.currentTimeMillis() + 60_000);
+    }
+
+    @AfterEach
+    void release() {
+        SnowflakeIdGenerator.revoke(holder);
+    }
+
+    @Test
+    void utils_idsIncreaseAndStayJavaScriptSafe() {
+        long previous = SnowflakeIdGenerator.nextId();
+        for (int i = 0; i < 10_000; i++) {
+            long id = SnowflakeIdGenerator.nextId();
+            assertTrue(id > previous);
+            assertTrue(id < (1L << 53));
+            previous = id;
+        }
+    }
+
+    @Test
+    void utils_idsAreUniqueAcrossThreads() throws Exception {
+        Set<Long> ids = ConcurrentHashMap.newKeySet();
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        for (int t = 0; t < 8; t++) {
+            pool.submit(() -> {
+                for (int i = 0; i < 5_000; i++) {
+                    ids.add(SnowflakeIdGenerator.nextId());
+                }
+            });
+        }
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(30, TimeUnit.SECONDS));
+        assertEquals(40_000, ids.size());
+    }
+
+    @Test
+    void utils_idsDoubleAsTimeIndex() {
+        LocalDateTime before = LocalDateTime.now().minusSeconds(1);
+        long id = SnowflakeIdGenerator.nextId();
+        LocalDateTime after = LocalDateTime.now().plusSeconds(1);
+
+        assertTrue(id >= SnowflakeIdGenerator.lowestIdAt(before));
+        assertTrue(id < SnowflakeIdGenerator.lowestIdAt(after));
+        assertFalse(SnowflakeIdGenerator.timestampOf(id).isBefore(before));
+    }
+
+    @Test
+    void utils_noIdsWithoutAnUnexpiredLease() {
+        assertEquals(3, SnowflakeIdGenerator.currentNode());
+        long id = SnowflakeIdGenerator.nextId();
+        assertEquals(3, (id >>> SnowflakeIdGenerator.SEQUENCE_BITS) & (SnowflakeIdGenerator.MAX_NODES - 1));
+
+        // someone else's lease cannot be extended or revoked
+        assertFalse(SnowflakeIdGenerator.extendLease(new Object(), Long.MAX_VALUE));
+        SnowflakeIdGenerator.revoke(new Object());
+        assertTrue(SnowflakeIdGenerator.nextId() > id);
+
+        assertTrue(SnowflakeIdGenerator.extendLease(holder, System.currentTimeMillis() - 1));
+        assertEquals(-1, SnowflakeIdGenerator.currentNode());
+        assertThrows(IllegalStateException.class, SnowflakeIdGenerator::nextId);
+
+        SnowflakeIdGenerator.useNode(4, holder, System.currentTimeMillis() + 60_000);
+        assertTrue(SnowflakeIdGenerator.nextId() > id);
+        SnowflakeIdGenerator.revoke(holder);
+        assertThrows(IllegalStateException.class, SnowflakeIdGenerator::nextId);
+    }
+}
@@ -0,0 +1,38 @@
+package com.examly.springapp.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class VersionGapsTest {
+
+    private record Row(long version, LocalDateTime writtenAt) {
+    }
+
+    private static final LocalDateTime CUTOFF = LocalDateTime.of(2024, 1, 1, 12, 0);
+    private static final LocalDateTime OLD = CUTOFF.minusMinutes(5);
+    private static final LocalDateTime YOUNG = CUTOFF.plusSeconds(1);
+
+    private static int readable(long since, List<Row> rows) {
+        return VersionGaps.readable(since, rows, Row::version, Row::writtenAt, CUTOFF);
+    }
+
+    @Test
+    void utils_stopsInFrontOfAYoungHoleOnly() {
+        assertEquals(3, readable(4, List.of(new Row(5, YOUNG), new Row(6, YOUNG), new Row(7, YOUNG))));
+        // 7 is missing and 8 is recent: 7 may still commit
+        assertEquals(2, readable(4, List.of(new Row(5, YOUNG), new Row(6, YOUNG), new Row(8, YOUNG))));
+        // a hole straight after since
+        assertEquals(0, readable(4, List.of(new Row(6, YOUNG))));
+        assertEquals(0, readable(4, List.of()));
+    }
+
+    @Test
+    void utils_oldHolesAreSteppedOver() {
+        assertEquals(3, readable(4, List.of(new Row(7, OLD), new Row(8, YOUNG), new Row(12, OLD))));
+        assertEquals(2, readable(4, List.of(new Row(7, OLD), new Row(9, OLD), new Row(12, YOUNG))));
+    }
+}